@@ -7,7 +7,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 
 import support.graph.CS16Edge;
 import support.graph.CS16Vertex;
@@ -51,6 +50,9 @@ public class AdjacencyMatrixGraph<V> implements Graph<V> {
     // boolean that keeps track of directedness of graph
     private boolean _directed;
     private ArrayList<Integer> _unique_indices;
+    // the table length insertEdges presized the edge set to, 0 if it never
+    // did; footprint() counts it, since the table never shrinks back
+    private int _edgeTableLength;
 
 
     /**
@@ -183,6 +185,100 @@ public class AdjacencyMatrixGraph<V> implements Graph<V> {
         return insertableEdge;
     }
 
+    /**
+     * Inserts many vertices at once, for loaders that build a whole graph in
+     * one go. The vertices are numbered exactly as if insertVertex had been
+     * called on each element in order, but the free vertex numbers are taken
+     * from the front of _unique_indices in one step instead of one at a time.
+     *
+     * <p>
+     * This runs in O(|elements| + MAX_VERTICES) time.
+     * </p>
+     *
+     * @param elements
+     *            the elements to be added to the graph as vertices
+     * @return the new vertices, in the same order as their elements
+     * @throws IllegalArgumentException
+     *             Thrown when the graph does not have room for all of them.
+     */
+    public List<CS16Vertex<V>> insertVertices(List<V> elements) {
+        if(elements.size() > _unique_indices.size()){
+            throw new IllegalArgumentException("graph has room for only " + _unique_indices.size() + " more vertices");
+        }
+        GraphEvents.BulkLoad event = new GraphEvents.BulkLoad();
+        event.begin();
+        List<Integer> taken = _unique_indices.subList(0, elements.size());
+        ArrayList<CS16Vertex<V>> inserted = new ArrayList<CS16Vertex<V>>(elements.size());
+        for(int i = 0; i < elements.size(); i++){
+            CS16Vertex<V> insertableVertex = new GraphVertex<V>(elements.get(i));
+            insertableVertex.setVertexNumber(taken.get(i));
+            _vertices.add(insertableVertex);
+            inserted.add(insertableVertex);
+        }
+        taken.clear();
+        _numVertices += elements.size();
+        if(event.shouldCommit()){
+            event.phase = "insertVertices";
+            event.count = elements.size();
+            event.commit();
+        }
+        return inserted;
+    }
+
+    /**
+     * Inserts many edges at once, for loaders that build a whole graph in one
+     * go. Edge i goes from vertices.get(sources[i]) to vertices.get(targets[i])
+     * and its element is weights[i]. The edge set is sized for all of the new
+     * edges up front rather than growing as they are added.
+     *
+     * <p>
+     * This runs in O(count) time.
+     * </p>
+     *
+     * @param vertices
+     *            the vertices that the source and target ids refer to
+     * @param sources
+     *            the id of the first vertex of each edge
+     * @param targets
+     *            the id of the second vertex of each edge
+     * @param weights
+     *            the element of each edge
+     * @param count
+     *            the number of edges to insert
+     * @throws InvalidVertexException
+     *             Thrown when an id refers to a null vertex.
+     */
+    public void insertEdges(List<CS16Vertex<V>> vertices, int[] sources, int[] targets, int[] weights, int count)
+            throws InvalidVertexException {
+        GraphEvents.BulkLoad event = new GraphEvents.BulkLoad();
+        event.begin();
+        int capacity = Math.max(16, (int) ((_edges.size() + count) / 0.75f) + 1);
+        HashSet<CS16Edge<V>> edges = new HashSet<CS16Edge<V>>(capacity);
+        edges.addAll(_edges);
+        _edges = edges;
+        _edgeTableLength = MemoryFootprint.presizedTableLength(capacity);
+        for(int i = 0; i < count; i++){
+            CS16Vertex<V> v1 = vertices.get(sources[i]);
+            CS16Vertex<V> v2 = vertices.get(targets[i]);
+            if(v1 == null || v2 == null){
+                throw new InvalidVertexException("Vertex is null");
+            }
+            CS16Edge<V> insertableEdge = new GraphEdge<V>(weights[i]);
+            insertableEdge.setVertexOne(v1);
+            insertableEdge.setVertexTwo(v2);
+            _edges.add(insertableEdge);
+            _adjMatrix[v1.getVertexNumber()][v2.getVertexNumber()] = insertableEdge;
+            if(_directed == false){
+                _adjMatrix[v2.getVertexNumber()][v1.getVertexNumber()] = insertableEdge;
+            }
+        }
+        if(event.shouldCommit()){
+            event.phase = "insertEdges";
+            event.count = count;
+            event.commit();
+        }
+    }
+
     /**
      * Removes a Vertex from your graph. You will first have to remove all edges
      * that are connected to this Vertex. (Perhaps you can use other methods you
@@ -330,6 +426,9 @@ public class AdjacencyMatrixGraph<V> implements Graph<V> {
             throw new InvalidVertexException("null vertex");
         }
         ArrayList<CS16Edge<V>> incomingEdges = new ArrayList<CS16Edge<V>>();
+        if(GraphCounters.isEnabled()){
+            this.countScan();
+        }
 
         for (int i = 0; i < _adjMatrix.length; i++){
             if(_adjMatrix[i][vert.getVertexNumber()] != null){
@@ -362,6 +461,9 @@ public class AdjacencyMatrixGraph<V> implements Graph<V> {
             throw new InvalidVertexException("null vertex");
         }
         ArrayList<CS16Edge<V>> outgoingEdges = new ArrayList<CS16Edge<V>>();
+        if(GraphCounters.isEnabled()){
+            this.countScan();
+        }
 
         for (int i = 0; i < _adjMatrix.length; i++){
             if(_adjMatrix[vert.getVertexNumber()][i] != null){
@@ -376,6 +478,15 @@ public class AdjacencyMatrixGraph<V> implements Graph<V> {
         return outgoingEdges.iterator();
     }
 
+    /**
+     * Counts one scan of a vertex's row (and, if undirected, column) of the
+     * adjacency matrix.
+     */
+    private void countScan() {
+        GraphCounters.add(GraphCounters.Counter.NEIGHBOR_SCANS, 1);
+        GraphCounters.add(GraphCounters.Counter.CELLS_VISITED, _directed ? _adjMatrix.length : 2L * _adjMatrix.length);
+    }
+
     /**
      * Returns an int of the number Edges that are leaving from this Vertex. This should only
      * work if called on a directed graph. This method will be used in MyPageRank.
@@ -554,6 +665,59 @@ public class AdjacencyMatrixGraph<V> implements Graph<V> {
 		return _numVertices;
 	}
 
+    /**
+     * Estimates the memory this graph retains, by component: the graph
+     * object, the adjacency matrix, the vertex and edge objects, the vertex
+     * elements, the vertex and edge sets, and the list of free vertex
+     * numbers. The matrix alone holds MAX_VERTICES^2 references however few
+     * vertices there are. Edge elements are counted with their edges.
+     *
+     * <p>
+     * The edge set's table is counted at the length insertEdges sized it to,
+     * or at the length it would have grown to, whichever is larger. The sets
+     * keep their tables when edges or vertices are removed or the graph is
+     * cleared, and the estimate does not count that: it takes the sets to
+     * be no larger than what they hold now needs.
+     * </p>
+     *
+     * <p>
+     * This runs in O(|V| + |E| + MAX_VERTICES) time.
+     * </p>
+     */
+    public MemoryFootprint footprint() {
+        MemoryFootprint footprint = new MemoryFootprint();
+        footprint.add("graph", MemoryFootprint.shallowSize(this.getClass()));
+        long matrix = MemoryFootprint.arrayBytes(_adjMatrix.length, Object.class);
+        for(CS16Edge<V>[] row : _adjMatrix){
+            matrix += MemoryFootprint.arrayBytes(row.length, Object.class);
+        }
+        footprint.add("adjacency matrix", matrix);
+
+        long vertices = 0;
+        long elements = 0;
+        for(CS16Vertex<V> vertex : _vertices){
+            vertices += MemoryFootprint.valueBytes(vertex);
+            elements += MemoryFootprint.valueBytes(vertex.element());
+        }
+        footprint.add("vertices", vertices);
+        footprint.add("vertex elements", elements);
+        long edges = 0;
+        for(CS16Edge<V> edge : _edges){
+            edges += MemoryFootprint.valueBytes(edge) + MemoryFootprint.valueBytes(edge.element());
+        }
+        footprint.add("edges", edges);
+        footprint.add("vertex set", MemoryFootprint.hashSetBytes(_vertices.size()));
+        footprint.add("edge set", MemoryFootprint.hashSetBytes(_edges.size(), _edgeTableLength));
+
+        // the list grew to MAX_VERTICES when it was filled, and never shrinks
+        long free = MemoryFootprint.arrayListBytes(MAX_VERTICES);
+        for(Integer number : _unique_indices){
+            free += MemoryFootprint.valueBytes(number);
+        }
+        footprint.add("free vertex numbers", free);
+        return footprint;
+    }
+
     // Do not change this method!
     @SuppressWarnings("unchecked")
     private CS16Edge<V>[][] makeEmptyEdgeArray() {
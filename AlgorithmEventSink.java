@@ -0,0 +1,64 @@
+package graph;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+
+/**
+ * Receives progress events from the graph algorithms (MyPrimJarnik,
+ * MyPageRank), for example to animate them in a visualizer or to log them.
+ *
+ * <p>
+ * Algorithms check isListening() once before they start, and skip building
+ * and sending events altogether when it returns false. The default sink,
+ * returned by none(), never listens, so an algorithm that nobody is watching
+ * pays nothing for these hooks.
+ * </p>
+ *
+ * Methods are called on the thread that runs the algorithm, so they should
+ * return quickly. A sink can also stop an algorithm early through
+ * shouldStop(), as AnalyticsTask does for cancellation and time budgets.
+ * ThrottledEventSink can be used to hand events off to another thread.
+ */
+public interface AlgorithmEventSink<V> {
+
+    /**
+     * Called when a vertex is taken out of an algorithm's priority queue.
+     */
+    void vertexExtracted(CS16Vertex<V> vertex);
+
+    /**
+     * Called when an edge is added to an algorithm's result, such as a
+     * minimum spanning forest.
+     */
+    void edgeAdded(CS16Edge<V> edge);
+
+    /**
+     * Called after every round of an iterative algorithm, with the largest
+     * change of any value during that round.
+     */
+    void iterationCompleted(int iteration, double residual);
+
+    /**
+     * Returns false if this sink ignores every event, so that algorithms can
+     * avoid producing them.
+     */
+    boolean isListening();
+
+    /**
+     * Returns true to ask the algorithm to stop early and return what it has
+     * so far: the ranks after the last round, or the part of the forest
+     * grown so far. Algorithms ask after every round or every vertex taken
+     * out of the priority queue, and only if isListening() returned true.
+     */
+    default boolean shouldStop() {
+        return false;
+    }
+
+    /**
+     * Returns the sink that ignores every event.
+     */
+    @SuppressWarnings("unchecked")
+    static <V> AlgorithmEventSink<V> none() {
+        return (AlgorithmEventSink<V>) NoOpEventSink.INSTANCE;
+    }
+}
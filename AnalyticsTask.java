@@ -0,0 +1,307 @@
+package graph;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Runs MyPageRank or MyPrimJarnik as a task that can be watched, cancelled
+ * and given a time budget, so that a long run on a large graph need not hold
+ * its thread until it is done.
+ *
+ * <p>
+ * A task hooks into the algorithm through an AlgorithmEventSink. After every
+ * PageRank round and every vertex Prim-Jarnik settles, the sink tells the
+ * progress listener where the algorithm is, and asks the algorithm to stop
+ * if the task was cancelled, its thread was interrupted, or its time budget
+ * ran out. Stopping is cooperative: a round or a settled vertex is never cut
+ * short, so the task stops within one of them.
+ * </p>
+ *
+ * <p>
+ * A cancelled task throws a CancellationException. A task out of time
+ * instead returns the best answer the algorithm has: the ranks after the
+ * last full round, or the part of the forest grown so far, whose edges are
+ * all in a minimum spanning forest of the graph.
+ * </p>
+ *
+ * A task runs once, on the thread that calls run(). cancel() may be called
+ * from any thread.
+ */
+public class AnalyticsTask<V, R> {
+
+    /**
+     * How a run ended.
+     */
+    public enum Outcome {
+        /** The algorithm ran to the end. */
+        COMPLETED,
+        /** The time budget ran out, and the value is the best so far. */
+        OUT_OF_TIME
+    }
+
+    private final Graph<V> _graph;
+    private final Function<AlgorithmEventSink<V>, R> _algorithm;
+    private final AtomicBoolean _started;
+    private volatile boolean _cancelled;
+    private ProgressListener _listener;
+    private long _budgetNanos;
+
+    private AnalyticsTask(Graph<V> graph, Function<AlgorithmEventSink<V>, R> algorithm) {
+        _graph = graph;
+        _algorithm = algorithm;
+        _started = new AtomicBoolean();
+        _budgetNanos = -1;
+    }
+
+    /**
+     * Returns a task that ranks the vertices of g with MyPageRank.
+     */
+    public static <V> AnalyticsTask<V, Map<CS16Vertex<V>, Double>> pageRank(Graph<V> g) {
+        return new AnalyticsTask<V, Map<CS16Vertex<V>, Double>>(g, sink -> {
+            MyPageRank<V> pageRank = new MyPageRank<V>();
+            pageRank.setEventSink(sink);
+            return pageRank.calcPageRank(g);
+        });
+    }
+
+    /**
+     * Returns a task that finds a minimum spanning forest of g with
+     * MyPrimJarnik.
+     */
+    public static <V> AnalyticsTask<V, Collection<CS16Edge<V>>> minSpanForest(Graph<V> g) {
+        return new AnalyticsTask<V, Collection<CS16Edge<V>>>(g, sink -> {
+            MyPrimJarnik<V> primJarnik = new MyPrimJarnik<V>();
+            primJarnik.setEventSink(sink);
+            return primJarnik.genMinSpanForest(g, null);
+        });
+    }
+
+    /**
+     * Sets the listener that is told of the task's progress, on the thread
+     * that runs it, after every PageRank round and every time another
+     * hundredth of the vertices is settled. By default nobody is told.
+     */
+    public void setProgressListener(ProgressListener listener) {
+        _listener = listener;
+    }
+
+    /**
+     * Gives the task a time budget, counted from when it starts running.
+     * Once the budget runs out the task stops and returns the best answer so
+     * far.
+     */
+    public void setTimeBudget(long millis) {
+        if(millis <= 0){
+            throw new IllegalArgumentException("time budget must be positive");
+        }
+        _budgetNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Asks the task to stop. A run under way throws a CancellationException
+     * once the algorithm next checks in; a task not yet run will throw one
+     * as soon as it runs.
+     */
+    public void cancel() {
+        _cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return _cancelled;
+    }
+
+    /**
+     * Runs the algorithm on the calling thread and returns its answer.
+     *
+     * @throws CancellationException
+     *             Thrown when the task was cancelled, or its thread
+     *             interrupted, before the algorithm finished. The thread
+     *             stays interrupted.
+     * @throws IllegalStateException
+     *             Thrown when the task has already run.
+     */
+    public Result<R> run() {
+        if(!_started.compareAndSet(false, true)){
+            throw new IllegalStateException("task has already run");
+        }
+        Monitor monitor = new Monitor(System.nanoTime());
+        if(monitor.shouldStop()){
+            throw new CancellationException("task was cancelled");
+        }
+        R value = _algorithm.apply(monitor);
+        if(monitor._stoppedBy == StopReason.CANCELLED){
+            throw new CancellationException("task was cancelled");
+        }
+        Outcome outcome = (monitor._stoppedBy == StopReason.OUT_OF_TIME) ? Outcome.OUT_OF_TIME : Outcome.COMPLETED;
+        return new Result<R>(value, outcome, monitor.progress());
+    }
+
+    private enum StopReason {
+        CANCELLED, OUT_OF_TIME
+    }
+
+    /**
+     * The sink that passes progress on and decides when to stop.
+     */
+    private class Monitor implements AlgorithmEventSink<V> {
+        private final long _startNanos;
+        private final int _numVertices;
+        private final int _reportEvery;
+        private int _iteration;
+        private double _residual;
+        private int _settled;
+        private StopReason _stoppedBy;
+
+        private Monitor(long startNanos) {
+            _startNanos = startNanos;
+            _numVertices = _graph.getNumVertices();
+            _reportEvery = Math.max(1, _numVertices / 100);
+            _residual = Double.NaN;
+        }
+
+        @Override
+        public void vertexExtracted(CS16Vertex<V> vertex) {
+            _settled++;
+            if(_listener != null && (_settled % _reportEvery == 0 || _settled == _numVertices)){
+                _listener.progressed(this.progress());
+            }
+        }
+
+        @Override
+        public void edgeAdded(CS16Edge<V> edge) {
+        }
+
+        @Override
+        public void iterationCompleted(int iteration, double residual) {
+            _iteration = iteration;
+            _residual = residual;
+            if(_listener != null){
+                _listener.progressed(this.progress());
+            }
+        }
+
+        @Override
+        public boolean isListening() {
+            return true;
+        }
+
+        @Override
+        public boolean shouldStop() {
+            if(_cancelled || Thread.currentThread().isInterrupted()){
+                _stoppedBy = StopReason.CANCELLED;
+            }
+            else if(_budgetNanos > 0 && System.nanoTime() - _startNanos >= _budgetNanos){
+                _stoppedBy = StopReason.OUT_OF_TIME;
+            }
+            return _stoppedBy != null;
+        }
+
+        private Progress progress() {
+            return new Progress(_iteration, _residual, _settled, _numVertices, System.nanoTime() - _startNanos);
+        }
+    }
+
+    /**
+     * Told of a task's progress.
+     */
+    public interface ProgressListener {
+        void progressed(Progress progress);
+    }
+
+    /**
+     * Where a task's algorithm is.
+     */
+    public static class Progress {
+        private final int _iteration;
+        private final double _residual;
+        private final int _verticesSettled;
+        private final int _numVertices;
+        private final long _elapsedNanos;
+
+        private Progress(int iteration, double residual, int verticesSettled, int numVertices, long elapsedNanos) {
+            _iteration = iteration;
+            _residual = residual;
+            _verticesSettled = verticesSettled;
+            _numVertices = numVertices;
+            _elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of PageRank rounds done, or 0 for
+         * Prim-Jarnik.
+         */
+        public int getIteration() {
+            return _iteration;
+        }
+
+        /**
+         * Returns the largest change of any rank in the last round, or NaN
+         * before the first round and for Prim-Jarnik.
+         */
+        public double getResidual() {
+            return _residual;
+        }
+
+        /**
+         * Returns the number of vertices Prim-Jarnik has taken off its
+         * priority queue, or 0 for PageRank.
+         */
+        public int getVerticesSettled() {
+            return _verticesSettled;
+        }
+
+        public int getNumVertices() {
+            return _numVertices;
+        }
+
+        public long getElapsedNanos() {
+            return _elapsedNanos;
+        }
+    }
+
+    /**
+     * The answer of a task, and how it came by it.
+     */
+    public static class Result<R> {
+        private final R _value;
+        private final Outcome _outcome;
+        private final Progress _progress;
+
+        private Result(R value, Outcome outcome, Progress progress) {
+            _value = value;
+            _outcome = outcome;
+            _progress = progress;
+        }
+
+        public R getValue() {
+            return _value;
+        }
+
+        public Outcome getOutcome() {
+            return _outcome;
+        }
+
+        /**
+         * Returns whether the algorithm ran to the end, rather than the
+         * value being the best so far.
+         */
+        public boolean isComplete() {
+            return _outcome == Outcome.COMPLETED;
+        }
+
+        /**
+         * Returns where the algorithm was when it returned.
+         */
+        public Progress getProgress() {
+            return _progress;
+        }
+    }
+}
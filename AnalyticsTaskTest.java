@@ -0,0 +1,209 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that an AnalyticsTask reports progress, stops when
+ * cancelled, and returns the best answer so far when out of time.
+ */
+public class AnalyticsTaskTest {
+
+    private Graph<String> _links;
+    private Graph<String> _roads;
+
+    /**
+     * Builds a directed cycle of 6 with a chord, which PageRank takes 9
+     * rounds over, and an undirected path of 20 with distinct weights.
+     */
+    @Before
+    public void setup() {
+        _links = new AdjacencyMatrixGraph<String>(true);
+        List<CS16Vertex<String>> pages = new ArrayList<CS16Vertex<String>>();
+        for(int i = 0; i < 6; i++){
+            pages.add(_links.insertVertex("p" + i));
+        }
+        for(int i = 0; i < 6; i++){
+            _links.insertEdge(pages.get(i), pages.get((i + 1) % 6), null);
+        }
+        _links.insertEdge(pages.get(0), pages.get(3), null);
+
+        _roads = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> previous = _roads.insertVertex("r0");
+        for(int i = 1; i < 20; i++){
+            CS16Vertex<String> next = _roads.insertVertex("r" + i);
+            _roads.insertEdge(previous, next, i);
+            previous = next;
+        }
+    }
+
+    /**
+     * Tests that a task run to the end gives the same ranks as MyPageRank,
+     * telling the listener of every round
+     */
+    @Test
+    public void pageRankCompletes() {
+        AnalyticsTask<String, Map<CS16Vertex<String>, Double>> task = AnalyticsTask.pageRank(_links);
+        List<AnalyticsTask.Progress> reports = new ArrayList<AnalyticsTask.Progress>();
+        task.setProgressListener(reports::add);
+        AnalyticsTask.Result<Map<CS16Vertex<String>, Double>> result = task.run();
+
+        assertThat(result.isComplete(), is(true));
+        assertThat(result.getOutcome(), is(AnalyticsTask.Outcome.COMPLETED));
+        Map<CS16Vertex<String>, Double> expected = new MyPageRank<String>().calcPageRank(_links);
+        for(Map.Entry<CS16Vertex<String>, Double> entry : expected.entrySet()){
+            assertEquals(entry.getValue(), result.getValue().get(entry.getKey()), 0);
+        }
+        assertThat(reports.size(), is(9));
+        for(int i = 0; i < reports.size(); i++){
+            assertThat(reports.get(i).getIteration(), is(i + 1));
+            assertThat(reports.get(i).getNumVertices(), is(6));
+        }
+        assertTrue(reports.get(8).getResidual() < reports.get(0).getResidual());
+        assertThat(result.getProgress().getIteration(), is(9));
+    }
+
+    /**
+     * Tests that PageRank out of time returns the ranks after the last full
+     * round
+     */
+    @Test
+    public void pageRankOutOfTime() {
+        AnalyticsTask<String, Map<CS16Vertex<String>, Double>> task = AnalyticsTask.pageRank(_links);
+        task.setTimeBudget(50);
+        task.setProgressListener(progress -> sleep(20));
+        AnalyticsTask.Result<Map<CS16Vertex<String>, Double>> result = task.run();
+
+        assertThat(result.getOutcome(), is(AnalyticsTask.Outcome.OUT_OF_TIME));
+        assertThat(result.isComplete(), is(false));
+        assertTrue(result.getProgress().getIteration() < 9);
+        assertTrue(result.getProgress().getElapsedNanos() >= 50000000L);
+        assertThat(result.getValue().size(), is(6));
+        double total = 0;
+        for(double rank : result.getValue().values()){
+            total += rank;
+        }
+        assertEquals(1, total, 1e-9);
+    }
+
+    /**
+     * Tests that a budget too long to count in nanoseconds does not wrap
+     * around to a short one
+     */
+    @Test
+    public void hugeTimeBudget() {
+        AnalyticsTask<String, Map<CS16Vertex<String>, Double>> task = AnalyticsTask.pageRank(_links);
+        // times a million, this wraps around to under a millisecond
+        task.setTimeBudget(18446744073710L);
+        task.setProgressListener(progress -> sleep(1));
+        assertThat(task.run().getOutcome(), is(AnalyticsTask.Outcome.COMPLETED));
+    }
+
+    /**
+     * Tests that Prim-Jarnik out of time returns part of the forest, and
+     * reports the vertices settled
+     */
+    @Test
+    public void minSpanForestOutOfTime() {
+        Collection<CS16Edge<String>> forest = AnalyticsTask.minSpanForest(_roads).run().getValue();
+        assertThat(forest.size(), is(19));
+
+        AnalyticsTask<String, Collection<CS16Edge<String>>> task = AnalyticsTask.minSpanForest(_roads);
+        List<Integer> settled = new ArrayList<Integer>();
+        task.setTimeBudget(35);
+        task.setProgressListener(progress -> {
+            settled.add(progress.getVerticesSettled());
+            sleep(10);
+        });
+        AnalyticsTask.Result<Collection<CS16Edge<String>>> result = task.run();
+
+        assertThat(result.getOutcome(), is(AnalyticsTask.Outcome.OUT_OF_TIME));
+        int done = result.getProgress().getVerticesSettled();
+        assertTrue(done >= 1 && done < 20);
+        assertThat(result.getValue().size(), is(done - 1));
+        assertTrue(forest.containsAll(result.getValue()));
+        for(int i = 0; i < settled.size(); i++){
+            assertThat(settled.get(i), is(i + 1));
+        }
+    }
+
+    /**
+     * Tests that cancelling from the listener stops the run
+     */
+    @Test
+    public void cancel() {
+        AnalyticsTask<String, Map<CS16Vertex<String>, Double>> task = AnalyticsTask.pageRank(_links);
+        List<Integer> iterations = new ArrayList<Integer>();
+        task.setProgressListener(progress -> {
+            iterations.add(progress.getIteration());
+            if(progress.getIteration() == 2){
+                task.cancel();
+            }
+        });
+        try {
+            task.run();
+            fail("cancelled task returned");
+        } catch (CancellationException e) {
+            assertThat(task.isCancelled(), is(true));
+            assertThat(iterations.size(), is(2));
+        }
+    }
+
+    /**
+     * Tests that a task cancelled before it runs, or run on an interrupted
+     * thread, never runs, and that a task runs only once
+     */
+    @Test
+    public void cancelBeforeRunAndRunTwice() {
+        AnalyticsTask<String, Collection<CS16Edge<String>>> cancelled = AnalyticsTask.minSpanForest(_roads);
+        cancelled.cancel();
+        try {
+            cancelled.run();
+            fail("cancelled task returned");
+        } catch (CancellationException e) {
+            // expected
+        }
+
+        AnalyticsTask<String, Collection<CS16Edge<String>>> interrupted = AnalyticsTask.minSpanForest(_roads);
+        Thread.currentThread().interrupt();
+        try {
+            interrupted.run();
+            fail("interrupted task returned");
+        } catch (CancellationException e) {
+            assertThat(Thread.interrupted(), is(true));
+        }
+
+        AnalyticsTask<String, Collection<CS16Edge<String>>> task = AnalyticsTask.minSpanForest(_roads);
+        task.run();
+        try {
+            task.run();
+            fail("task ran twice");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Betweenness centrality with Brandes' algorithm: the betweenness of v is
+ * the sum, over all pairs s and t of other vertices, of the fraction of
+ * shortest paths from s to t that pass through v. Weights are edge elements
+ * (null weighs 1); if every weight is 1 the shortest paths are found by
+ * breadth-first search, and otherwise by Dijkstra's algorithm, in which
+ * case every weight must be positive. On an undirected graph every pair is
+ * counted once, not once each way.
+ *
+ * <p>
+ * Brandes' algorithm searches once from every source s, counting the
+ * shortest paths to every vertex, and then goes back through the vertices in
+ * the reverse of the order they were settled, passing each one's dependency
+ * back to its predecessors on shortest paths. Predecessors are not stored:
+ * they are found again among the incoming arcs, as those whose source is
+ * exactly one arc's weight nearer. So a search allocates nothing; every
+ * thread keeps one set of scratch arrays, indexed by vertex number, and only
+ * resets the entries the last search touched. Threads take sources from a
+ * shared counter, each adds to its own array of scores, and the arrays are
+ * summed at the end.
+ * </p>
+ *
+ * <p>
+ * Exact betweenness takes O(|V||E|) time unweighted and
+ * O(|V||E|log(|V|)) weighted. approximate searches only from a random sample
+ * of k sources and scales the scores up by |V|/k, an unbiased estimate that
+ * takes k/|V| of the time.
+ * </p>
+ */
+public class BetweennessCentrality<V> {
+
+    private final CsrGraph<V> _csr;
+    private final boolean _weighted;
+
+    /**
+     * Prepares to compute the betweenness of a snapshot of g. Later changes
+     * to g are not seen.
+     *
+     * @throws IllegalArgumentException
+     *             Thrown when weights are not all 1 and some are not positive.
+     */
+    public BetweennessCentrality(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public BetweennessCentrality(CsrGraph<V> csr) {
+        boolean weighted = false;
+        boolean positive = true;
+        for(int weight : csr.outWeights()){
+            weighted |= weight != 1;
+            positive &= weight > 0;
+        }
+        if(weighted && !positive){
+            throw new IllegalArgumentException("weighted betweenness needs positive weights");
+        }
+        _csr = csr;
+        _weighted = weighted;
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Returns whether shortest paths are found by Dijkstra's algorithm
+     * rather than breadth-first search.
+     */
+    public boolean isWeighted() {
+        return _weighted;
+    }
+
+    /**
+     * Computes exact betweenness on the calling thread.
+     */
+    public Scores<V> compute() {
+        return this.compute(1);
+    }
+
+    /**
+     * Computes exact betweenness, searching from the sources on the given
+     * number of threads.
+     */
+    public Scores<V> compute(int threads) {
+        IntList sources = new IntList(_csr.getNumVertices());
+        for(int v = 0; v < _csr.size(); v++){
+            if(_csr.hasVertex(v)){
+                sources.add(v);
+            }
+        }
+        return this.run(sources.toArray(), 1.0, threads);
+    }
+
+    /**
+     * Estimates betweenness from k sources chosen at random, without
+     * repeats, by the given seed. If k is at least the number of vertices,
+     * the result is exact.
+     */
+    public Scores<V> approximate(int k, int threads, long seed) {
+        if(k < 1){
+            throw new IllegalArgumentException("need at least one source");
+        }
+        int n = _csr.getNumVertices();
+        if(k >= n){
+            return this.compute(threads);
+        }
+        int[] vertices = new int[n];
+        for(int v = 0, i = 0; v < _csr.size(); v++){
+            if(_csr.hasVertex(v)){
+                vertices[i++] = v;
+            }
+        }
+        // the first k places of a Fisher-Yates shuffle
+        Random random = new Random(seed);
+        for(int i = 0; i < k; i++){
+            int j = i + random.nextInt(n - i);
+            int swap = vertices[i];
+            vertices[i] = vertices[j];
+            vertices[j] = swap;
+        }
+        int[] sources = new int[k];
+        System.arraycopy(vertices, 0, sources, 0, k);
+        return this.run(sources, (double) n / k, threads);
+    }
+
+    private Scores<V> run(int[] sources, double scale, int threads) {
+        AtomicInteger next = new AtomicInteger();
+        List<double[]> partials = Parallel.withPool("betweenness", threads, "computing betweenness", pool -> {
+            if(pool == null){
+                return Collections.singletonList(new Search().run(sources, next));
+            }
+            List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+            for(int t = 0; t < threads; t++){
+                tasks.add(() -> new Search().run(sources, next));
+            }
+            return Parallel.invokeAll(pool, tasks);
+        });
+
+        double[] scores = new double[_csr.size()];
+        for(double[] partial : partials){
+            for(int v = 0; v < scores.length; v++){
+                scores[v] += partial[v];
+            }
+        }
+        // an undirected graph's search from s and from t both count the pair
+        double factor = _csr.isDirected() ? scale : scale / 2;
+        for(int v = 0; v < scores.length; v++){
+            scores[v] *= factor;
+        }
+        return new Scores<V>(_csr, scores, sources.length, scale == 1.0);
+    }
+
+    /**
+     * One thread's scratch arrays, and the sum of the dependencies it has
+     * found so far.
+     */
+    private class Search {
+        private final int[] _distances;
+        private final double[] _numPaths;
+        private final double[] _dependencies;
+        // the vertices in the order they were settled
+        private final int[] _order;
+        private final IntMinHeap _heap;
+        private final double[] _scores;
+
+        private Search() {
+            int size = _csr.size();
+            _distances = new int[size];
+            _numPaths = new double[size];
+            _dependencies = new double[size];
+            _order = new int[_csr.getNumVertices()];
+            _heap = _weighted ? new IntMinHeap(size) : null;
+            _scores = new double[size];
+            Arrays.fill(_distances, -1);
+        }
+
+        private double[] run(int[] sources, AtomicInteger next) {
+            for(int i = next.getAndIncrement(); i < sources.length; i = next.getAndIncrement()){
+                int numSettled = _weighted ? this.dijkstra(sources[i]) : this.bfs(sources[i]);
+                this.accumulate(sources[i], numSettled);
+            }
+            return _scores;
+        }
+
+        private int bfs(int s) {
+            int[] offsets = _csr.outOffsets();
+            int[] targets = _csr.outTargets();
+            _distances[s] = 0;
+            _numPaths[s] = 1;
+            _order[0] = s;
+            int numSettled = 1;
+            for(int head = 0; head < numSettled; head++){
+                int u = _order[head];
+                int dv = _distances[u] + 1;
+                for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                    int v = targets[arc];
+                    if(_distances[v] < 0){
+                        _distances[v] = dv;
+                        _order[numSettled++] = v;
+                    }
+                    if(_distances[v] == dv){
+                        _numPaths[v] += _numPaths[u];
+                    }
+                }
+            }
+            return numSettled;
+        }
+
+        private int dijkstra(int s) {
+            int[] offsets = _csr.outOffsets();
+            int[] targets = _csr.outTargets();
+            int[] weights = _csr.outWeights();
+            _distances[s] = 0;
+            _heap.offer(s, 0);
+            int numSettled = 0;
+            while(!_heap.isEmpty()){
+                int u = _heap.poll();
+                _order[numSettled++] = u;
+                int du = _distances[u];
+                for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                    int v = targets[arc];
+                    int dv = Math.addExact(du, weights[arc]);
+                    if(_distances[v] < 0 || dv < _distances[v]){
+                        _distances[v] = dv;
+                        _heap.offer(v, dv);
+                    }
+                }
+            }
+            // count paths in the order settled, which puts every vertex
+            // after its predecessors since weights are positive
+            _numPaths[s] = 1;
+            int[] inOffsets = _csr.inOffsets();
+            int[] sources = _csr.inSources();
+            int[] inWeights = _csr.inWeights();
+            for(int i = 1; i < numSettled; i++){
+                int v = _order[i];
+                double numPaths = 0;
+                for(int arc = inOffsets[v]; arc < inOffsets[v + 1]; arc++){
+                    int u = sources[arc];
+                    if(_distances[u] >= 0 && _distances[u] + inWeights[arc] == _distances[v]){
+                        numPaths += _numPaths[u];
+                    }
+                }
+                _numPaths[v] = numPaths;
+            }
+            return numSettled;
+        }
+
+        /**
+         * Passes the dependencies of the search from s back through the
+         * settled vertices, adds them to the scores, and resets the scratch
+         * entries the search touched.
+         */
+        private void accumulate(int s, int numSettled) {
+            int[] inOffsets = _csr.inOffsets();
+            int[] sources = _csr.inSources();
+            int[] inWeights = _csr.inWeights();
+            for(int i = numSettled - 1; i > 0; i--){
+                int w = _order[i];
+                double share = (1 + _dependencies[w]) / _numPaths[w];
+                for(int arc = inOffsets[w]; arc < inOffsets[w + 1]; arc++){
+                    int v = sources[arc];
+                    int weight = _weighted ? inWeights[arc] : 1;
+                    if(_distances[v] >= 0 && _distances[v] + weight == _distances[w]){
+                        _dependencies[v] += _numPaths[v] * share;
+                    }
+                }
+                _scores[w] += _dependencies[w];
+            }
+            for(int i = 0; i < numSettled; i++){
+                int v = _order[i];
+                _distances[v] = -1;
+                _numPaths[v] = 0;
+                _dependencies[v] = 0;
+            }
+        }
+    }
+
+    /**
+     * Betweenness scores indexed by vertex number, and how they were found.
+     */
+    public static class Scores<V> {
+        private final CsrGraph<V> _csr;
+        private final double[] _scores;
+        private final int _numSources;
+        private final boolean _exact;
+
+        private Scores(CsrGraph<V> csr, double[] scores, int numSources, boolean exact) {
+            _csr = csr;
+            _scores = scores;
+            _numSources = numSources;
+            _exact = exact;
+        }
+
+        /**
+         * Returns the scores indexed by vertex number. The array is not
+         * copied; do not change it.
+         */
+        public double[] values() {
+            return _scores;
+        }
+
+        public double score(CS16Vertex<V> vertex) {
+            return _scores[_csr.numberOf(vertex)];
+        }
+
+        /**
+         * Returns the number of sources searched from.
+         */
+        public int getNumSources() {
+            return _numSources;
+        }
+
+        /**
+         * Returns whether every vertex was a source, so the scores are exact
+         * rather than estimates.
+         */
+        public boolean isExact() {
+            return _exact;
+        }
+    }
+}
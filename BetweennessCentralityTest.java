@@ -0,0 +1,173 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests exact and sampled BetweennessCentrality.
+ */
+public class BetweennessCentralityTest {
+
+    /**
+     * Tests a path, where the middle vertex lies between the most pairs
+     */
+    @Test
+    public void path() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(B, C, 1);
+        graph.insertEdge(C, D, 1);
+
+        BetweennessCentrality<String> betweenness = new BetweennessCentrality<String>(graph);
+        assertThat(betweenness.isWeighted(), is(false));
+        BetweennessCentrality.Scores<String> scores = betweenness.compute();
+        assertEquals(0, scores.score(A), 1e-12);
+        assertEquals(2, scores.score(B), 1e-12);
+        assertEquals(2, scores.score(C), 1e-12);
+        assertThat(scores.isExact(), is(true));
+        assertThat(scores.getNumSources(), is(4));
+    }
+
+    /**
+     * Tests weighted and unweighted betweenness, on one thread and several,
+     * against counting shortest paths between every pair
+     */
+    @Test
+    public void matchesAllPairs() {
+        Random random = new Random(40);
+        for(int trial = 0; trial < 8; trial++){
+            boolean directed = trial % 2 == 0;
+            boolean weighted = trial >= 4;
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(directed);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 40; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int i = 0; i < 120; i++){
+                CS16Vertex<Integer> a = vertices.get(random.nextInt(40));
+                CS16Vertex<Integer> b = vertices.get(random.nextInt(40));
+                if(a != b && !graph.areAdjacent(a, b)){
+                    graph.insertEdge(a, b, weighted ? 1 + random.nextInt(3) : 1);
+                }
+            }
+            BetweennessCentrality<Integer> betweenness = new BetweennessCentrality<Integer>(graph);
+            double[] expected = allPairs(betweenness.getCsrGraph());
+            assertArrayEquals(expected, betweenness.compute().values(), 1e-9);
+            assertArrayEquals(expected, betweenness.compute(3).values(), 1e-9);
+            assertArrayEquals(expected, betweenness.approximate(40, 2, 1).values(), 1e-9);
+        }
+    }
+
+    /**
+     * Tests that sampling a few sources of a star still finds its center
+     */
+    @Test
+    public void sampledStar() {
+        Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(false);
+        CS16Vertex<Integer> center = graph.insertVertex(0);
+        for(int i = 1; i < 50; i++){
+            graph.insertEdge(center, graph.insertVertex(i), 1);
+        }
+        BetweennessCentrality<Integer> betweenness = new BetweennessCentrality<Integer>(graph);
+        BetweennessCentrality.Scores<Integer> scores = betweenness.approximate(10, 2, 7);
+        assertThat(scores.isExact(), is(false));
+        assertThat(scores.getNumSources(), is(10));
+        double[] values = scores.values();
+        for(int v = 0; v < values.length; v++){
+            if(v != center.getVertexNumber()){
+                assertEquals(0, values[v], 1e-12);
+            }
+        }
+        assertTrue(scores.score(center) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroWeight() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        graph.insertEdge(graph.insertVertex("A"), graph.insertVertex("B"), 0);
+        new BetweennessCentrality<String>(graph);
+    }
+
+    private static double[] allPairs(CsrGraph<Integer> csr) {
+        int n = csr.size();
+        long[][] distances = new long[n][n];
+        double[][] numPaths = new double[n][n];
+        for(int s = 0; s < n; s++){
+            // Bellman-Ford style relaxation until nothing changes
+            Arrays.fill(distances[s], Long.MAX_VALUE);
+            distances[s][s] = 0;
+            boolean changed = true;
+            while(changed){
+                changed = false;
+                for(int u = 0; u < n; u++){
+                    if(distances[s][u] == Long.MAX_VALUE){
+                        continue;
+                    }
+                    for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                        int v = csr.outTargets()[arc];
+                        if(distances[s][u] + csr.outWeights()[arc] < distances[s][v]){
+                            distances[s][v] = distances[s][u] + csr.outWeights()[arc];
+                            changed = true;
+                        }
+                    }
+                }
+            }
+            // count paths in order of distance
+            Integer[] order = new Integer[n];
+            for(int v = 0; v < n; v++){
+                order[v] = v;
+            }
+            long[] row = distances[s];
+            Arrays.sort(order, (a, b) -> Long.compare(row[a], row[b]));
+            numPaths[s][s] = 1;
+            for(int v : order){
+                if(v == s || row[v] == Long.MAX_VALUE){
+                    continue;
+                }
+                for(int arc = csr.inOffsets()[v]; arc < csr.inOffsets()[v + 1]; arc++){
+                    int u = csr.inSources()[arc];
+                    if(row[u] != Long.MAX_VALUE && row[u] + csr.inWeights()[arc] == row[v]){
+                        numPaths[s][v] += numPaths[s][u];
+                    }
+                }
+            }
+        }
+        double[] scores = new double[n];
+        for(int s = 0; s < n; s++){
+            for(int t = 0; t < n; t++){
+                if(s == t || distances[s][t] == Long.MAX_VALUE){
+                    continue;
+                }
+                for(int v = 0; v < n; v++){
+                    if(v != s && v != t && distances[s][v] != Long.MAX_VALUE && distances[v][t] != Long.MAX_VALUE
+                            && distances[s][v] + distances[v][t] == distances[s][t]){
+                        scores[v] += numPaths[s][v] * numPaths[v][t] / numPaths[s][t];
+                    }
+                }
+            }
+        }
+        if(!csr.isDirected()){
+            for(int v = 0; v < n; v++){
+                scores[v] /= 2;
+            }
+        }
+        return scores;
+    }
+}
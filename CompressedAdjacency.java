@@ -0,0 +1,399 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * The sorted neighbor lists of vertices 0 to n - 1, compressed the way the
+ * WebGraph framework compresses web graphs. Links between web pages are very
+ * local, and pages close to each other tend to share many links, so each list
+ * is stored as:
+ *
+ * <ul>
+ * <li>its length;</li>
+ * <li>optionally, a reference to one of the previous WINDOW lists, and which
+ * runs of the referenced list it copies (copy blocks);</li>
+ * <li>the remaining neighbors (residuals), the first as its signed distance
+ * from the vertex itself and the rest as the gap from the one before.</li>
+ * </ul>
+ *
+ * <p>
+ * Every number is written as a variable-length integer of 7 bits per byte, so
+ * small gaps take a single byte. Each list starts at a recorded byte offset,
+ * so any list can be decoded on its own (random access); references are
+ * followed at most MAX_REFERENCE_CHAIN deep, which bounds that cost. The
+ * Decoder class instead keeps the last WINDOW lists around, so decoding all
+ * lists in order never follows a reference at all.
+ * </p>
+ *
+ * Weights are kept in a separate stream in the same order as the neighbors,
+ * and left out altogether when every weight is the same.
+ */
+class CompressedAdjacency {
+
+    // how far back a list may look for a reference
+    static final int WINDOW = 7;
+    // how many references may be followed to decode one list
+    static final int MAX_REFERENCE_CHAIN = 3;
+
+    private final int _numVertices;
+    private final byte[] _lists;
+    private final int[] _listOffsets;
+    private final byte[] _weights;
+    private final int[] _weightOffsets;
+    private final int _uniformWeight;
+
+    private CompressedAdjacency(int numVertices, byte[] lists, int[] listOffsets, byte[] weights,
+            int[] weightOffsets, int uniformWeight) {
+        _numVertices = numVertices;
+        _lists = lists;
+        _listOffsets = listOffsets;
+        _weights = weights;
+        _weightOffsets = weightOffsets;
+        _uniformWeight = uniformWeight;
+    }
+
+    /**
+     * Compresses the given lists. Row v of the CSR arrays (offsets[v] up to
+     * offsets[v + 1]) must be sorted.
+     *
+     * <p>
+     * This runs in O(WINDOW * (|V| + |E|)) time.
+     * </p>
+     */
+    static CompressedAdjacency encode(int numVertices, int[] offsets, int[] neighbors, int[] weights) {
+        ByteWriter lists = new ByteWriter(neighbors.length + numVertices);
+        ByteWriter scratch = new ByteWriter(64);
+        ByteWriter best = new ByteWriter(64);
+        int[] listOffsets = new int[numVertices + 1];
+        int[] chain = new int[numVertices];
+
+        for(int v = 0; v < numVertices; v++){
+            listOffsets[v] = lists.size();
+            best.clear();
+            encodeList(v, 0, offsets, neighbors, best);
+            int bestReference = 0;
+            for(int r = 1; r <= WINDOW && r <= v; r++){
+                if(chain[v - r] >= MAX_REFERENCE_CHAIN || offsets[v - r] == offsets[v - r + 1]){
+                    continue;
+                }
+                scratch.clear();
+                encodeList(v, r, offsets, neighbors, scratch);
+                if(scratch.size() < best.size()){
+                    ByteWriter swap = best;
+                    best = scratch;
+                    scratch = swap;
+                    bestReference = r;
+                }
+            }
+            chain[v] = (bestReference == 0) ? 0 : chain[v - bestReference] + 1;
+            lists.write(best);
+        }
+        listOffsets[numVertices] = lists.size();
+
+        boolean uniform = true;
+        for(int i = 1; i < weights.length && uniform; i++){
+            uniform = weights[i] == weights[0];
+        }
+        if(uniform){
+            return new CompressedAdjacency(numVertices, lists.toArray(), listOffsets, null, null,
+                    weights.length == 0 ? 1 : weights[0]);
+        }
+        ByteWriter weightStream = new ByteWriter(weights.length);
+        int[] weightOffsets = new int[numVertices + 1];
+        for(int v = 0; v < numVertices; v++){
+            weightOffsets[v] = weightStream.size();
+            for(int i = offsets[v]; i < offsets[v + 1]; i++){
+                weightStream.writeVarInt(zigzag(weights[i]));
+            }
+        }
+        weightOffsets[numVertices] = weightStream.size();
+        return new CompressedAdjacency(numVertices, lists.toArray(), listOffsets, weightStream.toArray(),
+                weightOffsets, 0);
+    }
+
+    int getNumVertices() {
+        return _numVertices;
+    }
+
+    /**
+     * Adds this adjacency to a footprint: the encoded lists and weights as
+     * name + " lists", and their offsets as name + " index".
+     */
+    void addFootprint(MemoryFootprint footprint, String name) {
+        footprint.add(name + " lists", MemoryFootprint.shallowSize(this.getClass())
+                + MemoryFootprint.valueBytes(_lists) + MemoryFootprint.valueBytes(_weights));
+        footprint.add(name + " index", MemoryFootprint.valueBytes(_listOffsets)
+                + MemoryFootprint.valueBytes(_weightOffsets));
+    }
+
+    /**
+     * Returns the number of neighbors of v in O(1) time.
+     */
+    int degree(int v) {
+        return readVarInt(_lists, _listOffsets[v]);
+    }
+
+    /**
+     * Decodes the sorted neighbors of v, following at most
+     * MAX_REFERENCE_CHAIN references.
+     */
+    int[] neighbors(int v) {
+        return this.decode(v, null);
+    }
+
+    /**
+     * Decodes the weights of v's edges, in the same order as neighbors(v).
+     */
+    int[] weights(int v) {
+        int degree = this.degree(v);
+        int[] weights = new int[degree];
+        if(_weights == null){
+            Arrays.fill(weights, _uniformWeight);
+            return weights;
+        }
+        int[] position = { _weightOffsets[v] };
+        for(int i = 0; i < degree; i++){
+            weights[i] = unzigzag(readVarInt(_weights, position));
+        }
+        return weights;
+    }
+
+    /**
+     * Returns the number of bytes taken by the compressed lists and their
+     * offsets, leaving out the weights.
+     */
+    long listBytes() {
+        return _lists.length + 4L * _listOffsets.length;
+    }
+
+    /**
+     * Returns the number of bytes taken by the compressed lists, weights and
+     * their offsets.
+     */
+    long sizeInBytes() {
+        long bytes = this.listBytes();
+        if(_weights != null){
+            bytes += _weights.length + 4L * _weightOffsets.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes the lists in increasing order of vertex, keeping the last
+     * WINDOW lists so that references are resolved without recursion.
+     */
+    class Decoder {
+        private final int[][] _window = new int[WINDOW + 1][];
+        private int _next = 0;
+
+        /**
+         * Returns the neighbors of the next vertex.
+         */
+        int[] next() {
+            int[] neighbors = decode(_next, this);
+            _window[_next % _window.length] = neighbors;
+            _next++;
+            return neighbors;
+        }
+
+        boolean hasNext() {
+            return _next < _numVertices;
+        }
+
+        private int[] recent(int v) {
+            return _window[v % _window.length];
+        }
+    }
+
+    private int[] decode(int v, Decoder recent) {
+        int[] position = { _listOffsets[v] };
+        int degree = readVarInt(_lists, position);
+        int[] result = new int[degree];
+        if(degree == 0){
+            return result;
+        }
+        int reference = readVarInt(_lists, position);
+
+        int[] copied = new int[0];
+        int numCopied = 0;
+        if(reference > 0){
+            int[] referenced = (recent != null) ? recent.recent(v - reference) : this.decode(v - reference, null);
+            copied = new int[referenced.length];
+            int numBlocks = readVarInt(_lists, position);
+            int index = 0;
+            boolean copying = true;
+            for(int b = 0; b < numBlocks; b++){
+                int length = readVarInt(_lists, position) + (b == 0 ? 0 : 1);
+                if(copying){
+                    System.arraycopy(referenced, index, copied, numCopied, length);
+                    numCopied += length;
+                }
+                index += length;
+                copying = !copying;
+            }
+            // the rest of the referenced list is copied after an even
+            // number of blocks
+            if(copying){
+                System.arraycopy(referenced, index, copied, numCopied, referenced.length - index);
+                numCopied += referenced.length - index;
+            }
+        }
+
+        // merge the copied neighbors with the residuals, both sorted
+        int numResiduals = degree - numCopied;
+        int residual = 0;
+        int c = 0;
+        int out = 0;
+        for(int r = 0; r < numResiduals; r++){
+            residual = (r == 0) ? v + unzigzag(readVarInt(_lists, position)) : residual + readVarInt(_lists, position);
+            while(c < numCopied && copied[c] <= residual){
+                result[out++] = copied[c++];
+            }
+            result[out++] = residual;
+        }
+        while(c < numCopied){
+            result[out++] = copied[c++];
+        }
+        return result;
+    }
+
+    /**
+     * Writes the list of v using list v - reference as its reference, or no
+     * reference if it is 0.
+     */
+    private static void encodeList(int v, int reference, int[] offsets, int[] neighbors, ByteWriter out) {
+        int start = offsets[v];
+        int end = offsets[v + 1];
+        out.writeVarInt(end - start);
+        if(end == start){
+            return;
+        }
+        out.writeVarInt(reference);
+
+        boolean[] isCopied = new boolean[end - start];
+        if(reference > 0){
+            int refStart = offsets[v - reference];
+            int refEnd = offsets[v - reference + 1];
+            // mark which referenced neighbors also appear in this list
+            boolean[] copy = new boolean[refEnd - refStart];
+            int i = start;
+            for(int j = refStart; j < refEnd; j++){
+                while(i < end && (neighbors[i] < neighbors[j] || (neighbors[i] == neighbors[j] && isCopied[i - start]))){
+                    i++;
+                }
+                if(i < end && neighbors[i] == neighbors[j]){
+                    copy[j - refStart] = true;
+                    isCopied[i - start] = true;
+                    i++;
+                }
+            }
+
+            // runs of copied and skipped entries, starting with a copy run;
+            // the last run is left implicit
+            int[] runs = new int[copy.length + 1];
+            int numRuns = 0;
+            boolean copying = true;
+            int length = 0;
+            for(boolean copied : copy){
+                if(copied == copying){
+                    length++;
+                }
+                else{
+                    runs[numRuns++] = length;
+                    copying = !copying;
+                    length = 1;
+                }
+            }
+            if(!copying){
+                // the implicit tail would be copied, so close the skip run
+                runs[numRuns++] = length;
+            }
+            out.writeVarInt(numRuns);
+            for(int b = 0; b < numRuns; b++){
+                out.writeVarInt(runs[b] - (b == 0 ? 0 : 1));
+            }
+        }
+
+        int previous = 0;
+        boolean first = true;
+        for(int i = start; i < end; i++){
+            if(isCopied[i - start]){
+                continue;
+            }
+            out.writeVarInt(first ? zigzag(neighbors[i] - v) : neighbors[i] - previous);
+            previous = neighbors[i];
+            first = false;
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int readVarInt(byte[] bytes, int offset) {
+        return readVarInt(bytes, new int[] { offset });
+    }
+
+    /**
+     * Reads a variable-length integer at position[0] and moves position[0]
+     * past it.
+     */
+    private static int readVarInt(byte[] bytes, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while(b < 0);
+        return value;
+    }
+
+    /**
+     * A growable byte array that variable-length integers are written to.
+     */
+    private static class ByteWriter {
+        private byte[] _bytes;
+        private int _size;
+
+        private ByteWriter(int capacity) {
+            _bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        private void writeVarInt(int value) {
+            if(_size + 5 > _bytes.length){
+                _bytes = Arrays.copyOf(_bytes, Math.max(_size + 5, _bytes.length * 2));
+            }
+            while((value & ~0x7f) != 0){
+                _bytes[_size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            _bytes[_size++] = (byte) value;
+        }
+
+        private void write(ByteWriter other) {
+            if(_size + other._size > _bytes.length){
+                _bytes = Arrays.copyOf(_bytes, Math.max(_size + other._size, _bytes.length * 2));
+            }
+            System.arraycopy(other._bytes, 0, _bytes, _size, other._size);
+            _size += other._size;
+        }
+
+        private int size() {
+            return _size;
+        }
+
+        private void clear() {
+            _size = 0;
+        }
+
+        private byte[] toArray() {
+            return Arrays.copyOf(_bytes, _size);
+        }
+    }
+}
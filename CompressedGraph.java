@@ -0,0 +1,430 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.DirectionException;
+import support.graph.Graph;
+import support.graph.GraphEdge;
+import support.graph.GraphVertex;
+import support.graph.InvalidEdgeException;
+import support.graph.InvalidVertexException;
+import support.graph.NoSuchEdgeException;
+import support.graph.NoSuchVertexException;
+
+/**
+ * A read-only Graph whose adjacency is kept compressed, WebGraph style (see
+ * CompressedAdjacency), instead of as one CS16Edge object per link. Link
+ * graphs such as the *_links.txt datasets are highly local and neighboring
+ * pages share most of their links, so they usually take a few bytes per link
+ * this way.
+ *
+ * <p>
+ * The vertices are copies of the original graph's vertices, with the same
+ * elements, renumbered 0 to n - 1 in order of their original numbers. Edges
+ * are decoded on demand: outgoingEdges and incomingEdges decode one list and
+ * create fresh edge objects for it, so unlike with an AdjacencyMatrixGraph
+ * the same edge is not always returned as the same object. Code that needs
+ * speed should use the primitive successors/predecessors methods, or a
+ * sequential decoder, rather than the Graph methods.
+ * </p>
+ *
+ * <p>
+ * A directed graph keeps its predecessor lists compressed as well, so that
+ * incomingEdges (and with it MyPageRank) works without decompressing the
+ * graph.
+ * </p>
+ *
+ * Every method that would change the graph throws an
+ * UnsupportedOperationException.
+ */
+public class CompressedGraph<V> implements Graph<V> {
+
+    private final List<CS16Vertex<V>> _vertices;
+    private final boolean _directed;
+    private final CompressedAdjacency _successors;
+    private final CompressedAdjacency _predecessors;
+    private final int _numArcs;
+
+    private CompressedGraph(List<CS16Vertex<V>> vertices, boolean directed, CompressedAdjacency successors,
+            CompressedAdjacency predecessors, int numArcs) {
+        _vertices = vertices;
+        _directed = directed;
+        _successors = successors;
+        _predecessors = predecessors;
+        _numArcs = numArcs;
+    }
+
+    /**
+     * Compresses a copy of the given graph.
+     *
+     * <p>
+     * This runs in O(|V| + |E|log(d)) time to take a CsrGraph of g, plus
+     * O(|V| + |E|) to compress it.
+     * </p>
+     *
+     * @param g
+     *            the graph to compress
+     * @return the compressed copy
+     */
+    public static <V> CompressedGraph<V> of(Graph<V> g) {
+        CsrGraph<V> csr = CsrGraph.of(g);
+        int n = csr.getNumVertices();
+
+        int[] denseIds = new int[csr.size()];
+        List<CS16Vertex<V>> vertices = new ArrayList<CS16Vertex<V>>(n);
+        for(int number = 0; number < csr.size(); number++){
+            if(csr.hasVertex(number)){
+                denseIds[number] = vertices.size();
+                CS16Vertex<V> vertex = new GraphVertex<V>(csr.vertex(number).element());
+                vertex.setVertexNumber(vertices.size());
+                vertices.add(vertex);
+            }
+        }
+
+        CompressedAdjacency successors = compress(n, csr, denseIds, csr.outOffsets(), csr.outTargets(),
+                csr.outWeights());
+        CompressedAdjacency predecessors = csr.isDirected()
+                ? compress(n, csr, denseIds, csr.inOffsets(), csr.inSources(), csr.inWeights())
+                : null;
+        return new CompressedGraph<V>(vertices, csr.isDirected(), successors, predecessors, csr.getNumArcs());
+    }
+
+    /**
+     * Renumbers one direction of a CsrGraph densely and compresses it. Dense
+     * renumbering keeps the order of vertex numbers, so rows stay sorted.
+     */
+    private static <V> CompressedAdjacency compress(int n, CsrGraph<V> csr, int[] denseIds, int[] offsets,
+            int[] neighbors, int[] weights) {
+        int[] denseOffsets = new int[n + 1];
+        int[] denseNeighbors = new int[neighbors.length];
+        for(int number = 0, id = 0; number < csr.size(); number++){
+            if(csr.hasVertex(number)){
+                denseOffsets[id + 1] = offsets[number + 1];
+                id++;
+            }
+        }
+        for(int i = 0; i < neighbors.length; i++){
+            denseNeighbors[i] = denseIds[neighbors[i]];
+        }
+        return CompressedAdjacency.encode(n, denseOffsets, denseNeighbors, weights);
+    }
+
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    /**
+     * Returns the vertex numbered id.
+     */
+    public CS16Vertex<V> vertex(int id) {
+        return _vertices.get(id);
+    }
+
+    /**
+     * Returns the sorted ids of the vertices that v has edges to.
+     */
+    public int[] successors(int v) {
+        return _successors.neighbors(v);
+    }
+
+    /**
+     * Returns the weights of v's outgoing edges, in the order of
+     * successors(v).
+     */
+    public int[] successorWeights(int v) {
+        return _successors.weights(v);
+    }
+
+    /**
+     * Returns the sorted ids of the vertices with edges to v. For an
+     * undirected graph these are its successors.
+     */
+    public int[] predecessors(int v) {
+        return _directed ? _predecessors.neighbors(v) : _successors.neighbors(v);
+    }
+
+    public int outDegree(int v) {
+        return _successors.degree(v);
+    }
+
+    public int inDegree(int v) {
+        return _directed ? _predecessors.degree(v) : _successors.degree(v);
+    }
+
+    /**
+     * Returns a decoder that hands out the successor lists of vertices 0, 1,
+     * 2, ... in turn. Decoding every list this way is faster than calling
+     * successors for each vertex, since no reference has to be decoded twice.
+     */
+    public SuccessorDecoder successorDecoder() {
+        return new SuccessorDecoder(_successors.new Decoder());
+    }
+
+    /**
+     * Decodes successor lists in increasing order of vertex.
+     */
+    public static class SuccessorDecoder {
+        private final CompressedAdjacency.Decoder _decoder;
+
+        private SuccessorDecoder(CompressedAdjacency.Decoder decoder) {
+            _decoder = decoder;
+        }
+
+        public boolean hasNext() {
+            return _decoder.hasNext();
+        }
+
+        /**
+         * Returns the successors of the next vertex.
+         */
+        public int[] next() {
+            if(!_decoder.hasNext()){
+                throw new NoSuchElementException();
+            }
+            return _decoder.next();
+        }
+    }
+
+    /**
+     * Returns the number of bytes taken by the compressed adjacency, not
+     * counting the vertex objects.
+     */
+    public long compressedBytes() {
+        return _successors.sizeInBytes() + (_directed ? _predecessors.sizeInBytes() : 0);
+    }
+
+    /**
+     * Returns the average number of bits taken per arc by the compressed
+     * successor lists, not counting their weights.
+     */
+    public double bitsPerArc() {
+        return _numArcs == 0 ? 0 : 8.0 * _successors.listBytes() / _numArcs;
+    }
+
+    @Override
+    public Iterator<CS16Vertex<V>> vertices() {
+        return _vertices.iterator();
+    }
+
+    /**
+     * Returns an iterator over every edge, decoding one successor list at a
+     * time. For an undirected graph each edge is returned once, from its
+     * lower-numbered end.
+     */
+    @Override
+    public Iterator<CS16Edge<V>> edges() {
+        return new Iterator<CS16Edge<V>>() {
+            private final SuccessorDecoder _decoder = successorDecoder();
+            private int _source = -1;
+            private int[] _targets = new int[0];
+            private int[] _weights = new int[0];
+            private int _index = 0;
+
+            @Override
+            public boolean hasNext() {
+                while(true){
+                    while(_index < _targets.length){
+                        if(_directed || _source <= _targets[_index]){
+                            return true;
+                        }
+                        _index++;
+                    }
+                    if(!_decoder.hasNext()){
+                        return false;
+                    }
+                    _targets = _decoder.next();
+                    _source++;
+                    _weights = _targets.length == 0 ? _targets : successorWeights(_source);
+                    _index = 0;
+                }
+            }
+
+            @Override
+            public CS16Edge<V> next() {
+                if(!this.hasNext()){
+                    throw new NoSuchElementException();
+                }
+                CS16Edge<V> edge = makeEdge(_source, _targets[_index], _weights[_index]);
+                _index++;
+                return edge;
+            }
+        };
+    }
+
+    @Override
+    public CS16Vertex<V> insertVertex(V vertElement) {
+        throw new UnsupportedOperationException("compressed graphs are read-only");
+    }
+
+    @Override
+    public CS16Edge<V> insertEdge(CS16Vertex<V> v1, CS16Vertex<V> v2, Integer edgeElement) {
+        throw new UnsupportedOperationException("compressed graphs are read-only");
+    }
+
+    @Override
+    public V removeVertex(CS16Vertex<V> vert) {
+        throw new UnsupportedOperationException("compressed graphs are read-only");
+    }
+
+    @Override
+    public Integer removeEdge(CS16Edge<V> edge) {
+        throw new UnsupportedOperationException("compressed graphs are read-only");
+    }
+
+    @Override
+    public CS16Edge<V> connectingEdge(CS16Vertex<V> v1, CS16Vertex<V> v2)
+            throws InvalidVertexException, NoSuchEdgeException {
+        if(v1 == null || v2 == null){
+            throw new InvalidVertexException("vertex is null");
+        }
+        int source = v1.getVertexNumber();
+        int[] targets = this.successors(source);
+        int index = Arrays.binarySearch(targets, v2.getVertexNumber());
+        if(index < 0){
+            throw new NoSuchEdgeException("edge does not exist");
+        }
+        return this.makeEdge(source, targets[index], this.successorWeights(source)[index]);
+    }
+
+    @Override
+    public Iterator<CS16Edge<V>> incomingEdges(CS16Vertex<V> vert) throws InvalidVertexException {
+        if(vert == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        if(!_directed){
+            return this.outgoingEdges(vert);
+        }
+        int target = vert.getVertexNumber();
+        int[] sources = _predecessors.neighbors(target);
+        int[] weights = _predecessors.weights(target);
+        ArrayList<CS16Edge<V>> incomingEdges = new ArrayList<CS16Edge<V>>(sources.length);
+        for(int i = 0; i < sources.length; i++){
+            incomingEdges.add(this.makeEdge(sources[i], target, weights[i]));
+        }
+        return incomingEdges.iterator();
+    }
+
+    @Override
+    public Iterator<CS16Edge<V>> outgoingEdges(CS16Vertex<V> vert) throws InvalidVertexException {
+        if(vert == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        int source = vert.getVertexNumber();
+        int[] targets = this.successors(source);
+        int[] weights = this.successorWeights(source);
+        ArrayList<CS16Edge<V>> outgoingEdges = new ArrayList<CS16Edge<V>>(targets.length);
+        for(int i = 0; i < targets.length; i++){
+            outgoingEdges.add(this.makeEdge(source, targets[i], weights[i]));
+        }
+        return outgoingEdges.iterator();
+    }
+
+    @Override
+    public int numOutgoingEdges(CS16Vertex<V> vert) throws InvalidVertexException, DirectionException {
+        if(vert == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        if(!_directed){
+            throw new DirectionException("graph is undirected");
+        }
+        return this.outDegree(vert.getVertexNumber());
+    }
+
+    @Override
+    public CS16Vertex<V> opposite(CS16Vertex<V> vert, CS16Edge<V> edge)
+            throws InvalidVertexException, InvalidEdgeException, NoSuchVertexException {
+        if(vert == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        if(edge == null){
+            throw new InvalidEdgeException("null edge");
+        }
+        if(vert == edge.getVertexTwo()){
+            return edge.getVertexOne();
+        }
+        else if(vert == edge.getVertexOne()){
+            return edge.getVertexTwo();
+        }
+        else{
+            throw new NoSuchVertexException("No such vertex exists");
+        }
+    }
+
+    @Override
+    public List<CS16Vertex<V>> endVertices(CS16Edge<V> e) throws InvalidEdgeException {
+        if(e == null){
+            throw new InvalidEdgeException("edge is null");
+        }
+        ArrayList<CS16Vertex<V>> vertices = new ArrayList<CS16Vertex<V>>();
+        vertices.add(e.getVertexOne());
+        vertices.add(e.getVertexTwo());
+        return vertices;
+    }
+
+    @Override
+    public boolean areAdjacent(CS16Vertex<V> v1, CS16Vertex<V> v2) throws InvalidVertexException {
+        if(v1 == null || v2 == null){
+            throw new InvalidVertexException("vertex is null");
+        }
+        return Arrays.binarySearch(this.successors(v1.getVertexNumber()), v2.getVertexNumber()) >= 0;
+    }
+
+    @Override
+    public void toggleDirected() {
+        throw new UnsupportedOperationException("compressed graphs are read-only");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("compressed graphs are read-only");
+    }
+
+    @Override
+    public int getNumVertices() {
+        return _vertices.size();
+    }
+
+    /**
+     * Estimates the memory this graph retains, by component: the graph
+     * object, the vertex list and vertex objects, the vertex elements, and
+     * the compressed successor (and, if directed, predecessor) lists and
+     * their indexes. Edge objects are made on demand and not kept, so they
+     * are not counted.
+     *
+     * <p>
+     * This runs in O(|V|) time.
+     * </p>
+     */
+    public MemoryFootprint footprint() {
+        MemoryFootprint footprint = new MemoryFootprint();
+        footprint.add("graph", MemoryFootprint.shallowSize(this.getClass()));
+        // the list was made with room for exactly the vertices
+        long vertices = MemoryFootprint.shallowSize(_vertices.getClass())
+                + MemoryFootprint.arrayBytes(_vertices.size(), Object.class);
+        long elements = 0;
+        for(CS16Vertex<V> vertex : _vertices){
+            vertices += MemoryFootprint.valueBytes(vertex);
+            elements += MemoryFootprint.valueBytes(vertex.element());
+        }
+        footprint.add("vertices", vertices);
+        footprint.add("vertex elements", elements);
+        _successors.addFootprint(footprint, "successor");
+        if(_predecessors != null){
+            _predecessors.addFootprint(footprint, "predecessor");
+        }
+        return footprint;
+    }
+
+    private CS16Edge<V> makeEdge(int source, int target, int weight) {
+        CS16Edge<V> edge = new GraphEdge<V>(weight);
+        edge.setVertexOne(_vertices.get(source));
+        edge.setVertexTwo(_vertices.get(target));
+        return edge;
+    }
+}
@@ -0,0 +1,115 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that a CompressedGraph decodes to exactly the graph it was
+ * built from, and that algorithms can run on it directly.
+ */
+public class CompressedGraphTest {
+
+    /**
+     * Tests random access and sequential decoding against the original lists
+     * on a graph where neighboring pages share most of their links
+     */
+    @Test
+    public void decodesOriginalLists() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        List<CS16Vertex<String>> vertices = localGraph(graph, 60, new Random(31));
+        CsrGraph<String> csr = CsrGraph.of(graph);
+        CompressedGraph<String> compressed = CompressedGraph.of(graph);
+
+        assertThat(compressed.getNumVertices(), is(60));
+        CompressedGraph.SuccessorDecoder decoder = compressed.successorDecoder();
+        for(int v = 0; v < vertices.size(); v++){
+            int number = vertices.get(v).getVertexNumber();
+            int[] expected = Arrays.copyOfRange(csr.outTargets(), csr.outOffsets()[number],
+                    csr.outOffsets()[number + 1]);
+            int[] expectedWeights = Arrays.copyOfRange(csr.outWeights(), csr.outOffsets()[number],
+                    csr.outOffsets()[number + 1]);
+            int[] expectedSources = Arrays.copyOfRange(csr.inSources(), csr.inOffsets()[number],
+                    csr.inOffsets()[number + 1]);
+
+            assertArrayEquals(expected, compressed.successors(v));
+            assertArrayEquals(expected, decoder.next());
+            assertArrayEquals(expectedWeights, compressed.successorWeights(v));
+            assertArrayEquals(expectedSources, compressed.predecessors(v));
+            assertThat(compressed.vertex(v).element(), is(vertices.get(v).element()));
+        }
+        // shared neighbor lists should compress well below a plain int per link
+        assertTrue(compressed.bitsPerArc() < 12);
+    }
+
+    /**
+     * Tests that PageRank gives the same ranks on the compressed graph
+     */
+    @Test
+    public void pageRankOnCompressedGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        List<CS16Vertex<String>> vertices = localGraph(graph, 30, new Random(7));
+        CompressedGraph<String> compressed = CompressedGraph.of(graph);
+
+        Map<CS16Vertex<String>, Double> expected = new MyPageRank<String>().calcPageRank(graph);
+        Map<CS16Vertex<String>, Double> actual = new MyPageRank<String>().calcPageRank(compressed);
+        for(int v = 0; v < vertices.size(); v++){
+            assertEquals(expected.get(vertices.get(v)), actual.get(compressed.vertex(v)), 1e-9);
+        }
+    }
+
+    /**
+     * Tests an undirected graph, whose edges are returned once each
+     */
+    @Test
+    public void undirectedGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        graph.insertEdge(A, B, 3);
+        graph.insertEdge(C, B, 4);
+        CompressedGraph<String> compressed = CompressedGraph.of(graph);
+
+        int edges = 0;
+        for(java.util.Iterator<?> it = compressed.edges(); it.hasNext(); it.next()){
+            edges++;
+        }
+        assertThat(edges, is(2));
+        assertThat(compressed.areAdjacent(compressed.vertex(1), compressed.vertex(2)), is(true));
+        assertThat(compressed.connectingEdge(compressed.vertex(2), compressed.vertex(1)).element(), is(4));
+        assertThat(new MyPrimJarnik<String>().genMinSpanForest(compressed, null).size(), is(2));
+    }
+
+    /**
+     * Builds a graph in which every vertex links to most of the few vertices
+     * after it, like pages in the same directory of a site
+     */
+    private static List<CS16Vertex<String>> localGraph(Graph<String> graph, int size, Random random) {
+        List<CS16Vertex<String>> vertices = new ArrayList<CS16Vertex<String>>();
+        for(int i = 0; i < size; i++){
+            vertices.add(graph.insertVertex("page" + i));
+        }
+        for(int i = 0; i < size; i++){
+            for(int j = Math.max(0, i - 3); j < Math.min(size, i + 12); j++){
+                if(j != i && random.nextInt(10) != 0){
+                    graph.insertEdge(vertices.get(i), vertices.get(j), 1 + random.nextInt(2));
+                }
+            }
+        }
+        return vertices;
+    }
+}
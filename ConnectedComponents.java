@@ -0,0 +1,306 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Connected components of a CsrGraph, as an int array giving the component
+ * of every vertex number. The edges of a directed graph are followed both
+ * ways, so its components are the weakly connected ones.
+ *
+ * <p>
+ * unionFind links the two ends of every arc in a disjoint-set forest kept in
+ * an AtomicIntegerArray of parents. Given more than one thread, the arcs are
+ * split among them and the forest is changed with compare-and-set only, no
+ * locks: a root is only ever linked under a smaller root, so no cycles can
+ * form, and finds halve their paths with compare-and-set as they go, which
+ * is safe because any ancestor of a vertex is in its set. This runs in
+ * O(|V| + |E|a(|V|)) time.
+ * </p>
+ *
+ * <p>
+ * labelPropagation starts every vertex with its own number as label and
+ * repeatedly lowers each label to the smallest among its neighbors, until
+ * no label changes; a vertex also takes its label's label, which halves the
+ * number of rounds on long paths. Each vertex only writes its own label, so
+ * threads split the vertices among them without any synchronization within
+ * a round. This takes O(|V| + |E|) time per round and at most about
+ * diameter rounds; union-find is usually faster, but label propagation is
+ * what a distributed or vertex-centric engine would run.
+ * </p>
+ *
+ * Either way, components are numbered 0 up to in order of their smallest
+ * vertex number, so the two give identical results.
+ */
+public class ConnectedComponents<V> {
+
+    private final CsrGraph<V> _csr;
+    // the ranges of the parts of a partition, which parallel runs hand out
+    // instead of their own chunks; null if there is no partition
+    private final int[] _partBounds;
+
+    /**
+     * Prepares to find the components of a snapshot of g. Later changes to g
+     * are not seen.
+     */
+    public ConnectedComponents(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public ConnectedComponents(CsrGraph<V> csr) {
+        _csr = csr;
+        _partBounds = null;
+    }
+
+    /**
+     * Prepares to find the components of the snapshot of a partition, in
+     * which every part is a range of vertex numbers; parallel runs hand out
+     * one part at a time, so few arcs lead outside the vertices a thread is
+     * working on. The results are numbered as in the snapshot, and
+     * partition.relabeling() maps them back.
+     */
+    public ConnectedComponents(GraphPartitioner.Partition<V> partition) {
+        _csr = partition.snapshot();
+        _partBounds = partition.bounds();
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Finds the components with union-find on the calling thread.
+     */
+    public Components<V> unionFind() {
+        return this.unionFind(1);
+    }
+
+    /**
+     * Finds the components with a concurrent union-find shared by the given
+     * number of threads.
+     */
+    public Components<V> unionFind(int threads) {
+        int size = _csr.size();
+        AtomicIntegerArray parents = new AtomicIntegerArray(size);
+        for(int v = 0; v < size; v++){
+            parents.set(v, v);
+        }
+        Parallel.withPool("connected-components", threads, "finding components", pool -> {
+            return Parallel.eachRange(pool, this.chunks(threads), (from, to) -> {
+                int[] offsets = _csr.outOffsets();
+                int[] targets = _csr.outTargets();
+                for(int u = from; u < to; u++){
+                    for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                        union(parents, u, targets[arc]);
+                    }
+                }
+                return null;
+            });
+        });
+        int[] roots = new int[size];
+        for(int v = 0; v < size; v++){
+            roots[v] = find(parents, v);
+        }
+        return this.number(roots);
+    }
+
+    /**
+     * Finds the components with label propagation on the calling thread.
+     */
+    public Components<V> labelPropagation() {
+        return this.labelPropagation(1);
+    }
+
+    /**
+     * Finds the components with label propagation, the vertices of each
+     * round split among the given number of threads.
+     */
+    public Components<V> labelPropagation(int threads) {
+        int size = _csr.size();
+        int[] labels = new int[size];
+        for(int v = 0; v < size; v++){
+            labels[v] = v;
+        }
+        int[] outOffsets = _csr.outOffsets();
+        int[] outTargets = _csr.outTargets();
+        int[] inOffsets = _csr.inOffsets();
+        int[] inSources = _csr.inSources();
+        boolean directed = _csr.isDirected();
+        Parallel.withPool("connected-components", threads, "finding components", pool -> {
+            int[] bounds = this.chunks(threads);
+            boolean changed = true;
+            while(changed){
+                // labels written by one thread in a round may or may not be
+                // seen by the others in that round; either way they are seen
+                // in the next, since invokeAll orders the rounds
+                List<Boolean> lowered = Parallel.eachRange(pool, bounds, (from, to) -> {
+                    boolean any = false;
+                    for(int u = from; u < to; u++){
+                        int label = labels[u];
+                        for(int arc = outOffsets[u]; arc < outOffsets[u + 1]; arc++){
+                            label = Math.min(label, labels[outTargets[arc]]);
+                        }
+                        if(directed){
+                            for(int arc = inOffsets[u]; arc < inOffsets[u + 1]; arc++){
+                                label = Math.min(label, labels[inSources[arc]]);
+                            }
+                        }
+                        label = Math.min(label, labels[label]);
+                        if(label < labels[u]){
+                            labels[u] = label;
+                            any = true;
+                        }
+                    }
+                    return any;
+                });
+                changed = lowered.contains(Boolean.TRUE);
+            }
+            return null;
+        });
+        return this.number(labels);
+    }
+
+    private static int find(AtomicIntegerArray parents, int v) {
+        while(true){
+            int parent = parents.get(v);
+            if(parent == v){
+                return v;
+            }
+            int grandparent = parents.get(parent);
+            if(grandparent != parent){
+                parents.compareAndSet(v, parent, grandparent);
+            }
+            v = grandparent;
+        }
+    }
+
+    private static void union(AtomicIntegerArray parents, int a, int b) {
+        while(true){
+            a = find(parents, a);
+            b = find(parents, b);
+            if(a == b){
+                return;
+            }
+            int high = Math.max(a, b);
+            int low = Math.min(a, b);
+            // fails if high stopped being a root since it was found
+            if(parents.compareAndSet(high, high, low)){
+                return;
+            }
+        }
+    }
+
+    /**
+     * Numbers the components given a representative of each vertex's
+     * component, one that is the same for all vertices of the component.
+     * Numbers that are not vertices of the graph get -1.
+     */
+    private Components<V> number(int[] representatives) {
+        int size = _csr.size();
+        int[] ids = new int[size];
+        int[] idOfRepresentative = new int[size];
+        Arrays.fill(idOfRepresentative, -1);
+        int numComponents = 0;
+        for(int v = 0; v < size; v++){
+            if(!_csr.hasVertex(v)){
+                ids[v] = -1;
+                continue;
+            }
+            int representative = representatives[v];
+            if(idOfRepresentative[representative] < 0){
+                idOfRepresentative[representative] = numComponents++;
+            }
+            ids[v] = idOfRepresentative[representative];
+        }
+        int[] sizes = new int[numComponents];
+        for(int v = 0; v < size; v++){
+            if(ids[v] >= 0){
+                sizes[ids[v]]++;
+            }
+        }
+        return new Components<V>(_csr, ids, sizes);
+    }
+
+    /**
+     * Splits the vertex numbers into ranges with about the same number of
+     * arcs each, or into the parts of the partition if there is one and
+     * threads is more than 1, and returns the bounds of the ranges.
+     */
+    private int[] chunks(int threads) {
+        if(threads > 1 && _partBounds != null){
+            return _partBounds;
+        }
+        return Parallel.arcBalancedBounds(_csr.outOffsets(), _csr.size(), Parallel.numRanges(threads));
+    }
+
+    /**
+     * The components of a graph: the component id of every vertex number
+     * (-1 for numbers that are not vertices), and the number of vertices in
+     * every component.
+     */
+    public static class Components<V> {
+        private final CsrGraph<V> _csr;
+        private final int[] _ids;
+        private final int[] _sizes;
+
+        private Components(CsrGraph<V> csr, int[] ids, int[] sizes) {
+            _csr = csr;
+            _ids = ids;
+            _sizes = sizes;
+        }
+
+        /**
+         * Returns the component ids indexed by vertex number. The array is
+         * not copied; do not change it.
+         */
+        public int[] ids() {
+            return _ids;
+        }
+
+        /**
+         * Returns the sizes of the components indexed by component id. The
+         * array is not copied; do not change it.
+         */
+        public int[] sizes() {
+            return _sizes;
+        }
+
+        public int getNumComponents() {
+            return _sizes.length;
+        }
+
+        public int componentOf(CS16Vertex<V> vertex) {
+            return _ids[_csr.numberOf(vertex)];
+        }
+
+        public boolean isConnected(CS16Vertex<V> a, CS16Vertex<V> b) {
+            return _ids[_csr.numberOf(a)] == _ids[_csr.numberOf(b)];
+        }
+
+        /**
+         * Returns the vertices of a component, in order of vertex number.
+         *
+         * <p>
+         * This runs in O(|V|) time.
+         * </p>
+         */
+        public List<CS16Vertex<V>> members(int id) {
+            if(id < 0 || id >= _sizes.length){
+                throw new IllegalArgumentException("no component " + id);
+            }
+            List<CS16Vertex<V>> members = new ArrayList<CS16Vertex<V>>(_sizes[id]);
+            for(int v = 0; v < _ids.length; v++){
+                if(_ids[v] == id){
+                    members.add(_csr.vertex(v));
+                }
+            }
+            return members;
+        }
+
+    }
+}
@@ -0,0 +1,132 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests union-find and label propagation in ConnectedComponents.
+ */
+public class ConnectedComponentsTest {
+
+    /**
+     * Tests the components of a small graph with an isolated vertex and a
+     * removed one
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        CS16Vertex<String> E = graph.insertVertex("E");
+        CS16Vertex<String> F = graph.insertVertex("F");
+        graph.insertEdge(A, C, 1);
+        graph.insertEdge(D, E, 1);
+        graph.insertEdge(E, B, 1);
+        graph.removeVertex(F);
+
+        ConnectedComponents<String> components = new ConnectedComponents<String>(graph);
+        for(ConnectedComponents.Components<String> result : Arrays.asList(components.unionFind(),
+                components.labelPropagation(), components.unionFind(3), components.labelPropagation(3))){
+            assertThat(result.getNumComponents(), is(2));
+            assertThat(result.isConnected(A, C), is(true));
+            assertThat(result.isConnected(B, D), is(true));
+            assertThat(result.isConnected(A, B), is(false));
+            assertThat(result.componentOf(A), is(0));
+            assertThat(result.members(1), is(Arrays.asList(B, D, E)));
+            assertArrayEquals(new int[] {2, 3}, result.sizes());
+        }
+    }
+
+    /**
+     * Tests that a directed graph's components follow edges both ways
+     */
+    @Test
+    public void weaklyConnected() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(C, B, 1);
+
+        ConnectedComponents<String> components = new ConnectedComponents<String>(graph);
+        assertThat(components.unionFind().getNumComponents(), is(1));
+        assertThat(components.labelPropagation(2).getNumComponents(), is(1));
+    }
+
+    /**
+     * Tests every method, on one thread and several, against components found
+     * by breadth-first search on random sparse graphs
+     */
+    @Test
+    public void matchesSearch() {
+        Random random = new Random(36);
+        for(int trial = 0; trial < 8; trial++){
+            boolean directed = trial % 2 == 0;
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(directed);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 90; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int i = 0; i < 40 + trial * 10; i++){
+                CS16Vertex<Integer> a = vertices.get(random.nextInt(90));
+                CS16Vertex<Integer> b = vertices.get(random.nextInt(90));
+                if(a != b && !graph.areAdjacent(a, b)){
+                    graph.insertEdge(a, b, 1);
+                }
+            }
+            ConnectedComponents<Integer> components = new ConnectedComponents<Integer>(graph);
+            int[] expected = searchComponents(components.getCsrGraph());
+            for(int threads = 1; threads <= 4; threads++){
+                assertArrayEquals(expected, components.unionFind(threads).ids());
+                assertArrayEquals(expected, components.labelPropagation(threads).ids());
+            }
+        }
+    }
+
+    private static int[] searchComponents(CsrGraph<Integer> csr) {
+        int[] ids = new int[csr.size()];
+        Arrays.fill(ids, -1);
+        int next = 0;
+        for(int s = 0; s < csr.size(); s++){
+            if(!csr.hasVertex(s) || ids[s] >= 0){
+                continue;
+            }
+            ids[s] = next;
+            IntList stack = new IntList();
+            stack.add(s);
+            while(!stack.isEmpty()){
+                int u = stack.pop();
+                for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                    int v = csr.outTargets()[arc];
+                    if(ids[v] < 0){
+                        ids[v] = next;
+                        stack.add(v);
+                    }
+                }
+                for(int arc = csr.inOffsets()[u]; arc < csr.inOffsets()[u + 1]; arc++){
+                    int v = csr.inSources()[arc];
+                    if(ids[v] < 0){
+                        ids[v] = next;
+                        stack.add(v);
+                    }
+                }
+            }
+            next++;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,114 @@
+package graph;
+
+import support.graph.CS16Decorator;
+import support.graph.CS16Vertex;
+
+/**
+ * A DistanceHeuristic from the layout coordinates of the vertices, such as
+ * the x and y given for every vertex of a links file: the straight-line
+ * distance between two vertices, times a scale.
+ *
+ * <p>
+ * Edge weights are not lengths on the layout, so the scale is what makes the
+ * estimate admissible. The of methods take the largest scale that no edge
+ * contradicts, the smallest weight per unit of length over all edges; then
+ * no path can be shorter than scale times the straight line between its
+ * ends, and the heuristic is consistent as well as admissible. The better the
+ * weights follow the layout, the larger the scale and the fewer vertices a
+ * search has to settle; if some edge weighs 0 but has length, the scale is 0
+ * and the heuristic gives no help at all.
+ * </p>
+ *
+ * Vertices without coordinates are estimated to be 0 away from everything.
+ * Nothing bounds the weights of the edges through them, so a path through
+ * them could be shorter than any scale predicts; if any edge has an end
+ * without coordinates, the of methods take a scale of 0.
+ */
+public class CoordinateHeuristic implements DistanceHeuristic {
+
+    private final double[] _xs;
+    private final double[] _ys;
+    private final double _scale;
+
+    /**
+     * Creates a heuristic from coordinates indexed by vertex number. The
+     * caller is responsible for the scale being admissible; NaN coordinates
+     * mark vertices without any.
+     */
+    public CoordinateHeuristic(double[] xs, double[] ys, double scale) {
+        if(xs.length != ys.length){
+            throw new IllegalArgumentException("need as many x as y coordinates");
+        }
+        if(!(scale >= 0)){
+            throw new IllegalArgumentException("scale must not be negative");
+        }
+        _xs = xs;
+        _ys = ys;
+        _scale = scale;
+    }
+
+    /**
+     * Creates an admissible heuristic for csr from coordinates decorating
+     * its vertices as {x, y} arrays, like those of
+     * LinksData.decorateCoordinates.
+     *
+     * <p>
+     * This runs in O(|V| + |E|) time.
+     * </p>
+     */
+    public static <V> CoordinateHeuristic of(CsrGraph<V> csr, CS16Decorator<CS16Vertex<V>, double[]> coordinates) {
+        double[] xs = new double[csr.size()];
+        double[] ys = new double[csr.size()];
+        for(int v = 0; v < csr.size(); v++){
+            double[] xy = csr.hasVertex(v) ? coordinates.getDecoration(csr.vertex(v)) : null;
+            xs[v] = (xy == null) ? Double.NaN : xy[0];
+            ys[v] = (xy == null) ? Double.NaN : xy[1];
+        }
+        return of(csr, xs, ys);
+    }
+
+    /**
+     * Creates an admissible heuristic for csr from coordinates indexed by
+     * vertex number. The scale is 0 if an edge has an end with NaN
+     * coordinates.
+     *
+     * <p>
+     * This runs in O(|E|) time.
+     * </p>
+     */
+    public static <V> CoordinateHeuristic of(CsrGraph<V> csr, double[] xs, double[] ys) {
+        int[] offsets = csr.outOffsets();
+        int[] targets = csr.outTargets();
+        int[] weights = csr.outWeights();
+        double scale = Double.POSITIVE_INFINITY;
+        for(int u = 0; u < csr.size(); u++){
+            for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                double length = Math.hypot(xs[u] - xs[targets[arc]], ys[u] - ys[targets[arc]]);
+                if(Double.isNaN(length)){
+                    // an end without coordinates; only a scale of 0 is safe
+                    return new CoordinateHeuristic(xs, ys, 0);
+                }
+                if(length > 0){
+                    scale = Math.min(scale, weights[arc] / length);
+                }
+            }
+        }
+        // with no edge to go by, any scale could be wrong
+        return new CoordinateHeuristic(xs, ys, (scale == Double.POSITIVE_INFINITY) ? 0 : scale);
+    }
+
+    /**
+     * Returns the weight per unit of straight-line distance that estimates
+     * are made with.
+     */
+    public double getScale() {
+        return _scale;
+    }
+
+    @Override
+    public int estimate(int from, int to) {
+        double length = Math.hypot(_xs[from] - _xs[to], _ys[from] - _ys[to]);
+        // rounding down keeps the estimate admissible and consistent
+        return (length > 0) ? (int) (_scale * length) : 0;
+    }
+}
@@ -0,0 +1,330 @@
+package graph;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * The core decomposition of a CsrGraph: the k-core is the largest subgraph
+ * in which every vertex has at least k neighbors, and the core number of a
+ * vertex is the largest k whose k-core holds it. Edges are taken as
+ * undirected, without repeats or self-loops. Pages of low core number hang
+ * off the well-linked part of a links graph and can be pruned before
+ * ranking.
+ *
+ * <p>
+ * decompose is the algorithm of Batagelj and Zaversnik. It keeps the
+ * vertices in an int array sorted by current degree, with the start of
+ * every degree's bin in another, and repeatedly removes a vertex of least
+ * degree, whose core number is then its degree; each neighbor of higher
+ * degree loses one and is moved to the start of its bin and the bin's start
+ * past it, in O(1). This runs in O(|V| + |E|) time.
+ * </p>
+ *
+ * <p>
+ * decompose(threads) peels level by level instead. At level k, every vertex
+ * of degree k is removed at once, with its core number k; removing them
+ * lowers the degrees of their neighbors, held in an AtomicIntegerArray, and
+ * the neighbors that drop to k are removed next, until none are left and
+ * the level goes up to the lowest degree left, skipping levels that no
+ * vertex has as its core number. The vertices of a round are split among
+ * the threads. Each level starts with a scan of all the vertices, so this
+ * takes O(|E| + |V|L) work for L distinct core numbers, but the rounds are
+ * wide on large graphs.
+ * </p>
+ */
+public class CoreDecomposition<V> {
+
+    // rounds with fewer vertices than this are peeled on one thread
+    private static final int PARALLEL_THRESHOLD = 1 << 10;
+
+    private final CsrGraph<V> _csr;
+
+    /**
+     * Prepares to decompose a snapshot of g. Later changes to g are not seen.
+     */
+    public CoreDecomposition(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public CoreDecomposition(CsrGraph<V> csr) {
+        _csr = csr;
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Finds every core number with the bucket algorithm of Batagelj and
+     * Zaversnik.
+     */
+    public Cores<V> decompose() {
+        SimpleNeighbors simple = new SimpleNeighbors(_csr);
+        int n = _csr.size();
+        int[] degrees = simple._degrees.clone();
+        int maxDegree = 0;
+        for(int degree : degrees){
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        // bins[d] is where the vertices of degree d start in sorted
+        int[] bins = new int[maxDegree + 1];
+        for(int degree : degrees){
+            bins[degree]++;
+        }
+        for(int d = 0, start = 0; d <= maxDegree; d++){
+            int count = bins[d];
+            bins[d] = start;
+            start += count;
+        }
+        int[] sorted = new int[n];
+        int[] positions = new int[n];
+        for(int v = 0; v < n; v++){
+            positions[v] = bins[degrees[v]]++;
+            sorted[positions[v]] = v;
+        }
+        for(int d = maxDegree; d > 0; d--){
+            bins[d] = bins[d - 1];
+        }
+        bins[0] = 0;
+
+        for(int i = 0; i < n; i++){
+            int v = sorted[i];
+            for(int j = simple._offsets[v]; j < simple._offsets[v + 1]; j++){
+                int u = simple._neighbors[j];
+                if(degrees[u] > degrees[v]){
+                    // swap u with the first vertex of its bin, then shrink the bin
+                    int degree = degrees[u];
+                    int first = bins[degree];
+                    int w = sorted[first];
+                    if(w != u){
+                        sorted[positions[u]] = w;
+                        positions[w] = positions[u];
+                        sorted[first] = u;
+                        positions[u] = first;
+                    }
+                    bins[degree]++;
+                    degrees[u]--;
+                }
+            }
+        }
+        return new Cores<V>(_csr, degrees);
+    }
+
+    /**
+     * Finds every core number by peeling, the vertices of each round split
+     * among the given number of threads.
+     */
+    public Cores<V> decompose(int threads) {
+        return this.decompose(threads, PARALLEL_THRESHOLD);
+    }
+
+    Cores<V> decompose(int threads, int parallelThreshold) {
+        if(threads < 1){
+            throw new IllegalArgumentException("need at least one thread");
+        }
+        if(threads == 1){
+            return this.decompose();
+        }
+        return Parallel.withPool("core-decomposition", threads, "decomposing into cores",
+                pool -> new Peeling(new SimpleNeighbors(_csr), pool, threads, parallelThreshold).run());
+    }
+
+    /**
+     * The state of one parallel peeling. A vertex is removed once its
+     * degree is at most the level, and from then on its degree is its core
+     * number and never changes.
+     */
+    private class Peeling {
+        private final SimpleNeighbors _simple;
+        private final ExecutorService _pool;
+        private final int _threads;
+        private final int _parallelThreshold;
+        private final AtomicIntegerArray _degrees;
+
+        private Peeling(SimpleNeighbors simple, ExecutorService pool, int threads, int parallelThreshold) {
+            _simple = simple;
+            _pool = pool;
+            _threads = threads;
+            _parallelThreshold = parallelThreshold;
+            _degrees = new AtomicIntegerArray(simple._degrees);
+        }
+
+        private Cores<V> run() throws InterruptedException, ExecutionException {
+            int n = _csr.size();
+            int removed = 0;
+            int level = -1;
+            while(removed < n){
+                // levels no vertex is left at are skipped
+                IntList round = this.scan(level);
+                level = _degrees.get(round.get(0));
+                while(!round.isEmpty()){
+                    removed += round.size();
+                    round = this.peel(round, level);
+                }
+            }
+            int[] cores = new int[n];
+            for(int v = 0; v < n; v++){
+                cores[v] = _degrees.get(v);
+            }
+            return new Cores<V>(_csr, cores);
+        }
+
+        /**
+         * Returns the vertices of the lowest degree above the last level,
+         * which are those left to remove at the next level. Every vertex
+         * left has a degree above the last level, and every vertex removed
+         * has one at most that.
+         */
+        private IntList scan(int lastLevel) throws InterruptedException, ExecutionException {
+            int n = _csr.size();
+            if(n < _parallelThreshold){
+                return this.scan(lastLevel, 0, n);
+            }
+            int[] bounds = Parallel.evenBounds(0, n, Parallel.numRanges(_threads));
+            List<IntList> found = Parallel.eachRange(_pool, bounds, (from, to) -> this.scan(lastLevel, from, to));
+            int lowest = Integer.MAX_VALUE;
+            for(IntList range : found){
+                if(!range.isEmpty()){
+                    lowest = Math.min(lowest, _degrees.get(range.get(0)));
+                }
+            }
+            IntList all = new IntList();
+            for(IntList range : found){
+                if(!range.isEmpty() && _degrees.get(range.get(0)) == lowest){
+                    all.addAll(range);
+                }
+            }
+            return all;
+        }
+
+        private IntList scan(int lastLevel, int from, int to) {
+            IntList found = new IntList();
+            int lowest = Integer.MAX_VALUE;
+            for(int v = from; v < to; v++){
+                int degree = _degrees.get(v);
+                if(degree > lastLevel && degree <= lowest){
+                    if(degree < lowest){
+                        found.clear();
+                        lowest = degree;
+                    }
+                    found.add(v);
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Removes the vertices of a round and returns the neighbors whose
+         * degree that drops to the level, to be removed in the next round.
+         */
+        private IntList peel(IntList round, int level) throws InterruptedException, ExecutionException {
+            if(round.size() < _parallelThreshold){
+                return this.peel(round, level, 0, round.size());
+            }
+            int[] bounds = Parallel.evenBounds(0, round.size(), Parallel.numRanges(_threads));
+            return this.gather(Parallel.eachRange(_pool, bounds, (from, to) -> this.peel(round, level, from, to)));
+        }
+
+        private IntList peel(IntList round, int level, int from, int to) {
+            IntList next = new IntList();
+            for(int i = from; i < to; i++){
+                int v = round.get(i);
+                for(int j = _simple._offsets[v]; j < _simple._offsets[v + 1]; j++){
+                    int u = _simple._neighbors[j];
+                    if(_degrees.get(u) > level){
+                        int before = _degrees.getAndDecrement(u);
+                        if(before == level + 1){
+                            // this decrement took u down to the level
+                            next.add(u);
+                        }
+                        else if(before <= level){
+                            // u was taken down to the level by another
+                            // thread since it was read, and is removed
+                            _degrees.getAndIncrement(u);
+                        }
+                    }
+                }
+            }
+            return next;
+        }
+
+        private IntList gather(List<IntList> results) {
+            IntList all = new IntList();
+            for(IntList result : results){
+                all.addAll(result);
+            }
+            return all;
+        }
+    }
+
+    /**
+     * The core numbers of a graph, indexed by vertex number.
+     */
+    public static class Cores<V> {
+        private final CsrGraph<V> _csr;
+        private final int[] _cores;
+        private final int _degeneracy;
+
+        private Cores(CsrGraph<V> csr, int[] cores) {
+            _csr = csr;
+            _cores = cores;
+            int degeneracy = 0;
+            for(int core : cores){
+                degeneracy = Math.max(degeneracy, core);
+            }
+            _degeneracy = degeneracy;
+        }
+
+        /**
+         * Returns the core numbers indexed by vertex number, 0 for numbers
+         * that are not vertices. The array is not copied; do not change it.
+         */
+        public int[] coreNumbers() {
+            return _cores;
+        }
+
+        public int coreNumber(CS16Vertex<V> vertex) {
+            return _cores[_csr.numberOf(vertex)];
+        }
+
+        /**
+         * Returns the largest core number, the largest k with a non-empty
+         * k-core.
+         */
+        public int getDegeneracy() {
+            return _degeneracy;
+        }
+
+        /**
+         * Returns the number of vertices in the k-core.
+         */
+        public int sizeOfCore(int k) {
+            int size = 0;
+            for(int v = 0; v < _cores.length; v++){
+                if(_csr.hasVertex(v) && _cores[v] >= k){
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        /**
+         * Returns the k-core as a read-only view of the graph.
+         */
+        public KCore<V> kCore(int k) {
+            if(k < 0){
+                throw new IllegalArgumentException("k must not be negative");
+            }
+            boolean[] members = new boolean[_cores.length];
+            for(int v = 0; v < _cores.length; v++){
+                members[v] = _csr.hasVertex(v) && _cores[v] >= k;
+            }
+            return new KCore<V>(_csr, k, members);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests CoreDecomposition and its KCore views.
+ */
+public class CoreDecompositionTest {
+
+    /**
+     * Tests a triangle with a tail: the triangle is the 2-core
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        CS16Vertex<String> E = graph.insertVertex("E");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(B, C, 1);
+        graph.insertEdge(C, A, 1);
+        graph.insertEdge(C, D, 1);
+
+        CoreDecomposition.Cores<String> cores = new CoreDecomposition<String>(graph).decompose();
+        assertThat(cores.coreNumber(A), is(2));
+        assertThat(cores.coreNumber(D), is(1));
+        assertThat(cores.coreNumber(E), is(0));
+        assertThat(cores.getDegeneracy(), is(2));
+        assertThat(cores.sizeOfCore(1), is(4));
+
+        KCore<String> core = cores.kCore(2);
+        assertThat(core.getNumVertices(), is(3));
+        assertThat(core.contains(D), is(false));
+        assertThat(core.areAdjacent(A, C), is(true));
+        assertThat(count(core.edges()), is(3));
+        assertThat(count(core.outgoingEdges(C)), is(2));
+        assertThat(core.connectingEdge(B, A), is(graph.connectingEdge(A, B)));
+        assertThat(CsrGraph.of(core).getNumArcs(), is(6));
+    }
+
+    /**
+     * Tests core numbers with gaps between them, a 5-clique beside an
+     * isolated vertex, which parallel peeling reaches without stopping at
+     * the levels between
+     */
+    @Test
+    public void gapsBetweenCores() {
+        Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(false);
+        List<CS16Vertex<Integer>> clique = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < 5; i++){
+            clique.add(graph.insertVertex(i));
+        }
+        CS16Vertex<Integer> alone = graph.insertVertex(5);
+        for(int i = 0; i < 5; i++){
+            for(int j = i + 1; j < 5; j++){
+                graph.insertEdge(clique.get(i), clique.get(j), 1);
+            }
+        }
+
+        CoreDecomposition<Integer> decomposition = new CoreDecomposition<Integer>(graph);
+        for(CoreDecomposition.Cores<Integer> cores : Arrays.asList(decomposition.decompose(),
+                decomposition.decompose(2, 1))){
+            assertThat(cores.coreNumber(clique.get(3)), is(4));
+            assertThat(cores.coreNumber(alone), is(0));
+            assertThat(cores.sizeOfCore(2), is(5));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnly() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        graph.insertVertex("A");
+        new CoreDecomposition<String>(graph).decompose().kCore(0).insertVertex("B");
+    }
+
+    /**
+     * Tests that the neighbors merged from the sorted outgoing and incoming
+     * rows are sorted, without repeats or self-loops
+     */
+    @Test
+    public void simpleNeighbors() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(B, A, 1);
+        graph.insertEdge(D, A, 1);
+        graph.insertEdge(A, C, 1);
+        graph.insertEdge(C, C, 1);
+        graph.insertEdge(C, B, 1);
+
+        CsrGraph<String> csr = CsrGraph.of(graph);
+        SimpleNeighbors simple = new SimpleNeighbors(csr);
+        assertArrayEquals(numbers(csr, Arrays.asList(B, C, D)), row(simple, csr.numberOf(A)));
+        assertArrayEquals(numbers(csr, Arrays.asList(A, C)), row(simple, csr.numberOf(B)));
+        assertArrayEquals(numbers(csr, Arrays.asList(A, B)), row(simple, csr.numberOf(C)));
+        assertArrayEquals(numbers(csr, Arrays.asList(A)), row(simple, csr.numberOf(D)));
+        assertThat(simple._degrees[csr.numberOf(A)], is(3));
+    }
+
+    /**
+     * Tests the bucket algorithm and parallel peeling against removing
+     * vertices of too small a degree one at a time, and checks that every
+     * vertex of each k-core view has k neighbors in it
+     */
+    @Test
+    public void matchesPeeling() {
+        Random random = new Random(41);
+        for(int trial = 0; trial < 8; trial++){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(trial % 2 == 0);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 80; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int i = 0; i < 100 + trial * 60; i++){
+                CS16Vertex<Integer> a = vertices.get(random.nextInt(80));
+                CS16Vertex<Integer> b = vertices.get(random.nextInt(80));
+                if(!graph.areAdjacent(a, b)){
+                    graph.insertEdge(a, b, 1);
+                }
+            }
+            CoreDecomposition<Integer> decomposition = new CoreDecomposition<Integer>(graph);
+            int[] expected = naiveCores(decomposition.getCsrGraph());
+            CoreDecomposition.Cores<Integer> cores = decomposition.decompose();
+            assertArrayEquals(expected, cores.coreNumbers());
+            assertArrayEquals(expected, decomposition.decompose(3).coreNumbers());
+            assertArrayEquals(expected, decomposition.decompose(2, 1).coreNumbers());
+
+            for(int k = 0; k <= cores.getDegeneracy(); k++){
+                KCore<Integer> core = cores.kCore(k);
+                assertThat(core.getNumVertices(), is(cores.sizeOfCore(k)));
+                SimpleNeighbors simple = new SimpleNeighbors(CsrGraph.of(core));
+                Iterator<CS16Vertex<Integer>> members = core.vertices();
+                while(members.hasNext()){
+                    assertTrue(simple._degrees[members.next().getVertexNumber()] >= k);
+                }
+            }
+        }
+    }
+
+    private static int[] numbers(CsrGraph<String> csr, List<CS16Vertex<String>> vertices) {
+        int[] numbers = new int[vertices.size()];
+        for(int i = 0; i < numbers.length; i++){
+            numbers[i] = csr.numberOf(vertices.get(i));
+        }
+        Arrays.sort(numbers);
+        return numbers;
+    }
+
+    private static int[] row(SimpleNeighbors simple, int v) {
+        return Arrays.copyOfRange(simple._neighbors, simple._offsets[v], simple._offsets[v + 1]);
+    }
+
+    private static int[] naiveCores(CsrGraph<Integer> csr) {
+        SimpleNeighbors simple = new SimpleNeighbors(csr);
+        int n = csr.size();
+        int[] cores = new int[n];
+        for(int k = 1; ; k++){
+            boolean[] removed = new boolean[n];
+            boolean changed = true;
+            while(changed){
+                changed = false;
+                for(int v = 0; v < n; v++){
+                    if(removed[v]){
+                        continue;
+                    }
+                    int degree = 0;
+                    for(int i = simple._offsets[v]; i < simple._offsets[v + 1]; i++){
+                        if(!removed[simple._neighbors[i]]){
+                            degree++;
+                        }
+                    }
+                    if(degree < k){
+                        removed[v] = true;
+                        changed = true;
+                    }
+                }
+            }
+            boolean any = false;
+            for(int v = 0; v < n; v++){
+                if(!removed[v]){
+                    cores[v] = k;
+                    any = true;
+                }
+            }
+            if(!any){
+                return cores;
+            }
+        }
+    }
+
+    private static int count(Iterator<?> iterator) {
+        int count = 0;
+        while(iterator.hasNext()){
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+}
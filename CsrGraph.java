@@ -0,0 +1,377 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.DirectionException;
+import support.graph.Graph;
+import support.graph.GraphEdge;
+import support.graph.GraphVertex;
+import support.graph.InvalidVertexException;
+import support.graph.NoSuchVertexException;
+
+/**
+ * A snapshot of a Graph's adjacency in compressed sparse row (CSR) form: for
+ * every vertex, its outgoing neighbors are stored next to each other in one
+ * big int array, and its incoming neighbors in another. Algorithms that sweep
+ * the whole graph many times can then work on plain int arrays rather than
+ * going through the Graph iterators on every step.
+ *
+ * <p>
+ * Rows are indexed by vertex number, so arrays indexed by vertex number (for
+ * example a parent or distance array) line up with the graph directly. Vertex
+ * numbers that are not in use have empty rows and a null vertex. Within each
+ * row neighbors are sorted in increasing order.
+ * </p>
+ *
+ * <p>
+ * An undirected edge is stored as two arcs, one in each direction, both
+ * pointing at the same CS16Edge; the incoming rows are then the same arrays
+ * as the outgoing rows. Edges whose element is null (such as the links of a
+ * PageRank graph) count as weight 1.
+ * </p>
+ *
+ * The snapshot does not follow later changes to the graph.
+ */
+public class CsrGraph<V> {
+
+    private final CS16Vertex<V>[] _vertices;
+    private final int _numVertices;
+    private final boolean _directed;
+    private final int[] _outOffsets;
+    private final int[] _outTargets;
+    private final int[] _outWeights;
+    private final CS16Edge<V>[] _outEdges;
+    private final int[] _inOffsets;
+    private final int[] _inSources;
+    private final int[] _inWeights;
+    private final CS16Edge<V>[] _inEdges;
+
+    private CsrGraph(CS16Vertex<V>[] vertices, int numVertices, boolean directed, int[] outOffsets,
+            int[] outTargets, int[] outWeights, CS16Edge<V>[] outEdges, int[] inOffsets, int[] inSources,
+            int[] inWeights, CS16Edge<V>[] inEdges) {
+        _vertices = vertices;
+        _numVertices = numVertices;
+        _directed = directed;
+        _outOffsets = outOffsets;
+        _outTargets = outTargets;
+        _outWeights = outWeights;
+        _outEdges = outEdges;
+        _inOffsets = inOffsets;
+        _inSources = inSources;
+        _inWeights = inWeights;
+        _inEdges = inEdges;
+    }
+
+    /**
+     * Builds the CSR form of a graph.
+     *
+     * <p>
+     * This runs in O(|V| + |E|log(d)) time, where d is the largest degree,
+     * plus the cost of one pass over g.vertices() and g.edges().
+     * </p>
+     *
+     * @param g
+     *            the graph to take a snapshot of
+     * @return the CSR snapshot
+     */
+    public static <V> CsrGraph<V> of(Graph<V> g) {
+        List<CS16Vertex<V>> vertexList = new ArrayList<CS16Vertex<V>>();
+        int size = 0;
+        Iterator<CS16Vertex<V>> vertices = g.vertices();
+        while(vertices.hasNext()){
+            CS16Vertex<V> vertex = vertices.next();
+            vertexList.add(vertex);
+            size = Math.max(size, vertex.getVertexNumber() + 1);
+        }
+        CS16Vertex<V>[] byNumber = newVertexArray(size);
+        for(CS16Vertex<V> vertex : vertexList){
+            byNumber[vertex.getVertexNumber()] = vertex;
+        }
+        boolean directed = isDirected(g);
+
+        List<CS16Edge<V>> edgeList = new ArrayList<CS16Edge<V>>();
+        Iterator<CS16Edge<V>> edges = g.edges();
+        while(edges.hasNext()){
+            edgeList.add(edges.next());
+        }
+        return build(byNumber, vertexList.size(), directed, edgeList);
+    }
+
+    /**
+     * Builds the CSR form of the directed graph in a LinksData straight from
+     * its arrays, without going through a Graph, so it is not limited to
+     * what an AdjacencyMatrixGraph can hold. Vertex i is a new vertex
+     * numbered i, whose element is the name with id i.
+     *
+     * <p>
+     * This runs in O(|V| + |E|log(d)) time.
+     * </p>
+     */
+    public static CsrGraph<String> of(LinksData data) {
+        int size = data.getNumVertices();
+        CS16Vertex<String>[] byNumber = newVertexArray(size);
+        for(int id = 0; id < size; id++){
+            byNumber[id] = new GraphVertex<String>(data.getName(id));
+            byNumber[id].setVertexNumber(id);
+        }
+        EdgeBuffer buffer = data.getEdges();
+        List<CS16Edge<String>> edgeList = new ArrayList<CS16Edge<String>>(buffer.size());
+        for(int i = 0; i < buffer.size(); i++){
+            CS16Edge<String> edge = new GraphEdge<String>(buffer.weight(i));
+            edge.setVertexOne(byNumber[buffer.source(i)]);
+            edge.setVertexTwo(byNumber[buffer.target(i)]);
+            edgeList.add(edge);
+        }
+        return build(byNumber, size, true, edgeList);
+    }
+
+    /**
+     * Builds the CSR form of the given edges between the given vertices,
+     * which are indexed by vertex number and may have null holes.
+     */
+    static <V> CsrGraph<V> build(CS16Vertex<V>[] byNumber, int numVertices, boolean directed,
+            List<CS16Edge<V>> edgeList) {
+        int size = byNumber.length;
+        // count the arcs leaving (and, if directed, entering) every vertex
+        int[] outOffsets = new int[size + 1];
+        int[] inOffsets = directed ? new int[size + 1] : outOffsets;
+        for(CS16Edge<V> edge : edgeList){
+            int one = edge.getVertexOne().getVertexNumber();
+            int two = edge.getVertexTwo().getVertexNumber();
+            outOffsets[one + 1]++;
+            if(directed){
+                inOffsets[two + 1]++;
+            }
+            else if(one != two){
+                outOffsets[two + 1]++;
+            }
+        }
+        for(int v = 0; v < size; v++){
+            outOffsets[v + 1] += outOffsets[v];
+            if(directed){
+                inOffsets[v + 1] += inOffsets[v];
+            }
+        }
+
+        int numArcs = outOffsets[size];
+        int[] outTargets = new int[numArcs];
+        CS16Edge<V>[] outEdges = newEdgeArray(numArcs);
+        int[] inSources = directed ? new int[inOffsets[size]] : outTargets;
+        CS16Edge<V>[] inEdges = directed ? newEdgeArray(inOffsets[size]) : outEdges;
+        int[] outFill = Arrays.copyOf(outOffsets, size);
+        int[] inFill = directed ? Arrays.copyOf(inOffsets, size) : null;
+        for(CS16Edge<V> edge : edgeList){
+            int one = edge.getVertexOne().getVertexNumber();
+            int two = edge.getVertexTwo().getVertexNumber();
+            outTargets[outFill[one]] = two;
+            outEdges[outFill[one]++] = edge;
+            if(directed){
+                inSources[inFill[two]] = one;
+                inEdges[inFill[two]++] = edge;
+            }
+            else if(one != two){
+                outTargets[outFill[two]] = one;
+                outEdges[outFill[two]++] = edge;
+            }
+        }
+
+        sortRows(outOffsets, outTargets, outEdges);
+        if(directed){
+            sortRows(inOffsets, inSources, inEdges);
+        }
+        int[] outWeights = weightsOf(outEdges);
+        int[] inWeights = directed ? weightsOf(inEdges) : outWeights;
+        return new CsrGraph<V>(byNumber, numVertices, directed, outOffsets, outTargets, outWeights, outEdges,
+                inOffsets, inSources, inWeights, inEdges);
+    }
+
+    /**
+     * Returns a new array of the given length for vertices, which Java cannot
+     * create for a generic element type without a raw type.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static <V> CS16Vertex<V>[] newVertexArray(int length) {
+        return new CS16Vertex[length];
+    }
+
+    /**
+     * Returns a new array of the given length for edges, which Java cannot
+     * create for a generic element type without a raw type.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static <V> CS16Edge<V>[] newEdgeArray(int length) {
+        return new CS16Edge[length];
+    }
+
+    /**
+     * Returns whether a graph is directed. The Graph interface only reveals
+     * this through numOutgoingEdges, which must throw a DirectionException on
+     * an undirected graph. An empty graph counts as directed.
+     */
+    public static <V> boolean isDirected(Graph<V> g) {
+        Iterator<CS16Vertex<V>> vertices = g.vertices();
+        if(!vertices.hasNext()){
+            return true;
+        }
+        try {
+            g.numOutgoingEdges(vertices.next());
+            return true;
+        } catch (DirectionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns one more than the largest vertex number in the graph. Arrays
+     * indexed by vertex number need to be this long.
+     */
+    public int size() {
+        return _vertices.length;
+    }
+
+    /**
+     * Returns the number of vertices in the graph, which is at most size().
+     */
+    public int getNumVertices() {
+        return _numVertices;
+    }
+
+    /**
+     * Returns the number of arcs, counting an undirected edge twice (once in
+     * each direction) unless it is a self-loop.
+     */
+    public int getNumArcs() {
+        return _outTargets.length;
+    }
+
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    /**
+     * Returns the vertex with the given number, or null if no vertex has it.
+     */
+    public CS16Vertex<V> vertex(int number) {
+        return _vertices[number];
+    }
+
+    public boolean hasVertex(int number) {
+        return _vertices[number] != null;
+    }
+
+    /**
+     * Returns the number of a vertex of this graph, for indexing the arrays
+     * of this graph and of the results computed on it.
+     *
+     * @throws InvalidVertexException
+     *             Thrown when vertex is null.
+     * @throws NoSuchVertexException
+     *             Thrown when vertex is not in this graph.
+     */
+    public int numberOf(CS16Vertex<V> vertex) {
+        if(vertex == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        int number = vertex.getVertexNumber();
+        if(number < 0 || number >= _vertices.length || _vertices[number] != vertex){
+            throw new NoSuchVertexException("vertex is not in the graph");
+        }
+        return number;
+    }
+
+    public int outDegree(int v) {
+        return _outOffsets[v + 1] - _outOffsets[v];
+    }
+
+    public int inDegree(int v) {
+        return _inOffsets[v + 1] - _inOffsets[v];
+    }
+
+    /**
+     * The outgoing arcs of v are the indices outOffsets()[v] up to (but not
+     * including) outOffsets()[v + 1] of outTargets(), outWeights() and
+     * outEdges().
+     */
+    public int[] outOffsets() {
+        return _outOffsets;
+    }
+
+    public int[] outTargets() {
+        return _outTargets;
+    }
+
+    public int[] outWeights() {
+        return _outWeights;
+    }
+
+    public CS16Edge<V>[] outEdges() {
+        return _outEdges;
+    }
+
+    /**
+     * The incoming arcs of v are the indices inOffsets()[v] up to (but not
+     * including) inOffsets()[v + 1] of inSources(), inWeights() and
+     * inEdges(). For an undirected graph these are the outgoing arrays.
+     */
+    public int[] inOffsets() {
+        return _inOffsets;
+    }
+
+    public int[] inSources() {
+        return _inSources;
+    }
+
+    public int[] inWeights() {
+        return _inWeights;
+    }
+
+    public CS16Edge<V>[] inEdges() {
+        return _inEdges;
+    }
+
+    /**
+     * Sorts the neighbors within every row, moving the edges along with them.
+     */
+    private static <V> void sortRows(int[] offsets, int[] neighbors, CS16Edge<V>[] edges) {
+        for(int v = 0; v + 1 < offsets.length; v++){
+            int start = offsets[v];
+            int end = offsets[v + 1];
+            if(end - start < 2 || isSorted(neighbors, start, end)){
+                continue;
+            }
+            long[] keys = new long[end - start];
+            for(int i = start; i < end; i++){
+                keys[i - start] = ((long) neighbors[i] << 32) | (i - start);
+            }
+            Arrays.sort(keys);
+            CS16Edge<V>[] rowEdges = Arrays.copyOfRange(edges, start, end);
+            for(int i = start; i < end; i++){
+                neighbors[i] = (int) (keys[i - start] >>> 32);
+                edges[i] = rowEdges[(int) keys[i - start]];
+            }
+        }
+    }
+
+    private static boolean isSorted(int[] values, int start, int end) {
+        for(int i = start + 1; i < end; i++){
+            if(values[i - 1] > values[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <V> int[] weightsOf(CS16Edge<V>[] edges) {
+        int[] weights = new int[edges.length];
+        for(int i = 0; i < edges.length; i++){
+            Integer element = edges[i].element();
+            weights[i] = (element == null) ? 1 : element;
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,30 @@
+package graph;
+
+/**
+ * A lower bound on the length of the shortest path between two vertices,
+ * given by vertex number, for guiding point-to-point searches such as
+ * PointToPointSearch.aStar.
+ *
+ * <p>
+ * A heuristic must be admissible: it may never be more than the true
+ * distance, or searches may return paths that are not the shortest. Searches
+ * settle the fewest vertices when it is also consistent, meaning that
+ * estimate(u, t) <= w + estimate(v, t) for every edge (u, v) of weight w
+ * (and likewise for estimate(s, v)); CoordinateHeuristic is both.
+ * </p>
+ */
+public interface DistanceHeuristic {
+
+    /**
+     * Returns a lower bound on the distance from one vertex to another.
+     */
+    int estimate(int from, int to);
+
+    /**
+     * Returns the heuristic that estimates every distance as 0, which turns
+     * A* into Dijkstra's algorithm.
+     */
+    static DistanceHeuristic zero() {
+        return (from, to) -> 0;
+    }
+}
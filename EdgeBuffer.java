@@ -0,0 +1,105 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of edges stored as three parallel int arrays (source id,
+ * target id, weight) instead of as edge objects. Loaders and generators fill
+ * one of these and then hand it to a graph's bulk insert path.
+ */
+public class EdgeBuffer {
+
+    private int[] _sources;
+    private int[] _targets;
+    private int[] _weights;
+    private int _size;
+
+    public EdgeBuffer() {
+        this(64);
+    }
+
+    public EdgeBuffer(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        _sources = new int[capacity];
+        _targets = new int[capacity];
+        _weights = new int[capacity];
+        _size = 0;
+    }
+
+    /**
+     * Appends an edge in amortized O(1) time.
+     */
+    public void add(int source, int target, int weight) {
+        if(_size == _sources.length){
+            this.grow(_size + 1);
+        }
+        _sources[_size] = source;
+        _targets[_size] = target;
+        _weights[_size] = weight;
+        _size++;
+    }
+
+    /**
+     * Appends every edge of another buffer, in order.
+     */
+    public void addAll(EdgeBuffer other) {
+        if(_size + other._size > _sources.length){
+            this.grow(_size + other._size);
+        }
+        System.arraycopy(other._sources, 0, _sources, _size, other._size);
+        System.arraycopy(other._targets, 0, _targets, _size, other._size);
+        System.arraycopy(other._weights, 0, _weights, _size, other._size);
+        _size += other._size;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public int source(int i) {
+        return _sources[i];
+    }
+
+    public int target(int i) {
+        return _targets[i];
+    }
+
+    public int weight(int i) {
+        return _weights[i];
+    }
+
+    /**
+     * Returns the backing array of source ids. Only the first size() entries
+     * are edges.
+     */
+    public int[] sources() {
+        return _sources;
+    }
+
+    /**
+     * Returns the backing array of target ids. Only the first size() entries
+     * are edges.
+     */
+    public int[] targets() {
+        return _targets;
+    }
+
+    /**
+     * Returns the backing array of weights. Only the first size() entries
+     * are edges.
+     */
+    public int[] weights() {
+        return _weights;
+    }
+
+    public void clear() {
+        _size = 0;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, _sources.length + (_sources.length >> 1));
+        _sources = Arrays.copyOf(_sources, capacity);
+        _targets = Arrays.copyOf(_targets, capacity);
+        _weights = Arrays.copyOf(_weights, capacity);
+    }
+}
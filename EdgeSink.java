@@ -0,0 +1,45 @@
+package graph;
+
+import java.io.IOException;
+
+/**
+ * Receives a generated graph as a stream, so that graphs far larger than any
+ * edge list held in memory can be written straight to where they are going.
+ * GraphGenerator calls begin once, then accept once for each batch of edges
+ * in order, then end once if every batch was accepted.
+ *
+ * <p>
+ * Vertices are numbered 0 to numVertices - 1 and the edges refer to them by
+ * number. The calls all come from the thread that called
+ * GraphGenerator.generate, even when the edges were generated on other
+ * threads.
+ * </p>
+ */
+public interface EdgeSink {
+
+    /**
+     * Starts a graph with the given number of vertices.
+     *
+     * @param numVertices
+     *            the number of vertices
+     * @param directed
+     *            whether the edges are arcs from source to target
+     * @param xs
+     *            the x coordinate of each vertex, or null if the generator
+     *            does not lay the vertices out
+     * @param ys
+     *            the y coordinate of each vertex, or null likewise
+     */
+    void begin(int numVertices, boolean directed, double[] xs, double[] ys) throws IOException;
+
+    /**
+     * Takes the next batch of edges. The buffer is reused once this returns,
+     * so anything kept must be copied out of it.
+     */
+    void accept(EdgeBuffer edges) throws IOException;
+
+    /**
+     * Finishes the graph after the last batch.
+     */
+    void end() throws IOException;
+}
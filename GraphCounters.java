@@ -0,0 +1,98 @@
+package graph;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters of the work done on the hot paths of the graph and
+ * its algorithms, for telling where the time of a slow PageRank or MSF run
+ * goes. Counting is off unless the graph.counters system property is true
+ * or setEnabled(true) is called.
+ *
+ * <p>
+ * Instrumented code checks isEnabled() once per call (a scan of a matrix
+ * row, a run of an algorithm), not once per step, and keeps its own tallies
+ * in local variables that it adds to the counters at the end. Turned off,
+ * counting so costs one read of a field per call. Each counter is a
+ * LongAdder, so threads counting at once do not contend on it.
+ * </p>
+ *
+ * Counters can be read from any thread at any time; each is up to date on
+ * its own, but a snapshot of several taken while work is going on may see
+ * them at slightly different moments.
+ */
+public final class GraphCounters {
+
+    /**
+     * What is counted.
+     */
+    public enum Counter {
+        /** Calls that list the edges of a vertex by scanning its matrix row and column. */
+        NEIGHBOR_SCANS,
+        /** Adjacency matrix cells read by those scans. */
+        CELLS_VISITED,
+        /** Edges looked at by MyPageRank and MyPrimJarnik. */
+        EDGES_SCANNED,
+        /** Edges along which MyPrimJarnik lowered the cost of a vertex. */
+        EDGES_RELAXED,
+        /** Inserts, removals and key changes on MyPrimJarnik's priority queue. */
+        HEAP_OPERATIONS
+    }
+
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final LongAdder[] ADDERS = new LongAdder[COUNTERS.length];
+    private static volatile boolean _enabled = Boolean.getBoolean("graph.counters");
+
+    static {
+        for(int i = 0; i < ADDERS.length; i++){
+            ADDERS[i] = new LongAdder();
+        }
+    }
+
+    private GraphCounters() {
+    }
+
+    public static boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * Turns counting on or off. Work already under way may still add what
+     * it counted while it was on.
+     */
+    public static void setEnabled(boolean enabled) {
+        _enabled = enabled;
+    }
+
+    /**
+     * Adds to a counter. Callers check isEnabled() first.
+     */
+    static void add(Counter counter, long amount) {
+        ADDERS[counter.ordinal()].add(amount);
+    }
+
+    public static long get(Counter counter) {
+        return ADDERS[counter.ordinal()].sum();
+    }
+
+    /**
+     * Returns the value of every counter.
+     */
+    public static Map<Counter, Long> snapshot() {
+        Map<Counter, Long> values = new EnumMap<Counter, Long>(Counter.class);
+        for(Counter counter : COUNTERS){
+            values.put(counter, get(counter));
+        }
+        return values;
+    }
+
+    /**
+     * Sets every counter back to 0.
+     */
+    public static void reset() {
+        for(LongAdder adder : ADDERS){
+            adder.reset();
+        }
+    }
+}
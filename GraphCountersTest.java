@@ -0,0 +1,99 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that GraphCounters counts the work of the graph and its
+ * algorithms while enabled, and nothing while not.
+ */
+public class GraphCountersTest {
+
+    private Graph<String> _graph;
+    private CS16Vertex<String> _a;
+
+    @Before
+    public void setup() {
+        GraphCounters.reset();
+        _graph = new AdjacencyMatrixGraph<String>(false);
+        _a = _graph.insertVertex("A");
+        CS16Vertex<String> b = _graph.insertVertex("B");
+        CS16Vertex<String> c = _graph.insertVertex("C");
+        _graph.insertEdge(_a, b, 1);
+        _graph.insertEdge(b, c, 2);
+        _graph.insertEdge(_a, c, 5);
+    }
+
+    @After
+    public void cleanup() {
+        GraphCounters.setEnabled(false);
+        GraphCounters.reset();
+    }
+
+    /**
+     * Tests that scans count every cell of a row and column
+     */
+    @Test
+    public void countsScans() {
+        GraphCounters.setEnabled(true);
+        _graph.outgoingEdges(_a);
+        _graph.incomingEdges(_a);
+        assertThat(GraphCounters.get(GraphCounters.Counter.NEIGHBOR_SCANS), is(2L));
+        assertThat(GraphCounters.get(GraphCounters.Counter.CELLS_VISITED),
+                is(4L * support.graph.Constants.MAX_VERTICES));
+    }
+
+    /**
+     * Tests the heap operations and edges of a run of MyPrimJarnik
+     */
+    @Test
+    public void countsPrimJarnik() {
+        GraphCounters.setEnabled(true);
+        new MyPrimJarnik<String>().genMinSpanForest(_graph, null);
+        Map<GraphCounters.Counter, Long> counts = GraphCounters.snapshot();
+        // each of the 3 edges is seen from both ends, and listed from both the row and the column
+        assertThat(counts.get(GraphCounters.Counter.EDGES_SCANNED), is(12L));
+        // every vertex inserted and removed once, and a key changed for every relaxed edge
+        long relaxed = counts.get(GraphCounters.Counter.EDGES_RELAXED);
+        assertThat(relaxed >= 2 && relaxed <= 3, is(true));
+        assertThat(counts.get(GraphCounters.Counter.HEAP_OPERATIONS), is(3L + 3L + relaxed));
+        assertThat(counts.get(GraphCounters.Counter.NEIGHBOR_SCANS), is(3L));
+    }
+
+    /**
+     * Tests that MyPageRank counts the incoming edges it follows
+     */
+    @Test
+    public void countsPageRank() {
+        Graph<String> directed = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> a = directed.insertVertex("A");
+        CS16Vertex<String> b = directed.insertVertex("B");
+        directed.insertEdge(a, b, null);
+        directed.insertEdge(b, a, null);
+        GraphCounters.setEnabled(true);
+        new MyPageRank<String>().calcPageRank(directed);
+        long edges = GraphCounters.get(GraphCounters.Counter.EDGES_SCANNED);
+        assertThat(edges > 0 && edges % 2 == 0, is(true));
+    }
+
+    /**
+     * Tests that nothing is counted while disabled
+     */
+    @Test
+    public void disabledCountsNothing() {
+        GraphCounters.setEnabled(false);
+        new MyPrimJarnik<String>().genMinSpanForest(_graph, null);
+        for(long count : GraphCounters.snapshot().values()){
+            assertThat(count, is(0L));
+        }
+    }
+}
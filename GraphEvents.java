@@ -0,0 +1,96 @@
+package graph;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JDK Flight Recorder events of the graph and its algorithms, all in
+ * the "Graph" category. Record them with, for example,
+ * -XX:StartFlightRecording:filename=graph.jfr and open the file in JDK
+ * Mission Control or with the jfr tool.
+ *
+ * <p>
+ * Each event is timed from begin() to commit(). Instrumented code fills in
+ * an event's fields, and computes anything extra they need (such as a
+ * PageRank residual), only if shouldCommit() returns true, which it does
+ * only while a recording has the event enabled. With no recording the
+ * events cost about as much as the two timestamps, which the JIT removes
+ * along with the event object itself.
+ * </p>
+ */
+final class GraphEvents {
+
+    private GraphEvents() {
+    }
+
+    /**
+     * One round of MyPageRank.
+     */
+    @Name("graph.PageRankIteration")
+    @Label("PageRank Iteration")
+    @Category("Graph")
+    @Description("One round of MyPageRank, with the largest change of any rank")
+    @StackTrace(false)
+    static class PageRankIteration extends Event {
+        @Label("Iteration")
+        int iteration;
+
+        @Label("Residual")
+        double residual;
+
+        @Label("Vertices")
+        int vertices;
+
+        @Label("Edges Scanned")
+        long edgesScanned;
+    }
+
+    /**
+     * One run of MyPrimJarnik.
+     */
+    @Name("graph.MinSpanForest")
+    @Label("Minimum Spanning Forest")
+    @Category("Graph")
+    @Description("One run of MyPrimJarnik, with its priority queue operations")
+    @StackTrace(false)
+    static class MinSpanForest extends Event {
+        @Label("Vertices")
+        int vertices;
+
+        @Label("Forest Edges")
+        int forestEdges;
+
+        @Label("Edges Scanned")
+        long edgesScanned;
+
+        @Label("Heap Inserts")
+        long heapInserts;
+
+        @Label("Heap Removals")
+        long heapRemovals;
+
+        @Label("Heap Key Updates")
+        long heapKeyUpdates;
+    }
+
+    /**
+     * One phase of loading a whole graph at once into an
+     * AdjacencyMatrixGraph.
+     */
+    @Name("graph.BulkLoad")
+    @Label("Bulk Load Phase")
+    @Category("Graph")
+    @Description("Inserting many vertices or edges at once into an AdjacencyMatrixGraph")
+    @StackTrace(false)
+    static class BulkLoad extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Count")
+        int count;
+    }
+}
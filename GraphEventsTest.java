@@ -0,0 +1,131 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that the graph and its algorithms emit their Flight
+ * Recorder events while a recording has them enabled.
+ */
+public class GraphEventsTest {
+
+    private Path _file;
+
+    @Before
+    public void setup() throws IOException {
+        _file = Files.createTempFile("graph", ".jfr");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(_file);
+    }
+
+    /**
+     * Tests one event per PageRank round, with residuals that shrink
+     */
+    @Test
+    public void pageRankIterations() throws IOException {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> a = graph.insertVertex("A");
+        CS16Vertex<String> b = graph.insertVertex("B");
+        CS16Vertex<String> c = graph.insertVertex("C");
+        graph.insertEdge(a, b, null);
+        graph.insertEdge(b, c, null);
+        graph.insertEdge(c, a, null);
+        graph.insertEdge(a, c, null);
+
+        List<RecordedEvent> events = this.record("graph.PageRankIteration",
+                () -> new MyPageRank<String>().calcPageRank(graph));
+        assertTrue(events.size() > 1);
+        for(int i = 0; i < events.size(); i++){
+            assertThat(events.get(i).getInt("iteration"), is(i + 1));
+            assertThat(events.get(i).getInt("vertices"), is(3));
+            assertThat(events.get(i).getLong("edgesScanned"), is(4L));
+        }
+        double first = events.get(0).getDouble("residual");
+        double last = events.get(events.size() - 1).getDouble("residual");
+        assertTrue(last < first);
+    }
+
+    /**
+     * Tests the counts of one MyPrimJarnik run
+     */
+    @Test
+    public void minSpanForest() throws IOException {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> a = graph.insertVertex("A");
+        CS16Vertex<String> b = graph.insertVertex("B");
+        CS16Vertex<String> c = graph.insertVertex("C");
+        graph.insertEdge(a, b, 1);
+        graph.insertEdge(b, c, 2);
+
+        List<RecordedEvent> events = this.record("graph.MinSpanForest",
+                () -> new MyPrimJarnik<String>().genMinSpanForest(graph, null));
+        assertThat(events.size(), is(1));
+        RecordedEvent event = events.get(0);
+        assertThat(event.getInt("vertices"), is(3));
+        assertThat(event.getInt("forestEdges"), is(2));
+        assertThat(event.getLong("heapInserts"), is(3L));
+        assertThat(event.getLong("heapRemovals"), is(3L));
+        // an undirected edge is listed from both the row and the column
+        assertThat(event.getLong("edgesScanned"), is(8L));
+    }
+
+    /**
+     * Tests the two phases of a bulk load
+     */
+    @Test
+    public void bulkLoad() throws IOException {
+        AdjacencyMatrixGraph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        List<RecordedEvent> events = this.record("graph.BulkLoad", () -> {
+            List<CS16Vertex<String>> vertices = graph.insertVertices(Arrays.asList("A", "B", "C"));
+            graph.insertEdges(vertices, new int[] { 0, 1 }, new int[] { 1, 2 }, new int[] { 1, 1 }, 2);
+        });
+        assertThat(events.size(), is(2));
+        assertThat(events.get(0).getString("phase"), is("insertVertices"));
+        assertThat(events.get(0).getInt("count"), is(3));
+        assertThat(events.get(1).getString("phase"), is("insertEdges"));
+        assertThat(events.get(1).getInt("count"), is(2));
+    }
+
+    /**
+     * Runs work while recording the named event, and returns the events
+     * recorded in the order they were committed.
+     */
+    private List<RecordedEvent> record(String name, Runnable work) throws IOException {
+        try(Recording recording = new Recording()){
+            recording.enable(name).withoutThreshold();
+            recording.start();
+            work.run();
+            recording.stop();
+            recording.dump(_file);
+        }
+        List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+        for(RecordedEvent event : RecordingFile.readAllEvents(_file)){
+            if(event.getEventType().getName().equals(name)){
+                events.add(event);
+            }
+        }
+        events.sort((one, two) -> one.getEndTime().compareTo(two.getEndTime()));
+        return events;
+    }
+}
@@ -0,0 +1,1020 @@
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Generates synthetic graphs for load testing: Erdos-Renyi, R-MAT (the
+ * stochastic Kronecker graph with a 2x2 initiator), Barabasi-Albert and
+ * random geometric graphs. A generator streams its edges into an EdgeSink,
+ * which can insert them into any Graph, collect them into a LinksData, or
+ * write them out as a links file; writeSnapshot writes the binary snapshot
+ * format.
+ *
+ * <p>
+ * The edges are generated in blocks of about BLOCK_EDGES, on as many threads
+ * as asked for, and handed to the sink in block order, with only a few
+ * blocks per thread held in memory at once. Each block draws its random
+ * numbers from its own generator, seeded from the seed and the block's
+ * index, so a seed always gives the same graph, edge for edge and in the
+ * same order, whatever the number of threads.
+ * </p>
+ *
+ * <p>
+ * Vertices are numbered 0 to n - 1, and named "v" followed by their number
+ * in links files and snapshots. Only the geometric generator lays the
+ * vertices out; the others leave every coordinate 0. No generator makes
+ * self-loops. Erdos-Renyi, Barabasi-Albert and geometric graphs have no
+ * repeated edges; R-MAT graphs may, as the model does, and GraphSink skips
+ * the repeats since a Graph holds one edge per pair.
+ * </p>
+ */
+public abstract class GraphGenerator {
+
+    static final int BLOCK_EDGES = 1 << 16;
+    private static final int BLOCKS_PER_THREAD = 2;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int _numVertices;
+    private final boolean _directed;
+    final long _seed;
+
+    private GraphGenerator(int numVertices, boolean directed, long seed) {
+        if(numVertices < 0){
+            throw new IllegalArgumentException("number of vertices must not be negative");
+        }
+        _numVertices = numVertices;
+        _directed = directed;
+        _seed = seed;
+    }
+
+    /**
+     * Returns a G(n, p) graph: every pair of vertices (every ordered pair,
+     * if directed) is linked independently with the probability that makes
+     * the expected number of edges numEdges. Each block skips straight from
+     * one edge to the next with geometrically distributed gaps, so this runs
+     * in O(|V| + |E|) time rather than O(|V|^2).
+     */
+    public static GraphGenerator erdosRenyi(int numVertices, long numEdges, boolean directed, long seed) {
+        return new ErdosRenyi(numVertices, numEdges, directed, seed);
+    }
+
+    /**
+     * Returns an R-MAT graph with the Graph500 initiator (a = 0.57,
+     * b = c = 0.19).
+     *
+     * @see #rmat(int, long, double, double, double, boolean, long)
+     */
+    public static GraphGenerator rmat(int scale, long numEdges, boolean directed, long seed) {
+        return rmat(scale, numEdges, 0.57, 0.19, 0.19, directed, seed);
+    }
+
+    /**
+     * Returns an R-MAT graph on 2^scale vertices. Each edge picks its source
+     * and target one bit at a time, going into the top-left, top-right,
+     * bottom-left or bottom-right quarter of the adjacency matrix with
+     * probability a, b, c or 1 - a - b - c, which gives the skewed degrees
+     * and communities of real networks. Edges that land on the diagonal are
+     * dropped, so there are slightly fewer than numEdges. This runs in
+     * O(|E| scale) time.
+     */
+    public static GraphGenerator rmat(int scale, long numEdges, double a, double b, double c, boolean directed,
+            long seed) {
+        return new Rmat(scale, numEdges, a, b, c, directed, seed);
+    }
+
+    /**
+     * Returns a Barabasi-Albert graph: vertices arrive in order and each
+     * links to edgesPerVertex earlier vertices picked with probability in
+     * proportion to their degree. Directed edges go from the newer vertex to
+     * the older one.
+     *
+     * <p>
+     * The edges are numbered in order of arrival, and edge e picks one of the
+     * 2e endpoints before it, using a hash of the seed and e as its random
+     * number, then follows target endpoints back until it reaches a source
+     * endpoint, whose vertex is known from the edge's number alone. Every
+     * edge can so be worked out on its own, in O(log |E|) expected steps,
+     * and the graph is generated in parallel. Picks that repeat an earlier
+     * pick of the same vertex, or pick the vertex itself, are dropped, so a
+     * vertex may get a few fewer edges.
+     * </p>
+     */
+    public static GraphGenerator barabasiAlbert(int numVertices, int edgesPerVertex, boolean directed, long seed) {
+        return new BarabasiAlbert(numVertices, edgesPerVertex, directed, seed);
+    }
+
+    /**
+     * Returns a random geometric graph: vertices scattered uniformly over a
+     * square sized so that, linking every two vertices at most 1 apart, the
+     * average degree is about averageDegree. Edge weights are the length of
+     * the link in hundredths, rounded up, the same scale as the coordinates
+     * of the links files. Directed graphs link each pair both ways.
+     *
+     * <p>
+     * The vertices are bucketed into a grid of unit cells, and each cell is
+     * compared only with itself and the half of its neighbors that come
+     * after it, so this runs in O(|V| + |E|) expected time.
+     * </p>
+     */
+    public static GraphGenerator geometric(int numVertices, double averageDegree, boolean directed, long seed) {
+        return new Geometric(numVertices, averageDegree, directed, seed);
+    }
+
+    public int getNumVertices() {
+        return _numVertices;
+    }
+
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    /**
+     * Returns the name of a vertex in links files and snapshots.
+     */
+    public static String name(int vertex) {
+        return "v" + vertex;
+    }
+
+    /**
+     * Works out what the blocks need, such as coordinates, on the given
+     * pool (or the calling thread if it is null), and returns the plan.
+     */
+    abstract Plan plan(ExecutorService pool) throws InterruptedException, ExecutionException;
+
+    /**
+     * How to generate one graph: its coordinates, if any, and its blocks,
+     * each of which can be generated on any thread.
+     */
+    abstract static class Plan {
+        double[] _xs;
+        double[] _ys;
+
+        abstract int numBlocks();
+
+        /**
+         * Adds the edges of block b to out.
+         */
+        abstract void block(int b, EdgeBuffer out);
+    }
+
+    /**
+     * Generates the graph on the calling thread.
+     *
+     * @see #generate(EdgeSink, int)
+     */
+    public void generate(EdgeSink sink) throws IOException {
+        this.generate(sink, 1);
+    }
+
+    /**
+     * Generates the graph on the given number of threads and streams it into
+     * the sink. At most BLOCKS_PER_THREAD blocks per thread wait for the
+     * sink at once, so memory stays bounded however large the graph.
+     *
+     * @param sink
+     *            where to send the graph
+     * @param threads
+     *            the number of threads to generate with
+     * @throws IOException
+     *             Thrown when the sink cannot write the graph.
+     */
+    public void generate(EdgeSink sink, int threads) throws IOException {
+        Parallel.withPool("graph-generator", threads, "generating", pool -> {
+            Plan plan = this.plan(pool);
+            sink.begin(_numVertices, _directed, plan._xs, plan._ys);
+            if(pool == null){
+                EdgeBuffer edges = new EdgeBuffer(BLOCK_EDGES);
+                for(int b = 0; b < plan.numBlocks(); b++){
+                    edges.clear();
+                    plan.block(b, edges);
+                    sink.accept(edges);
+                }
+            }
+            else{
+                stream(plan, pool, threads * BLOCKS_PER_THREAD, sink);
+            }
+            sink.end();
+            return null;
+        });
+    }
+
+    /**
+     * Keeps up to window blocks generating on the pool and hands them to
+     * the sink in order, reusing the buffers the sink is done with.
+     */
+    private static void stream(Plan plan, ExecutorService pool, int window, EdgeSink sink)
+            throws IOException, InterruptedException, ExecutionException {
+        ConcurrentLinkedQueue<EdgeBuffer> free = new ConcurrentLinkedQueue<EdgeBuffer>();
+        ArrayDeque<Future<EdgeBuffer>> pending = new ArrayDeque<Future<EdgeBuffer>>();
+        int next = 0;
+        while(next < plan.numBlocks() || !pending.isEmpty()){
+            while(next < plan.numBlocks() && pending.size() < window){
+                int b = next++;
+                pending.add(pool.submit(() -> {
+                    EdgeBuffer edges = free.poll();
+                    if(edges == null){
+                        edges = new EdgeBuffer(BLOCK_EDGES);
+                    }
+                    plan.block(b, edges);
+                    return edges;
+                }));
+            }
+            EdgeBuffer edges = pending.poll().get();
+            sink.accept(edges);
+            edges.clear();
+            free.add(edges);
+        }
+    }
+
+    /**
+     * Runs body on 0 to count - 1, split among the pool's threads, or on the
+     * calling thread if pool is null.
+     */
+    static void forEach(ExecutorService pool, int count, IntConsumer body)
+            throws InterruptedException, ExecutionException {
+        if(pool == null){
+            for(int i = 0; i < count; i++){
+                body.accept(i);
+            }
+            return;
+        }
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for(int i = 0; i < count; i++){
+            int index = i;
+            tasks.add(() -> {
+                body.accept(index);
+                return null;
+            });
+        }
+        Parallel.invokeAll(pool, tasks);
+    }
+
+    /**
+     * Returns the seed of the random numbers of a block, or of anything
+     * else numbered within one graph.
+     */
+    final long seedOf(long salt, long index) {
+        return mix(_seed + salt * 0x632BE59BD9B4E019L + (index + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Scrambles a long so that nearby inputs give unrelated values (the
+     * finalizer of SplitMix64).
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Generates the graph into a LinksData, on the given number of threads.
+     * The whole edge list is held in memory, 12 bytes an edge.
+     */
+    public LinksData toLinksData(int threads) {
+        LinksDataSink sink = new LinksDataSink();
+        this.generateInMemory(sink, threads);
+        return sink.getData();
+    }
+
+    /**
+     * Generates the graph into g and returns the new vertices, indexed by
+     * vertex number.
+     *
+     * @param g
+     *            the graph to insert into, which should be directed if and
+     *            only if this generator is
+     * @param elements
+     *            makes the element of each vertex from its number
+     * @param threads
+     *            the number of threads to generate with
+     */
+    public <V> List<CS16Vertex<V>> into(Graph<V> g, IntFunction<V> elements, int threads) {
+        GraphSink<V> sink = new GraphSink<V>(g, elements);
+        this.generateInMemory(sink, threads);
+        return sink.getVertices();
+    }
+
+    private void generateInMemory(EdgeSink sink, int threads) {
+        try {
+            this.generate(sink, threads);
+        } catch (IOException e) {
+            // the sink does no IO
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Streams the graph into a links file, which is replaced if it exists.
+     */
+    public void writeLinks(Path file, int threads) throws IOException {
+        try(LinksFileSink sink = new LinksFileSink(file)){
+            this.generate(sink, threads);
+        }
+    }
+
+    /**
+     * Writes the graph as a snapshot, which GraphSnapshot.open can map. The
+     * graph is generated twice, once to count the arcs of every vertex and
+     * once to fill them in, so that only the snapshot's own arrays (about 8
+     * bytes an arc, plus 4 more for the in arcs of a directed graph) are
+     * ever held in memory, never the edge list.
+     *
+     * <p>
+     * This runs in O(|V| + |E|log(d)) time plus generating twice, where d is
+     * the largest degree.
+     * </p>
+     *
+     * @throws IOException
+     *             Thrown when the file cannot be written.
+     * @throws IllegalArgumentException
+     *             Thrown when the graph has more arcs than a snapshot holds.
+     */
+    public void writeSnapshot(Path file, int threads) throws IOException {
+        int n = _numVertices;
+        CsrFiller filler = new CsrFiller();
+        this.generate(filler.counter(), threads);
+        this.generate(filler, threads);
+        filler.sortRows();
+
+        int[] inOffsets = null;
+        int[] inArcs = null;
+        if(_directed){
+            inOffsets = filler._inOffsets;
+            inArcs = new int[inOffsets[n]];
+            int[] inFill = Arrays.copyOf(inOffsets, n);
+            // sources come in increasing order, so every in row comes out sorted
+            for(int source = 0; source < n; source++){
+                for(int arc = filler._offsets[source]; arc < filler._offsets[source + 1]; arc++){
+                    inArcs[inFill[filler._targets[arc]]++] = arc;
+                }
+            }
+        }
+        GraphSnapshot.write(file, _directed, n, id -> name(id).getBytes(StandardCharsets.UTF_8), filler._xs,
+                filler._ys, filler._offsets, filler._targets, filler._weights, inOffsets, inArcs);
+    }
+
+    /**
+     * Inserts a generated graph into any Graph: each vertex with the element
+     * made from its number, and each edge with its weight as its element.
+     * An edge between two vertices that are already adjacent is skipped.
+     */
+    public static class GraphSink<V> implements EdgeSink {
+        private final Graph<V> _graph;
+        private final IntFunction<V> _elements;
+        private List<CS16Vertex<V>> _vertices;
+        private MyDecorator<CS16Vertex<V>, double[]> _coordinates;
+
+        public GraphSink(Graph<V> graph, IntFunction<V> elements) {
+            _graph = graph;
+            _elements = elements;
+        }
+
+        @Override
+        public void begin(int numVertices, boolean directed, double[] xs, double[] ys) {
+            _vertices = new ArrayList<CS16Vertex<V>>(numVertices);
+            for(int id = 0; id < numVertices; id++){
+                _vertices.add(_graph.insertVertex(_elements.apply(id)));
+            }
+            if(xs != null){
+                _coordinates = new MyDecorator<CS16Vertex<V>, double[]>();
+                for(int id = 0; id < numVertices; id++){
+                    _coordinates.setDecoration(_vertices.get(id), new double[] { xs[id], ys[id] });
+                }
+            }
+        }
+
+        @Override
+        public void accept(EdgeBuffer edges) {
+            for(int i = 0; i < edges.size(); i++){
+                CS16Vertex<V> source = _vertices.get(edges.source(i));
+                CS16Vertex<V> target = _vertices.get(edges.target(i));
+                if(!_graph.areAdjacent(source, target)){
+                    _graph.insertEdge(source, target, edges.weight(i));
+                }
+            }
+        }
+
+        @Override
+        public void end() {
+        }
+
+        /**
+         * Returns the inserted vertices, indexed by vertex number.
+         */
+        public List<CS16Vertex<V>> getVertices() {
+            return _vertices;
+        }
+
+        /**
+         * Returns each vertex's {x, y} coordinates, or null if the generator
+         * did not lay the vertices out.
+         */
+        public MyDecorator<CS16Vertex<V>, double[]> getCoordinates() {
+            return _coordinates;
+        }
+    }
+
+    /**
+     * Collects a generated graph into a LinksData.
+     */
+    public static class LinksDataSink implements EdgeSink {
+        private String[] _names;
+        private double[] _xs;
+        private double[] _ys;
+        private EdgeBuffer _edges;
+        private LinksData _data;
+
+        @Override
+        public void begin(int numVertices, boolean directed, double[] xs, double[] ys) {
+            _names = new String[numVertices];
+            for(int id = 0; id < numVertices; id++){
+                _names[id] = name(id);
+            }
+            _xs = (xs == null) ? new double[numVertices] : xs;
+            _ys = (ys == null) ? new double[numVertices] : ys;
+            _edges = new EdgeBuffer(BLOCK_EDGES);
+        }
+
+        @Override
+        public void accept(EdgeBuffer edges) {
+            _edges.addAll(edges);
+        }
+
+        @Override
+        public void end() {
+            _data = new LinksData(_names, _xs, _ys, _edges);
+        }
+
+        /**
+         * Returns the graph, or null until it has ended.
+         */
+        public LinksData getData() {
+            return _data;
+        }
+    }
+
+    /**
+     * Writes a generated graph as a links file as it arrives. Numbers are
+     * formatted straight into a byte buffer, so writing creates no Strings
+     * for the edges.
+     */
+    public static class LinksFileSink implements EdgeSink, Closeable {
+        private static final byte[] NEWLINE = { '\n' };
+
+        private final OutputStream _out;
+        private final byte[] _line;
+
+        /**
+         * Opens the file, replacing it if it exists.
+         */
+        public LinksFileSink(Path file) throws IOException {
+            _out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+            _line = new byte[64];
+        }
+
+        @Override
+        public void begin(int numVertices, boolean directed, double[] xs, double[] ys) throws IOException {
+            _out.write("*** VERTICES ***\n".getBytes(StandardCharsets.US_ASCII));
+            for(int id = 0; id < numVertices; id++){
+                int length = this.putName(0, id);
+                _out.write(_line, 0, length);
+                String coordinates = " " + (xs == null ? 0.0 : xs[id]) + " " + (ys == null ? 0.0 : ys[id]);
+                _out.write(coordinates.getBytes(StandardCharsets.US_ASCII));
+                _out.write(NEWLINE);
+            }
+            _out.write("*** EDGES ***\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void accept(EdgeBuffer edges) throws IOException {
+            for(int i = 0; i < edges.size(); i++){
+                int length = this.putName(0, edges.source(i));
+                _line[length++] = ' ';
+                length = this.putName(length, edges.target(i));
+                _line[length++] = ' ';
+                length = putInt(_line, length, edges.weight(i));
+                _line[length++] = '\n';
+                _out.write(_line, 0, length);
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            _out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _out.close();
+        }
+
+        private int putName(int at, int vertex) {
+            _line[at] = 'v';
+            return putInt(_line, at + 1, vertex);
+        }
+
+        /**
+         * Writes the decimal digits of value into line from at, and returns
+         * where they end.
+         */
+        private static int putInt(byte[] line, int at, int value) {
+            long rest = value;
+            if(rest < 0){
+                line[at++] = '-';
+                rest = -rest;
+            }
+            int end = at;
+            for(long digits = rest; digits >= 10; digits /= 10){
+                end++;
+            }
+            for(int i = end; i >= at; i--){
+                line[i] = (byte) ('0' + rest % 10);
+                rest /= 10;
+            }
+            return end + 1;
+        }
+    }
+
+    /**
+     * Fills in the out arrays of a snapshot over two runs of the generator:
+     * the counter it returns counts the arcs of every vertex, and then the
+     * filler itself places them.
+     */
+    private static class CsrFiller implements EdgeSink {
+        private boolean _directed;
+        private int[] _offsets;
+        private int[] _inOffsets;
+        private int[] _fill;
+        private int[] _targets;
+        private int[] _weights;
+        private double[] _xs;
+        private double[] _ys;
+
+        private EdgeSink counter() {
+            return new EdgeSink() {
+                private long _numArcs;
+
+                @Override
+                public void begin(int numVertices, boolean directed, double[] xs, double[] ys) {
+                    _directed = directed;
+                    _offsets = new int[numVertices + 1];
+                    _inOffsets = directed ? new int[numVertices + 1] : null;
+                }
+
+                @Override
+                public void accept(EdgeBuffer edges) {
+                    for(int i = 0; i < edges.size(); i++){
+                        _offsets[edges.source(i) + 1]++;
+                        if(_directed){
+                            _inOffsets[edges.target(i) + 1]++;
+                        }
+                        else{
+                            _offsets[edges.target(i) + 1]++;
+                        }
+                    }
+                    _numArcs += _directed ? edges.size() : 2L * edges.size();
+                    if(_numArcs > Integer.MAX_VALUE){
+                        throw new IllegalArgumentException("too many arcs for a snapshot");
+                    }
+                }
+
+                @Override
+                public void end() {
+                    for(int v = 0; v + 1 < _offsets.length; v++){
+                        _offsets[v + 1] += _offsets[v];
+                        if(_directed){
+                            _inOffsets[v + 1] += _inOffsets[v];
+                        }
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void begin(int numVertices, boolean directed, double[] xs, double[] ys) {
+            _xs = xs;
+            _ys = ys;
+            _fill = Arrays.copyOf(_offsets, numVertices);
+            _targets = new int[_offsets[numVertices]];
+            _weights = new int[_offsets[numVertices]];
+        }
+
+        @Override
+        public void accept(EdgeBuffer edges) {
+            for(int i = 0; i < edges.size(); i++){
+                int source = edges.source(i);
+                int target = edges.target(i);
+                _targets[_fill[source]] = target;
+                _weights[_fill[source]++] = edges.weight(i);
+                if(!_directed){
+                    _targets[_fill[target]] = source;
+                    _weights[_fill[target]++] = edges.weight(i);
+                }
+            }
+        }
+
+        @Override
+        public void end() {
+            _fill = null;
+        }
+
+        /**
+         * Sorts every row by target, keeping each weight with its target.
+         */
+        private void sortRows() {
+            long[] row = new long[0];
+            for(int v = 0; v + 1 < _offsets.length; v++){
+                int start = _offsets[v];
+                int end = _offsets[v + 1];
+                boolean sorted = true;
+                for(int arc = start + 1; arc < end && sorted; arc++){
+                    sorted = _targets[arc - 1] <= _targets[arc];
+                }
+                if(sorted){
+                    continue;
+                }
+                if(row.length < end - start){
+                    row = new long[end - start];
+                }
+                for(int arc = start; arc < end; arc++){
+                    row[arc - start] = ((long) _targets[arc] << 32) | (_weights[arc] & 0xFFFFFFFFL);
+                }
+                Arrays.sort(row, 0, end - start);
+                for(int arc = start; arc < end; arc++){
+                    _targets[arc] = (int) (row[arc - start] >>> 32);
+                    _weights[arc] = (int) row[arc - start];
+                }
+            }
+        }
+    }
+
+    private static class ErdosRenyi extends GraphGenerator {
+        private final double _p;
+
+        private ErdosRenyi(int numVertices, long numEdges, boolean directed, long seed) {
+            super(numVertices, directed, seed);
+            double pairs = (double) numVertices * (numVertices - 1) / (directed ? 1 : 2);
+            if(numEdges < 0 || numEdges > pairs){
+                throw new IllegalArgumentException("number of edges must be between 0 and " + (long) pairs);
+            }
+            _p = (numEdges == 0) ? 0 : numEdges / pairs;
+        }
+
+        /**
+         * Returns the number of vertices that source may link to.
+         */
+        private long candidates(int source) {
+            return this.isDirected() ? this.getNumVertices() - 1 : this.getNumVertices() - 1 - source;
+        }
+
+        @Override
+        Plan plan(ExecutorService pool) {
+            // blocks are ranges of sources with about BLOCK_EDGES expected edges each
+            int n = this.getNumVertices();
+            IntList bounds = new IntList();
+            bounds.add(0);
+            double expected = 0;
+            for(int source = 0; source < n; source++){
+                expected += _p * this.candidates(source);
+                if(expected >= BLOCK_EDGES){
+                    bounds.add(source + 1);
+                    expected = 0;
+                }
+            }
+            if(bounds.peek() != n){
+                bounds.add(n);
+            }
+            return new Plan() {
+                @Override
+                int numBlocks() {
+                    return bounds.size() - 1;
+                }
+
+                @Override
+                void block(int b, EdgeBuffer out) {
+                    ErdosRenyi.this.block(bounds.get(b), bounds.get(b + 1), new SplittableRandom(seedOf(0, b)),
+                            out);
+                }
+            };
+        }
+
+        /**
+         * Walks the candidate pairs of the sources from up to to as one
+         * sequence, jumping ahead by a geometrically distributed gap to each
+         * pair that is linked.
+         */
+        private void block(int from, int to, SplittableRandom random, EdgeBuffer out) {
+            if(_p == 0){
+                return;
+            }
+            double logMiss = Math.log1p(-_p);
+            // no gap needs to be longer than every pair there is
+            long longest = (long) this.getNumVertices() * this.getNumVertices();
+            int source = from;
+            long position = -1;
+            while(source < to){
+                long gap = (_p >= 1) ? 0 : (long) Math.min(Math.log(1 - random.nextDouble()) / logMiss, longest);
+                position += 1 + gap;
+                while(source < to && position >= this.candidates(source)){
+                    position -= this.candidates(source);
+                    source++;
+                }
+                if(source < to){
+                    int target;
+                    if(this.isDirected()){
+                        target = (position < source) ? (int) position : (int) position + 1;
+                    }
+                    else{
+                        target = source + 1 + (int) position;
+                    }
+                    out.add(source, target, 1);
+                }
+            }
+        }
+    }
+
+    private static class Rmat extends GraphGenerator {
+        private final int _scale;
+        private final long _numEdges;
+        private final double _a;
+        private final double _ab;
+        private final double _abc;
+
+        private Rmat(int scale, long numEdges, double a, double b, double c, boolean directed, long seed) {
+            super(checkScale(scale), directed, seed);
+            if(numEdges < 0){
+                throw new IllegalArgumentException("number of edges must not be negative");
+            }
+            if(!(a >= 0 && b >= 0 && c >= 0 && a + b + c <= 1)){
+                throw new IllegalArgumentException("a, b and c must be probabilities adding up to at most 1");
+            }
+            _scale = scale;
+            _numEdges = numEdges;
+            _a = a;
+            _ab = a + b;
+            _abc = a + b + c;
+        }
+
+        private static int checkScale(int scale) {
+            if(scale < 1 || scale > 30){
+                throw new IllegalArgumentException("scale must be between 1 and 30");
+            }
+            return 1 << scale;
+        }
+
+        @Override
+        Plan plan(ExecutorService pool) {
+            long blocks = (_numEdges + BLOCK_EDGES - 1) / BLOCK_EDGES;
+            if(blocks > Integer.MAX_VALUE){
+                throw new IllegalArgumentException("too many edges");
+            }
+            return new Plan() {
+                @Override
+                int numBlocks() {
+                    return (int) blocks;
+                }
+
+                @Override
+                void block(int b, EdgeBuffer out) {
+                    long count = Math.min(BLOCK_EDGES, _numEdges - (long) b * BLOCK_EDGES);
+                    Rmat.this.block(count, new SplittableRandom(seedOf(0, b)), out);
+                }
+            };
+        }
+
+        private void block(long count, SplittableRandom random, EdgeBuffer out) {
+            for(long i = 0; i < count; i++){
+                int source = 0;
+                int target = 0;
+                for(int bit = 1 << (_scale - 1); bit != 0; bit >>>= 1){
+                    double r = random.nextDouble();
+                    if(r >= _abc){
+                        source |= bit;
+                        target |= bit;
+                    }
+                    else if(r >= _ab){
+                        source |= bit;
+                    }
+                    else if(r >= _a){
+                        target |= bit;
+                    }
+                }
+                if(source != target){
+                    out.add(source, target, 1);
+                }
+            }
+        }
+    }
+
+    private static class BarabasiAlbert extends GraphGenerator {
+        private final int _k;
+
+        private BarabasiAlbert(int numVertices, int edgesPerVertex, boolean directed, long seed) {
+            super(numVertices, directed, seed);
+            if(edgesPerVertex < 1){
+                throw new IllegalArgumentException("each vertex needs at least one edge");
+            }
+            _k = edgesPerVertex;
+        }
+
+        @Override
+        Plan plan(ExecutorService pool) {
+            // vertex 0 comes first with nothing to link to; blocks are ranges of the rest
+            int n = this.getNumVertices();
+            int perBlock = Math.max(1, BLOCK_EDGES / _k);
+            int blocks = (n <= 1) ? 0 : (int) ((n - 1 + (long) perBlock - 1) / perBlock);
+            return new Plan() {
+                @Override
+                int numBlocks() {
+                    return blocks;
+                }
+
+                @Override
+                void block(int b, EdgeBuffer out) {
+                    int from = 1 + b * perBlock;
+                    BarabasiAlbert.this.block(from, (int) Math.min(n, (long) from + perBlock), out);
+                }
+            };
+        }
+
+        private void block(int from, int to, EdgeBuffer out) {
+            int[] picked = new int[_k];
+            for(int v = from; v < to; v++){
+                int count = 0;
+                for(int j = 0; j < _k; j++){
+                    int target = this.targetOf((long) (v - 1) * _k + j);
+                    boolean repeated = (target == v);
+                    for(int i = 0; i < count && !repeated; i++){
+                        repeated = (picked[i] == target);
+                    }
+                    if(!repeated){
+                        picked[count++] = target;
+                        out.add(v, target, 1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the target of edge e. Endpoint 2e is the source of edge e
+         * and endpoint 2e + 1 its target.
+         */
+        private int targetOf(long e) {
+            while(e > 0){
+                long endpoint = Long.remainderUnsigned(seedOf(0, e), 2 * e);
+                if((endpoint & 1) == 0){
+                    return (int) (1 + (endpoint >> 1) / _k);
+                }
+                e = endpoint >> 1;
+            }
+            // the first edge has only vertex 0 to link to
+            return 0;
+        }
+    }
+
+    private static class Geometric extends GraphGenerator {
+        private static final int COORDINATE_BLOCK = 1 << 16;
+
+        private final double _side;
+        private final int _cells;
+        private final int _verticesPerBlock;
+
+        private Geometric(int numVertices, double averageDegree, boolean directed, long seed) {
+            super(numVertices, directed, seed);
+            if(!(averageDegree > 0)){
+                throw new IllegalArgumentException("average degree must be positive");
+            }
+            // a disc of radius 1 then holds pi n / side^2 = averageDegree vertices on average
+            _side = Math.sqrt(numVertices * Math.PI / averageDegree);
+            // cells at least 1 wide, and never many more cells than vertices
+            _cells = (int) Math.max(1, Math.min(Math.floor(_side), Math.ceil(Math.sqrt(numVertices))));
+            _verticesPerBlock = (int) Math.max(1, BLOCK_EDGES / Math.ceil(averageDegree));
+        }
+
+        @Override
+        Plan plan(ExecutorService pool) throws InterruptedException, ExecutionException {
+            int n = this.getNumVertices();
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            int[] cellOf = new int[n];
+            forEach(pool, (n + COORDINATE_BLOCK - 1) / COORDINATE_BLOCK, b -> {
+                SplittableRandom random = new SplittableRandom(seedOf(1, b));
+                for(int v = b * COORDINATE_BLOCK; v < Math.min(n, (b + 1) * COORDINATE_BLOCK); v++){
+                    xs[v] = random.nextDouble() * _side;
+                    ys[v] = random.nextDouble() * _side;
+                    cellOf[v] = this.cell(xs[v]) * _cells + this.cell(ys[v]);
+                }
+            });
+
+            // bucket the vertices by cell, in increasing order within each
+            int numCells = _cells * _cells;
+            int[] cellStarts = new int[numCells + 1];
+            for(int v = 0; v < n; v++){
+                cellStarts[cellOf[v] + 1]++;
+            }
+            for(int cell = 0; cell < numCells; cell++){
+                cellStarts[cell + 1] += cellStarts[cell];
+            }
+            int[] members = new int[n];
+            int[] fill = Arrays.copyOf(cellStarts, numCells);
+            for(int v = 0; v < n; v++){
+                members[fill[cellOf[v]]++] = v;
+            }
+
+            IntList bounds = new IntList();
+            bounds.add(0);
+            for(int cell = 0, start = 0; cell < numCells; cell++){
+                if(cellStarts[cell + 1] - start >= _verticesPerBlock){
+                    bounds.add(cell + 1);
+                    start = cellStarts[cell + 1];
+                }
+            }
+            if(bounds.peek() != numCells){
+                bounds.add(numCells);
+            }
+            Plan plan = new Plan() {
+                @Override
+                int numBlocks() {
+                    return (n == 0) ? 0 : bounds.size() - 1;
+                }
+
+                @Override
+                void block(int b, EdgeBuffer out) {
+                    for(int cell = bounds.get(b); cell < bounds.get(b + 1); cell++){
+                        Geometric.this.link(cell, xs, ys, cellStarts, members, out);
+                    }
+                }
+            };
+            plan._xs = xs;
+            plan._ys = ys;
+            return plan;
+        }
+
+        private int cell(double coordinate) {
+            return Math.min((int) (coordinate * _cells / _side), _cells - 1);
+        }
+
+        /**
+         * Links the vertices of a cell to each other and to those of the
+         * neighboring cells after it: (x + 1, y - 1), (x + 1, y),
+         * (x + 1, y + 1) and (x, y + 1), so every pair of neighboring cells
+         * is compared once.
+         */
+        private void link(int cell, double[] xs, double[] ys, int[] cellStarts, int[] members, EdgeBuffer out) {
+            int cx = cell / _cells;
+            int cy = cell % _cells;
+            for(int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++){
+                int u = members[i];
+                for(int j = i + 1; j < cellStarts[cell + 1]; j++){
+                    this.link(u, members[j], xs, ys, out);
+                }
+                for(int dx = 0; dx <= 1; dx++){
+                    for(int dy = (dx == 0) ? 1 : -1; dy <= 1; dy++){
+                        int x = cx + dx;
+                        int y = cy + dy;
+                        if(x >= _cells || y < 0 || y >= _cells){
+                            continue;
+                        }
+                        int other = x * _cells + y;
+                        for(int j = cellStarts[other]; j < cellStarts[other + 1]; j++){
+                            this.link(u, members[j], xs, ys, out);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void link(int u, int v, double[] xs, double[] ys, EdgeBuffer out) {
+            double length = Math.hypot(xs[u] - xs[v], ys[u] - ys[v]);
+            if(length <= 1){
+                int weight = Math.max(1, (int) Math.ceil(100 * length));
+                out.add(u, v, weight);
+                if(this.isDirected()){
+                    out.add(v, u, weight);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that GraphGenerator makes graphs of the right shape, the
+ * same one for a seed whatever the number of threads, and that every sink
+ * gets the same graph.
+ */
+public class GraphGeneratorTest {
+
+    private Path _file;
+
+    @Before
+    public void setup() throws IOException {
+        _file = Files.createTempFile("graph", ".generated");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(_file);
+    }
+
+    /**
+     * Tests that each generator gives the same edges in the same order on
+     * one thread and on several, over graphs of several blocks
+     */
+    @Test
+    public void sameGraphWhateverThreads() {
+        List<GraphGenerator> generators = Arrays.asList(
+                GraphGenerator.erdosRenyi(20000, 200000, false, 3),
+                GraphGenerator.erdosRenyi(20000, 200000, true, 3),
+                GraphGenerator.rmat(14, 200000, true, 3),
+                GraphGenerator.barabasiAlbert(20000, 8, false, 3),
+                GraphGenerator.geometric(100000, 6, false, 3));
+        for(GraphGenerator generator : generators){
+            LinksData one = generator.toLinksData(1);
+            LinksData three = generator.toLinksData(3);
+            assertTrue(one.getNumEdges() > 2 * GraphGenerator.BLOCK_EDGES);
+            assertEdgesEqual(one.getEdges(), three.getEdges());
+            for(int id = 0; id < one.getNumVertices(); id++){
+                assertThat(three.getX(id), is(one.getX(id)));
+                assertThat(three.getY(id), is(one.getY(id)));
+            }
+        }
+        assertThat(edgesOf(GraphGenerator.rmat(14, 200000, true, 4).toLinksData(1)).equals(
+                edgesOf(GraphGenerator.rmat(14, 200000, true, 3).toLinksData(1))), is(false));
+    }
+
+    /**
+     * Tests that an Erdos-Renyi graph has about the edges asked for, and no
+     * self-loops or repeats
+     */
+    @Test
+    public void erdosRenyi() {
+        for(boolean directed : new boolean[] { false, true }){
+            LinksData data = GraphGenerator.erdosRenyi(2000, 40000, directed, 11).toLinksData(2);
+            assertTrue(Math.abs(data.getNumEdges() - 40000) < 1000);
+            Set<Long> pairs = edgesOf(data);
+            assertThat(pairs.size(), is(data.getNumEdges()));
+            EdgeBuffer edges = data.getEdges();
+            for(int i = 0; i < edges.size(); i++){
+                assertTrue(edges.source(i) != edges.target(i));
+                assertTrue(directed || edges.source(i) < edges.target(i));
+            }
+        }
+        // every pair there is
+        assertThat(GraphGenerator.erdosRenyi(30, 30 * 29, true, 1).toLinksData(1).getNumEdges(), is(30 * 29));
+        assertThat(GraphGenerator.erdosRenyi(30, 0, false, 1).toLinksData(1).getNumEdges(), is(0));
+    }
+
+    /**
+     * Tests that R-MAT edges stay within 2^scale vertices and pile up on a
+     * few of them
+     */
+    @Test
+    public void rmat() {
+        LinksData data = GraphGenerator.rmat(12, 50000, true, 5).toLinksData(1);
+        assertThat(data.getNumVertices(), is(4096));
+        assertTrue(data.getNumEdges() > 45000 && data.getNumEdges() <= 50000);
+        int[] degrees = new int[4096];
+        EdgeBuffer edges = data.getEdges();
+        for(int i = 0; i < edges.size(); i++){
+            assertTrue(edges.source(i) != edges.target(i));
+            degrees[edges.source(i)]++;
+        }
+        int maxDegree = Arrays.stream(degrees).max().getAsInt();
+        assertTrue(maxDegree > 20 * data.getNumEdges() / 4096);
+    }
+
+    /**
+     * Tests that Barabasi-Albert vertices link only to earlier vertices, at
+     * most once each, and that early vertices become hubs
+     */
+    @Test
+    public void barabasiAlbert() {
+        int n = 5000;
+        int k = 4;
+        LinksData data = GraphGenerator.barabasiAlbert(n, k, false, 9).toLinksData(2);
+        assertTrue(data.getNumEdges() <= (n - 1) * k);
+        assertTrue(data.getNumEdges() > 0.95 * (n - 1) * k);
+        assertThat(edgesOf(data).size(), is(data.getNumEdges()));
+        int[] degrees = new int[n];
+        EdgeBuffer edges = data.getEdges();
+        for(int i = 0; i < edges.size(); i++){
+            assertTrue(edges.target(i) < edges.source(i));
+            degrees[edges.source(i)]++;
+            degrees[edges.target(i)]++;
+        }
+        assertTrue(Arrays.stream(degrees).max().getAsInt() > 20 * k);
+    }
+
+    /**
+     * Tests that a geometric graph links exactly the pairs at most 1 apart
+     */
+    @Test
+    public void geometric() {
+        int n = 3000;
+        LinksData data = GraphGenerator.geometric(n, 8, false, 13).toLinksData(2);
+        double side = Math.sqrt(n * Math.PI / 8);
+        Set<Long> expected = new HashSet<Long>();
+        for(int u = 0; u < n; u++){
+            assertTrue(data.getX(u) >= 0 && data.getX(u) < side);
+            assertTrue(data.getY(u) >= 0 && data.getY(u) < side);
+            for(int v = u + 1; v < n; v++){
+                if(Math.hypot(data.getX(u) - data.getX(v), data.getY(u) - data.getY(v)) <= 1){
+                    expected.add(pair(u, v));
+                }
+            }
+        }
+        Set<Long> actual = new HashSet<Long>();
+        EdgeBuffer edges = data.getEdges();
+        for(int i = 0; i < edges.size(); i++){
+            int u = Math.min(edges.source(i), edges.target(i));
+            int v = Math.max(edges.source(i), edges.target(i));
+            actual.add(pair(u, v));
+            double length = Math.hypot(data.getX(u) - data.getX(v), data.getY(u) - data.getY(v));
+            assertThat(edges.weight(i), is(Math.max(1, (int) Math.ceil(100 * length))));
+        }
+        assertThat(actual.size(), is(edges.size()));
+        assertThat(actual, is(expected));
+        // about the average degree asked for, less what falls off the edges of the square
+        assertTrue(2.0 * edges.size() / n > 6 && 2.0 * edges.size() / n < 8.5);
+
+        LinksData directed = GraphGenerator.geometric(n, 8, true, 13).toLinksData(1);
+        assertThat(directed.getNumEdges(), is(2 * edges.size()));
+    }
+
+    /**
+     * Tests that a links file written by the generator loads back the same
+     */
+    @Test
+    public void linksFileRoundTrip() throws IOException {
+        GraphGenerator generator = GraphGenerator.geometric(5000, 6, true, 17);
+        generator.writeLinks(_file, 2);
+        LinksData expected = generator.toLinksData(1);
+        LinksData loaded = LinksFileLoader.parse(_file);
+        assertThat(loaded.getNumVertices(), is(expected.getNumVertices()));
+        for(int id = 0; id < expected.getNumVertices(); id++){
+            assertEquals(expected.getName(id), loaded.getName(id));
+            assertEquals(expected.getX(id), loaded.getX(id), 1e-9);
+            assertEquals(expected.getY(id), loaded.getY(id), 1e-9);
+        }
+        assertEdgesEqual(expected.getEdges(), loaded.getEdges());
+    }
+
+    /**
+     * Tests that a snapshot written by the generator has the rows of the
+     * generated edges, both ways round when undirected
+     */
+    @Test
+    public void snapshotRoundTrip() throws IOException {
+        List<GraphGenerator> generators = Arrays.asList(
+                GraphGenerator.rmat(10, 20000, true, 19),
+                GraphGenerator.barabasiAlbert(3000, 5, false, 19));
+        for(GraphGenerator generator : generators){
+            generator.writeSnapshot(_file, 3);
+            SnapshotGraph snapshot = GraphSnapshot.open(_file, true);
+            LinksData data = generator.toLinksData(1);
+            assertThat(snapshot.isDirected(), is(generator.isDirected()));
+            assertThat(snapshot.getNumVertices(), is(data.getNumVertices()));
+
+            List<List<Long>> rows = new ArrayList<List<Long>>();
+            for(int id = 0; id < data.getNumVertices(); id++){
+                rows.add(new ArrayList<Long>());
+            }
+            EdgeBuffer edges = data.getEdges();
+            for(int i = 0; i < edges.size(); i++){
+                rows.get(edges.source(i)).add(pair(edges.target(i), edges.weight(i)));
+                if(!generator.isDirected()){
+                    rows.get(edges.target(i)).add(pair(edges.source(i), edges.weight(i)));
+                }
+            }
+            for(int id = 0; id < data.getNumVertices(); id++){
+                assertEquals(GraphGenerator.name(id), snapshot.vertex(id).element());
+                List<Long> row = new ArrayList<Long>();
+                for(int arc = snapshot.outOffset(id); arc < snapshot.outOffset(id) + snapshot.outDegree(id); arc++){
+                    row.add(pair(snapshot.arcTarget(arc), snapshot.arcWeight(arc)));
+                }
+                List<Long> expected = rows.get(id);
+                expected.sort(null);
+                assertThat(row, is(expected));
+            }
+        }
+    }
+
+    /**
+     * Tests generating straight into a Graph, skipping repeated R-MAT edges
+     */
+    @Test
+    public void intoGraph() throws IOException {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        GraphGenerator generator = GraphGenerator.geometric(60, 5, false, 23);
+        GraphGenerator.GraphSink<String> sink = new GraphGenerator.GraphSink<String>(graph, GraphGenerator::name);
+        generator.generate(sink, 2);
+        LinksData data = generator.toLinksData(1);
+        assertThat(graph.getNumVertices(), is(60));
+        assertThat(countEdges(graph), is(data.getNumEdges()));
+        CS16Vertex<String> vertex = sink.getVertices().get(7);
+        assertEquals("v7", vertex.element());
+        assertArrayEquals(new double[] { data.getX(7), data.getY(7) }, sink.getCoordinates().getDecoration(vertex),
+                0);
+
+        Graph<Integer> directed = new AdjacencyMatrixGraph<Integer>(true);
+        GraphGenerator rmat = GraphGenerator.rmat(6, 600, true, 29);
+        List<CS16Vertex<Integer>> vertices = rmat.into(directed, id -> id, 1);
+        assertThat(vertices.size(), is(64));
+        assertThat(vertices.get(5).element(), is(5));
+        assertThat(countEdges(directed), is(edgesOf(rmat.toLinksData(1)).size()));
+    }
+
+    private static void assertEdgesEqual(EdgeBuffer expected, EdgeBuffer actual) {
+        assertThat(actual.size(), is(expected.size()));
+        for(int i = 0; i < expected.size(); i++){
+            assertThat(actual.source(i), is(expected.source(i)));
+            assertThat(actual.target(i), is(expected.target(i)));
+            assertThat(actual.weight(i), is(expected.weight(i)));
+        }
+    }
+
+    private static Set<Long> edgesOf(LinksData data) {
+        Set<Long> pairs = new HashSet<Long>();
+        EdgeBuffer edges = data.getEdges();
+        for(int i = 0; i < edges.size(); i++){
+            pairs.add(pair(edges.source(i), edges.target(i)));
+        }
+        return pairs;
+    }
+
+    private static long pair(int first, int second) {
+        return ((long) first << 32) | second;
+    }
+
+    private static <V> int countEdges(Graph<V> graph) {
+        int count = 0;
+        for(Iterator<?> edges = graph.edges(); edges.hasNext(); edges.next()){
+            count++;
+        }
+        return count;
+    }
+}
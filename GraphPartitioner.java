@@ -0,0 +1,687 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Splits the vertices of a CsrGraph into k parts of about the same size with
+ * few edges between parts, so that threads that each take a part mostly
+ * read their own vertices. A plain split of the vertex numbers into ranges
+ * is balanced but cuts edges at random.
+ *
+ * <p>
+ * Edges are taken as undirected, weighted by how many arcs join their ends.
+ * The k parts come from recursive bisection, and each bisection is
+ * multilevel. The graph is coarsened by heavy-edge matching: in random
+ * order, every vertex not yet matched is matched with the unmatched
+ * neighbor it shares the heaviest edge with, and every pair becomes one
+ * vertex of the next level, until a level has at most COARSEST vertices or
+ * stops shrinking. The coarsest level is split by greedy growing: a part is
+ * grown from a random vertex, taking next the vertex that adds least to the
+ * cut, until it holds its share of the weight; the best of a few tries is
+ * kept. The split is then carried back up level by level, and at every level
+ * improved by Fiduccia-Mattheyses passes: vertices are moved across one at a
+ * time, each the unmoved vertex whose move cuts the cut the most (or raises
+ * it the least) without breaking the balance, and the pass is rolled back
+ * to the best cut seen. Moves are chosen from an IntMinHeap keyed by gain.
+ * </p>
+ *
+ * <p>
+ * A partition comes as a Partition, which can give a snapshot of the graph
+ * renumbered part by part. ConnectedComponents, GraphTraversal and
+ * ParallelPageRank built on a Partition work on that snapshot and hand each
+ * part to a thread as one range. A partition takes about O((|V| + |E|)log(k))
+ * time.
+ * </p>
+ */
+public class GraphPartitioner<V> {
+
+    public static final double DEFAULT_IMBALANCE = 0.03;
+    // levels are coarsened until they have at most this many vertices
+    private static final int COARSEST = 64;
+    // or until a round of matching takes off less than this fraction
+    private static final double MIN_SHRINK = 0.05;
+    private static final int INITIAL_TRIES = 4;
+    private static final int MAX_PASSES = 8;
+    // a pass stops after this many moves without a better cut
+    private static final int MOVES_WITHOUT_GAIN = 64;
+
+    private final CsrGraph<V> _csr;
+
+    /**
+     * Prepares to partition a snapshot of g. Later changes to g are not seen.
+     */
+    public GraphPartitioner(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public GraphPartitioner(CsrGraph<V> csr) {
+        _csr = csr;
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Splits the vertices into k parts, none more than DEFAULT_IMBALANCE
+     * over its share by much.
+     */
+    public Partition<V> partition(int k) {
+        return this.partition(k, DEFAULT_IMBALANCE, 0);
+    }
+
+    /**
+     * Splits the vertices into k parts, each bisection letting a side be up
+     * to the given fraction over its share, with random choices made by the
+     * given seed.
+     */
+    public Partition<V> partition(int k, double imbalance, long seed) {
+        if(k < 1){
+            throw new IllegalArgumentException("need at least one part");
+        }
+        if(!(imbalance >= 0 && imbalance < 1)){
+            throw new IllegalArgumentException("imbalance must be in [0, 1)");
+        }
+        WeightedGraph whole = WeightedGraph.of(_csr);
+        int[] ids = new int[whole._n];
+        for(int v = 0; v < ids.length; v++){
+            ids[v] = v;
+        }
+        // the imbalance compounds over the bisections of a part
+        int depth = 32 - Integer.numberOfLeadingZeros(k - 1);
+        double perBisection = (depth == 0) ? imbalance : Math.pow(1 + imbalance, 1.0 / depth) - 1;
+        int[] dense = new int[whole._n];
+        this.split(whole, ids, k, 0, perBisection, new Random(seed), dense);
+
+        int[] parts = new int[_csr.size()];
+        Arrays.fill(parts, -1);
+        for(int v = 0; v < dense.length; v++){
+            parts[whole._numbers[v]] = dense[v];
+        }
+        return new Partition<V>(_csr, k, parts);
+    }
+
+    /**
+     * Splits g into k parts numbered from firstPart, writing the part of g's
+     * vertex v to parts[ids[v]].
+     */
+    private void split(WeightedGraph g, int[] ids, int k, int firstPart, double imbalance, Random random,
+            int[] parts) {
+        if(k == 1 || g._n == 0){
+            for(int v = 0; v < g._n; v++){
+                parts[ids[v]] = firstPart;
+            }
+            return;
+        }
+        int kLeft = k / 2;
+        int[] sides = bisect(g, (double) kLeft / k, imbalance, random);
+        for(int side = 0; side < 2; side++){
+            IntList members = new IntList();
+            for(int v = 0; v < g._n; v++){
+                if(sides[v] == side){
+                    members.add(v);
+                }
+            }
+            int[] sub = members.toArray();
+            int[] subIds = new int[sub.length];
+            for(int i = 0; i < sub.length; i++){
+                subIds[i] = ids[sub[i]];
+            }
+            this.split(g.induced(sub), subIds, (side == 0) ? kLeft : k - kLeft,
+                    (side == 0) ? firstPart : firstPart + kLeft, imbalance, random, parts);
+        }
+    }
+
+    /**
+     * Splits g in two, side 0 holding about the given fraction of its
+     * weight, and returns the side of every vertex.
+     */
+    private static int[] bisect(WeightedGraph g, double fraction, double imbalance, Random random) {
+        List<WeightedGraph> levels = new ArrayList<WeightedGraph>();
+        List<int[]> maps = new ArrayList<int[]>();
+        levels.add(g);
+        WeightedGraph current = g;
+        long maxVertexWeight = Math.max(1, (long) (1.5 * g._totalWeight / COARSEST));
+        while(current._n > COARSEST){
+            int[] map = new int[current._n];
+            WeightedGraph coarse = current.coarsen(map, maxVertexWeight, random);
+            if(coarse._n > (1 - MIN_SHRINK) * current._n){
+                break;
+            }
+            maps.add(map);
+            levels.add(coarse);
+            current = coarse;
+        }
+
+        long[] targets = {(long) Math.ceil(fraction * g._totalWeight), 0};
+        targets[1] = g._totalWeight - targets[0];
+        int[] sides = null;
+        long bestCut = Long.MAX_VALUE;
+        for(int attempt = 0; attempt < INITIAL_TRIES; attempt++){
+            int[] tried = grow(current, targets[0], random);
+            long cut = refine(current, tried, targets, imbalance);
+            if(sides == null || cut < bestCut){
+                sides = tried;
+                bestCut = cut;
+            }
+        }
+        for(int level = levels.size() - 2; level >= 0; level--){
+            WeightedGraph finer = levels.get(level);
+            int[] map = maps.get(level);
+            int[] projected = new int[finer._n];
+            for(int v = 0; v < finer._n; v++){
+                projected[v] = sides[map[v]];
+            }
+            sides = projected;
+            refine(finer, sides, targets, imbalance);
+        }
+        return sides;
+    }
+
+    /**
+     * Grows side 0 from a random vertex until it holds the target weight,
+     * taking next the vertex whose move adds least to the cut, and returns
+     * the side of every vertex.
+     */
+    private static int[] grow(WeightedGraph g, long target, Random random) {
+        int[] sides = new int[g._n];
+        Arrays.fill(sides, 1);
+        // the weight of the edges from each vertex to side 0 and side 1
+        long[] toZero = new long[g._n];
+        long[] toOne = new long[g._n];
+        for(int v = 0; v < g._n; v++){
+            for(int i = g._offsets[v]; i < g._offsets[v + 1]; i++){
+                toOne[v] += g._weights[i];
+            }
+        }
+        IntMinHeap heap = new IntMinHeap(g._n);
+        long weight = 0;
+        int next = random.nextInt(g._n);
+        while(weight < target){
+            int v;
+            if(!heap.isEmpty()){
+                v = heap.poll();
+            }
+            else{
+                // the grown part is a whole component; start again elsewhere
+                while(sides[next] == 0){
+                    next = (next + 1) % g._n;
+                }
+                v = next;
+            }
+            sides[v] = 0;
+            weight += g._vertexWeights[v];
+            for(int i = g._offsets[v]; i < g._offsets[v + 1]; i++){
+                int u = g._neighbors[i];
+                toZero[u] += g._weights[i];
+                toOne[u] -= g._weights[i];
+                if(sides[u] == 1){
+                    heap.remove(u);
+                    heap.offer(u, key(toZero[u] - toOne[u]));
+                }
+            }
+        }
+        return sides;
+    }
+
+    /**
+     * Improves a bisection in place with Fiduccia-Mattheyses passes, and
+     * returns its cut.
+     */
+    private static long refine(WeightedGraph g, int[] sides, long[] targets, double imbalance) {
+        int n = g._n;
+        long maxVertexWeight = 0;
+        for(int v = 0; v < n; v++){
+            maxVertexWeight = Math.max(maxVertexWeight, g._vertexWeights[v]);
+        }
+        long[] limits = new long[2];
+        for(int side = 0; side < 2; side++){
+            // coarse levels cannot balance more finely than one vertex
+            limits[side] = Math.max((long) Math.floor(targets[side] * (1 + imbalance)),
+                    targets[side] + maxVertexWeight - 1);
+        }
+        long[] gains = new long[n];
+        long[] external = new long[n];
+        boolean[] locked = new boolean[n];
+        IntMinHeap[] heaps = {new IntMinHeap(n), new IntMinHeap(n)};
+        IntList moves = new IntList();
+        long cut = 0;
+        for(int pass = 0; pass < MAX_PASSES; pass++){
+            long[] weights = new long[2];
+            cut = 0;
+            for(int v = 0; v < n; v++){
+                weights[sides[v]] += g._vertexWeights[v];
+                gains[v] = 0;
+                external[v] = 0;
+                for(int i = g._offsets[v]; i < g._offsets[v + 1]; i++){
+                    if(sides[g._neighbors[i]] != sides[v]){
+                        external[v] += g._weights[i];
+                    }
+                    else{
+                        gains[v] -= g._weights[i];
+                    }
+                }
+                gains[v] += external[v];
+                cut += external[v];
+            }
+            cut /= 2;
+            Arrays.fill(locked, false);
+            heaps[0].clear();
+            heaps[1].clear();
+            for(int v = 0; v < n; v++){
+                if(external[v] > 0 || weights[sides[v]] > limits[sides[v]]){
+                    heaps[sides[v]].offer(v, key(gains[v]));
+                }
+            }
+            moves.clear();
+            long startCut = cut;
+            long bestCut = cut;
+            long bestExcess = excess(weights, limits);
+            int bestMoves = 0;
+            while(moves.size() - bestMoves <= MOVES_WITHOUT_GAIN){
+                int from = choose(heaps, weights, limits, g);
+                if(from < 0){
+                    break;
+                }
+                int v = heaps[from].poll();
+                int to = 1 - from;
+                locked[v] = true;
+                sides[v] = to;
+                weights[from] -= g._vertexWeights[v];
+                weights[to] += g._vertexWeights[v];
+                cut -= gains[v];
+                moves.add(v);
+                for(int i = g._offsets[v]; i < g._offsets[v + 1]; i++){
+                    int u = g._neighbors[i];
+                    if(locked[u]){
+                        continue;
+                    }
+                    long w = g._weights[i];
+                    if(sides[u] == to){
+                        external[u] -= w;
+                        gains[u] -= 2 * w;
+                    }
+                    else{
+                        external[u] += w;
+                        gains[u] += 2 * w;
+                    }
+                    heaps[sides[u]].remove(u);
+                    if(external[u] > 0 || weights[sides[u]] > limits[sides[u]]){
+                        heaps[sides[u]].offer(u, key(gains[u]));
+                    }
+                }
+                long moveExcess = excess(weights, limits);
+                if(moveExcess < bestExcess || (moveExcess == bestExcess && cut < bestCut)){
+                    bestCut = cut;
+                    bestExcess = moveExcess;
+                    bestMoves = moves.size();
+                }
+            }
+            // roll back the moves after the best state
+            for(int i = moves.size() - 1; i >= bestMoves; i--){
+                int v = moves.get(i);
+                sides[v] = 1 - sides[v];
+            }
+            cut = bestCut;
+            if(bestMoves == 0 || (bestCut == startCut && bestExcess == 0)){
+                break;
+            }
+        }
+        return cut;
+    }
+
+    /**
+     * Returns the side to move the next vertex from, the one whose best
+     * move gains more among those that keep the other side within its
+     * limit, or -1 if there is none. A side over its limit must give up a
+     * vertex if it can. Vertices that cannot move now are dropped.
+     */
+    private static int choose(IntMinHeap[] heaps, long[] weights, long[] limits, WeightedGraph g) {
+        for(int side = 0; side < 2; side++){
+            IntMinHeap heap = heaps[side];
+            while(!heap.isEmpty()){
+                int v = heap.peek();
+                if(weights[1 - side] + g._vertexWeights[v] <= limits[1 - side]
+                        || weights[side] > limits[side] && weights[1 - side] < weights[side]){
+                    break;
+                }
+                heap.poll();
+            }
+        }
+        boolean zero = !heaps[0].isEmpty();
+        boolean one = !heaps[1].isEmpty();
+        if(zero && weights[0] > limits[0]){
+            return 0;
+        }
+        if(one && weights[1] > limits[1]){
+            return 1;
+        }
+        if(zero && one){
+            return (heaps[0].minKey() <= heaps[1].minKey()) ? 0 : 1;
+        }
+        return zero ? 0 : (one ? 1 : -1);
+    }
+
+    private static int key(long gain) {
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, -gain));
+    }
+
+    private static long excess(long[] weights, long[] limits) {
+        return Math.max(0, weights[0] - limits[0]) + Math.max(0, weights[1] - limits[1]);
+    }
+
+    /**
+     * An undirected graph with weighted vertices and edges in CSR form, the
+     * levels of a multilevel bisection. Every edge is in the rows of both its
+     * ends, and there are no self-loops.
+     */
+    private static class WeightedGraph {
+        private final int _n;
+        private final int[] _offsets;
+        private final int[] _neighbors;
+        private final long[] _weights;
+        private final long[] _vertexWeights;
+        private final long _totalWeight;
+        // the vertex number in the CsrGraph of every vertex, for the finest
+        // level only
+        private int[] _numbers;
+
+        private WeightedGraph(int n, int[] offsets, int[] neighbors, long[] weights, long[] vertexWeights) {
+            _n = n;
+            _offsets = offsets;
+            _neighbors = neighbors;
+            _weights = weights;
+            _vertexWeights = vertexWeights;
+            long total = 0;
+            for(long weight : vertexWeights){
+                total += weight;
+            }
+            _totalWeight = total;
+        }
+
+        /**
+         * Builds the finest level from the vertices in use of a CsrGraph,
+         * numbered densely in order, each edge weighing the number of arcs
+         * between its ends either way.
+         */
+        private static WeightedGraph of(CsrGraph<?> csr) {
+            int[] dense = new int[csr.size()];
+            int[] numbers = new int[csr.getNumVertices()];
+            for(int v = 0, id = 0; v < csr.size(); v++){
+                if(csr.hasVertex(v)){
+                    dense[v] = id;
+                    numbers[id++] = v;
+                }
+            }
+            int n = numbers.length;
+            int[] offsets = new int[n + 1];
+            IntList neighbors = new IntList(csr.getNumArcs() + 1);
+            long[] weights = new long[(csr.isDirected() ? 2 : 1) * csr.getNumArcs()];
+            IntList row = new IntList();
+            for(int id = 0; id < n; id++){
+                int u = numbers[id];
+                row.clear();
+                for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                    row.add(csr.outTargets()[arc]);
+                }
+                if(csr.isDirected()){
+                    for(int arc = csr.inOffsets()[u]; arc < csr.inOffsets()[u + 1]; arc++){
+                        row.add(csr.inSources()[arc]);
+                    }
+                }
+                int[] sorted = row.toArray();
+                Arrays.sort(sorted);
+                for(int i = 0; i < sorted.length; i++){
+                    if(sorted[i] == u){
+                        continue;
+                    }
+                    if(i > 0 && sorted[i] == sorted[i - 1]){
+                        weights[neighbors.size() - 1]++;
+                    }
+                    else{
+                        weights[neighbors.size()] = 1;
+                        neighbors.add(dense[sorted[i]]);
+                    }
+                }
+                offsets[id + 1] = neighbors.size();
+            }
+            long[] vertexWeights = new long[n];
+            Arrays.fill(vertexWeights, 1);
+            WeightedGraph g = new WeightedGraph(n, offsets, neighbors.toArray(),
+                    Arrays.copyOf(weights, neighbors.size()), vertexWeights);
+            g._numbers = numbers;
+            return g;
+        }
+
+        /**
+         * Matches every vertex with a neighbor along a heavy edge, writes
+         * the coarse vertex of every vertex to map, and returns the coarse
+         * level.
+         */
+        private WeightedGraph coarsen(int[] map, long maxVertexWeight, Random random) {
+            int[] order = new int[_n];
+            for(int v = 0; v < _n; v++){
+                order[v] = v;
+            }
+            for(int i = _n - 1; i > 0; i--){
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            int[] mates = new int[_n];
+            Arrays.fill(mates, -1);
+            Arrays.fill(map, -1);
+            int coarseN = 0;
+            for(int u : order){
+                if(mates[u] >= 0){
+                    continue;
+                }
+                int best = u;
+                long bestWeight = -1;
+                for(int i = _offsets[u]; i < _offsets[u + 1]; i++){
+                    int v = _neighbors[i];
+                    if(mates[v] < 0 && _weights[i] > bestWeight
+                            && _vertexWeights[u] + _vertexWeights[v] <= maxVertexWeight){
+                        best = v;
+                        bestWeight = _weights[i];
+                    }
+                }
+                mates[u] = best;
+                mates[best] = u;
+                map[u] = coarseN;
+                map[best] = coarseN;
+                coarseN++;
+            }
+
+            int[] firsts = new int[coarseN];
+            for(int v = _n - 1; v >= 0; v--){
+                firsts[map[v]] = v;
+            }
+            int[] offsets = new int[coarseN + 1];
+            IntList neighbors = new IntList(_neighbors.length / 2 + 1);
+            long[] weights = new long[_neighbors.length];
+            long[] vertexWeights = new long[coarseN];
+            // where each coarse neighbor is in the row being built
+            int[] positions = new int[coarseN];
+            Arrays.fill(positions, -1);
+            for(int c = 0; c < coarseN; c++){
+                int rowStart = neighbors.size();
+                int first = firsts[c];
+                int second = mates[first];
+                for(int member = first; ; member = second){
+                    vertexWeights[c] += _vertexWeights[member];
+                    for(int i = _offsets[member]; i < _offsets[member + 1]; i++){
+                        int d = map[_neighbors[i]];
+                        if(d == c){
+                            continue;
+                        }
+                        if(positions[d] >= rowStart){
+                            weights[positions[d]] += _weights[i];
+                        }
+                        else{
+                            positions[d] = neighbors.size();
+                            weights[neighbors.size()] = _weights[i];
+                            neighbors.add(d);
+                        }
+                    }
+                    if(member == second){
+                        break;
+                    }
+                }
+                offsets[c + 1] = neighbors.size();
+            }
+            return new WeightedGraph(coarseN, offsets, neighbors.toArray(),
+                    Arrays.copyOf(weights, neighbors.size()), vertexWeights);
+        }
+
+        /**
+         * Returns the subgraph on the given vertices, sorted, numbered by
+         * their place among them.
+         */
+        private WeightedGraph induced(int[] members) {
+            int[] ids = new int[_n];
+            Arrays.fill(ids, -1);
+            for(int i = 0; i < members.length; i++){
+                ids[members[i]] = i;
+            }
+            int[] offsets = new int[members.length + 1];
+            IntList neighbors = new IntList();
+            long[] weights = new long[_neighbors.length];
+            long[] vertexWeights = new long[members.length];
+            for(int i = 0; i < members.length; i++){
+                int v = members[i];
+                vertexWeights[i] = _vertexWeights[v];
+                for(int j = _offsets[v]; j < _offsets[v + 1]; j++){
+                    if(ids[_neighbors[j]] >= 0){
+                        weights[neighbors.size()] = _weights[j];
+                        neighbors.add(ids[_neighbors[j]]);
+                    }
+                }
+                offsets[i + 1] = neighbors.size();
+            }
+            return new WeightedGraph(members.length, offsets, neighbors.toArray(),
+                    Arrays.copyOf(weights, neighbors.size()), vertexWeights);
+        }
+    }
+
+    /**
+     * A split of the vertices of a graph into parts numbered 0 to k - 1.
+     */
+    public static class Partition<V> {
+        private final CsrGraph<V> _csr;
+        private final int _numParts;
+        private final int[] _parts;
+        private final int[] _sizes;
+        private VertexOrdering.Relabeling<V> _relabeling;
+
+        private Partition(CsrGraph<V> csr, int numParts, int[] parts) {
+            _csr = csr;
+            _numParts = numParts;
+            _parts = parts;
+            _sizes = new int[numParts];
+            for(int part : parts){
+                if(part >= 0){
+                    _sizes[part]++;
+                }
+            }
+        }
+
+        public int getNumParts() {
+            return _numParts;
+        }
+
+        /**
+         * Returns the part of every vertex, indexed by vertex number, -1 for
+         * numbers not in use. The array is not copied; do not change it.
+         */
+        public int[] parts() {
+            return _parts;
+        }
+
+        public int partOf(CS16Vertex<V> vertex) {
+            return _parts[_csr.numberOf(vertex)];
+        }
+
+        /**
+         * Returns the number of vertices in every part. The array is not
+         * copied; do not change it.
+         */
+        public int[] sizes() {
+            return _sizes;
+        }
+
+        /**
+         * Returns the number of edges whose ends are in different parts;
+         * for a directed graph, the number of such arcs.
+         */
+        public long getEdgeCut() {
+            long cut = 0;
+            for(int u = 0; u < _csr.size(); u++){
+                for(int arc = _csr.outOffsets()[u]; arc < _csr.outOffsets()[u + 1]; arc++){
+                    if(_parts[_csr.outTargets()[arc]] != _parts[u]){
+                        cut++;
+                    }
+                }
+            }
+            return _csr.isDirected() ? cut : cut / 2;
+        }
+
+        /**
+         * Returns the size of the largest part over the average size, 1 for
+         * a perfect balance.
+         */
+        public double getImbalance() {
+            int largest = 0;
+            for(int size : _sizes){
+                largest = Math.max(largest, size);
+            }
+            int n = _csr.getNumVertices();
+            return (n == 0) ? 1 : (double) largest * _numParts / n;
+        }
+
+        /**
+         * Returns the numbering that lists the vertices part by part, in
+         * order of vertex number within a part.
+         */
+        public synchronized VertexOrdering.Relabeling<V> relabeling() {
+            if(_relabeling == null){
+                int[] order = new int[_csr.getNumVertices()];
+                int[] fill = Arrays.copyOf(this.bounds(), _numParts);
+                for(int v = 0; v < _parts.length; v++){
+                    if(_parts[v] >= 0){
+                        order[fill[_parts[v]]++] = v;
+                    }
+                }
+                _relabeling = new VertexOrdering<V>(_csr).of(order);
+            }
+            return _relabeling;
+        }
+
+        /**
+         * Returns a snapshot of the graph renumbered part by part, so that
+         * every part is a range of vertex numbers.
+         */
+        public CsrGraph<V> snapshot() {
+            return this.relabeling().snapshot();
+        }
+
+        /**
+         * Returns the bounds of the parts' ranges in the snapshot: part p
+         * holds the numbers from bounds[p] up to bounds[p + 1].
+         */
+        public int[] bounds() {
+            int[] bounds = new int[_numParts + 1];
+            for(int p = 0; p < _numParts; p++){
+                bounds[p + 1] = bounds[p] + _sizes[p];
+            }
+            return bounds;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests GraphPartitioner and the engines that run on its
+ * partitions.
+ */
+public class GraphPartitionerTest {
+
+    /**
+     * Tests a ring of four cliques joined by single edges: the four parts
+     * are the cliques
+     */
+    @Test
+    public void ringOfCliques() {
+        Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(false);
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < 40; i++){
+            vertices.add(graph.insertVertex(i));
+        }
+        for(int clique = 0; clique < 4; clique++){
+            for(int i = 0; i < 10; i++){
+                for(int j = i + 1; j < 10; j++){
+                    graph.insertEdge(vertices.get(clique * 10 + i), vertices.get(clique * 10 + j), 1);
+                }
+            }
+            graph.insertEdge(vertices.get(clique * 10), vertices.get((clique * 10 + 15) % 40), 1);
+        }
+
+        GraphPartitioner.Partition<Integer> partition = new GraphPartitioner<Integer>(graph).partition(4);
+        assertThat(partition.getEdgeCut(), is(4L));
+        assertArrayEquals(new int[] {10, 10, 10, 10}, partition.sizes());
+        for(int clique = 0; clique < 4; clique++){
+            for(int i = 1; i < 10; i++){
+                assertThat(partition.partOf(vertices.get(clique * 10 + i)),
+                        is(partition.partOf(vertices.get(clique * 10))));
+            }
+        }
+    }
+
+    /**
+     * Tests a grid with shuffled vertex numbers: four parts cut few edges
+     * and are balanced, where ranges of vertex numbers cut most of them
+     */
+    @Test
+    public void shuffledGrid() {
+        int side = 32;
+        CsrGraph<String> csr = shuffledGrid(side, new Random(45));
+        GraphPartitioner.Partition<String> partition = new GraphPartitioner<String>(csr).partition(4);
+        assertTrue(partition.getEdgeCut() <= 3 * side + side / 2);
+        assertTrue(partition.getImbalance() <= 1.04);
+
+        int[] ranges = new int[csr.size()];
+        for(int v = 0; v < ranges.length; v++){
+            ranges[v] = v * 4 / ranges.length;
+        }
+        long rangeCut = 0;
+        for(int u = 0; u < csr.size(); u++){
+            for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                if(ranges[u] != ranges[csr.outTargets()[arc]]){
+                    rangeCut++;
+                }
+            }
+        }
+        assertTrue(partition.getEdgeCut() * 5 < rangeCut);
+    }
+
+    /**
+     * Tests that partitions of random graphs with unused vertex numbers
+     * give every vertex a part, and that the snapshot holds the parts as
+     * ranges
+     */
+    @Test
+    public void snapshotRanges() {
+        Random random = new Random(45);
+        for(int trial = 0; trial < 6; trial++){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(trial % 2 == 0);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 70; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int i = 0; i < 150; i++){
+                CS16Vertex<Integer> a = vertices.get(random.nextInt(70));
+                CS16Vertex<Integer> b = vertices.get(random.nextInt(70));
+                if(!graph.areAdjacent(a, b)){
+                    graph.insertEdge(a, b, 1);
+                }
+            }
+            graph.removeVertex(vertices.remove(5));
+            graph.removeVertex(vertices.remove(30));
+
+            int k = 1 + trial * 2;
+            GraphPartitioner.Partition<Integer> partition = new GraphPartitioner<Integer>(graph).partition(k, 0.1,
+                    trial);
+            int total = 0;
+            for(int size : partition.sizes()){
+                total += size;
+            }
+            assertThat(total, is(vertices.size()));
+            int[] bounds = partition.bounds();
+            VertexOrdering.Relabeling<Integer> relabeling = partition.relabeling();
+            for(int part = 0; part < k; part++){
+                for(int v = bounds[part]; v < bounds[part + 1]; v++){
+                    assertThat(partition.partOf(relabeling.original(v)), is(part));
+                }
+            }
+            assertThat(partition.snapshot().getNumArcs(), is(CsrGraph.of(graph).getNumArcs()));
+        }
+    }
+
+    /**
+     * Tests components, breadth-first search and PageRank on a partition's
+     * snapshot against the same engines on the original numbering
+     */
+    @Test
+    public void enginesOnPartition() {
+        CsrGraph<String> csr = shuffledGrid(40, new Random(46));
+        GraphPartitioner.Partition<String> partition = new GraphPartitioner<String>(csr).partition(6);
+        VertexOrdering.Relabeling<String> relabeling = partition.relabeling();
+
+        ConnectedComponents.Components<String> components =
+                new ConnectedComponents<String>(partition).labelPropagation(3);
+        assertThat(components.getNumComponents(), is(1));
+
+        CS16Vertex<String> source = csr.vertex(7);
+        GraphTraversal<String> traversal = new GraphTraversal<String>(partition);
+        GraphTraversal.BfsTree<String> tree = traversal.bfs(traversal.getCsrGraph().vertex(relabeling.newNumber(source)),
+                3, 1);
+        GraphTraversal.BfsTree<String> expected = new GraphTraversal<String>(csr).bfs(source);
+        for(int v = 0; v < csr.size(); v++){
+            assertThat(tree.levels()[relabeling.ranks()[v]], is(expected.levels()[v]));
+        }
+
+        ParallelPageRank.Ranks<String> ranks = new ParallelPageRank<String>(partition).rank(3);
+        ParallelPageRank.Ranks<String> plain = new ParallelPageRank<String>(csr).rank();
+        for(int v = 0; v < csr.size(); v++){
+            assertTrue(Math.abs(ranks.values()[relabeling.ranks()[v]] - plain.values()[v]) < 1e-9);
+        }
+    }
+
+    /**
+     * Returns a side by side grid whose vertex numbers are shuffled.
+     */
+    private static CsrGraph<String> shuffledGrid(int side, Random random) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for(int i = 0; i < side * side; i++){
+            ids.add(i);
+        }
+        Collections.shuffle(ids, random);
+        String[] names = new String[side * side];
+        double[] coordinates = new double[side * side];
+        EdgeBuffer edges = new EdgeBuffer(side * side * 2);
+        for(int x = 0; x < side; x++){
+            for(int y = 0; y < side; y++){
+                int id = ids.get(x * side + y);
+                names[id] = x + "," + y;
+                if(x + 1 < side){
+                    edges.add(id, ids.get((x + 1) * side + y), 1);
+                }
+                if(y + 1 < side){
+                    edges.add(id, ids.get(x * side + y + 1), 1);
+                }
+            }
+        }
+        return CsrGraph.of(new LinksData(names, coordinates, coordinates, edges));
+    }
+}
@@ -0,0 +1,451 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+import support.graph.CS16Decorator;
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Reads and writes graph snapshots: a compact binary file holding a graph's
+ * vertex names, x/y coordinates and CSR adjacency, which can be opened again
+ * without parsing or building anything.
+ *
+ * <p>
+ * A snapshot is laid out as follows. All numbers are little-endian and every
+ * section starts at a multiple of 8 bytes. n is the number of vertices, which
+ * are numbered 0 to n - 1, and m is the number of arcs (an undirected edge is
+ * stored as one arc in each direction).
+ * </p>
+ *
+ * <pre>
+ * header        int magic "GSNP", int version, int flags (bit 0: directed),
+ *               int n, int m, int unused, long number of name bytes
+ * name offsets  int[n + 1], vertex v is named by the name bytes from
+ *               offset v up to offset v + 1
+ * name bytes    UTF-8
+ * coordinates   double[2n], x and y of each vertex
+ * out offsets   int[n + 1], the arcs leaving v are those from offset v
+ *               up to offset v + 1
+ * out targets   int[m], sorted within each vertex
+ * out weights   int[m]
+ * in offsets    int[n + 1]  (directed only)
+ * in arcs       int[m], index of each incoming arc in the out arrays
+ *               (directed only)
+ * checksum      long, CRC-32 of every byte before it
+ * </pre>
+ *
+ * Opening a snapshot maps each section into memory and returns a read-only
+ * SnapshotGraph that reads straight from the mapped buffers. Only the header
+ * is read up front, so opening costs O(1) plus page faults as the graph is
+ * used, unless the checksum is verified, which reads the whole file.
+ */
+public final class GraphSnapshot {
+
+    static final int MAGIC = 0x504E5347;
+    static final int VERSION = 1;
+    static final int FLAG_DIRECTED = 1;
+    static final int HEADER_BYTES = 32;
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the given graph with every coordinate set to 0.
+     *
+     * @see #write(Graph, CS16Decorator, Path)
+     */
+    public static <V> void write(Graph<V> g, Path file) throws IOException {
+        write(g, null, file);
+    }
+
+    /**
+     * Writes a snapshot of the given graph. Vertices are renumbered 0 to
+     * n - 1 in order of their vertex numbers, and each is named by
+     * String.valueOf of its element.
+     *
+     * <p>
+     * This runs in O(|V| + |E|log(d)) time, the cost of building a CsrGraph.
+     * </p>
+     *
+     * @param g
+     *            the graph to write
+     * @param coordinates
+     *            the {x, y} coordinates of each vertex, or null if there are
+     *            none; undecorated vertices get (0, 0)
+     * @param file
+     *            the file to write, which is replaced if it exists
+     * @throws IOException
+     *             Thrown when the file cannot be written.
+     */
+    public static <V> void write(Graph<V> g, CS16Decorator<CS16Vertex<V>, double[]> coordinates, Path file)
+            throws IOException {
+        CsrGraph<V> csr = CsrGraph.of(g);
+        int n = csr.getNumVertices();
+        int m = csr.getNumArcs();
+        int[] outOffsets = csr.outOffsets();
+
+        // vertex numbers may have gaps; close them up in order
+        int[] denseIds = new int[csr.size()];
+        int[] numbers = new int[n];
+        byte[][] names = new byte[n][];
+        for(int number = 0, id = 0; number < csr.size(); number++){
+            if(csr.hasVertex(number)){
+                denseIds[number] = id;
+                numbers[id] = number;
+                names[id] = String.valueOf(csr.vertex(number).element()).getBytes(StandardCharsets.UTF_8);
+                id++;
+            }
+        }
+
+        // closing up unused numbers does not move any arc, since their rows are empty
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int[] denseOffsets = new int[n + 1];
+        int[] targets = new int[m];
+        int[] weights = Arrays.copyOf(csr.outWeights(), m);
+        for(int id = 0; id < n; id++){
+            double[] xy = (coordinates == null) ? null : coordinates.getDecoration(csr.vertex(numbers[id]));
+            xs[id] = (xy == null) ? 0 : xy[0];
+            ys[id] = (xy == null) ? 0 : xy[1];
+            denseOffsets[id + 1] = outOffsets[numbers[id] + 1];
+            for(int arc = outOffsets[numbers[id]]; arc < outOffsets[numbers[id] + 1]; arc++){
+                targets[arc] = denseIds[csr.outTargets()[arc]];
+            }
+        }
+
+        int[] denseInOffsets = null;
+        int[] inArcs = null;
+        if(csr.isDirected()){
+            int[] inOffsets = csr.inOffsets();
+            denseInOffsets = new int[n + 1];
+            inArcs = new int[m];
+            for(int id = 0; id < n; id++){
+                int target = numbers[id];
+                denseInOffsets[id + 1] = inOffsets[target + 1];
+                for(int arc = inOffsets[target]; arc < inOffsets[target + 1]; arc++){
+                    inArcs[arc] = outArcOf(csr, csr.inSources()[arc], target, csr.inEdges()[arc]);
+                }
+            }
+        }
+        write(file, csr.isDirected(), n, id -> names[id], xs, ys, denseOffsets, targets, weights, denseInOffsets,
+                inArcs);
+    }
+
+    /**
+     * Writes a snapshot from arrays already laid out as in the file: vertices
+     * numbered 0 to n - 1, out targets sorted within each row, and, if the
+     * graph is directed, the in offsets and in arcs. An undirected graph
+     * passes null for both. Names are asked for twice, once for the offsets
+     * of the name section, which are kept, and once to write the names.
+     *
+     * <p>
+     * This runs in O(|V| + |E|) time.
+     * </p>
+     */
+    static void write(Path file, boolean directed, int n, IntFunction<byte[]> names, double[] xs, double[] ys,
+            int[] outOffsets, int[] outTargets, int[] outWeights, int[] inOffsets, int[] inArcs)
+            throws IOException {
+        int m = outOffsets[n];
+        int[] nameOffsets = new int[n + 1];
+        for(int id = 0; id < n; id++){
+            nameOffsets[id + 1] = nameOffsets[id] + names.apply(id).length;
+        }
+        long nameBytes = nameOffsets[n];
+
+        Layout layout = new Layout(n, m, nameBytes, directed);
+        try(SectionWriter out = new SectionWriter(file)){
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(directed ? FLAG_DIRECTED : 0);
+            out.putInt(n);
+            out.putInt(m);
+            out.putInt(0);
+            out.putLong(nameBytes);
+
+            out.putInts(nameOffsets, n + 1);
+            out.align();
+            for(int id = 0; id < n; id++){
+                out.putBytes(names.apply(id));
+            }
+            out.align();
+
+            for(int id = 0; id < n; id++){
+                out.putDouble(xs == null ? 0 : xs[id]);
+                out.putDouble(ys == null ? 0 : ys[id]);
+            }
+
+            out.putInts(outOffsets, n + 1);
+            out.align();
+            out.putInts(outTargets, m);
+            out.align();
+            out.putInts(outWeights, m);
+            out.align();
+
+            if(directed){
+                out.putInts(inOffsets, n + 1);
+                out.align();
+                out.putInts(inArcs, m);
+                out.align();
+            }
+
+            if(out.position() != layout._checksumAt){
+                throw new IllegalStateException("snapshot layout mismatch");
+            }
+            out.putChecksum();
+        }
+    }
+
+    /**
+     * Opens a snapshot without verifying its checksum.
+     *
+     * @see #open(Path, boolean)
+     */
+    public static SnapshotGraph open(Path file) throws IOException {
+        return open(file, false);
+    }
+
+    /**
+     * Maps a snapshot into memory and returns a read-only graph over it.
+     *
+     * <p>
+     * This runs in O(1) time, or O(file size) if the checksum is verified.
+     * </p>
+     *
+     * @param file
+     *            the snapshot to open
+     * @param verifyChecksum
+     *            whether to read the whole file and check its checksum
+     * @throws IOException
+     *             Thrown when the file cannot be read, is not a snapshot, has
+     *             an unsupported version, is truncated, or fails its checksum.
+     */
+    public static SnapshotGraph open(Path file, boolean verifyChecksum) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            if(channel.size() < HEADER_BYTES){
+                throw new IOException(file + " is too short to be a graph snapshot");
+            }
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if(header.getInt(0) != MAGIC){
+                throw new IOException(file + " is not a graph snapshot");
+            }
+            if(header.getInt(4) != VERSION){
+                throw new IOException(file + " has unsupported snapshot version " + header.getInt(4));
+            }
+            boolean directed = (header.getInt(8) & FLAG_DIRECTED) != 0;
+            int n = header.getInt(12);
+            int m = header.getInt(16);
+            long nameBytes = header.getLong(24);
+            if(n < 0 || m < 0 || nameBytes < 0){
+                throw new IOException(file + " has a corrupt header");
+            }
+            Layout layout = new Layout(n, m, nameBytes, directed);
+            if(channel.size() != layout._checksumAt + 8){
+                throw new IOException(file + " should be " + (layout._checksumAt + 8) + " bytes but is "
+                        + channel.size());
+            }
+            if(verifyChecksum){
+                verifyChecksum(channel, layout._checksumAt, file);
+            }
+
+            return new SnapshotGraph(directed, n, m,
+                    map(channel, layout._nameOffsetsAt, 4L * (n + 1)).asIntBuffer(),
+                    map(channel, layout._namesAt, nameBytes),
+                    map(channel, layout._coordinatesAt, 16L * n).asDoubleBuffer(),
+                    map(channel, layout._outOffsetsAt, 4L * (n + 1)).asIntBuffer(),
+                    map(channel, layout._outTargetsAt, 4L * m).asIntBuffer(),
+                    map(channel, layout._outWeightsAt, 4L * m).asIntBuffer(),
+                    directed ? map(channel, layout._inOffsetsAt, 4L * (n + 1)).asIntBuffer() : null,
+                    directed ? map(channel, layout._inArcsAt, 4L * m).asIntBuffer() : null);
+        }
+    }
+
+    /**
+     * Finds the index in the out arrays of the given edge from source to
+     * target, so that both directions of a directed graph share arcs. Closing
+     * up unused vertex numbers does not move any arc, since their rows are
+     * empty.
+     */
+    private static <V> int outArcOf(CsrGraph<V> csr, int source, int target, CS16Edge<V> edge) {
+        int[] offsets = csr.outOffsets();
+        int[] targets = csr.outTargets();
+        int low = offsets[source];
+        int high = offsets[source + 1];
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(targets[mid] < target){
+                low = mid + 1;
+            }
+            else{
+                high = mid;
+            }
+        }
+        // more than one edge may connect the same pair of vertices
+        while(csr.outEdges()[low] != edge){
+            low++;
+        }
+        return low;
+    }
+
+    private static void verifyChecksum(FileChannel channel, long length, Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        long chunk = 1 << 30;
+        for(long position = 0; position < length; position += chunk){
+            crc.update(map(channel, position, Math.min(chunk, length - position)));
+        }
+        long expected = map(channel, length, 8).getLong(0);
+        if(crc.getValue() != expected){
+            throw new IOException(file + " failed its checksum");
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if(length > Integer.MAX_VALUE){
+            throw new IOException("snapshot section of " + length + " bytes is too large to map");
+        }
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        return buf;
+    }
+
+    /**
+     * Where each section of a snapshot starts.
+     */
+    private static class Layout {
+        private final long _nameOffsetsAt;
+        private final long _namesAt;
+        private final long _coordinatesAt;
+        private final long _outOffsetsAt;
+        private final long _outTargetsAt;
+        private final long _outWeightsAt;
+        private final long _inOffsetsAt;
+        private final long _inArcsAt;
+        private final long _checksumAt;
+
+        private Layout(int n, int m, long nameBytes, boolean directed) {
+            _nameOffsetsAt = HEADER_BYTES;
+            _namesAt = align(_nameOffsetsAt + 4L * (n + 1));
+            _coordinatesAt = align(_namesAt + nameBytes);
+            _outOffsetsAt = _coordinatesAt + 16L * n;
+            _outTargetsAt = align(_outOffsetsAt + 4L * (n + 1));
+            _outWeightsAt = align(_outTargetsAt + 4L * m);
+            long end = align(_outWeightsAt + 4L * m);
+            _inOffsetsAt = directed ? end : -1;
+            _inArcsAt = directed ? align(_inOffsetsAt + 4L * (n + 1)) : -1;
+            _checksumAt = directed ? align(_inArcsAt + 4L * m) : end;
+        }
+
+        private static long align(long position) {
+            return (position + 7) & ~7L;
+        }
+    }
+
+    /**
+     * Writes little-endian values through a buffer, keeping a running
+     * checksum of everything written.
+     */
+    private static class SectionWriter implements AutoCloseable {
+        private final FileChannel _channel;
+        private final ByteBuffer _buf;
+        private final CRC32 _crc;
+        private long _position;
+
+        private SectionWriter(Path file) throws IOException {
+            _channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            _buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            _crc = new CRC32();
+        }
+
+        private long position() {
+            return _position;
+        }
+
+        private void putInt(int value) throws IOException {
+            this.ensure(4);
+            _buf.putInt(value);
+            _position += 4;
+        }
+
+        private void putLong(long value) throws IOException {
+            this.ensure(8);
+            _buf.putLong(value);
+            _position += 8;
+        }
+
+        private void putInts(int[] values, int length) throws IOException {
+            for(int i = 0; i < length; i++){
+                this.putInt(values[i]);
+            }
+        }
+
+        private void putDouble(double value) throws IOException {
+            this.ensure(8);
+            _buf.putDouble(value);
+            _position += 8;
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            for(int i = 0; i < bytes.length; ){
+                this.ensure(1);
+                int length = Math.min(bytes.length - i, _buf.remaining());
+                _buf.put(bytes, i, length);
+                i += length;
+                _position += length;
+            }
+        }
+
+        private void align() throws IOException {
+            while((_position & 7) != 0){
+                this.ensure(1);
+                _buf.put((byte) 0);
+                _position++;
+            }
+        }
+
+        /**
+         * Writes the checksum of everything written so far. It is not
+         * itself part of the checksum.
+         */
+        private void putChecksum() throws IOException {
+            this.flush();
+            _buf.putLong(_crc.getValue());
+            _buf.flip();
+            while(_buf.hasRemaining()){
+                _channel.write(_buf);
+            }
+            _buf.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if(_buf.remaining() < bytes){
+                this.flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            _buf.flip();
+            _crc.update(_buf.duplicate());
+            while(_buf.hasRemaining()){
+                _channel.write(_buf);
+            }
+            _buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _channel.close();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that a graph written with GraphSnapshot comes back the
+ * same when the snapshot is opened as a SnapshotGraph.
+ */
+public class GraphSnapshotTest {
+
+    private Path _file;
+
+    @Before
+    public void setup() throws IOException {
+        _file = Files.createTempFile("graph", ".snapshot");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(_file);
+    }
+
+    /**
+     * Tests names, coordinates and directed adjacency
+     */
+    @Test
+    public void directedRoundTrip() throws IOException {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        graph.insertEdge(A, B, 4);
+        graph.insertEdge(C, B, 5);
+        graph.insertEdge(B, A, 6);
+        MyDecorator<CS16Vertex<String>, double[]> coordinates = new MyDecorator<CS16Vertex<String>, double[]>();
+        coordinates.setDecoration(B, new double[] { 1.5, -2.5 });
+
+        GraphSnapshot.write(graph, coordinates, _file);
+        SnapshotGraph snapshot = GraphSnapshot.open(_file, true);
+
+        assertThat(snapshot.getNumVertices(), is(3));
+        assertThat(snapshot.isDirected(), is(true));
+        CS16Vertex<String> a = snapshot.vertex(0);
+        CS16Vertex<String> b = snapshot.vertex(1);
+        CS16Vertex<String> c = snapshot.vertex(2);
+        assertThat(a.element(), is("A"));
+        assertThat(b.element(), is("B"));
+        assertEquals(1.5, snapshot.getX(1), 0);
+        assertEquals(-2.5, snapshot.getY(1), 0);
+        assertEquals(0, snapshot.getX(0), 0);
+
+        assertThat(snapshot.areAdjacent(a, b), is(true));
+        assertThat(snapshot.areAdjacent(b, c), is(false));
+        assertThat(snapshot.connectingEdge(c, b).element(), is(5));
+        assertThat(snapshot.numOutgoingEdges(b), is(1));
+        assertThat(count(snapshot.incomingEdges(b)), is(2));
+        assertThat(count(snapshot.edges()), is(3));
+        // the edge reached from either end is the same object
+        assertThat(snapshot.incomingEdges(a).next() == snapshot.outgoingEdges(b).next(), is(true));
+    }
+
+    /**
+     * Tests that an undirected edge is returned once and shared by both ends
+     */
+    @Test
+    public void undirectedRoundTrip() throws IOException {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        graph.insertEdge(B, A, 1);
+        graph.insertEdge(B, C, 2);
+
+        GraphSnapshot.write(graph, _file);
+        SnapshotGraph snapshot = GraphSnapshot.open(_file);
+        CS16Vertex<String> a = snapshot.vertex(0);
+        CS16Vertex<String> b = snapshot.vertex(1);
+
+        assertThat(snapshot.isDirected(), is(false));
+        assertThat(count(snapshot.edges()), is(2));
+        assertThat(snapshot.connectingEdge(a, b) == snapshot.connectingEdge(b, a), is(true));
+        assertThat(count(snapshot.outgoingEdges(b)), is(2));
+        assertThat(new MyPrimJarnik<String>().genMinSpanForest(snapshot, null).size(), is(2));
+    }
+
+    /**
+     * Tests that PageRank gives the same ranks on the snapshot
+     */
+    @Test
+    public void pageRankOnSnapshot() throws IOException {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        graph.insertEdge(A, B, null);
+        graph.insertEdge(B, C, null);
+        Map<CS16Vertex<String>, Double> expected = new MyPageRank<String>().calcPageRank(graph);
+
+        GraphSnapshot.write(graph, _file);
+        SnapshotGraph snapshot = GraphSnapshot.open(_file);
+        Map<CS16Vertex<String>, Double> actual = new MyPageRank<String>().calcPageRank(snapshot);
+
+        assertEquals(expected.get(A), actual.get(snapshot.vertex(0)), 1e-9);
+        assertEquals(expected.get(C), actual.get(snapshot.vertex(2)), 1e-9);
+    }
+
+    /**
+     * Tests that a corrupted snapshot fails its checksum
+     */
+    @Test
+    public void detectsCorruption() throws IOException {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        graph.insertEdge(A, graph.insertVertex("B"), 3);
+        GraphSnapshot.write(graph, _file);
+
+        try(RandomAccessFile file = new RandomAccessFile(_file.toFile(), "rw")){
+            file.seek(GraphSnapshot.HEADER_BYTES);
+            file.write(0x7f);
+        }
+        try {
+            GraphSnapshot.open(_file, true);
+            fail("expected an IOException");
+        } catch (IOException e) {
+            assertThat(e.getMessage().contains("checksum"), is(true));
+        }
+    }
+
+    private static int count(Iterator<?> iterator) {
+        int count = 0;
+        while(iterator.hasNext()){
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+}
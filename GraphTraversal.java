@@ -0,0 +1,568 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Breadth-first and depth-first search over a CsrGraph. Results are plain
+ * int arrays indexed by vertex number, with -1 for vertices that were not
+ * reached.
+ *
+ * <p>
+ * Breadth-first search is direction-optimizing. Expanding a level top-down
+ * looks at every arc leaving the frontier, which is wasteful once the
+ * frontier is large and most of those arcs lead to vertices that have already
+ * been reached. The search then switches to bottom-up: every vertex that has
+ * not been reached yet looks through its incoming arcs for one whose source
+ * is in the frontier (kept as a bitset), and stops at the first one. It
+ * switches bottom-up once the arcs leaving the frontier are more than
+ * 1/ALPHA of the arcs leaving unreached vertices, and back to top-down once
+ * the frontier holds fewer than 1/BETA of the vertices. Levels come out the
+ * same either way; parents may differ, but always form a shortest-path tree.
+ * </p>
+ *
+ * <p>
+ * Given more than one thread, each large level is split among them: top-down
+ * levels by frontier vertex, with vertices claimed by compare-and-set, and
+ * bottom-up levels by ranges of vertex numbers, which need no
+ * synchronization at all since each vertex only writes its own entries.
+ * </p>
+ *
+ * Depth-first search runs with an explicit stack, so it does not overflow the
+ * call stack on long paths. Directed graphs are searched along the direction
+ * of their edges.
+ */
+public class GraphTraversal<V> {
+
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+    // levels with fewer frontier arcs than this are expanded on one thread
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    // parallel bottom-up levels hand out ranges of this many vertices, enough
+    // to outweigh the cost of a task; each vertex writes only its own
+    // entries, and the frontier bitset is only read, so ranges need not line
+    // up with anything
+    private static final int CHUNK_VERTICES = 1 << 12;
+
+    private final CsrGraph<V> _csr;
+    // the ranges of the parts of a partition, which parallel bottom-up
+    // levels hand out instead of fixed chunks; null if there is no partition
+    private final int[] _partBounds;
+
+    /**
+     * Creates a traversal engine for a snapshot of g. Later changes to g are
+     * not seen.
+     *
+     * <p>
+     * This runs in O(|V| + |E|log(d)) time.
+     * </p>
+     */
+    public GraphTraversal(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public GraphTraversal(CsrGraph<V> csr) {
+        _csr = csr;
+        _partBounds = null;
+    }
+
+    /**
+     * Creates a traversal engine for the snapshot of a partition, in which
+     * every part is a range of vertex numbers. Parallel bottom-up levels
+     * hand out one part at a time, so the in-arcs a thread reads mostly come
+     * from its own part. Vertices are numbered as in the snapshot, and
+     * partition.relabeling() maps them back.
+     */
+    public GraphTraversal(GraphPartitioner.Partition<V> partition) {
+        _csr = partition.snapshot();
+        _partBounds = partition.bounds();
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Searches breadth-first from source on the calling thread.
+     *
+     * <p>
+     * This runs in O(|V| + |E|) time.
+     * </p>
+     */
+    public BfsTree<V> bfs(CS16Vertex<V> source) {
+        return this.bfs(source, 1, PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Searches breadth-first from source, splitting large levels among the
+     * given number of threads.
+     */
+    public BfsTree<V> bfs(CS16Vertex<V> source, int threads) {
+        return this.bfs(source, threads, PARALLEL_THRESHOLD);
+    }
+
+    BfsTree<V> bfs(CS16Vertex<V> source, int threads, int parallelThreshold) {
+        return Parallel.withPool("graph-traversal", threads, "searching breadth-first",
+                pool -> new Bfs(_csr.numberOf(source), pool, parallelThreshold).search(threads));
+    }
+
+    /**
+     * Returns whether there is a path from one vertex to another.
+     */
+    public boolean isReachable(CS16Vertex<V> from, CS16Vertex<V> to) {
+        int target = _csr.numberOf(to);
+        return this.bfs(from).levels()[target] >= 0;
+    }
+
+    /**
+     * Searches depth-first from source, visiting the outgoing edges of each
+     * vertex in increasing order of their targets.
+     *
+     * <p>
+     * This runs in O(|V| + |E|) time.
+     * </p>
+     */
+    public DfsForest<V> dfs(CS16Vertex<V> source) {
+        DfsForest<V> forest = new DfsForest<V>(_csr);
+        forest.search(_csr.numberOf(source));
+        return forest;
+    }
+
+    /**
+     * Searches depth-first from every vertex not reached yet, in increasing
+     * order of vertex number, so that every vertex ends up in the forest.
+     */
+    public DfsForest<V> dfs() {
+        DfsForest<V> forest = new DfsForest<V>(_csr);
+        for(int v = 0; v < _csr.size(); v++){
+            if(_csr.hasVertex(v) && forest._discovery[v] < 0){
+                forest.search(v);
+            }
+        }
+        return forest;
+    }
+
+    /**
+     * The state of one breadth-first search.
+     */
+    private class Bfs {
+        private final int _source;
+        private final ExecutorService _pool;
+        private final int _parallelThreshold;
+        private final int[] _levels;
+        private final int[] _parents;
+        // which vertices have been reached, when levels are split among
+        // threads; null otherwise
+        private final AtomicIntegerArray _claimed;
+        private final int[] _order;
+        private int _numReached;
+        private long[] _frontierBits;
+        private int _bottomUpLevels;
+
+        private Bfs(int source, ExecutorService pool, int parallelThreshold) {
+            int size = _csr.size();
+            _source = source;
+            _pool = pool;
+            _parallelThreshold = parallelThreshold;
+            _levels = new int[size];
+            _parents = new int[size];
+            _claimed = (pool == null) ? null : new AtomicIntegerArray(size);
+            _order = new int[_csr.getNumVertices()];
+            Arrays.fill(_levels, -1);
+            Arrays.fill(_parents, -1);
+        }
+
+        private BfsTree<V> search(int threads) throws InterruptedException, ExecutionException {
+            _levels[_source] = 0;
+            _parents[_source] = _source;
+            if(_claimed != null){
+                _claimed.set(_source, 1);
+            }
+            _order[_numReached++] = _source;
+
+            int n = _csr.getNumVertices();
+            long frontierArcs = _csr.outDegree(_source);
+            long unexploredArcs = _csr.getNumArcs() - frontierArcs;
+            int frontierStart = 0;
+            int frontierEnd = 1;
+            boolean bottomUp = false;
+            int level = 0;
+            while(frontierStart < frontierEnd){
+                int frontierSize = frontierEnd - frontierStart;
+                if(!bottomUp && frontierArcs > unexploredArcs / ALPHA){
+                    bottomUp = true;
+                }
+                else if(bottomUp && frontierSize < n / BETA){
+                    bottomUp = false;
+                }
+                level++;
+                boolean parallel = _pool != null && frontierArcs >= _parallelThreshold;
+                if(bottomUp){
+                    this.fillFrontierBits(frontierStart, frontierEnd);
+                    _bottomUpLevels++;
+                    if(parallel){
+                        this.parallelBottomUp(level);
+                    }
+                    else{
+                        this.append(this.bottomUp(level, 0, _csr.size()));
+                    }
+                }
+                else{
+                    if(parallel){
+                        this.parallelTopDown(level, frontierStart, frontierEnd, threads);
+                    }
+                    else{
+                        this.append(this.topDown(level, frontierStart, frontierEnd));
+                    }
+                }
+
+                frontierStart = frontierEnd;
+                frontierEnd = _numReached;
+                frontierArcs = 0;
+                for(int i = frontierStart; i < frontierEnd; i++){
+                    frontierArcs += _csr.outDegree(_order[i]);
+                }
+                unexploredArcs -= frontierArcs;
+            }
+            return new BfsTree<V>(_csr, _source, _levels, _parents, Arrays.copyOf(_order, _numReached), level,
+                    _bottomUpLevels);
+        }
+
+        /**
+         * Expands the frontier vertices _order[from, to) along their outgoing
+         * arcs, returning the vertices reached.
+         */
+        private IntList topDown(int level, int from, int to) {
+            int[] offsets = _csr.outOffsets();
+            int[] targets = _csr.outTargets();
+            IntList reached = new IntList();
+            for(int i = from; i < to; i++){
+                int u = _order[i];
+                for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                    int t = targets[arc];
+                    if(this.claim(t)){
+                        _levels[t] = level;
+                        _parents[t] = u;
+                        reached.add(t);
+                    }
+                }
+            }
+            return reached;
+        }
+
+        /**
+         * Looks for a parent in the frontier for every unreached vertex in
+         * [from, to), returning the vertices reached.
+         */
+        private IntList bottomUp(int level, int from, int to) {
+            int[] offsets = _csr.inOffsets();
+            int[] sources = _csr.inSources();
+            long[] frontier = _frontierBits;
+            IntList reached = new IntList();
+            for(int v = from; v < to; v++){
+                if(_levels[v] >= 0 || !_csr.hasVertex(v)){
+                    continue;
+                }
+                for(int arc = offsets[v]; arc < offsets[v + 1]; arc++){
+                    int u = sources[arc];
+                    if((frontier[u >>> 6] & (1L << u)) != 0){
+                        _levels[v] = level;
+                        _parents[v] = u;
+                        if(_claimed != null){
+                            _claimed.set(v, 1);
+                        }
+                        reached.add(v);
+                        break;
+                    }
+                }
+            }
+            return reached;
+        }
+
+        private boolean claim(int v) {
+            if(_claimed == null){
+                return _levels[v] < 0;
+            }
+            return _claimed.get(v) == 0 && _claimed.compareAndSet(v, 0, 1);
+        }
+
+        private void parallelTopDown(int level, int frontierStart, int frontierEnd, int threads)
+                throws InterruptedException, ExecutionException {
+            int[] bounds = Parallel.evenBounds(frontierStart, frontierEnd, Parallel.numRanges(threads));
+            this.appendAll(Parallel.eachRange(_pool, bounds, (from, to) -> this.topDown(level, from, to)));
+        }
+
+        private void parallelBottomUp(int level) throws InterruptedException, ExecutionException {
+            int size = _csr.size();
+            int[] bounds = (_partBounds != null) ? _partBounds
+                    : Parallel.evenBounds(0, size, (size + CHUNK_VERTICES - 1) / CHUNK_VERTICES);
+            this.appendAll(Parallel.eachRange(_pool, bounds, (from, to) -> this.bottomUp(level, from, to)));
+        }
+
+        private void appendAll(List<IntList> results) {
+            for(IntList result : results){
+                this.append(result);
+            }
+        }
+
+        private void append(IntList reached) {
+            for(int i = 0; i < reached.size(); i++){
+                _order[_numReached++] = reached.get(i);
+            }
+        }
+
+        private void fillFrontierBits(int from, int to) {
+            int words = (_csr.size() + 63) >>> 6;
+            if(_frontierBits == null){
+                _frontierBits = new long[words];
+            }
+            else{
+                Arrays.fill(_frontierBits, 0);
+            }
+            for(int i = from; i < to; i++){
+                int u = _order[i];
+                _frontierBits[u >>> 6] |= 1L << u;
+            }
+        }
+    }
+
+    /**
+     * The result of a breadth-first search: the level (number of edges from
+     * the source) and the parent in a shortest-path tree of every vertex.
+     */
+    public static class BfsTree<V> {
+        private final CsrGraph<V> _csr;
+        private final int _source;
+        private final int[] _levels;
+        private final int[] _parents;
+        private final int[] _order;
+        private final int _numLevels;
+        private final int _bottomUpLevels;
+
+        private BfsTree(CsrGraph<V> csr, int source, int[] levels, int[] parents, int[] order, int numLevels,
+                int bottomUpLevels) {
+            _csr = csr;
+            _source = source;
+            _levels = levels;
+            _parents = parents;
+            _order = order;
+            _numLevels = numLevels;
+            _bottomUpLevels = bottomUpLevels;
+        }
+
+        /**
+         * Returns the level of every vertex, indexed by vertex number, or -1
+         * for vertices that were not reached. The array is not copied.
+         */
+        public int[] levels() {
+            return _levels;
+        }
+
+        /**
+         * Returns the parent of every vertex, indexed by vertex number. The
+         * source is its own parent, and vertices that were not reached have
+         * -1. The array is not copied.
+         */
+        public int[] parents() {
+            return _parents;
+        }
+
+        /**
+         * Returns the numbers of the reached vertices in the order they were
+         * reached, level by level.
+         */
+        public int[] order() {
+            return _order;
+        }
+
+        public CS16Vertex<V> getSource() {
+            return _csr.vertex(_source);
+        }
+
+        public boolean isReached(CS16Vertex<V> vertex) {
+            return _levels[vertex.getVertexNumber()] >= 0;
+        }
+
+        public int level(CS16Vertex<V> vertex) {
+            return _levels[vertex.getVertexNumber()];
+        }
+
+        /**
+         * Returns the parent of vertex, or null for the source and for
+         * vertices that were not reached.
+         */
+        public CS16Vertex<V> parent(CS16Vertex<V> vertex) {
+            int v = vertex.getVertexNumber();
+            return (_parents[v] < 0 || v == _source) ? null : _csr.vertex(_parents[v]);
+        }
+
+        /**
+         * Returns the vertices of a shortest path from the source to vertex,
+         * or an empty list if it was not reached.
+         */
+        public List<CS16Vertex<V>> pathTo(CS16Vertex<V> vertex) {
+            int v = vertex.getVertexNumber();
+            if(_levels[v] < 0){
+                return Collections.emptyList();
+            }
+            List<CS16Vertex<V>> path = new ArrayList<CS16Vertex<V>>(_levels[v] + 1);
+            for(; v != _source; v = _parents[v]){
+                path.add(_csr.vertex(v));
+            }
+            path.add(_csr.vertex(_source));
+            Collections.reverse(path);
+            return path;
+        }
+
+        public int getNumReached() {
+            return _order.length;
+        }
+
+        /**
+         * Returns the number of levels that were expanded, including a last
+         * one that reached nothing.
+         */
+        public int getNumLevels() {
+            return _numLevels;
+        }
+
+        /**
+         * Returns how many of the levels were expanded bottom-up.
+         */
+        public int getBottomUpLevels() {
+            return _bottomUpLevels;
+        }
+    }
+
+    /**
+     * The result of a depth-first search: parents, preorder and postorder,
+     * and the discovery and finish time of every vertex, all indexed by
+     * vertex number.
+     */
+    public static class DfsForest<V> {
+        private final CsrGraph<V> _csr;
+        private final int[] _parents;
+        private final int[] _discovery;
+        private final int[] _finish;
+        private final IntList _preorder;
+        private final IntList _postorder;
+        // the next arc to follow out of each vertex on the stack, set when
+        // the vertex is discovered; shared by every tree of the forest
+        private final int[] _nextArc;
+        private final IntList _stack;
+        private int _time;
+
+        private DfsForest(CsrGraph<V> csr) {
+            _csr = csr;
+            _parents = new int[csr.size()];
+            _discovery = new int[csr.size()];
+            _finish = new int[csr.size()];
+            _preorder = new IntList(csr.getNumVertices());
+            _postorder = new IntList(csr.getNumVertices());
+            _nextArc = new int[csr.size()];
+            _stack = new IntList();
+            Arrays.fill(_parents, -1);
+            Arrays.fill(_discovery, -1);
+            Arrays.fill(_finish, -1);
+        }
+
+        /**
+         * Adds the tree of everything reachable from root that is not in the
+         * forest yet.
+         */
+        private void search(int root) {
+            int[] offsets = _csr.outOffsets();
+            int[] targets = _csr.outTargets();
+            int[] nextArc = _nextArc;
+            IntList stack = _stack;
+
+            _parents[root] = root;
+            this.discover(root, offsets, nextArc);
+            stack.add(root);
+            while(!stack.isEmpty()){
+                int v = stack.peek();
+                if(nextArc[v] < offsets[v + 1]){
+                    int t = targets[nextArc[v]++];
+                    if(_discovery[t] < 0){
+                        _parents[t] = v;
+                        this.discover(t, offsets, nextArc);
+                        stack.add(t);
+                    }
+                }
+                else{
+                    stack.pop();
+                    _finish[v] = _time++;
+                    _postorder.add(v);
+                }
+            }
+        }
+
+        private void discover(int v, int[] offsets, int[] nextArc) {
+            _discovery[v] = _time++;
+            _preorder.add(v);
+            nextArc[v] = offsets[v];
+        }
+
+        /**
+         * Returns the parent of every vertex, indexed by vertex number. Roots
+         * are their own parents, and vertices that were not reached have -1.
+         * The array is not copied.
+         */
+        public int[] parents() {
+            return _parents;
+        }
+
+        /**
+         * Returns the time each vertex was first reached, or -1. Times count
+         * discoveries and finishes together, so v is a descendant of u
+         * exactly when discovery[u] <= discovery[v] and finish[v] <=
+         * finish[u]. The array is not copied.
+         */
+        public int[] discovery() {
+            return _discovery;
+        }
+
+        /**
+         * Returns the time each vertex was finished with, or -1. The array is
+         * not copied.
+         */
+        public int[] finish() {
+            return _finish;
+        }
+
+        public int[] preorder() {
+            return _preorder.toArray();
+        }
+
+        public int[] postorder() {
+            return _postorder.toArray();
+        }
+
+        public boolean isReached(CS16Vertex<V> vertex) {
+            return _discovery[vertex.getVertexNumber()] >= 0;
+        }
+
+        /**
+         * Returns whether descendant is in the subtree of ancestor (a vertex
+         * counts as its own descendant).
+         */
+        public boolean isDescendant(CS16Vertex<V> descendant, CS16Vertex<V> ancestor) {
+            int u = ancestor.getVertexNumber();
+            int v = descendant.getVertexNumber();
+            return _discovery[u] >= 0 && _discovery[v] >= 0 && _discovery[u] <= _discovery[v]
+                    && _finish[v] <= _finish[u];
+        }
+
+        public int getNumReached() {
+            return _preorder.size();
+        }
+    }
+}
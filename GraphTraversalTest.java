@@ -0,0 +1,195 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests breadth-first and depth-first search in GraphTraversal.
+ */
+public class GraphTraversalTest {
+
+    /**
+     * Tests levels, parents and paths on a small directed graph
+     */
+    @Test
+    public void bfsOnSmallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        CS16Vertex<String> E = graph.insertVertex("E");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(B, C, 1);
+        graph.insertEdge(A, D, 1);
+        graph.insertEdge(D, C, 1);
+        graph.insertEdge(E, A, 1);
+
+        GraphTraversal<String> traversal = new GraphTraversal<String>(graph);
+        GraphTraversal.BfsTree<String> tree = traversal.bfs(A);
+
+        assertThat(tree.level(A), is(0));
+        assertThat(tree.level(C), is(2));
+        assertThat(tree.isReached(E), is(false));
+        assertThat(tree.getNumReached(), is(4));
+        assertThat(tree.parent(A) == null, is(true));
+        assertThat(tree.pathTo(C).size(), is(3));
+        assertThat(tree.pathTo(C).get(0), is(A));
+        assertThat(tree.pathTo(E).isEmpty(), is(true));
+        assertThat(traversal.isReachable(E, C), is(true));
+        assertThat(traversal.isReachable(C, A), is(false));
+    }
+
+    /**
+     * Tests that direction-optimizing search, on one thread and on several,
+     * gives the levels of a plain search over the Graph iterators, with
+     * parents that form a shortest-path tree
+     */
+    @Test
+    public void directionOptimizingMatchesPlainSearch() {
+        for(boolean directed : new boolean[] { true, false }){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(directed);
+            List<CS16Vertex<Integer>> vertices = randomGraph(graph, 90, 1500, new Random(33));
+            GraphTraversal<Integer> traversal = new GraphTraversal<Integer>(graph);
+            CsrGraph<Integer> csr = traversal.getCsrGraph();
+
+            for(int s = 0; s < 5; s++){
+                int[] expected = plainLevels(graph, vertices.get(s));
+                GraphTraversal.BfsTree<Integer> serial = traversal.bfs(vertices.get(s));
+                GraphTraversal.BfsTree<Integer> parallel = traversal.bfs(vertices.get(s), 4, 0);
+
+                assertTrue(serial.getBottomUpLevels() > 0);
+                assertArrayEquals(expected, serial.levels());
+                assertArrayEquals(expected, parallel.levels());
+                checkParents(csr, serial);
+                checkParents(csr, parallel);
+                assertThat(parallel.getNumReached(), is(serial.getNumReached()));
+            }
+        }
+    }
+
+    /**
+     * Tests preorder, postorder and the parenthesis structure of a depth-first
+     * forest
+     */
+    @Test
+    public void dfsForest() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        CS16Vertex<String> E = graph.insertVertex("E");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(B, C, 1);
+        graph.insertEdge(C, A, 1);
+        graph.insertEdge(A, D, 1);
+        graph.insertEdge(E, D, 1);
+
+        GraphTraversal<String> traversal = new GraphTraversal<String>(graph);
+        GraphTraversal.DfsForest<String> fromA = traversal.dfs(A);
+        int a = A.getVertexNumber();
+        int b = B.getVertexNumber();
+        int c = C.getVertexNumber();
+        int d = D.getVertexNumber();
+        int e = E.getVertexNumber();
+
+        assertArrayEquals(new int[] { a, b, c, d }, fromA.preorder());
+        assertArrayEquals(new int[] { c, b, d, a }, fromA.postorder());
+        assertThat(fromA.isReached(E), is(false));
+        assertThat(fromA.isDescendant(C, B), is(true));
+        assertThat(fromA.isDescendant(D, B), is(false));
+        assertThat(fromA.parents()[c], is(b));
+
+        GraphTraversal.DfsForest<String> all = traversal.dfs();
+        assertThat(all.getNumReached(), is(5));
+        assertThat(all.parents()[e], is(e));
+    }
+
+    /**
+     * Tests that a long path does not overflow the stack
+     */
+    @Test
+    public void dfsOnLongPath() {
+        Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(false);
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < 90; i++){
+            vertices.add(graph.insertVertex(i));
+            if(i > 0){
+                graph.insertEdge(vertices.get(i - 1), vertices.get(i), 1);
+            }
+        }
+        GraphTraversal<Integer> traversal = new GraphTraversal<Integer>(graph);
+        GraphTraversal.DfsForest<Integer> forest = traversal.dfs(vertices.get(45));
+        assertThat(forest.getNumReached(), is(90));
+        assertThat(forest.isDescendant(vertices.get(89), vertices.get(46)), is(true));
+        assertThat(traversal.bfs(vertices.get(0)).level(vertices.get(89)), is(89));
+    }
+
+    private static List<CS16Vertex<Integer>> randomGraph(Graph<Integer> graph, int size, int edges, Random random) {
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < size; i++){
+            vertices.add(graph.insertVertex(i));
+        }
+        for(int i = 0; i < edges; i++){
+            CS16Vertex<Integer> from = vertices.get(random.nextInt(size));
+            CS16Vertex<Integer> to = vertices.get(random.nextInt(size));
+            if(from != to && !graph.areAdjacent(from, to)){
+                graph.insertEdge(from, to, 1);
+            }
+        }
+        return vertices;
+    }
+
+    private static int[] plainLevels(Graph<Integer> graph, CS16Vertex<Integer> source) {
+        int[] levels = new int[CsrGraph.of(graph).size()];
+        Arrays.fill(levels, -1);
+        levels[source.getVertexNumber()] = 0;
+        Queue<CS16Vertex<Integer>> queue = new LinkedList<CS16Vertex<Integer>>();
+        queue.add(source);
+        while(!queue.isEmpty()){
+            CS16Vertex<Integer> u = queue.poll();
+            Iterator<CS16Edge<Integer>> edges = graph.outgoingEdges(u);
+            while(edges.hasNext()){
+                CS16Vertex<Integer> t = graph.opposite(u, edges.next());
+                if(levels[t.getVertexNumber()] < 0){
+                    levels[t.getVertexNumber()] = levels[u.getVertexNumber()] + 1;
+                    queue.add(t);
+                }
+            }
+        }
+        return levels;
+    }
+
+    private static void checkParents(CsrGraph<Integer> csr, GraphTraversal.BfsTree<Integer> tree) {
+        int[] levels = tree.levels();
+        int[] parents = tree.parents();
+        for(int v = 0; v < levels.length; v++){
+            if(levels[v] > 0){
+                int parent = parents[v];
+                assertThat(levels[parent], is(levels[v] - 1));
+                boolean arc = false;
+                for(int i = csr.outOffsets()[parent]; i < csr.outOffsets()[parent + 1]; i++){
+                    arc |= csr.outTargets()[i] == v;
+                }
+                assertTrue(arc);
+            }
+        }
+    }
+}
@@ -0,0 +1,543 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+import support.graph.InvalidEdgeException;
+import support.graph.InvalidVertexException;
+
+/**
+ * This class keeps the minimum spanning forest of an undirected Graph up to
+ * date while edges and vertices are inserted and removed, so that callers do
+ * not have to run MyPrimJarnik from scratch after every edit.
+ *
+ * <p>
+ * The forest is stored in a link-cut tree in which every forest edge is a
+ * node of its own, carrying its weight, between the nodes of its two end
+ * vertices. This lets us answer "are u and v connected?" and "what is the
+ * heaviest forest edge on the path from u to v?" in O(log|V|) amortized time.
+ * </p>
+ *
+ * <p>
+ * Inserting an edge (u, v) either links two trees together, or closes a cycle,
+ * in which case the heaviest edge on that cycle is dropped from the forest.
+ * Removing an edge that is not in the forest is O(1). Removing a forest edge
+ * splits a tree in two; we then search the smaller of the two halves for the
+ * lightest edge that reconnects them.
+ * </p>
+ *
+ * <p>
+ * That search is a heuristic, which is what the name warns of. It costs time
+ * proportional to the vertices of the smaller half and the edges incident on
+ * them, which is O(|V| + |E|) in the worst case: a tree cut near its middle,
+ * with many non-forest edges on either side, is searched in full, again and
+ * again if such deletions repeat. It is cheap when deletions mostly cut small
+ * pieces off large trees. The level structure of Holm, de Lichtenberg and
+ * Thorup, which bounds deletions to polylogarithmic amortized time, is not
+ * implemented here.
+ * </p>
+ *
+ * All edits should go through this class rather than through the Graph
+ * directly, otherwise the forest will be out of date.
+ */
+public class HeuristicDynamicMinSpanForest<V> {
+
+    private Graph<V> _g;
+    // link-cut tree node for every vertex, and for every edge in the forest
+    private MyDecorator<CS16Vertex<V>, Node> _vertexNode;
+    private MyDecorator<CS16Edge<V>, Node> _edgeNode;
+    // forest and non-forest edges incident on each vertex
+    private MyDecorator<CS16Vertex<V>, Set<CS16Edge<V>>> _forestEdges;
+    private MyDecorator<CS16Vertex<V>, Set<CS16Edge<V>>> _otherEdges;
+    private Set<CS16Edge<V>> _forest;
+    private long _forestWeight;
+
+    /**
+     * Builds the initial forest of the given undirected graph with
+     * MyPrimJarnik, and records the remaining edges as replacement
+     * candidates.
+     *
+     * <p>
+     * This runs in O((|E| + |V|)log(|V|)) time, just like MyPrimJarnik.
+     * </p>
+     *
+     * @param g
+     *            the undirected graph whose forest will be maintained
+     */
+    public HeuristicDynamicMinSpanForest(Graph<V> g) {
+        _g = g;
+        _vertexNode = new MyDecorator<CS16Vertex<V>, Node>();
+        _edgeNode = new MyDecorator<CS16Edge<V>, Node>();
+        _forestEdges = new MyDecorator<CS16Vertex<V>, Set<CS16Edge<V>>>();
+        _otherEdges = new MyDecorator<CS16Vertex<V>, Set<CS16Edge<V>>>();
+        _forest = new HashSet<CS16Edge<V>>();
+        _forestWeight = 0;
+
+        Iterator<CS16Vertex<V>> vertices = g.vertices();
+        while(vertices.hasNext()){
+            this.addVertexNode(vertices.next());
+        }
+
+        Collection<CS16Edge<V>> initialForest = new MyPrimJarnik<V>().genMinSpanForest(g, null);
+        for(CS16Edge<V> edge : initialForest){
+            this.link(edge);
+        }
+        Iterator<CS16Edge<V>> edges = g.edges();
+        while(edges.hasNext()){
+            CS16Edge<V> edge = edges.next();
+            if(!_forest.contains(edge)){
+                this.addOtherEdge(edge);
+            }
+        }
+    }
+
+    /**
+     * Inserts a new vertex into the graph. It starts out as a tree of its own.
+     *
+     * <p>
+     * This runs in O(1) time, plus the cost of Graph.insertVertex.
+     * </p>
+     *
+     * @param element
+     *            the element of the new vertex
+     * @return the newly inserted vertex
+     */
+    public CS16Vertex<V> insertVertex(V element) {
+        CS16Vertex<V> vertex = _g.insertVertex(element);
+        this.addVertexNode(vertex);
+        return vertex;
+    }
+
+    /**
+     * Inserts a weighted edge into the graph and updates the forest. If v1 and
+     * v2 were in different trees the edge joins them; otherwise the edge
+     * replaces the heaviest forest edge on the path between v1 and v2 if it is
+     * lighter than it.
+     *
+     * <p>
+     * This runs in O(log|V|) amortized time, plus the cost of Graph.insertEdge.
+     * </p>
+     *
+     * @param v1
+     *            the first end vertex
+     * @param v2
+     *            the second end vertex
+     * @param weight
+     *            the weight of the edge
+     * @return the newly inserted edge
+     * @throws InvalidVertexException
+     *             Thrown when either vertex is null.
+     * @throws InvalidEdgeException
+     *             Thrown when the weight is null.
+     */
+    public CS16Edge<V> insertEdge(CS16Vertex<V> v1, CS16Vertex<V> v2, Integer weight)
+            throws InvalidVertexException, InvalidEdgeException {
+        if(v1 == null || v2 == null){
+            throw new InvalidVertexException("vertex is null");
+        }
+        if(weight == null){
+            throw new InvalidEdgeException("edge weight is null");
+        }
+        CS16Edge<V> edge = _g.insertEdge(v1, v2, weight);
+        Node n1 = _vertexNode.getDecoration(v1);
+        Node n2 = _vertexNode.getDecoration(v2);
+
+        if(v1 == v2){
+            this.addOtherEdge(edge);
+        }
+        else if(findRoot(n1) != findRoot(n2)){
+            this.link(edge);
+        }
+        else{
+            Node heaviest = pathMax(n1, n2);
+            if(weight < heaviest._weight){
+                CS16Edge<V> replaced = heaviest._edge;
+                this.cut(replaced);
+                this.addOtherEdge(replaced);
+                this.link(edge);
+            }
+            else{
+                this.addOtherEdge(edge);
+            }
+        }
+        return edge;
+    }
+
+    /**
+     * Removes an edge from the graph and updates the forest. If the edge was
+     * a forest edge, the lightest edge reconnecting the two halves of its tree
+     * (if any) takes its place.
+     *
+     * <p>
+     * This runs in O(1) time for a non-forest edge. For a forest edge it runs
+     * in O(log|V|) amortized time plus time proportional to the vertices and
+     * incident edges of the smaller half of the split tree, which is
+     * O(|V| + |E|) in the worst case.
+     * </p>
+     *
+     * @param edge
+     *            the edge to remove
+     * @return the element of the removed edge
+     * @throws InvalidEdgeException
+     *             Thrown when the edge is null or not in the graph.
+     */
+    public Integer removeEdge(CS16Edge<V> edge) throws InvalidEdgeException {
+        if(edge == null){
+            throw new InvalidEdgeException("null edge");
+        }
+        if(!_forest.contains(edge)){
+            Set<CS16Edge<V>> others = _otherEdges.getDecoration(edge.getVertexOne());
+            if(others == null || !others.contains(edge)){
+                throw new InvalidEdgeException("edge is not in the graph");
+            }
+            Integer element = _g.removeEdge(edge);
+            this.removeOtherEdge(edge);
+            return element;
+        }
+
+        CS16Vertex<V> v1 = edge.getVertexOne();
+        CS16Vertex<V> v2 = edge.getVertexTwo();
+        this.cut(edge);
+        Integer element = _g.removeEdge(edge);
+
+        Set<CS16Vertex<V>> smallerHalf = this.smallerHalf(v1, v2);
+        CS16Edge<V> replacement = null;
+        for(CS16Vertex<V> vertex : smallerHalf){
+            for(CS16Edge<V> candidate : _otherEdges.getDecoration(vertex)){
+                if(smallerHalf.contains(_g.opposite(vertex, candidate))){
+                    continue;
+                }
+                if(replacement == null || candidate.element() < replacement.element()){
+                    replacement = candidate;
+                }
+            }
+        }
+        if(replacement != null){
+            this.removeOtherEdge(replacement);
+            this.link(replacement);
+        }
+        return element;
+    }
+
+    /**
+     * Removes a vertex and all of its incident edges from the graph, updating
+     * the forest as each edge goes away.
+     *
+     * @param vertex
+     *            the vertex to remove
+     * @return the element of the removed vertex
+     * @throws InvalidVertexException
+     *             Thrown when the vertex is null.
+     */
+    public V removeVertex(CS16Vertex<V> vertex) throws InvalidVertexException {
+        if(vertex == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        // non-forest edges first, so that forest edges do not go looking
+        // for replacements that are about to disappear anyway
+        for(CS16Edge<V> edge : new ArrayList<CS16Edge<V>>(_otherEdges.getDecoration(vertex))){
+            this.removeEdge(edge);
+        }
+        for(CS16Edge<V> edge : new ArrayList<CS16Edge<V>>(_forestEdges.getDecoration(vertex))){
+            this.removeEdge(edge);
+        }
+        _vertexNode.removeDecoration(vertex);
+        _forestEdges.removeDecoration(vertex);
+        _otherEdges.removeDecoration(vertex);
+        return _g.removeVertex(vertex);
+    }
+
+    /**
+     * Returns true if the two vertices are in the same tree of the forest.
+     *
+     * <p>
+     * This runs in O(log|V|) amortized time.
+     * </p>
+     */
+    public boolean connected(CS16Vertex<V> v1, CS16Vertex<V> v2) throws InvalidVertexException {
+        if(v1 == null || v2 == null){
+            throw new InvalidVertexException("vertex is null");
+        }
+        return findRoot(_vertexNode.getDecoration(v1)) == findRoot(_vertexNode.getDecoration(v2));
+    }
+
+    /**
+     * Returns the edges of the current minimum spanning forest.
+     *
+     * <p>
+     * This runs in O(|V|) time, since the edges are copied.
+     * </p>
+     */
+    public Collection<CS16Edge<V>> minSpanForest() {
+        return new ArrayList<CS16Edge<V>>(_forest);
+    }
+
+    /**
+     * Returns true if the given edge is currently in the forest.
+     */
+    public boolean inForest(CS16Edge<V> edge) {
+        return _forest.contains(edge);
+    }
+
+    /**
+     * Returns the total weight of the current forest in O(1) time.
+     */
+    public long forestWeight() {
+        return _forestWeight;
+    }
+
+    /**
+     * Returns the graph whose forest is being maintained.
+     */
+    public Graph<V> getGraph() {
+        return _g;
+    }
+
+    private void addVertexNode(CS16Vertex<V> vertex) {
+        _vertexNode.setDecoration(vertex, new Node(null, Integer.MIN_VALUE));
+        _forestEdges.setDecoration(vertex, new HashSet<CS16Edge<V>>());
+        _otherEdges.setDecoration(vertex, new HashSet<CS16Edge<V>>());
+    }
+
+    private void addOtherEdge(CS16Edge<V> edge) {
+        _otherEdges.getDecoration(edge.getVertexOne()).add(edge);
+        _otherEdges.getDecoration(edge.getVertexTwo()).add(edge);
+    }
+
+    private void removeOtherEdge(CS16Edge<V> edge) {
+        _otherEdges.getDecoration(edge.getVertexOne()).remove(edge);
+        _otherEdges.getDecoration(edge.getVertexTwo()).remove(edge);
+    }
+
+    /**
+     * Adds an edge to the forest: its node is linked between the nodes of its
+     * two end vertices.
+     */
+    private void link(CS16Edge<V> edge) {
+        Node edgeNode = new Node(edge, edge.element());
+        _edgeNode.setDecoration(edge, edgeNode);
+        link(_vertexNode.getDecoration(edge.getVertexOne()), edgeNode);
+        link(edgeNode, _vertexNode.getDecoration(edge.getVertexTwo()));
+        _forestEdges.getDecoration(edge.getVertexOne()).add(edge);
+        _forestEdges.getDecoration(edge.getVertexTwo()).add(edge);
+        _forest.add(edge);
+        _forestWeight += edge.element();
+    }
+
+    /**
+     * Removes an edge from the forest, splitting its tree in two.
+     */
+    private void cut(CS16Edge<V> edge) {
+        Node edgeNode = _edgeNode.removeDecoration(edge);
+        cut(_vertexNode.getDecoration(edge.getVertexOne()), edgeNode);
+        cut(edgeNode, _vertexNode.getDecoration(edge.getVertexTwo()));
+        _forestEdges.getDecoration(edge.getVertexOne()).remove(edge);
+        _forestEdges.getDecoration(edge.getVertexTwo()).remove(edge);
+        _forest.remove(edge);
+        _forestWeight -= edge.element();
+    }
+
+    /**
+     * Walks the trees of v1 and v2 in lockstep, one vertex at a time, and
+     * returns the vertices of whichever tree is exhausted first. This costs
+     * O(min(|T1|, |T2|)) rather than O(|T1| + |T2|).
+     */
+    private Set<CS16Vertex<V>> smallerHalf(CS16Vertex<V> v1, CS16Vertex<V> v2) {
+        ArrayDeque<CS16Vertex<V>> queue1 = new ArrayDeque<CS16Vertex<V>>();
+        ArrayDeque<CS16Vertex<V>> queue2 = new ArrayDeque<CS16Vertex<V>>();
+        Set<CS16Vertex<V>> seen1 = new HashSet<CS16Vertex<V>>();
+        Set<CS16Vertex<V>> seen2 = new HashSet<CS16Vertex<V>>();
+        queue1.add(v1);
+        seen1.add(v1);
+        queue2.add(v2);
+        seen2.add(v2);
+        while(true){
+            if(!this.visitNext(queue1, seen1)){
+                return seen1;
+            }
+            if(!this.visitNext(queue2, seen2)){
+                return seen2;
+            }
+        }
+    }
+
+    private boolean visitNext(ArrayDeque<CS16Vertex<V>> queue, Set<CS16Vertex<V>> seen) {
+        if(queue.isEmpty()){
+            return false;
+        }
+        CS16Vertex<V> vertex = queue.poll();
+        for(CS16Edge<V> edge : _forestEdges.getDecoration(vertex)){
+            CS16Vertex<V> next = _g.opposite(vertex, edge);
+            if(seen.add(next)){
+                queue.add(next);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Link-cut tree over Nodes. Each preferred path is stored in a splay tree
+     * keyed by depth, and every splay tree node tracks the heaviest node in its
+     * subtree so that path maximums can be read off after an access.
+     */
+
+    private class Node {
+        private Node _left;
+        private Node _right;
+        private Node _parent;
+        private boolean _reversed;
+        private Node _max;
+        private final CS16Edge<V> _edge;
+        private final int _weight;
+
+        private Node(CS16Edge<V> edge, int weight) {
+            _edge = edge;
+            _weight = weight;
+            _max = this;
+        }
+
+        private boolean isSplayRoot() {
+            return _parent == null || (_parent._left != this && _parent._right != this);
+        }
+
+        private void pushDown() {
+            if(_reversed){
+                Node temp = _left;
+                _left = _right;
+                _right = temp;
+                if(_left != null){
+                    _left._reversed = !_left._reversed;
+                }
+                if(_right != null){
+                    _right._reversed = !_right._reversed;
+                }
+                _reversed = false;
+            }
+        }
+
+        private void update() {
+            _max = this;
+            if(_left != null && _left._max._weight > _max._weight){
+                _max = _left._max;
+            }
+            if(_right != null && _right._max._weight > _max._weight){
+                _max = _right._max;
+            }
+        }
+    }
+
+    private void rotate(Node x) {
+        Node p = x._parent;
+        Node g = p._parent;
+        if(!p.isSplayRoot()){
+            if(g._left == p){
+                g._left = x;
+            }
+            else{
+                g._right = x;
+            }
+        }
+        x._parent = g;
+        if(p._left == x){
+            p._left = x._right;
+            if(x._right != null){
+                x._right._parent = p;
+            }
+            x._right = p;
+        }
+        else{
+            p._right = x._left;
+            if(x._left != null){
+                x._left._parent = p;
+            }
+            x._left = p;
+        }
+        p._parent = x;
+        p.update();
+        x.update();
+    }
+
+    private void splay(Node x) {
+        // push pending reversals down from the splay root before rotating
+        ArrayList<Node> path = new ArrayList<Node>();
+        Node current = x;
+        path.add(current);
+        while(!current.isSplayRoot()){
+            current = current._parent;
+            path.add(current);
+        }
+        for(int i = path.size() - 1; i >= 0; i--){
+            path.get(i).pushDown();
+        }
+
+        while(!x.isSplayRoot()){
+            Node p = x._parent;
+            if(!p.isSplayRoot()){
+                Node g = p._parent;
+                if((g._left == p) == (p._left == x)){
+                    rotate(p);
+                }
+                else{
+                    rotate(x);
+                }
+            }
+            rotate(x);
+        }
+    }
+
+    private void access(Node x) {
+        Node last = null;
+        for(Node y = x; y != null; y = y._parent){
+            splay(y);
+            y._right = last;
+            y.update();
+            last = y;
+        }
+        splay(x);
+    }
+
+    private void makeRoot(Node x) {
+        access(x);
+        x._reversed = !x._reversed;
+        x.pushDown();
+    }
+
+    private Node findRoot(Node x) {
+        access(x);
+        Node root = x;
+        root.pushDown();
+        while(root._left != null){
+            root = root._left;
+            root.pushDown();
+        }
+        splay(root);
+        return root;
+    }
+
+    private void link(Node x, Node y) {
+        makeRoot(x);
+        x._parent = y;
+    }
+
+    private void cut(Node x, Node y) {
+        makeRoot(x);
+        access(y);
+        // x is now y's only left descendant
+        y._left._parent = null;
+        y._left = null;
+        y.update();
+    }
+
+    private Node pathMax(Node x, Node y) {
+        makeRoot(x);
+        access(y);
+        return y._max;
+    }
+}
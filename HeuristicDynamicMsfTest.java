@@ -0,0 +1,170 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+import support.graph.InvalidEdgeException;
+
+/**
+ * This class tests that HeuristicDynamicMinSpanForest keeps a minimum
+ * spanning forest while edges and vertices come and go. The forest it
+ * maintains is checked against a fresh run of MyPrimJarnik on the same graph.
+ */
+public class HeuristicDynamicMsfTest {
+
+    private Graph<String> _graph;
+
+    @Before
+    public void setup() {
+        _graph = new AdjacencyMatrixGraph<String>(false);
+    }
+
+    /**
+     * Adding a lighter edge that closes a cycle should evict the heaviest
+     * edge on that cycle
+     */
+    @Test
+    public void insertReplacesHeaviestCycleEdge() {
+        CS16Vertex<String> A = _graph.insertVertex("A");
+        CS16Vertex<String> B = _graph.insertVertex("B");
+        CS16Vertex<String> C = _graph.insertVertex("C");
+        CS16Edge<String> ab = _graph.insertEdge(A, B, 5);
+        CS16Edge<String> bc = _graph.insertEdge(B, C, 7);
+
+        HeuristicDynamicMinSpanForest<String> msf = new HeuristicDynamicMinSpanForest<String>(_graph);
+        assertThat(msf.forestWeight(), is(12L));
+
+        CS16Edge<String> ac = msf.insertEdge(A, C, 1);
+        assertThat(msf.inForest(ac), is(true));
+        assertThat(msf.inForest(ab), is(true));
+        assertThat(msf.inForest(bc), is(false));
+        assertThat(msf.forestWeight(), is(6L));
+    }
+
+    /**
+     * Removing a forest edge should pull in the lightest replacement edge,
+     * and removing a bridge should split the forest
+     */
+    @Test
+    public void removeFindsReplacement() {
+        CS16Vertex<String> A = _graph.insertVertex("A");
+        CS16Vertex<String> B = _graph.insertVertex("B");
+        CS16Vertex<String> C = _graph.insertVertex("C");
+        CS16Vertex<String> D = _graph.insertVertex("D");
+
+        HeuristicDynamicMinSpanForest<String> msf = new HeuristicDynamicMinSpanForest<String>(_graph);
+        CS16Edge<String> ab = msf.insertEdge(A, B, 1);
+        CS16Edge<String> bc = msf.insertEdge(B, C, 2);
+        CS16Edge<String> ac = msf.insertEdge(A, C, 9);
+        CS16Edge<String> cd = msf.insertEdge(C, D, 3);
+        assertThat(msf.inForest(ac), is(false));
+
+        msf.removeEdge(bc);
+        assertThat(msf.inForest(ac), is(true));
+        assertThat(msf.forestWeight(), is(13L));
+        assertThat(msf.connected(A, D), is(true));
+
+        msf.removeEdge(cd);
+        assertThat(msf.connected(A, D), is(false));
+        assertThat(msf.minSpanForest().size(), is(2));
+    }
+
+    /**
+     * Removing an edge of another graph, or one that was already removed,
+     * should be refused without touching the forest
+     */
+    @Test
+    public void removeUnknownEdge() {
+        CS16Vertex<String> A = _graph.insertVertex("A");
+        CS16Vertex<String> B = _graph.insertVertex("B");
+        CS16Vertex<String> C = _graph.insertVertex("C");
+
+        HeuristicDynamicMinSpanForest<String> msf = new HeuristicDynamicMinSpanForest<String>(_graph);
+        msf.insertEdge(A, B, 1);
+        msf.insertEdge(B, C, 2);
+        CS16Edge<String> ac = msf.insertEdge(A, C, 9);
+        msf.removeEdge(ac);
+        Graph<String> other = new AdjacencyMatrixGraph<String>(false);
+        CS16Edge<String> foreign = other.insertEdge(other.insertVertex("X"), other.insertVertex("Y"), 1);
+        for(CS16Edge<String> edge : Arrays.asList(ac, foreign)){
+            try {
+                msf.removeEdge(edge);
+                fail("removed an edge that is not in the graph");
+            } catch (InvalidEdgeException e) {
+                // expected
+            }
+        }
+        assertThat(msf.forestWeight(), is(3L));
+        assertThat(_graph.areAdjacent(A, B), is(true));
+    }
+
+    /**
+     * Removing a vertex should take its edges out of the forest
+     */
+    @Test
+    public void removeVertexTest() {
+        CS16Vertex<String> A = _graph.insertVertex("A");
+        CS16Vertex<String> B = _graph.insertVertex("B");
+        CS16Vertex<String> C = _graph.insertVertex("C");
+        _graph.insertEdge(A, B, 1);
+        _graph.insertEdge(B, C, 1);
+        _graph.insertEdge(A, C, 4);
+
+        HeuristicDynamicMinSpanForest<String> msf = new HeuristicDynamicMinSpanForest<String>(_graph);
+        msf.removeVertex(B);
+        assertThat(msf.forestWeight(), is(4L));
+        assertThat(msf.connected(A, C), is(true));
+    }
+
+    /**
+     * Applies a long random sequence of edits and compares the maintained
+     * forest weight with Prim-Jarnik run from scratch after every edit
+     */
+    @Test
+    public void randomEditsMatchPrimJarnik() {
+        Random random = new Random(16);
+        List<CS16Vertex<String>> vertices = new ArrayList<CS16Vertex<String>>();
+        for(int i = 0; i < 20; i++){
+            vertices.add(_graph.insertVertex("v" + i));
+        }
+        HeuristicDynamicMinSpanForest<String> msf = new HeuristicDynamicMinSpanForest<String>(_graph);
+        List<CS16Edge<String>> edges = new ArrayList<CS16Edge<String>>();
+
+        for(int step = 0; step < 400; step++){
+            if(edges.isEmpty() || random.nextInt(3) != 0){
+                CS16Vertex<String> v1 = vertices.get(random.nextInt(vertices.size()));
+                CS16Vertex<String> v2 = vertices.get(random.nextInt(vertices.size()));
+                if(v1 == v2 || _graph.areAdjacent(v1, v2)){
+                    continue;
+                }
+                edges.add(msf.insertEdge(v1, v2, random.nextInt(50)));
+            }
+            else{
+                msf.removeEdge(edges.remove(random.nextInt(edges.size())));
+            }
+            assertThat(msf.forestWeight(), is(primJarnikWeight()));
+        }
+    }
+
+    private long primJarnikWeight() {
+        Collection<CS16Edge<String>> forest = new MyPrimJarnik<String>().genMinSpanForest(_graph, null);
+        long weight = 0;
+        for(CS16Edge<String> edge : forest){
+            weight += edge.element();
+        }
+        return weight;
+    }
+}
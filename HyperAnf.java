@@ -0,0 +1,349 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Approximates the neighborhood function of a CsrGraph, the number N(t) of
+ * pairs (u, v) with a path of at most t edges from u to v, and from it the
+ * average distance and effective diameter, without a search from every
+ * vertex. This is HyperANF, after Boldi, Rosa and Vigna.
+ *
+ * <p>
+ * Every vertex keeps a HyperLogLog counter, an estimate of the size of a set
+ * in 2^log2m small registers, holding at first only the vertex itself. The
+ * union of two counters is the larger of each pair of registers, so after t
+ * rounds in which every vertex takes the union of its counter with those of
+ * its successors, its counter holds the ball of radius t around it, and the
+ * sum of their sizes estimates N(t). Each round is one pass over the arcs in
+ * CSR order. The counters of all the vertices are packed one after another
+ * into one byte array, and there are two: one read in a round and one
+ * written. It stops at the first round in which no counter changes.
+ * </p>
+ *
+ * <p>
+ * A vertex whose successors' counters all stayed the same in the last round
+ * cannot change in this one, and is skipped; towards the end of a run most
+ * are. Given more than one thread, the vertices of a round are split among
+ * them by ranges, each writing only its own vertices' counters.
+ * </p>
+ *
+ * <p>
+ * The relative standard error of each counter is about 1.04 / sqrt(2^log2m),
+ * and the errors of the sum are much smaller on large graphs. A run takes
+ * O(D(|V| + |E|)2^log2m) time for a graph of diameter D, and 2|V|2^log2m
+ * bytes.
+ * </p>
+ */
+public class HyperAnf<V> {
+
+    public static final int DEFAULT_LOG2M = 7;
+
+    private final CsrGraph<V> _csr;
+
+    /**
+     * Prepares to estimate the neighborhood function of a snapshot of g.
+     * Later changes to g are not seen.
+     */
+    public HyperAnf(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public HyperAnf(CsrGraph<V> csr) {
+        _csr = csr;
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Estimates the neighborhood function on the calling thread with
+     * 2^DEFAULT_LOG2M registers per counter.
+     */
+    public Neighborhoods<V> estimate() {
+        return this.estimate(DEFAULT_LOG2M, 1, 0);
+    }
+
+    /**
+     * Estimates the neighborhood function with 2^DEFAULT_LOG2M registers per
+     * counter on the given number of threads.
+     */
+    public Neighborhoods<V> estimate(int threads) {
+        return this.estimate(DEFAULT_LOG2M, threads, 0);
+    }
+
+    /**
+     * Estimates the neighborhood function with 2^log2m registers per counter
+     * on the given number of threads, hashing vertices with the given seed.
+     */
+    public Neighborhoods<V> estimate(int log2m, int threads, long seed) {
+        if(log2m < 4 || log2m > 16){
+            throw new IllegalArgumentException("log2m must be from 4 to 16");
+        }
+        return Parallel.withPool("hyper-anf", threads, "estimating the neighborhood function",
+                pool -> new Run(log2m, seed, pool, threads).run());
+    }
+
+    /**
+     * One estimation: the two arrays of counters, which vertices changed in
+     * the last round, and the size each counter estimates.
+     */
+    private class Run {
+        private final int _log2m;
+        private final int _m;
+        private final double _alphaMm;
+        private final ExecutorService _pool;
+        private final int[] _bounds;
+        private byte[] _current;
+        private byte[] _next;
+        private boolean[] _changed;
+        private boolean[] _nextChanged;
+        private final double[] _sizes;
+
+        private Run(int log2m, long seed, ExecutorService pool, int threads) {
+            int n = _csr.size();
+            _log2m = log2m;
+            _m = 1 << log2m;
+            _alphaMm = alpha(_m) * _m * _m;
+            _pool = pool;
+            _bounds = Parallel.arcBalancedBounds(_csr.outOffsets(), n, Parallel.numRanges(threads));
+            _current = new byte[n << log2m];
+            _next = new byte[n << log2m];
+            _changed = new boolean[n];
+            _nextChanged = new boolean[n];
+            _sizes = new double[n];
+            for(int v = 0; v < n; v++){
+                if(!_csr.hasVertex(v)){
+                    continue;
+                }
+                long hash = mix(v ^ seed * 0x9E3779B97F4A7C15L);
+                int register = (int) (hash >>> (64 - log2m));
+                // the leading zeros of what is left, plus one, capped so the
+                // run fits in a byte
+                long rest = (hash << log2m) | (1L << (log2m - 1));
+                _current[(v << log2m) + register] = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+                _changed[v] = true;
+                _sizes[v] = this.size(_current, v);
+            }
+        }
+
+        private Neighborhoods<V> run() throws InterruptedException, ExecutionException {
+            List<Double> function = new ArrayList<Double>();
+            function.add(this.sum());
+            while(true){
+                boolean changed = Parallel.eachRange(_pool, _bounds, this::round).contains(Boolean.TRUE);
+                if(!changed){
+                    break;
+                }
+                byte[] counters = _current;
+                _current = _next;
+                _next = counters;
+                boolean[] flags = _changed;
+                _changed = _nextChanged;
+                _nextChanged = flags;
+                // never less than the last round, which the estimates of
+                // unions of the same sets could otherwise be
+                function.add(Math.max(this.sum(), function.get(function.size() - 1)));
+            }
+            double[] values = new double[function.size()];
+            for(int t = 0; t < values.length; t++){
+                values[t] = function.get(t);
+            }
+            return new Neighborhoods<V>(_csr, values, _sizes);
+        }
+
+        /**
+         * Computes the next counters of the vertices from up to to, and
+         * returns whether any of them changed.
+         */
+        private boolean round(int from, int to) {
+            int[] offsets = _csr.outOffsets();
+            int[] targets = _csr.outTargets();
+            int m = _m;
+            boolean any = false;
+            for(int u = from; u < to; u++){
+                int start = u << _log2m;
+                if(_changed[u]){
+                    // otherwise the older counter in _next is the same
+                    System.arraycopy(_current, start, _next, start, m);
+                }
+                boolean changed = false;
+                for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                    int v = targets[arc];
+                    if(!_changed[v] || v == u){
+                        continue;
+                    }
+                    int other = v << _log2m;
+                    for(int j = 0; j < m; j++){
+                        if(_current[other + j] > _next[start + j]){
+                            _next[start + j] = _current[other + j];
+                            changed = true;
+                        }
+                    }
+                }
+                _nextChanged[u] = changed;
+                if(changed){
+                    _sizes[u] = this.size(_next, u);
+                    any = true;
+                }
+            }
+            return any;
+        }
+
+        /**
+         * Returns the HyperLogLog estimate of the size of a counter.
+         */
+        private double size(byte[] counters, int v) {
+            int start = v << _log2m;
+            double sum = 0;
+            int zeros = 0;
+            for(int j = 0; j < _m; j++){
+                int register = counters[start + j];
+                sum += Double.longBitsToDouble((1023L - register) << 52);
+                if(register == 0){
+                    zeros++;
+                }
+            }
+            double estimate = _alphaMm / sum;
+            if(estimate <= 2.5 * _m && zeros > 0){
+                // few elements: count the empty registers instead
+                estimate = _m * Math.log((double) _m / zeros);
+            }
+            return estimate;
+        }
+
+        private double sum() {
+            double sum = 0;
+            for(double size : _sizes){
+                sum += size;
+            }
+            return sum;
+        }
+    }
+
+    private static double alpha(int m) {
+        switch(m){
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * Scrambles the bits of a long, so that nearby vertex numbers hash to
+     * unrelated values (the finalizer of SplitMix64).
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * An estimated neighborhood function, and what follows from it.
+     */
+    public static class Neighborhoods<V> {
+        private final CsrGraph<V> _csr;
+        private final double[] _function;
+        private final double[] _reachable;
+
+        private Neighborhoods(CsrGraph<V> csr, double[] function, double[] reachable) {
+            _csr = csr;
+            _function = function;
+            _reachable = reachable;
+        }
+
+        /**
+         * Returns N(0) up to N(D), where D is the last round in which a
+         * counter changed. The array is not copied; do not change it.
+         */
+        public double[] values() {
+            return _function;
+        }
+
+        /**
+         * Returns the estimated number of pairs (u, v) with a path of at most
+         * t edges from u to v, counting every vertex with itself.
+         */
+        public double pairsWithin(int t) {
+            if(t < 0){
+                throw new IllegalArgumentException("distance must not be negative");
+            }
+            return _function[Math.min(t, _function.length - 1)];
+        }
+
+        /**
+         * Returns the number of rounds until no counter changed, which
+         * estimates the diameter (the largest finite distance) from below.
+         */
+        public int getNumRounds() {
+            return _function.length - 1;
+        }
+
+        /**
+         * Returns the estimated average length of a shortest path, over the
+         * pairs of distinct vertices with one, or 0 if there are none.
+         */
+        public double averageDistance() {
+            double pairs = 0;
+            double total = 0;
+            for(int t = 1; t < _function.length; t++){
+                double atT = _function[t] - _function[t - 1];
+                pairs += atT;
+                total += t * atT;
+            }
+            return (pairs <= 0) ? 0 : total / pairs;
+        }
+
+        /**
+         * Returns the 90% effective diameter.
+         */
+        public double effectiveDiameter() {
+            return this.effectiveDiameter(0.9);
+        }
+
+        /**
+         * Returns the smallest distance, interpolated between whole rounds,
+         * within which the given fraction of all connected pairs lie.
+         */
+        public double effectiveDiameter(double fraction) {
+            if(!(fraction > 0 && fraction <= 1)){
+                throw new IllegalArgumentException("fraction must be in (0, 1]");
+            }
+            double goal = fraction * _function[_function.length - 1];
+            for(int t = 0; t < _function.length; t++){
+                if(_function[t] >= goal){
+                    if(t == 0){
+                        return 0;
+                    }
+                    return t - 1 + (goal - _function[t - 1]) / (_function[t] - _function[t - 1]);
+                }
+            }
+            return _function.length - 1;
+        }
+
+        /**
+         * Returns the estimated number of vertices reachable from every
+         * vertex, itself included, indexed by vertex number. The array is
+         * not copied; do not change it.
+         */
+        public double[] reachable() {
+            return _reachable;
+        }
+
+        public double reachable(CS16Vertex<V> vertex) {
+            return _reachable[_csr.numberOf(vertex)];
+        }
+    }
+}
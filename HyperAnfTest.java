@@ -0,0 +1,129 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests HyperAnf.
+ */
+public class HyperAnfTest {
+
+    /**
+     * Tests a directed path of three vertices, small enough that the counters
+     * are all but exact
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(B, C, 1);
+
+        HyperAnf.Neighborhoods<String> anf = new HyperAnf<String>(graph).estimate();
+        assertThat(anf.getNumRounds(), is(2));
+        assertEquals(3, anf.pairsWithin(0), 0.1);
+        assertEquals(5, anf.pairsWithin(1), 0.1);
+        assertEquals(6, anf.pairsWithin(2), 0.1);
+        assertEquals(6, anf.pairsWithin(10), 0.1);
+        assertEquals(3, anf.reachable(A), 0.1);
+        assertEquals(1, anf.reachable(C), 0.1);
+        // (1 + 1 + 2) / 3
+        assertEquals(4.0 / 3, anf.averageDistance(), 0.05);
+        assertEquals(2, anf.effectiveDiameter(1), 0.05);
+    }
+
+    /**
+     * Tests the estimates on a random directed graph against a search from
+     * every vertex, and that threads do not change them
+     */
+    @Test
+    public void matchesSearch() {
+        int size = 3000;
+        Random random = new Random(43);
+        String[] names = new String[size];
+        double[] coordinates = new double[size];
+        EdgeBuffer edges = new EdgeBuffer(size * 2);
+        for(int i = 0; i < size; i++){
+            names[i] = "v" + i;
+            for(int j = 0; j < 2; j++){
+                edges.add(i, random.nextInt(size), 1);
+            }
+        }
+        CsrGraph<String> csr = CsrGraph.of(new LinksData(names, coordinates, coordinates, edges));
+        long[] exact = exactFunction(csr);
+
+        HyperAnf<String> engine = new HyperAnf<String>(csr);
+        HyperAnf.Neighborhoods<String> anf = engine.estimate(12, 1, 7);
+        assertTrue(anf.getNumRounds() <= exact.length - 1);
+        for(int t = 0; t < exact.length; t++){
+            assertEquals(exact[t], anf.pairsWithin(t), exact[t] * 0.05);
+        }
+        double pairs = 0;
+        double total = 0;
+        for(int t = 1; t < exact.length; t++){
+            pairs += exact[t] - exact[t - 1];
+            total += t * (double) (exact[t] - exact[t - 1]);
+        }
+        assertEquals(total / pairs, anf.averageDistance(), total / pairs * 0.05);
+
+        HyperAnf.Neighborhoods<String> parallel = engine.estimate(12, 3, 7);
+        assertArrayEquals(anf.values(), parallel.values(), 0);
+        assertArrayEquals(anf.reachable(), parallel.reachable(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooFewRegisters() {
+        new HyperAnf<String>(new AdjacencyMatrixGraph<String>(true)).estimate(3, 1, 0);
+    }
+
+    /**
+     * Returns the exact neighborhood function by a breadth-first search from
+     * every vertex.
+     */
+    private static long[] exactFunction(CsrGraph<String> csr) {
+        int n = csr.size();
+        long[] counts = new long[n + 1];
+        int[] distances = new int[n];
+        int[] queue = new int[n];
+        int diameter = 0;
+        for(int s = 0; s < n; s++){
+            Arrays.fill(distances, -1);
+            distances[s] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = s;
+            while(head < tail){
+                int u = queue[head++];
+                counts[distances[u]]++;
+                diameter = Math.max(diameter, distances[u]);
+                for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                    int v = csr.outTargets()[arc];
+                    if(distances[v] < 0){
+                        distances[v] = distances[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+        }
+        long[] function = new long[diameter + 1];
+        long sum = 0;
+        for(int t = 0; t <= diameter; t++){
+            sum += counts[t];
+            function[t] = sum;
+        }
+        return function;
+    }
+}
@@ -0,0 +1,215 @@
+package graph;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Keeps the PageRank of a directed graph up to date while the graph changes,
+ * for graphs that are fed a stream of new and removed links.
+ *
+ * <p>
+ * The ranks are the same ones MyPageRank computes: a damping factor of 0.85,
+ * and the rank of sink pages spread evenly over every page. Instead of
+ * starting from 1/n every time, each refresh starts from the ranks of the
+ * previous refresh. A small batch of changes only moves the ranks a little,
+ * so a refresh usually needs a few rounds rather than the dozens a cold start
+ * takes. Vertices that are new since the last refresh start at 1/n, and the
+ * starting ranks are scaled to add up to 1 again.
+ * </p>
+ *
+ * <p>
+ * A refresh can be given a budget of rounds, so that a burst of changes
+ * cannot hold up whoever is waiting on it; if it runs out before the ranks
+ * settle, isConverged() is false and the next refresh simply carries on from
+ * where this one stopped.
+ * </p>
+ *
+ * Each refresh takes a CsrGraph of the graph and runs its rounds on plain
+ * arrays, so one round runs in O(|V| + |E|) time. The CsrGraph is built anew
+ * by every refresh, since the graph does not say which links changed; that
+ * costs O(|V| + |E|log(d)) time and O(|V| + |E|) memory per refresh, about as
+ * much as a round or two. A refresh runs at least one round anyway, so for
+ * the few rounds a small batch needs, the rebuild at most doubles or triples
+ * the time of a refresh rather than changing its order. Callers that apply
+ * many small changes should batch them, as LinksStreamIngester does, so that
+ * the rebuild is paid once per batch and not once per change.
+ */
+public class IncrementalPageRank<V> {
+
+    private static final double DAMPING_FACTOR = 0.85;
+    private static final double DEFAULT_TOLERANCE = 1e-6;
+
+    private final Graph<V> _g;
+    private final double _tolerance;
+    private MyDecorator<CS16Vertex<V>, Double> _ranks;
+    private boolean _converged;
+    private int _lastRounds;
+
+    /**
+     * Creates a ranking of g that stops refreshing once no rank changes by
+     * more than 1e-6 in a round.
+     */
+    public IncrementalPageRank(Graph<V> g) {
+        this(g, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Creates a ranking of g that stops refreshing once no rank changes by
+     * more than tolerance in a round.
+     */
+    public IncrementalPageRank(Graph<V> g, double tolerance) {
+        if(g == null){
+            throw new IllegalArgumentException("null graph");
+        }
+        if(tolerance <= 0){
+            throw new IllegalArgumentException("tolerance must be positive");
+        }
+        _g = g;
+        _tolerance = tolerance;
+        _ranks = new MyDecorator<CS16Vertex<V>, Double>();
+        _converged = false;
+    }
+
+    /**
+     * Refreshes the ranks, running as many rounds as it takes for them to
+     * settle.
+     *
+     * @return the number of rounds that were run
+     */
+    public int refresh() {
+        return this.refresh(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Refreshes the ranks, running at most maxRounds rounds. The graph is
+     * copied into a new CsrGraph first, whatever changed since the last
+     * refresh.
+     *
+     * <p>
+     * This runs in O((|V| + |E|log(d)) + maxRounds * (|V| + |E|)) time, the
+     * first term being the copy.
+     * </p>
+     *
+     * @param maxRounds
+     *            the most rounds to run
+     * @return the number of rounds that were run
+     */
+    public int refresh(int maxRounds) {
+        if(maxRounds < 1){
+            throw new IllegalArgumentException("need at least one round");
+        }
+        CsrGraph<V> csr = CsrGraph.of(_g);
+        int size = csr.size();
+        int n = csr.getNumVertices();
+        _lastRounds = 0;
+        if(n == 0){
+            _ranks = new MyDecorator<CS16Vertex<V>, Double>();
+            _converged = true;
+            return 0;
+        }
+
+        double[] current = new double[size];
+        double total = 0;
+        for(int v = 0; v < size; v++){
+            if(csr.hasVertex(v)){
+                Double previous = _ranks.getDecoration(csr.vertex(v));
+                current[v] = (previous == null) ? 1.0 / n : previous;
+                total += current[v];
+            }
+        }
+        for(int v = 0; v < size; v++){
+            current[v] /= total;
+        }
+
+        int[] inOffsets = csr.inOffsets();
+        int[] inSources = csr.inSources();
+        double[] contribution = new double[size];
+        double[] next = new double[size];
+        _converged = false;
+        while(!_converged && _lastRounds < maxRounds){
+            double sinkSum = 0;
+            for(int v = 0; v < size; v++){
+                int outDegree = csr.outDegree(v);
+                if(outDegree == 0){
+                    sinkSum += current[v] / n;
+                    contribution[v] = 0;
+                }
+                else{
+                    contribution[v] = current[v] / outDegree;
+                }
+            }
+            double residual = 0;
+            for(int v = 0; v < size; v++){
+                if(!csr.hasVertex(v)){
+                    continue;
+                }
+                double incoming = sinkSum;
+                for(int i = inOffsets[v]; i < inOffsets[v + 1]; i++){
+                    incoming += contribution[inSources[i]];
+                }
+                next[v] = (1 - DAMPING_FACTOR) / n + DAMPING_FACTOR * incoming;
+                residual = Math.max(residual, Math.abs(next[v] - current[v]));
+            }
+            double[] swap = current;
+            current = next;
+            next = swap;
+            _lastRounds++;
+            _converged = residual <= _tolerance;
+        }
+
+        MyDecorator<CS16Vertex<V>, Double> ranks = new MyDecorator<CS16Vertex<V>, Double>();
+        for(int v = 0; v < size; v++){
+            if(csr.hasVertex(v)){
+                ranks.setDecoration(csr.vertex(v), current[v]);
+            }
+        }
+        _ranks = ranks;
+        return _lastRounds;
+    }
+
+    /**
+     * Returns whether the last refresh ran until the ranks settled, rather
+     * than running out of rounds.
+     */
+    public boolean isConverged() {
+        return _converged;
+    }
+
+    /**
+     * Returns the number of rounds the last refresh ran.
+     */
+    public int getLastRounds() {
+        return _lastRounds;
+    }
+
+    /**
+     * Returns the rank of the given vertex as of the last refresh, or 0 if it
+     * was not in the graph then.
+     */
+    public double getRank(CS16Vertex<V> vertex) {
+        Double rank = _ranks.getDecoration(vertex);
+        return (rank == null) ? 0 : rank;
+    }
+
+    /**
+     * Returns a copy of the ranks as of the last refresh, for every vertex
+     * that is still in the graph.
+     */
+    public Map<CS16Vertex<V>, Double> getRanks() {
+        Map<CS16Vertex<V>, Double> ranks = new HashMap<CS16Vertex<V>, Double>();
+        Iterator<CS16Vertex<V>> vertices = _g.vertices();
+        while(vertices.hasNext()){
+            CS16Vertex<V> vertex = vertices.next();
+            Double rank = _ranks.getDecoration(vertex);
+            if(rank != null){
+                ranks.put(vertex, rank);
+            }
+        }
+        return Collections.unmodifiableMap(ranks);
+    }
+}
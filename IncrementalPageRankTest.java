@@ -0,0 +1,114 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that IncrementalPageRank keeps the same ranks as ranking
+ * the changed graph from scratch, with less work.
+ */
+public class IncrementalPageRankTest {
+
+    /**
+     * Tests the ranks against MyPageRank on a small graph with a sink
+     */
+    @Test
+    public void matchesPageRank() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> a = graph.insertVertex("A");
+        CS16Vertex<String> b = graph.insertVertex("B");
+        CS16Vertex<String> c = graph.insertVertex("C");
+        graph.insertEdge(a, b, null);
+        graph.insertEdge(b, c, null);
+        graph.insertEdge(a, c, null);
+
+        IncrementalPageRank<String> ranking = new IncrementalPageRank<String>(graph);
+        ranking.refresh();
+        Map<CS16Vertex<String>, Double> expected = new MyPageRank<String>().calcPageRank(graph);
+
+        assertThat(ranking.isConverged(), is(true));
+        assertEquals(expected.get(a), ranking.getRank(a), 0.03);
+        assertEquals(expected.get(c), ranking.getRank(c), 0.03);
+        assertEquals(1.0, ranking.getRank(a) + ranking.getRank(b) + ranking.getRank(c), 1e-9);
+    }
+
+    /**
+     * Tests that after a small batch of changes a warm refresh gives the
+     * ranks of a cold one in fewer rounds
+     */
+    @Test
+    public void warmRefreshMatchesColdStart() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        Random random = new Random(32);
+        List<CS16Vertex<String>> vertices = new ArrayList<CS16Vertex<String>>();
+        for(int i = 0; i < 50; i++){
+            vertices.add(graph.insertVertex("page" + i));
+        }
+        for(int i = 0; i < 200; i++){
+            this.link(graph, vertices.get(random.nextInt(50)), vertices.get(random.nextInt(50)));
+        }
+        IncrementalPageRank<String> ranking = new IncrementalPageRank<String>(graph, 1e-10);
+        ranking.refresh();
+
+        // a few new links, a removed vertex and a new one
+        for(int i = 0; i < 3; i++){
+            this.link(graph, vertices.get(random.nextInt(50)), vertices.get(random.nextInt(50)));
+        }
+        graph.removeVertex(vertices.remove(7));
+        CS16Vertex<String> added = graph.insertVertex("new page");
+        this.link(graph, added, vertices.get(0));
+        vertices.add(added);
+
+        int warmRounds = ranking.refresh();
+        IncrementalPageRank<String> cold = new IncrementalPageRank<String>(graph, 1e-10);
+        int coldRounds = cold.refresh();
+
+        assertTrue(warmRounds < coldRounds);
+        double total = 0;
+        for(CS16Vertex<String> vertex : vertices){
+            assertEquals(cold.getRank(vertex), ranking.getRank(vertex), 1e-8);
+            total += ranking.getRank(vertex);
+        }
+        assertEquals(1.0, total, 1e-9);
+        assertThat(ranking.getRanks().size(), is(50));
+    }
+
+    /**
+     * Tests that a refresh stops at its budget and the next one carries on
+     */
+    @Test
+    public void boundedRefresh() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> a = graph.insertVertex("A");
+        CS16Vertex<String> b = graph.insertVertex("B");
+        CS16Vertex<String> c = graph.insertVertex("C");
+        graph.insertEdge(a, b, null);
+        graph.insertEdge(b, c, null);
+
+        IncrementalPageRank<String> ranking = new IncrementalPageRank<String>(graph, 1e-12);
+        assertThat(ranking.refresh(2), is(2));
+        assertThat(ranking.isConverged(), is(false));
+        ranking.refresh();
+        assertThat(ranking.isConverged(), is(true));
+        assertTrue(ranking.getRank(c) > ranking.getRank(b));
+        assertTrue(ranking.getRank(b) > ranking.getRank(a));
+    }
+
+    private void link(Graph<String> graph, CS16Vertex<String> from, CS16Vertex<String> to) {
+        if(from != to && !graph.areAdjacent(from, to)){
+            graph.insertEdge(from, to, null);
+        }
+    }
+}
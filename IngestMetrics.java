@@ -0,0 +1,179 @@
+package graph;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings kept by a LinksStreamIngester. They are updated by the
+ * ingester's threads and can be read from any thread at any time; each getter
+ * is up to date on its own, but two getters read one after the other may see
+ * slightly different moments.
+ *
+ * <p>
+ * Ingest lag is the time from when an update was read from the file to when
+ * it was applied to the graph and the ranks were refreshed, so it includes
+ * any time the update spent waiting in the queue. Refresh latency is the time
+ * one rank refresh took.
+ * </p>
+ */
+public class IngestMetrics {
+
+    private final LongAdder _bytesRead = new LongAdder();
+    private final AtomicLong _bytesBehind = new AtomicLong();
+    private final LongAdder _updatesRead = new LongAdder();
+    private final LongAdder _updatesApplied = new LongAdder();
+    private final LongAdder _missingRemovals = new LongAdder();
+    private final LongAdder _batches = new LongAdder();
+    private final LongAdder _queueFullStalls = new LongAdder();
+    private final LongAdder _queueFullNanos = new LongAdder();
+    private final AtomicLong _lastLagNanos = new AtomicLong();
+    private final AtomicLong _maxLagNanos = new AtomicLong();
+    private final LongAdder _refreshes = new LongAdder();
+    private final LongAdder _refreshRounds = new LongAdder();
+    private final LongAdder _unconvergedRefreshes = new LongAdder();
+    private final LongAdder _totalRefreshNanos = new LongAdder();
+    private final AtomicLong _lastRefreshNanos = new AtomicLong();
+    private final AtomicLong _maxRefreshNanos = new AtomicLong();
+
+    void recordRead(long bytes, long bytesBehind) {
+        _bytesRead.add(bytes);
+        _bytesBehind.set(bytesBehind);
+    }
+
+    void recordUpdateRead() {
+        _updatesRead.increment();
+    }
+
+    void recordQueueFull(long waitedNanos) {
+        _queueFullStalls.increment();
+        _queueFullNanos.add(waitedNanos);
+    }
+
+    void recordMissingRemoval() {
+        _missingRemovals.increment();
+    }
+
+    void recordBatch(int updates, long oldestLagNanos) {
+        _batches.increment();
+        _updatesApplied.add(updates);
+        _lastLagNanos.set(oldestLagNanos);
+        _maxLagNanos.accumulateAndGet(oldestLagNanos, Math::max);
+    }
+
+    void recordRefresh(int rounds, boolean converged, long nanos) {
+        _refreshes.increment();
+        _refreshRounds.add(rounds);
+        if(!converged){
+            _unconvergedRefreshes.increment();
+        }
+        _totalRefreshNanos.add(nanos);
+        _lastRefreshNanos.set(nanos);
+        _maxRefreshNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns the number of bytes of the file that have been read.
+     */
+    public long getBytesRead() {
+        return _bytesRead.sum();
+    }
+
+    /**
+     * Returns how many bytes the file had beyond what was read, as of the
+     * last read.
+     */
+    public long getBytesBehind() {
+        return _bytesBehind.get();
+    }
+
+    public long getUpdatesRead() {
+        return _updatesRead.sum();
+    }
+
+    public long getUpdatesApplied() {
+        return _updatesApplied.sum();
+    }
+
+    /**
+     * Returns the number of updates that have been read but not yet applied.
+     */
+    public long getUpdatesPending() {
+        return this.getUpdatesRead() - this.getUpdatesApplied();
+    }
+
+    /**
+     * Returns the number of removals of links that were not in the graph,
+     * which are counted as applied but change nothing.
+     */
+    public long getMissingRemovals() {
+        return _missingRemovals.sum();
+    }
+
+    public long getBatches() {
+        return _batches.sum();
+    }
+
+    /**
+     * Returns how many times the reader found the queue full and had to wait
+     * for the graph to catch up.
+     */
+    public long getQueueFullStalls() {
+        return _queueFullStalls.sum();
+    }
+
+    public long getQueueFullTime(TimeUnit unit) {
+        return unit.convert(_queueFullNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the ingest lag of the oldest update in the last batch.
+     */
+    public long getLastIngestLag(TimeUnit unit) {
+        return unit.convert(_lastLagNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxIngestLag(TimeUnit unit) {
+        return unit.convert(_maxLagNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getRefreshes() {
+        return _refreshes.sum();
+    }
+
+    public long getRefreshRounds() {
+        return _refreshRounds.sum();
+    }
+
+    /**
+     * Returns the number of refreshes that ran out of rounds before the ranks
+     * settled.
+     */
+    public long getUnconvergedRefreshes() {
+        return _unconvergedRefreshes.sum();
+    }
+
+    public long getLastRefreshLatency(TimeUnit unit) {
+        return unit.convert(_lastRefreshNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxRefreshLatency(TimeUnit unit) {
+        return unit.convert(_maxRefreshNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMeanRefreshLatency(TimeUnit unit) {
+        long refreshes = _refreshes.sum();
+        return (refreshes == 0) ? 0 : unit.convert(_totalRefreshNanos.sum() / refreshes, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "read " + this.getUpdatesRead() + " updates (" + this.getBytesRead() + " bytes, "
+                + this.getBytesBehind() + " behind), applied " + this.getUpdatesApplied() + " in "
+                + this.getBatches() + " batches, lag " + this.getLastIngestLag(TimeUnit.MILLISECONDS) + "ms (max "
+                + this.getMaxIngestLag(TimeUnit.MILLISECONDS) + "ms), refresh "
+                + this.getLastRefreshLatency(TimeUnit.MICROSECONDS) + "us (max "
+                + this.getMaxRefreshLatency(TimeUnit.MICROSECONDS) + "us), " + this.getQueueFullStalls()
+                + " queue-full stalls";
+    }
+}
@@ -0,0 +1,82 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints, which also serves as an int stack. Traversals use
+ * it for frontiers and explicit stacks of vertex numbers, where a
+ * List<Integer> or Stack<Integer> would box every vertex.
+ */
+class IntList {
+
+    private int[] _values;
+    private int _size;
+
+    IntList() {
+        this(16);
+    }
+
+    IntList(int initialCapacity) {
+        _values = new int[Math.max(initialCapacity, 1)];
+        _size = 0;
+    }
+
+    /**
+     * Appends a value in amortized O(1) time.
+     */
+    void add(int value) {
+        if(_size == _values.length){
+            _values = Arrays.copyOf(_values, _size * 2);
+        }
+        _values[_size++] = value;
+    }
+
+    /**
+     * Appends every value of another list, in order.
+     */
+    void addAll(IntList other) {
+        if(_size + other._size > _values.length){
+            _values = Arrays.copyOf(_values, Math.max(_size + other._size, _values.length * 2));
+        }
+        System.arraycopy(other._values, 0, _values, _size, other._size);
+        _size += other._size;
+    }
+
+    int get(int i) {
+        return _values[i];
+    }
+
+    void set(int i, int value) {
+        _values[i] = value;
+    }
+
+    /**
+     * Returns the last value, without removing it.
+     */
+    int peek() {
+        return _values[_size - 1];
+    }
+
+    /**
+     * Removes and returns the last value.
+     */
+    int pop() {
+        return _values[--_size];
+    }
+
+    int size() {
+        return _size;
+    }
+
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    void clear() {
+        _size = 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(_values, _size);
+    }
+}
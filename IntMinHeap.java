@@ -0,0 +1,183 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * A min-heap of vertex numbers keyed by int priorities, with decrease-key
+ * and removal.
+ * Unlike a priority queue of boxed entries, it allocates nothing after it is
+ * created: the heap is an int array of vertices, with a parallel array of
+ * keys, and a position array indexed by vertex number records where each
+ * vertex sits so that its key can be lowered in place.
+ *
+ * <p>
+ * The heap is 4-ary, which keeps it shallower than a binary heap and keeps
+ * the children of a node next to each other in memory; shortest-path
+ * searches lower keys far more often than they remove the minimum, and
+ * lowering a key only walks up the tree.
+ * </p>
+ */
+class IntMinHeap {
+
+    private static final int ARITY = 4;
+
+    private final int[] _heap;
+    private final int[] _keys;
+    // where each vertex is in _heap, or -1 if it is not in the heap
+    private final int[] _positions;
+    private int _size;
+
+    /**
+     * Creates an empty heap for the vertex numbers 0 to capacity - 1.
+     */
+    IntMinHeap(int capacity) {
+        _heap = new int[capacity];
+        _keys = new int[capacity];
+        _positions = new int[capacity];
+        Arrays.fill(_positions, -1);
+        _size = 0;
+    }
+
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    int size() {
+        return _size;
+    }
+
+    boolean contains(int v) {
+        return _positions[v] >= 0;
+    }
+
+    /**
+     * Inserts v with the given key, or lowers its key if it is already in
+     * the heap with a larger one. Returns false, and changes nothing, if it
+     * is already in the heap with a key no larger.
+     *
+     * <p>
+     * This runs in O(log(n)) time.
+     * </p>
+     */
+    boolean offer(int v, int key) {
+        int position = _positions[v];
+        if(position < 0){
+            position = _size++;
+        }
+        else if(_keys[position] <= key){
+            return false;
+        }
+        this.siftUp(position, v, key);
+        return true;
+    }
+
+    /**
+     * Returns the vertex with the smallest key, without removing it.
+     */
+    int peek() {
+        return _heap[0];
+    }
+
+    /**
+     * Returns the smallest key in the heap.
+     */
+    int minKey() {
+        return _keys[0];
+    }
+
+    /**
+     * Removes and returns the vertex with the smallest key.
+     *
+     * <p>
+     * This runs in O(log(n)) time.
+     * </p>
+     */
+    int poll() {
+        int min = _heap[0];
+        _positions[min] = -1;
+        _size--;
+        if(_size > 0){
+            this.siftDown(0, _heap[_size], _keys[_size]);
+        }
+        return min;
+    }
+
+    /**
+     * Removes v from the heap, and returns whether it was in it. Together
+     * with offer, this changes a key either way.
+     *
+     * <p>
+     * This runs in O(log(n)) time.
+     * </p>
+     */
+    boolean remove(int v) {
+        int position = _positions[v];
+        if(position < 0){
+            return false;
+        }
+        _positions[v] = -1;
+        _size--;
+        if(position < _size){
+            // the last entry fills the hole, and may belong above or below it
+            int last = _heap[_size];
+            int key = _keys[_size];
+            if(position > 0 && _keys[(position - 1) / ARITY] > key){
+                this.siftUp(position, last, key);
+            }
+            else{
+                this.siftDown(position, last, key);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Empties the heap in O(size) time.
+     */
+    void clear() {
+        for(int i = 0; i < _size; i++){
+            _positions[_heap[i]] = -1;
+        }
+        _size = 0;
+    }
+
+    private void siftUp(int position, int v, int key) {
+        while(position > 0){
+            int parent = (position - 1) / ARITY;
+            if(_keys[parent] <= key){
+                break;
+            }
+            this.place(position, _heap[parent], _keys[parent]);
+            position = parent;
+        }
+        this.place(position, v, key);
+    }
+
+    private void siftDown(int position, int v, int key) {
+        while(true){
+            int first = position * ARITY + 1;
+            if(first >= _size){
+                break;
+            }
+            int smallest = first;
+            int last = Math.min(first + ARITY, _size);
+            for(int child = first + 1; child < last; child++){
+                if(_keys[child] < _keys[smallest]){
+                    smallest = child;
+                }
+            }
+            if(_keys[smallest] >= key){
+                break;
+            }
+            this.place(position, _heap[smallest], _keys[smallest]);
+            position = smallest;
+        }
+        this.place(position, v, key);
+    }
+
+    private void place(int position, int v, int key) {
+        _heap[position] = v;
+        _keys[position] = key;
+        _positions[v] = position;
+    }
+}
@@ -0,0 +1,259 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.DirectionException;
+import support.graph.Graph;
+import support.graph.InvalidEdgeException;
+import support.graph.InvalidVertexException;
+import support.graph.NoSuchEdgeException;
+import support.graph.NoSuchVertexException;
+
+/**
+ * A read-only Graph view of the k-core of a graph: the vertices whose core
+ * number is at least k, and the edges between them. Use
+ * CoreDecomposition.Cores.kCore to get one.
+ *
+ * <p>
+ * The view shares the vertex and edge objects of the CsrGraph it was made
+ * from, and with them their vertex numbers, so decorations and arrays indexed
+ * by vertex number carry over, and any engine that takes a Graph can run on
+ * the core alone (for example, new MyPageRank<V>().calcPageRank(core)).
+ * Membership is a boolean array indexed by vertex number; adjacency queries
+ * read the CSR rows and skip arcs that leave the core, with connectingEdge
+ * and areAdjacent taking O(log(d)) time by binary search.
+ * </p>
+ *
+ * Every method that would change the graph throws an
+ * UnsupportedOperationException.
+ */
+public class KCore<V> implements Graph<V> {
+
+    private final CsrGraph<V> _csr;
+    private final int _k;
+    private final boolean[] _members;
+    private final int _numVertices;
+
+    KCore(CsrGraph<V> csr, int k, boolean[] members) {
+        _csr = csr;
+        _k = k;
+        _members = members;
+        int numVertices = 0;
+        for(boolean member : members){
+            if(member){
+                numVertices++;
+            }
+        }
+        _numVertices = numVertices;
+    }
+
+    public int getK() {
+        return _k;
+    }
+
+    /**
+     * Returns whether a vertex of the original graph is in this core.
+     */
+    public boolean contains(CS16Vertex<V> vertex) {
+        if(vertex == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        int number = vertex.getVertexNumber();
+        return number >= 0 && number < _members.length && _members[number] && _csr.vertex(number) == vertex;
+    }
+
+    @Override
+    public Iterator<CS16Vertex<V>> vertices() {
+        List<CS16Vertex<V>> vertices = new ArrayList<CS16Vertex<V>>(_numVertices);
+        for(int v = 0; v < _members.length; v++){
+            if(_members[v]){
+                vertices.add(_csr.vertex(v));
+            }
+        }
+        return vertices.iterator();
+    }
+
+    /**
+     * Returns an iterator over every edge between two vertices of the core.
+     * For an undirected graph each edge is returned once.
+     */
+    @Override
+    public Iterator<CS16Edge<V>> edges() {
+        List<CS16Edge<V>> edges = new ArrayList<CS16Edge<V>>();
+        int[] offsets = _csr.outOffsets();
+        int[] targets = _csr.outTargets();
+        for(int u = 0; u < _members.length; u++){
+            if(!_members[u]){
+                continue;
+            }
+            for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                int v = targets[arc];
+                if(_members[v] && (_csr.isDirected() || u <= v)){
+                    edges.add(_csr.outEdges()[arc]);
+                }
+            }
+        }
+        return edges.iterator();
+    }
+
+    @Override
+    public CS16Vertex<V> insertVertex(V vertElement) {
+        throw new UnsupportedOperationException("k-core views are read-only");
+    }
+
+    @Override
+    public CS16Edge<V> insertEdge(CS16Vertex<V> v1, CS16Vertex<V> v2, Integer edgeElement) {
+        throw new UnsupportedOperationException("k-core views are read-only");
+    }
+
+    @Override
+    public V removeVertex(CS16Vertex<V> vert) {
+        throw new UnsupportedOperationException("k-core views are read-only");
+    }
+
+    @Override
+    public Integer removeEdge(CS16Edge<V> edge) {
+        throw new UnsupportedOperationException("k-core views are read-only");
+    }
+
+    @Override
+    public CS16Edge<V> connectingEdge(CS16Vertex<V> v1, CS16Vertex<V> v2)
+            throws InvalidVertexException, NoSuchEdgeException {
+        if(v1 == null || v2 == null){
+            throw new InvalidVertexException("vertex is null");
+        }
+        int arc = this.findArc(this.number(v1), this.number(v2));
+        if(arc < 0){
+            throw new NoSuchEdgeException("edge does not exist");
+        }
+        return _csr.outEdges()[arc];
+    }
+
+    @Override
+    public Iterator<CS16Edge<V>> incomingEdges(CS16Vertex<V> vert) throws InvalidVertexException {
+        int target = this.number(vert);
+        List<CS16Edge<V>> incomingEdges = new ArrayList<CS16Edge<V>>();
+        for(int arc = _csr.inOffsets()[target]; arc < _csr.inOffsets()[target + 1]; arc++){
+            if(_members[_csr.inSources()[arc]]){
+                incomingEdges.add(_csr.inEdges()[arc]);
+            }
+        }
+        return incomingEdges.iterator();
+    }
+
+    @Override
+    public Iterator<CS16Edge<V>> outgoingEdges(CS16Vertex<V> vert) throws InvalidVertexException {
+        int source = this.number(vert);
+        List<CS16Edge<V>> outgoingEdges = new ArrayList<CS16Edge<V>>();
+        for(int arc = _csr.outOffsets()[source]; arc < _csr.outOffsets()[source + 1]; arc++){
+            if(_members[_csr.outTargets()[arc]]){
+                outgoingEdges.add(_csr.outEdges()[arc]);
+            }
+        }
+        return outgoingEdges.iterator();
+    }
+
+    @Override
+    public int numOutgoingEdges(CS16Vertex<V> vert) throws InvalidVertexException, DirectionException {
+        int source = this.number(vert);
+        if(!_csr.isDirected()){
+            throw new DirectionException("graph is undirected");
+        }
+        int count = 0;
+        for(int arc = _csr.outOffsets()[source]; arc < _csr.outOffsets()[source + 1]; arc++){
+            if(_members[_csr.outTargets()[arc]]){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public CS16Vertex<V> opposite(CS16Vertex<V> vert, CS16Edge<V> edge)
+            throws InvalidVertexException, InvalidEdgeException, NoSuchVertexException {
+        if(vert == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        if(edge == null){
+            throw new InvalidEdgeException("null edge");
+        }
+        if(vert == edge.getVertexTwo()){
+            return edge.getVertexOne();
+        }
+        else if(vert == edge.getVertexOne()){
+            return edge.getVertexTwo();
+        }
+        else{
+            throw new NoSuchVertexException("No such vertex exists");
+        }
+    }
+
+    @Override
+    public List<CS16Vertex<V>> endVertices(CS16Edge<V> e) throws InvalidEdgeException {
+        if(e == null){
+            throw new InvalidEdgeException("edge is null");
+        }
+        ArrayList<CS16Vertex<V>> vertices = new ArrayList<CS16Vertex<V>>();
+        vertices.add(e.getVertexOne());
+        vertices.add(e.getVertexTwo());
+        return vertices;
+    }
+
+    @Override
+    public boolean areAdjacent(CS16Vertex<V> v1, CS16Vertex<V> v2) throws InvalidVertexException {
+        if(v1 == null || v2 == null){
+            throw new InvalidVertexException("vertex is null");
+        }
+        return this.findArc(this.number(v1), this.number(v2)) >= 0;
+    }
+
+    @Override
+    public void toggleDirected() {
+        throw new UnsupportedOperationException("k-core views are read-only");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("k-core views are read-only");
+    }
+
+    @Override
+    public int getNumVertices() {
+        return _numVertices;
+    }
+
+    private int number(CS16Vertex<V> vertex) {
+        if(vertex == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        if(!this.contains(vertex)){
+            throw new NoSuchVertexException("vertex is not in the core");
+        }
+        return vertex.getVertexNumber();
+    }
+
+    /**
+     * Returns the index of the first arc from source to target, or -1 if
+     * there is none.
+     */
+    private int findArc(int source, int target) {
+        int[] offsets = _csr.outOffsets();
+        int[] targets = _csr.outTargets();
+        int low = offsets[source];
+        int high = offsets[source + 1];
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(targets[mid] < target){
+                low = mid + 1;
+            }
+            else{
+                high = mid;
+            }
+        }
+        return (low < offsets[source + 1] && targets[low] == target) ? low : -1;
+    }
+}
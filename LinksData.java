@@ -0,0 +1,100 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * The contents of a links file (such as olympics_links.txt) held in flat
+ * arrays: each vertex has an id, a name and x/y layout coordinates, and the
+ * edges refer to vertices by id. LinksFileLoader produces these, and
+ * buildGraph turns one into an actual Graph.
+ */
+public class LinksData {
+
+    private final String[] _names;
+    private final double[] _xs;
+    private final double[] _ys;
+    private final EdgeBuffer _edges;
+
+    public LinksData(String[] names, double[] xs, double[] ys, EdgeBuffer edges) {
+        _names = names;
+        _xs = xs;
+        _ys = ys;
+        _edges = edges;
+    }
+
+    public int getNumVertices() {
+        return _names.length;
+    }
+
+    public int getNumEdges() {
+        return _edges.size();
+    }
+
+    public String getName(int id) {
+        return _names[id];
+    }
+
+    public double getX(int id) {
+        return _xs[id];
+    }
+
+    public double getY(int id) {
+        return _ys[id];
+    }
+
+    /**
+     * Returns the edges, whose source and target ids index the vertices.
+     */
+    public EdgeBuffer getEdges() {
+        return _edges;
+    }
+
+    /**
+     * Returns a decorator from each of the given vertices (as returned by
+     * buildGraph) to its {x, y} coordinates.
+     */
+    public MyDecorator<CS16Vertex<String>, double[]> decorateCoordinates(List<CS16Vertex<String>> vertices) {
+        MyDecorator<CS16Vertex<String>, double[]> coordinates = new MyDecorator<CS16Vertex<String>, double[]>();
+        for(int i = 0; i < vertices.size(); i++){
+            coordinates.setDecoration(vertices.get(i), new double[] { _xs[i], _ys[i] });
+        }
+        return coordinates;
+    }
+
+    /**
+     * Inserts every vertex and edge into the given graph and returns the
+     * vertices indexed by id. An AdjacencyMatrixGraph is filled through its
+     * bulk insert path; any other Graph one insertVertex/insertEdge at a time.
+     *
+     * <p>
+     * This runs in O(|V| + |E|) time for an AdjacencyMatrixGraph (plus
+     * O(MAX_VERTICES) to claim the vertex numbers).
+     * </p>
+     *
+     * @param g
+     *            the graph to fill
+     * @return the inserted vertices, where the vertex at index i has id i
+     */
+    public List<CS16Vertex<String>> buildGraph(Graph<String> g) {
+        if(g instanceof AdjacencyMatrixGraph){
+            AdjacencyMatrixGraph<String> matrixGraph = (AdjacencyMatrixGraph<String>) g;
+            List<CS16Vertex<String>> vertices = matrixGraph.insertVertices(Arrays.asList(_names));
+            matrixGraph.insertEdges(vertices, _edges.sources(), _edges.targets(), _edges.weights(), _edges.size());
+            return vertices;
+        }
+
+        List<CS16Vertex<String>> vertices = new ArrayList<CS16Vertex<String>>(_names.length);
+        for(String name : _names){
+            vertices.add(g.insertVertex(name));
+        }
+        for(int i = 0; i < _edges.size(); i++){
+            g.insertEdge(vertices.get(_edges.source(i)), vertices.get(_edges.target(i)), _edges.weight(i));
+        }
+        return vertices;
+    }
+}
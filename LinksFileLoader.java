@@ -0,0 +1,654 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Loads links files such as olympics_links.txt. A links file has a
+ * "*** VERTICES ***" section with one "name x y" line per vertex, followed by
+ * an "*** EDGES ***" section with one "source target weight" line per edge:
+ *
+ * <pre>
+ * *** VERTICES ***
+ * swimming 403.93 417.68
+ * sports 432.09 52.32
+ * *** EDGES ***
+ * sports swimming 1
+ * </pre>
+ *
+ * <p>
+ * The file is memory-mapped and tokenized byte by byte. Vertex names are
+ * looked up in a NameIndex straight from the mapped bytes, numbers are parsed
+ * in place, and edges are collected into an EdgeBuffer, so the edge section
+ * creates no Strings at all; only the vertex names, and the rare coordinate
+ * with more than 15 significant digits, do. The resulting LinksData is then
+ * inserted into a graph through its bulk path. Loading runs in O(file size)
+ * time.
+ * </p>
+ *
+ * <p>
+ * Large files can be parsed on several threads with parseParallel. The vertex
+ * section is read first, on the calling thread; the edge section is then cut
+ * into chunks that each start and end on a line boundary, and every chunk is
+ * mapped and parsed on its own into its own EdgeBuffer. All threads look
+ * names up in the NameIndex of the vertex section, which no longer changes
+ * and so needs no locking. Names that were never declared are collected per
+ * chunk and given ids when the chunks are merged, in chunk order, so the
+ * result is the same no matter how the threads were scheduled.
+ * </p>
+ *
+ * Vertices that appear in the edge section without having been declared are
+ * added with coordinates (0, 0). Blank lines are ignored; anything else that
+ * does not fit the format is reported as an IOException giving its line
+ * number (or, when parsing in parallel, its byte offset).
+ */
+public final class LinksFileLoader {
+
+    private static final byte[] VERTICES_HEADER = "*** VERTICES ***".getBytes();
+    private static final byte[] EDGES_HEADER = "*** EDGES ***".getBytes();
+    private static final int NO_SECTION = 0;
+    private static final int VERTEX_SECTION = 1;
+    private static final int EDGE_SECTION = 2;
+    // parseParallel never makes chunks smaller or larger than these
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    private static final long MAX_CHUNK_BYTES = 1 << 28;
+
+    // every power of ten that a double holds exactly
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private LinksFileLoader() {
+    }
+
+    /**
+     * Reads a links file into a graph and returns the new vertices, indexed
+     * in the order in which their names first appear in the file.
+     *
+     * @param file
+     *            the links file to read
+     * @param g
+     *            the graph to insert the vertices and edges into
+     * @throws IOException
+     *             Thrown when the file cannot be read or is malformed.
+     */
+    public static List<CS16Vertex<String>> load(Path file, Graph<String> g) throws IOException {
+        return parse(file).buildGraph(g);
+    }
+
+    /**
+     * Reads a links file into a graph using the given number of threads to
+     * parse the edge section.
+     *
+     * @see #parseParallel(Path, int)
+     */
+    public static List<CS16Vertex<String>> load(Path file, Graph<String> g, int threads) throws IOException {
+        return parseParallel(file, threads).buildGraph(g);
+    }
+
+    /**
+     * Reads a links file into flat arrays without building a graph.
+     *
+     * @param file
+     *            the links file to read
+     * @throws IOException
+     *             Thrown when the file cannot be read, is too large to be
+     *             mapped at once, or is malformed.
+     */
+    public static LinksData parse(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            long size = channel.size();
+            if(size > Integer.MAX_VALUE){
+                throw new IOException(file + " is too large to map in one piece (" + size + " bytes); "
+                        + "use parseParallel");
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return parse(buf);
+        }
+    }
+
+    /**
+     * Parses the links format from buf[0, limit).
+     */
+    static LinksData parse(ByteBuffer buf) throws IOException {
+        NameIndex names = new NameIndex();
+        Coordinates coordinates = new Coordinates();
+        // an edge line is rarely shorter than 16 bytes
+        EdgeBuffer edges = new EdgeBuffer(buf.limit() / 16);
+        parseSections(new Cursor(buf, 0, buf.limit()), names, coordinates, edges);
+        return toLinksData(names, coordinates, edges);
+    }
+
+    /**
+     * Reads a links file of any size into flat arrays, parsing the edge
+     * section on the given number of threads. The vertex section must fit
+     * within the first 2GB of the file.
+     *
+     * <p>
+     * This runs in O(file size / threads + |V| + |E|) time: the chunks are
+     * parsed in parallel, and then their edges are copied together.
+     * </p>
+     *
+     * @param file
+     *            the links file to read
+     * @param threads
+     *            the number of threads to parse with
+     * @throws IOException
+     *             Thrown when the file cannot be read or is malformed.
+     */
+    public static LinksData parseParallel(Path file, int threads) throws IOException {
+        if(threads < 1){
+            throw new IllegalArgumentException("need at least one thread");
+        }
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            long size = channel.size();
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+            NameIndex names = new NameIndex();
+            Coordinates coordinates = new Coordinates();
+            Cursor cursor = new Cursor(head, 0, head.limit());
+            boolean reachedEdges = parseSections(cursor, names, coordinates, null);
+            if(!reachedEdges){
+                if(head.limit() < size){
+                    throw new IOException(file + ": vertex section does not fit in the first 2GB");
+                }
+                return toLinksData(names, coordinates, new EdgeBuffer(1));
+            }
+
+            List<Chunk> chunks = splitIntoChunks(channel, cursor._pos, size, threads);
+            ExecutorService pool = Parallel.newPool("links-parser", threads);
+            try {
+                List<Future<Chunk>> parsed = new ArrayList<Future<Chunk>>();
+                for(Chunk chunk : chunks){
+                    parsed.add(pool.submit(chunk.parser(channel, names)));
+                }
+                for(Future<Chunk> future : parsed){
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while parsing " + file, e);
+            } catch (ExecutionException e) {
+                if(e.getCause() instanceof IOException){
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("failed to parse " + file, e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+            return toLinksData(names, coordinates, merge(chunks, names));
+        }
+    }
+
+    /**
+     * Parses section headers, vertex lines and edge lines until the end of
+     * the cursor's range. If edges is null, stops right after the edge
+     * section header instead, and returns whether it got there.
+     */
+    private static boolean parseSections(Cursor cursor, NameIndex names, Coordinates coordinates, EdgeBuffer edges)
+            throws IOException {
+        int section = NO_SECTION;
+        while(cursor.hasMoreLines()){
+            cursor.skipBlanks();
+            if(cursor.atLineEnd()){
+                cursor.nextLine();
+                continue;
+            }
+            if(cursor.peek() == '*'){
+                if(cursor.lineMatches(VERTICES_HEADER)){
+                    section = VERTEX_SECTION;
+                }
+                else if(cursor.lineMatches(EDGES_HEADER)){
+                    section = EDGE_SECTION;
+                }
+                else{
+                    throw cursor.error("unknown section header");
+                }
+                cursor.nextLine();
+                if(section == EDGE_SECTION && edges == null){
+                    return true;
+                }
+                continue;
+            }
+
+            if(section == VERTEX_SECTION){
+                int id = cursor.nextName(names);
+                coordinates.set(id, cursor.nextDouble(), cursor.nextDouble());
+            }
+            else if(section == EDGE_SECTION){
+                int source = cursor.nextName(names);
+                int target = cursor.nextName(names);
+                edges.add(source, target, cursor.nextInt());
+            }
+            else{
+                throw cursor.error("expected a section header");
+            }
+            cursor.endLine();
+        }
+        return false;
+    }
+
+    /**
+     * Cuts [start, end) of the file into chunks for the given number of
+     * threads, moving every cut forward to just after the next newline.
+     */
+    private static List<Chunk> splitIntoChunks(FileChannel channel, long start, long end, int threads)
+            throws IOException {
+        // a few chunks per thread evens out the work if some chunks are slower
+        long target = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, (end - start) / (threads * 4L) + 1));
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long chunkStart = start;
+        while(chunkStart < end){
+            long cut = Math.min(end, chunkStart + target);
+            while(cut < end){
+                probe.clear();
+                int read = channel.read(probe, cut);
+                if(read <= 0){
+                    cut = end;
+                    break;
+                }
+                int newline = -1;
+                for(int i = 0; i < read && newline < 0; i++){
+                    if(probe.get(i) == '\n'){
+                        newline = i;
+                    }
+                }
+                if(newline >= 0){
+                    cut += newline + 1;
+                    break;
+                }
+                cut += read;
+            }
+            if(cut - chunkStart > Integer.MAX_VALUE){
+                throw new IOException("line at byte " + chunkStart + " is too long");
+            }
+            chunks.add(new Chunk(chunkStart, cut));
+            chunkStart = cut;
+        }
+        return chunks;
+    }
+
+    /**
+     * Gives every chunk's undeclared names their final ids, in chunk order,
+     * and copies all of the chunks' edges into one buffer.
+     */
+    private static EdgeBuffer merge(List<Chunk> chunks, NameIndex names) {
+        int total = 0;
+        for(Chunk chunk : chunks){
+            total += chunk._edges.size();
+        }
+        EdgeBuffer merged = new EdgeBuffer(total);
+        for(Chunk chunk : chunks){
+            NameIndex undeclared = chunk._undeclared;
+            if(undeclared.size() > 0){
+                int[] ids = new int[undeclared.size()];
+                for(int i = 0; i < ids.length; i++){
+                    ids[i] = names.intern(undeclared, i);
+                }
+                int[] sources = chunk._edges.sources();
+                int[] targets = chunk._edges.targets();
+                for(int i = 0; i < chunk._edges.size(); i++){
+                    if(sources[i] < 0){
+                        sources[i] = ids[-1 - sources[i]];
+                    }
+                    if(targets[i] < 0){
+                        targets[i] = ids[-1 - targets[i]];
+                    }
+                }
+            }
+            merged.addAll(chunk._edges);
+        }
+        return merged;
+    }
+
+    private static LinksData toLinksData(NameIndex names, Coordinates coordinates, EdgeBuffer edges) {
+        int numVertices = names.size();
+        String[] vertexNames = new String[numVertices];
+        for(int i = 0; i < numVertices; i++){
+            vertexNames[i] = names.name(i);
+        }
+        return new LinksData(vertexNames, Arrays.copyOf(coordinates._xs, numVertices),
+                Arrays.copyOf(coordinates._ys, numVertices), edges);
+    }
+
+    /**
+     * Growable x and y arrays indexed by vertex id.
+     */
+    private static class Coordinates {
+        private double[] _xs = new double[64];
+        private double[] _ys = new double[64];
+
+        private void set(int id, double x, double y) {
+            if(id >= _xs.length){
+                _xs = Arrays.copyOf(_xs, Math.max(id + 1, _xs.length * 2));
+                _ys = Arrays.copyOf(_ys, _xs.length);
+            }
+            _xs[id] = x;
+            _ys[id] = y;
+        }
+    }
+
+    /**
+     * A newline-aligned piece [start, end) of the edge section, and what was
+     * parsed from it. Edges refer to undeclared names by negative ids,
+     * -1 - (id in _undeclared), until the chunks are merged.
+     */
+    private static class Chunk {
+        private final long _start;
+        private final long _end;
+        private EdgeBuffer _edges;
+        private NameIndex _undeclared;
+
+        private Chunk(long start, long end) {
+            _start = start;
+            _end = end;
+        }
+
+        private Callable<Chunk> parser(FileChannel channel, NameIndex names) {
+            return () -> {
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, _start, _end - _start);
+                Cursor cursor = new Cursor(buf, 0, buf.limit());
+                cursor.setFileOffset(_start);
+                _edges = new EdgeBuffer(buf.limit() / 16);
+                _undeclared = new NameIndex();
+                while(cursor.hasMoreLines()){
+                    cursor.skipBlanks();
+                    if(cursor.atLineEnd()){
+                        cursor.nextLine();
+                        continue;
+                    }
+                    int source = cursor.nextName(names, _undeclared);
+                    int target = cursor.nextName(names, _undeclared);
+                    _edges.add(source, target, cursor.nextInt());
+                    cursor.endLine();
+                }
+                return this;
+            };
+        }
+    }
+
+    /**
+     * A position within a range of a buffer, with methods to read the tokens
+     * of the links format at that position.
+     */
+    static class Cursor {
+        private final ByteBuffer _buf;
+        private final int _end;
+        private int _pos;
+        private long _lineNumber;
+        // where _buf starts in the file, if errors should give byte offsets
+        private long _fileOffset;
+
+        Cursor(ByteBuffer buf, int start, int end) {
+            _buf = buf;
+            _pos = start;
+            _end = end;
+            _lineNumber = 1;
+            _fileOffset = -1;
+        }
+
+        /**
+         * Makes errors report byte offsets in the file rather than line
+         * numbers, for a buffer that starts partway through the file.
+         */
+        void setFileOffset(long fileOffset) {
+            _fileOffset = fileOffset;
+        }
+
+        boolean hasMoreLines() {
+            return _pos < _end;
+        }
+
+        byte peek() {
+            return _buf.get(_pos);
+        }
+
+        void skipBlanks() {
+            while(_pos < _end){
+                byte b = _buf.get(_pos);
+                if(b != ' ' && b != '\t' && b != '\r'){
+                    return;
+                }
+                _pos++;
+            }
+        }
+
+        boolean atLineEnd() {
+            return _pos >= _end || _buf.get(_pos) == '\n';
+        }
+
+        /**
+         * Moves past the end of the current line.
+         */
+        void nextLine() {
+            while(_pos < _end && _buf.get(_pos) != '\n'){
+                _pos++;
+            }
+            _pos++;
+            _lineNumber++;
+        }
+
+        /**
+         * Reads the next name and looks it up in declared, which is not
+         * changed. A name that is not there is added to undeclared, and
+         * returned as -1 - its id in undeclared.
+         */
+        int nextName(NameIndex declared, NameIndex undeclared) throws IOException {
+            int start = this.tokenStart();
+            int end = this.tokenEnd();
+            int hash = NameIndex.hash(_buf, start, end);
+            int id = declared.find(_buf, start, end, hash);
+            if(id >= 0){
+                return id;
+            }
+            id = undeclared.find(_buf, start, end, hash);
+            return -1 - ((id >= 0) ? id : undeclared.add(_buf, start, end, hash));
+        }
+
+        /**
+         * If the next token is the single byte marker, moves past it and
+         * returns true; otherwise stays put and returns false.
+         */
+        boolean skipMarker(byte marker) {
+            this.skipBlanks();
+            if(_pos >= _end || _buf.get(_pos) != marker){
+                return false;
+            }
+            _pos++;
+            if(!this.atTokenEnd()){
+                _pos--;
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Checks that nothing but blanks is left on the line and moves past it.
+         */
+        void endLine() throws IOException {
+            this.skipBlanks();
+            if(!this.atLineEnd()){
+                throw this.error("unexpected trailing token");
+            }
+            this.nextLine();
+        }
+
+        /**
+         * Returns true if the rest of the line is exactly the given bytes,
+         * ignoring trailing blanks.
+         */
+        boolean lineMatches(byte[] expected) {
+            if(_pos + expected.length > _end){
+                return false;
+            }
+            for(int i = 0; i < expected.length; i++){
+                if(_buf.get(_pos + i) != expected[i]){
+                    return false;
+                }
+            }
+            int after = _pos + expected.length;
+            while(after < _end && _buf.get(after) != '\n'){
+                byte b = _buf.get(after++);
+                if(b != ' ' && b != '\t' && b != '\r'){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Reads the next whitespace-delimited token and returns its id in
+         * the given index, adding it if it is new.
+         */
+        int nextName(NameIndex names) throws IOException {
+            int start = this.tokenStart();
+            return names.intern(_buf, start, this.tokenEnd());
+        }
+
+        int nextInt() throws IOException {
+            this.skipBlanks();
+            boolean negative = false;
+            if(_pos < _end && (_buf.get(_pos) == '-' || _buf.get(_pos) == '+')){
+                negative = _buf.get(_pos) == '-';
+                _pos++;
+            }
+            long value = 0;
+            int start = _pos;
+            while(_pos < _end){
+                int digit = _buf.get(_pos) - '0';
+                if(digit < 0 || digit > 9){
+                    break;
+                }
+                value = value * 10 + digit;
+                if(value > Integer.MAX_VALUE + 1L){
+                    throw this.error("integer out of range");
+                }
+                _pos++;
+            }
+            if(_pos == start || !this.atTokenEnd()){
+                throw this.error("expected an integer");
+            }
+            value = negative ? -value : value;
+            if(value > Integer.MAX_VALUE){
+                throw this.error("integer out of range");
+            }
+            return (int) value;
+        }
+
+        /**
+         * Reads a decimal number. Numbers with at most 15 significant digits
+         * and a small exponent, which covers ordinary layout coordinates, are
+         * computed exactly from the digits; longer ones fall back to
+         * Double.parseDouble so that they still round correctly.
+         */
+        double nextDouble() throws IOException {
+            this.skipBlanks();
+            int start = _pos;
+            boolean negative = false;
+            if(_pos < _end && (_buf.get(_pos) == '-' || _buf.get(_pos) == '+')){
+                negative = _buf.get(_pos) == '-';
+                _pos++;
+            }
+            long mantissa = 0;
+            int significantDigits = 0;
+            int exponent = 0;
+            boolean anyDigits = false;
+            while(_pos < _end && isDigit(_buf.get(_pos))){
+                anyDigits = true;
+                if(significantDigits < 18){
+                    mantissa = mantissa * 10 + (_buf.get(_pos) - '0');
+                    if(mantissa != 0){
+                        significantDigits++;
+                    }
+                }
+                else{
+                    exponent++;
+                }
+                _pos++;
+            }
+            if(_pos < _end && _buf.get(_pos) == '.'){
+                _pos++;
+                while(_pos < _end && isDigit(_buf.get(_pos))){
+                    anyDigits = true;
+                    if(significantDigits < 18){
+                        mantissa = mantissa * 10 + (_buf.get(_pos) - '0');
+                        if(mantissa != 0){
+                            significantDigits++;
+                        }
+                        exponent--;
+                    }
+                    _pos++;
+                }
+            }
+            if(!anyDigits){
+                throw this.error("expected a number");
+            }
+            if(_pos < _end && (_buf.get(_pos) == 'e' || _buf.get(_pos) == 'E')){
+                _pos++;
+                exponent += this.nextInt();
+            }
+            if(!this.atTokenEnd()){
+                throw this.error("expected a number");
+            }
+            if(mantissa < (1L << 53) && exponent >= -22 && exponent <= 22){
+                double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+                return negative ? -value : value;
+            }
+            byte[] digits = new byte[_pos - start];
+            for(int i = 0; i < digits.length; i++){
+                digits[i] = _buf.get(start + i);
+            }
+            return Double.parseDouble(new String(digits, StandardCharsets.US_ASCII));
+        }
+
+        IOException error(String message) {
+            if(_fileOffset >= 0){
+                return new IOException("byte " + (_fileOffset + _pos) + ": " + message);
+            }
+            return new IOException("line " + _lineNumber + ": " + message);
+        }
+
+        private int tokenStart() throws IOException {
+            this.skipBlanks();
+            if(this.atLineEnd()){
+                throw this.error("line ends too early");
+            }
+            return _pos;
+        }
+
+        private int tokenEnd() {
+            while(!this.atTokenEnd()){
+                _pos++;
+            }
+            return _pos;
+        }
+
+        private boolean atTokenEnd() {
+            if(_pos >= _end){
+                return true;
+            }
+            byte b = _buf.get(_pos);
+            return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+        }
+
+        private static boolean isDigit(byte b) {
+            return b >= '0' && b <= '9';
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that LinksFileLoader reads the links file format into
+ * flat arrays and into a graph.
+ */
+public class LinksFileLoaderTest {
+
+    private Path _file;
+
+    @Before
+    public void setup() throws IOException {
+        _file = Files.createTempFile("links", ".txt");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(_file);
+    }
+
+    /**
+     * Tests that names, coordinates and edges all come through
+     */
+    @Test
+    public void parsesVerticesAndEdges() throws IOException {
+        this.write("*** VERTICES ***\n"
+                + "swimming 403.9308669692431 417.68023310142144\n"
+                + "sports -2.5 1e2\r\n"
+                + "\n"
+                + "*** EDGES ***\n"
+                + "sports swimming 1\n"
+                + "swimming  olympics\t-7\n");
+
+        LinksData data = LinksFileLoader.parse(_file);
+        assertThat(data.getNumVertices(), is(3));
+        assertThat(data.getName(0), is("swimming"));
+        assertThat(data.getName(1), is("sports"));
+        assertThat(data.getName(2), is("olympics"));
+        assertEquals(403.9308669692431, data.getX(0), 0);
+        assertEquals(417.68023310142144, data.getY(0), 0);
+        assertEquals(-2.5, data.getX(1), 0);
+        assertEquals(100.0, data.getY(1), 0);
+
+        assertThat(data.getNumEdges(), is(2));
+        assertThat(data.getEdges().source(0), is(1));
+        assertThat(data.getEdges().target(0), is(0));
+        assertThat(data.getEdges().weight(1), is(-7));
+    }
+
+    /**
+     * Tests that a loaded graph has the edges of the file
+     */
+    @Test
+    public void loadsIntoGraph() throws IOException {
+        this.write("*** VERTICES ***\nA 0 0\nB 1 1\nC 2 2\n*** EDGES ***\nA B 3\nB C 4\n");
+
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        List<CS16Vertex<String>> vertices = LinksFileLoader.load(_file, graph);
+
+        assertThat(graph.getNumVertices(), is(3));
+        assertThat(graph.areAdjacent(vertices.get(0), vertices.get(1)), is(true));
+        assertThat(graph.areAdjacent(vertices.get(1), vertices.get(0)), is(false));
+        assertThat(graph.connectingEdge(vertices.get(1), vertices.get(2)).element(), is(4));
+    }
+
+    /**
+     * Tests that malformed lines are reported with their line number
+     */
+    @Test
+    public void reportsMalformedLine() throws IOException {
+        this.write("*** VERTICES ***\nA 0 0\n*** EDGES ***\nA A x\n");
+        try {
+            LinksFileLoader.parse(_file);
+            fail("expected an IOException");
+        } catch (IOException e) {
+            assertThat(e.getMessage().startsWith("line 4"), is(true));
+        }
+    }
+
+    /**
+     * Tests the bundled olympics graph, if it is in the working directory
+     */
+    @Test
+    public void loadsBundledFile() throws IOException {
+        Path olympics = Paths.get("olympics_links.txt");
+        if(!Files.exists(olympics)){
+            return;
+        }
+        LinksData data = LinksFileLoader.parse(olympics);
+        assertThat(data.getNumVertices(), is(18));
+        assertThat(data.getName(1), is("swimming"));
+        assertEquals(403.9308669692431, data.getX(1), 0);
+    }
+
+    /**
+     * Tests that parsing in parallel chunks gives exactly what parsing on one
+     * thread gives, including the ids of undeclared vertices
+     */
+    @Test
+    public void parallelMatchesSerial() throws IOException {
+        StringBuilder contents = new StringBuilder("*** VERTICES ***\n");
+        for(int i = 0; i < 500; i++){
+            contents.append("page").append(i).append(' ').append(i * 0.5).append(" 1.25\n");
+        }
+        contents.append("*** EDGES ***\n");
+        Random random = new Random(30);
+        for(int i = 0; i < 200000; i++){
+            // every so often, link to a page that was never declared
+            String target = (i % 997 == 0) ? "extra" + random.nextInt(50) : "page" + random.nextInt(500);
+            contents.append("page").append(random.nextInt(500)).append(' ').append(target).append(' ')
+                    .append(random.nextInt(100)).append('\n');
+        }
+        this.write(contents.toString());
+
+        LinksData serial = LinksFileLoader.parse(_file);
+        LinksData parallel = LinksFileLoader.parseParallel(_file, 4);
+
+        assertThat(parallel.getNumVertices(), is(serial.getNumVertices()));
+        for(int i = 0; i < serial.getNumVertices(); i++){
+            assertThat(parallel.getName(i), is(serial.getName(i)));
+            assertEquals(serial.getX(i), parallel.getX(i), 0);
+        }
+        assertThat(parallel.getNumEdges(), is(200000));
+        for(int i = 0; i < serial.getNumEdges(); i++){
+            assertThat(parallel.getEdges().source(i), is(serial.getEdges().source(i)));
+            assertThat(parallel.getEdges().target(i), is(serial.getEdges().target(i)));
+            assertThat(parallel.getEdges().weight(i), is(serial.getEdges().weight(i)));
+        }
+    }
+
+    /**
+     * Tests that errors in a parallel chunk give a byte offset
+     */
+    @Test
+    public void parallelReportsByteOffset() throws IOException {
+        this.write("*** VERTICES ***\nA 0 0\n*** EDGES ***\nA A 1\nA A\n");
+        try {
+            LinksFileLoader.parseParallel(_file, 2);
+            fail("expected an IOException");
+        } catch (IOException e) {
+            assertThat(e.getMessage().startsWith("byte "), is(true));
+        }
+    }
+
+    private void write(String contents) throws IOException {
+        Files.write(_file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,481 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Follows an append-only stream of links, applying them to a graph as they
+ * are written and keeping the graph's PageRank up to date.
+ *
+ * <p>
+ * The stream file has one update per line, in the format of the edge section
+ * of a links file:
+ * </p>
+ *
+ * <pre>
+ * sports swimming 1
+ * - sports olympics
+ * </pre>
+ *
+ * <p>
+ * The first line adds a link from sports to swimming with weight 1 (or
+ * changes its weight, if the link is already there); the second, marked with
+ * a single "-", removes the link from sports to olympics. Names that are not
+ * yet in the graph become new vertices. Blank lines are ignored, and a line
+ * that is still being written (one without its newline yet) is left until it
+ * is finished.
+ * </p>
+ *
+ * <p>
+ * Two threads do the work. The reader tails the file, parses each complete
+ * line with the tokenizer of LinksFileLoader, and puts the update into a
+ * bounded queue. The applier takes whatever is in the queue, up to a maximum
+ * batch size, applies the whole batch to the graph, and then refreshes the
+ * IncrementalPageRank with a bounded number of rounds. If the applier falls
+ * behind, the queue fills up and the reader waits instead of reading further,
+ * so memory stays bounded and the file itself holds the backlog; the
+ * IngestMetrics count how often and how long that happens, along with the
+ * ingest lag and the refresh latency.
+ * </p>
+ *
+ * Only the applier thread touches the graph once the ingester is started, so
+ * the graph must not be used elsewhere until it is closed; the latest ranks
+ * can be read at any time with getRanks().
+ */
+public class LinksStreamIngester implements AutoCloseable {
+
+    private static final int READ_BYTES = 1 << 20;
+    private static final byte REMOVAL_MARKER = '-';
+
+    private final Path _file;
+    private final Graph<String> _g;
+    private final IncrementalPageRank<String> _ranking;
+    private final BlockingQueue<Update> _queue;
+    private final int _maxBatch;
+    private final int _maxRounds;
+    private final long _pollMillis;
+    private final IngestMetrics _metrics;
+    private final Object _progress;
+
+    // owned by the reader thread
+    private final NameIndex _names;
+    private int _numNamesSent;
+    private long _position;
+
+    // owned by the applier thread
+    private final List<CS16Vertex<String>> _vertices;
+
+    private volatile Map<CS16Vertex<String>, Double> _ranks;
+    private volatile boolean _reading;
+    private volatile boolean _applying;
+    // the file size the reader last found nothing new up to, or -1 while
+    // it has lines to parse
+    private volatile long _caughtUpTo;
+    private volatile Throwable _failure;
+    private Thread _reader;
+    private Thread _applier;
+
+    /**
+     * Creates an ingester that applies the updates in file to g, queueing at
+     * most 65536 updates, applying at most 4096 at a time and giving each
+     * rank refresh at most 10 rounds.
+     */
+    public LinksStreamIngester(Path file, Graph<String> g) {
+        this(file, g, 1 << 16, 1 << 12, 10, 50);
+    }
+
+    /**
+     * Creates an ingester that applies the updates in file to g. Vertices
+     * already in g are matched to the names in the file by their elements.
+     *
+     * @param file
+     *            the stream file, read from its start
+     * @param g
+     *            the graph to apply the updates to
+     * @param queueCapacity
+     *            the most updates that may be read but not yet applied
+     * @param maxBatch
+     *            the most updates to apply between two rank refreshes
+     * @param maxRounds
+     *            the most rounds to give each rank refresh
+     * @param pollMillis
+     *            how long to wait before looking at the file again once it
+     *            has been read to the end
+     */
+    public LinksStreamIngester(Path file, Graph<String> g, int queueCapacity, int maxBatch, int maxRounds,
+            long pollMillis) {
+        if(file == null || g == null){
+            throw new IllegalArgumentException("null file or graph");
+        }
+        if(queueCapacity < 1 || maxBatch < 1 || maxRounds < 1 || pollMillis < 1){
+            throw new IllegalArgumentException("queue capacity, batch size, rounds and poll time must be positive");
+        }
+        _file = file;
+        _g = g;
+        _ranking = new IncrementalPageRank<String>(g);
+        _queue = new ArrayBlockingQueue<Update>(queueCapacity);
+        _maxBatch = maxBatch;
+        _maxRounds = maxRounds;
+        _pollMillis = pollMillis;
+        _metrics = new IngestMetrics();
+        _progress = new Object();
+        _names = new NameIndex();
+        _vertices = new ArrayList<CS16Vertex<String>>();
+        _ranks = Collections.emptyMap();
+        _caughtUpTo = -1;
+
+        Iterator<CS16Vertex<String>> vertices = g.vertices();
+        while(vertices.hasNext()){
+            CS16Vertex<String> vertex = vertices.next();
+            byte[] name = vertex.element().getBytes(StandardCharsets.UTF_8);
+            if(_names.intern(ByteBuffer.wrap(name), 0, name.length) == _vertices.size()){
+                _vertices.add(vertex);
+            }
+        }
+        _numNamesSent = _names.size();
+    }
+
+    /**
+     * Starts following the file.
+     */
+    public synchronized void start() {
+        if(_reader != null){
+            throw new IllegalStateException("already started");
+        }
+        _reading = true;
+        _applying = true;
+        _reader = new Thread(this::read, "links-stream-reader");
+        _applier = new Thread(this::apply, "links-stream-applier");
+        _reader.setDaemon(true);
+        _applier.setDaemon(true);
+        _applier.start();
+        _reader.start();
+    }
+
+    /**
+     * Stops reading the file, applies the updates that were already queued,
+     * and stops. If the calling thread is interrupted meanwhile, this still
+     * waits for both threads to stop, and leaves the thread interrupted.
+     */
+    @Override
+    public synchronized void close() {
+        if(_reader == null){
+            return;
+        }
+        _reading = false;
+        _reader.interrupt();
+        boolean interrupted = joinUninterruptibly(_reader);
+        _applying = false;
+        interrupted |= joinUninterruptibly(_applier);
+        if(interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for thread to die, and returns whether the calling thread was
+     * interrupted while waiting.
+     */
+    private static boolean joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while(true){
+            try {
+                thread.join();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    /**
+     * Waits until every complete line that is in the file when this is
+     * called has been applied and the ranks refreshed.
+     *
+     * @return true if that happened, or false if the timeout ran out first
+     * @throws IOException
+     *             Thrown when the file could not be read or was malformed, or
+     *             an update could not be applied.
+     */
+    public boolean awaitCaughtUp(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long size = Files.size(_file);
+        synchronized(_progress){
+            while(true){
+                this.checkFailure();
+                if(_caughtUpTo >= size && _metrics.getUpdatesPending() == 0){
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0){
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(_progress, remaining);
+            }
+        }
+    }
+
+    /**
+     * Returns the ranks as of the last refresh. The map does not change.
+     */
+    public Map<CS16Vertex<String>, Double> getRanks() {
+        return _ranks;
+    }
+
+    public IngestMetrics getMetrics() {
+        return _metrics;
+    }
+
+    /**
+     * Returns what stopped the ingester, or null if nothing has.
+     */
+    public Throwable getFailure() {
+        return _failure;
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable failure = _failure;
+        if(failure instanceof IOException){
+            throw new IOException(failure.getMessage(), failure);
+        }
+        if(failure != null){
+            throw new IOException("failed to apply an update", failure);
+        }
+    }
+
+    /**
+     * The reader thread: reads every complete line added to the file and
+     * queues its update.
+     */
+    private void read() {
+        try(FileChannel channel = FileChannel.open(_file, StandardOpenOption.READ)){
+            ByteBuffer buf = ByteBuffer.allocate(READ_BYTES);
+            while(_reading){
+                long size = channel.size();
+                if(size < _position){
+                    throw new IOException(_file + " was truncated");
+                }
+                int length = 0;
+                if(size > _position){
+                    buf.clear();
+                    buf.limit((int) Math.min(READ_BYTES, size - _position));
+                    channel.read(buf, _position);
+                    length = this.completeLines(buf);
+                }
+                if(length == 0){
+                    _caughtUpTo = size;
+                    this.signal();
+                    Thread.sleep(_pollMillis);
+                    continue;
+                }
+                _caughtUpTo = -1;
+                long readNanos = System.nanoTime();
+                LinksFileLoader.Cursor cursor = new LinksFileLoader.Cursor(buf, 0, length);
+                cursor.setFileOffset(_position);
+                while(cursor.hasMoreLines()){
+                    cursor.skipBlanks();
+                    if(cursor.atLineEnd()){
+                        cursor.nextLine();
+                        continue;
+                    }
+                    if(!this.enqueue(this.parseLine(cursor, readNanos))){
+                        return;
+                    }
+                }
+                _position += length;
+                _metrics.recordRead(length, size - _position);
+            }
+        } catch (InterruptedException e) {
+            // closed while waiting
+        } catch (ClosedChannelException e) {
+            // close() interrupting a read closes the channel, which is no failure
+            if(_reading){
+                this.fail(e);
+            }
+        } catch (Throwable t) {
+            this.fail(t);
+        }
+    }
+
+    /**
+     * Returns the length of buf[0, position) up to and including its last
+     * newline.
+     */
+    private int completeLines(ByteBuffer buf) throws IOException {
+        int end = buf.position();
+        for(int i = end - 1; i >= 0; i--){
+            if(buf.get(i) == '\n'){
+                return i + 1;
+            }
+        }
+        if(end == READ_BYTES){
+            throw new IOException("byte " + _position + ": line is longer than " + READ_BYTES + " bytes");
+        }
+        return 0;
+    }
+
+    private Update parseLine(LinksFileLoader.Cursor cursor, long readNanos) throws IOException {
+        boolean removal = cursor.skipMarker(REMOVAL_MARKER);
+        int source = cursor.nextName(_names);
+        String sourceName = this.newName(source);
+        int target = cursor.nextName(_names);
+        String targetName = this.newName(target);
+        int weight = removal ? 0 : cursor.nextInt();
+        cursor.endLine();
+        _metrics.recordUpdateRead();
+        return new Update(removal, source, sourceName, target, targetName, weight, readNanos);
+    }
+
+    /**
+     * Returns the name for id if the applier has not been told it yet, or
+     * null if it has.
+     */
+    private String newName(int id) {
+        if(id < _numNamesSent){
+            return null;
+        }
+        _numNamesSent++;
+        return _names.name(id);
+    }
+
+    /**
+     * Puts an update in the queue, waiting for room if it is full. Returns
+     * false if the ingester stopped while waiting.
+     */
+    private boolean enqueue(Update update) throws InterruptedException {
+        if(_queue.offer(update)){
+            return true;
+        }
+        long start = System.nanoTime();
+        while(!_queue.offer(update, _pollMillis, TimeUnit.MILLISECONDS)){
+            if(!_reading || _failure != null){
+                return false;
+            }
+        }
+        _metrics.recordQueueFull(System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * The applier thread: applies the queued updates in batches, refreshing
+     * the ranks after each batch.
+     */
+    private void apply() {
+        List<Update> batch = new ArrayList<Update>(Math.min(_maxBatch, 1 << 16));
+        try {
+            while(_failure == null && (_applying || !_queue.isEmpty())){
+                Update first = _queue.poll(_pollMillis, TimeUnit.MILLISECONDS);
+                if(first == null){
+                    continue;
+                }
+                batch.add(first);
+                _queue.drainTo(batch, _maxBatch - 1);
+
+                long oldest = first._readNanos;
+                for(Update update : batch){
+                    this.applyUpdate(update);
+                    oldest = Math.min(oldest, update._readNanos);
+                }
+
+                long refreshStart = System.nanoTime();
+                int rounds = _ranking.refresh(_maxRounds);
+                _ranks = _ranking.getRanks();
+                long now = System.nanoTime();
+                _metrics.recordRefresh(rounds, _ranking.isConverged(), now - refreshStart);
+                _metrics.recordBatch(batch.size(), now - oldest);
+                batch.clear();
+                this.signal();
+            }
+        } catch (InterruptedException e) {
+            // closed while waiting
+        } catch (Throwable t) {
+            this.fail(t);
+        }
+    }
+
+    private void applyUpdate(Update update) {
+        CS16Vertex<String> source = this.vertex(update._source, update._sourceName);
+        CS16Vertex<String> target = this.vertex(update._target, update._targetName);
+        boolean present = _g.areAdjacent(source, target);
+        if(present){
+            _g.removeEdge(_g.connectingEdge(source, target));
+        }
+        if(!update._removal){
+            _g.insertEdge(source, target, update._weight);
+        }
+        else if(!present){
+            _metrics.recordMissingRemoval();
+        }
+    }
+
+    /**
+     * Returns the vertex with the given id, inserting it if this is its
+     * first appearance.
+     */
+    private CS16Vertex<String> vertex(int id, String newName) {
+        if(newName != null){
+            _vertices.add(_g.insertVertex(newName));
+        }
+        return _vertices.get(id);
+    }
+
+    /**
+     * Wakes up anyone waiting in awaitCaughtUp.
+     */
+    private void signal() {
+        synchronized(_progress){
+            _progress.notifyAll();
+        }
+    }
+
+    private void fail(Throwable t) {
+        synchronized(_progress){
+            if(_failure == null){
+                _failure = t;
+            }
+            _progress.notifyAll();
+        }
+    }
+
+    /**
+     * One parsed line. A name is set only on the first update that mentions
+     * its vertex, so that the applier knows to insert it.
+     */
+    private static class Update {
+        private final boolean _removal;
+        private final int _source;
+        private final String _sourceName;
+        private final int _target;
+        private final String _targetName;
+        private final int _weight;
+        private final long _readNanos;
+
+        private Update(boolean removal, int source, String sourceName, int target, String targetName, int weight,
+                long readNanos) {
+            _removal = removal;
+            _source = source;
+            _sourceName = sourceName;
+            _target = target;
+            _targetName = targetName;
+            _weight = weight;
+            _readNanos = readNanos;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that LinksStreamIngester follows a growing stream file
+ * and keeps the ranks of the graph up to date.
+ */
+public class LinksStreamIngesterTest {
+
+    private Path _file;
+
+    @Before
+    public void setup() throws IOException {
+        _file = Files.createTempFile("stream", ".txt");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(_file);
+    }
+
+    /**
+     * Tests inserts, removals, weight changes and a line written in two parts
+     */
+    @Test
+    public void followsAppends() throws Exception {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> sports = graph.insertVertex("sports");
+        this.append("sports swimming 1\nswimming olympics 2\n\nolympics sports 3\n");
+
+        try(LinksStreamIngester ingester = new LinksStreamIngester(_file, graph, 16, 4, 100, 5)){
+            ingester.start();
+            assertThat(ingester.awaitCaughtUp(10, TimeUnit.SECONDS), is(true));
+            CS16Vertex<String> swimming = find(graph, "swimming");
+            assertThat(graph.getNumVertices(), is(3));
+            assertThat(graph.areAdjacent(sports, swimming), is(true));
+            assertEquals(1.0 / 3, ingester.getRanks().get(sports), 1e-4);
+
+            this.append("- sports swimming\nswimming olympics 5\nswimming spo");
+            assertThat(ingester.awaitCaughtUp(10, TimeUnit.SECONDS), is(true));
+            CS16Vertex<String> olympics = find(graph, "olympics");
+            assertThat(graph.areAdjacent(sports, swimming), is(false));
+            assertThat(graph.connectingEdge(swimming, olympics).element(), is(5));
+            assertThat(ingester.getMetrics().getUpdatesApplied(), is(5L));
+
+            this.append("rts 1\n");
+            assertThat(ingester.awaitCaughtUp(10, TimeUnit.SECONDS), is(true));
+            assertThat(graph.areAdjacent(swimming, sports), is(true));
+            Map<CS16Vertex<String>, Double> ranks = ingester.getRanks();
+            assertEquals(1.0, ranks.get(sports) + ranks.get(swimming) + ranks.get(olympics), 1e-9);
+            assertThat(ingester.getMetrics().getBytesBehind(), is(0L));
+            assertThat(ingester.getMetrics().getRefreshes() >= 3, is(true));
+        }
+    }
+
+    /**
+     * Tests that a small queue holds the reader back without losing updates
+     */
+    @Test
+    public void backpressure() throws Exception {
+        StringBuilder contents = new StringBuilder();
+        for(int i = 0; i < 2000; i++){
+            contents.append("page").append(i % 20).append(" page").append((i * 7 + 1) % 20).append(' ').append(i)
+                    .append('\n');
+        }
+        this.append(contents.toString());
+
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        try(LinksStreamIngester ingester = new LinksStreamIngester(_file, graph, 2, 1, 1, 5)){
+            ingester.start();
+            assertThat(ingester.awaitCaughtUp(30, TimeUnit.SECONDS), is(true));
+            IngestMetrics metrics = ingester.getMetrics();
+            assertThat(metrics.getUpdatesApplied(), is(2000L));
+            assertThat(metrics.getBatches(), is(2000L));
+            assertTrue(metrics.getQueueFullStalls() > 0);
+            assertThat(graph.getNumVertices(), is(20));
+        }
+    }
+
+    /**
+     * Tests that closing while the reader is busy applies what was queued
+     * and is not taken for a failure
+     */
+    @Test
+    public void closeDrainsQueue() throws Exception {
+        StringBuilder contents = new StringBuilder();
+        for(int i = 0; i < 20000; i++){
+            contents.append("page").append(i % 20).append(" page").append((i * 7 + 1) % 20).append(' ').append(i)
+                    .append('\n');
+        }
+        this.append(contents.toString());
+
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        LinksStreamIngester ingester = new LinksStreamIngester(_file, graph, 64, 1, 1, 5);
+        ingester.start();
+        IngestMetrics metrics = ingester.getMetrics();
+        while(metrics.getUpdatesApplied() < 10){
+            Thread.sleep(1);
+        }
+        ingester.close();
+        assertThat(ingester.getFailure(), is((Throwable) null));
+        assertThat(Thread.currentThread().isInterrupted(), is(false));
+        // all but the update the reader may have been holding when interrupted
+        assertTrue(metrics.getUpdatesPending() <= 1);
+        assertTrue(metrics.getUpdatesApplied() < 20000);
+    }
+
+    /**
+     * Tests that a malformed line stops the ingester with its byte offset
+     */
+    @Test
+    public void reportsMalformedLine() throws Exception {
+        this.append("A B 1\nA B\n");
+        try(LinksStreamIngester ingester = new LinksStreamIngester(_file, new AdjacencyMatrixGraph<String>(true))){
+            ingester.start();
+            ingester.awaitCaughtUp(10, TimeUnit.SECONDS);
+            fail("expected an IOException");
+        } catch (IOException e) {
+            assertThat(e.getMessage().startsWith("byte "), is(true));
+        }
+    }
+
+    private void append(String contents) throws IOException {
+        Files.write(_file, contents.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static CS16Vertex<String> find(Graph<String> graph, String name) {
+        Iterator<CS16Vertex<String>> vertices = graph.vertices();
+        while(vertices.hasNext()){
+            CS16Vertex<String> vertex = vertices.next();
+            if(vertex.element().equals(name)){
+                return vertex;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,556 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Community detection by Louvain modularity optimization. Weights are edge
+ * elements (null weighs 1) and must not be negative; the edges of a
+ * directed graph are taken as undirected, so a link each way between two
+ * pages weighs the sum of the two.
+ *
+ * <p>
+ * Each level starts with every vertex in a community of its own, and moves
+ * vertices to the neighboring community that raises modularity the most,
+ * sweeping the vertices until no move raises it by more than MIN_GAIN. Then
+ * the graph is aggregated: every community becomes one vertex, with a
+ * self-loop for the weight inside it and an edge to every other community
+ * it has edges to, and the next level runs on that much smaller graph. It
+ * stops at a level where no vertex moves.
+ * </p>
+ *
+ * <p>
+ * Communities are int arrays indexed by vertex number, the weight of the
+ * edges from a vertex to each community is gathered in a scratch array
+ * indexed by community, and each level's graph is in CSR form with double
+ * weights, so a level takes O(|V| + |E|) time per sweep and allocates
+ * nothing while sweeping. On one thread vertices move one at a time, each
+ * seeing the moves before it. Given more threads, a sweep is split among
+ * them by ranges of vertices, and every vertex chooses its move against the
+ * communities as they were when the sweep began; the moves are then made
+ * together. Moves chosen together can undo each other, so two vertices
+ * alone in their communities only join each other's from the larger id to
+ * the smaller, and a sweep that does not raise modularity is taken back
+ * and ends the level.
+ * </p>
+ */
+public class Louvain<V> {
+
+    // a sweep must raise modularity by more than this to be worth another
+    private static final double MIN_GAIN = 1e-7;
+    private static final int MAX_SWEEPS = 100;
+
+    private final CsrGraph<V> _csr;
+
+    /**
+     * Prepares to find the communities of a snapshot of g. Later changes to g
+     * are not seen.
+     *
+     * @throws IllegalArgumentException
+     *             Thrown when an edge has a negative weight.
+     */
+    public Louvain(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public Louvain(CsrGraph<V> csr) {
+        for(int weight : csr.outWeights()){
+            if(weight < 0){
+                throw new IllegalArgumentException("negative edge weight " + weight);
+            }
+        }
+        _csr = csr;
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Finds communities on the calling thread.
+     */
+    public Communities<V> detect() {
+        return this.detect(1);
+    }
+
+    /**
+     * Finds communities, with the local moves of each sweep split among the
+     * given number of threads.
+     */
+    public Communities<V> detect(int threads) {
+        return Parallel.withPool("louvain", threads, "detecting communities", pool -> this.run(pool, threads));
+    }
+
+    private Communities<V> run(ExecutorService pool, int threads) throws InterruptedException, ExecutionException {
+        Level level = Level.of(_csr);
+        // the community of every vertex of the original graph, in the
+        // current level's numbering
+        int[] ids = new int[_csr.size()];
+        for(int v = 0; v < ids.length; v++){
+            ids[v] = v;
+        }
+        List<int[]> levels = new ArrayList<int[]>();
+        while(true){
+            int[] communities = (pool == null) ? level.moveSequentially() : level.moveInParallel(pool, threads);
+            int numCommunities = renumber(communities);
+            if(numCommunities == level._size){
+                break;
+            }
+            for(int v = 0; v < ids.length; v++){
+                ids[v] = communities[ids[v]];
+            }
+            levels.add(this.canonical(ids));
+            level = level.aggregate(communities, numCommunities);
+        }
+        if(levels.isEmpty()){
+            levels.add(this.canonical(ids));
+        }
+        int[] finalIds = levels.get(levels.size() - 1);
+        return new Communities<V>(_csr, finalIds, level.modularity(identity(level._size)), levels);
+    }
+
+    /**
+     * Renumbers communities to 0 up in order of their smallest vertex
+     * number, with -1 for numbers that are not vertices.
+     */
+    private int[] canonical(int[] ids) {
+        int[] canonical = new int[ids.length];
+        int[] renamed = new int[ids.length];
+        Arrays.fill(renamed, -1);
+        int next = 0;
+        for(int v = 0; v < ids.length; v++){
+            if(!_csr.hasVertex(v)){
+                canonical[v] = -1;
+                continue;
+            }
+            if(renamed[ids[v]] < 0){
+                renamed[ids[v]] = next++;
+            }
+            canonical[v] = renamed[ids[v]];
+        }
+        return canonical;
+    }
+
+    /**
+     * Renumbers the communities in place to 0 up, and returns how many
+     * there are.
+     */
+    private static int renumber(int[] communities) {
+        int[] renamed = new int[communities.length];
+        Arrays.fill(renamed, -1);
+        int next = 0;
+        for(int v = 0; v < communities.length; v++){
+            if(renamed[communities[v]] < 0){
+                renamed[communities[v]] = next++;
+            }
+            communities[v] = renamed[communities[v]];
+        }
+        return next;
+    }
+
+    private static int[] identity(int size) {
+        int[] identity = new int[size];
+        for(int v = 0; v < size; v++){
+            identity[v] = v;
+        }
+        return identity;
+    }
+
+    /**
+     * The graph of one level, with both arcs of every edge in CSR form and a
+     * self-loop stored once with the weight of both of its arcs, so that the
+     * weighted degree of a vertex is the sum of its row.
+     */
+    private static class Level {
+        private final int _size;
+        private final int[] _offsets;
+        private final int[] _targets;
+        private final double[] _weights;
+        private final double[] _degrees;
+        // the sum of all the degrees, twice the total weight
+        private final double _twiceWeight;
+
+        private Level(int size, int[] offsets, int[] targets, double[] weights) {
+            _size = size;
+            _offsets = offsets;
+            _targets = targets;
+            _weights = weights;
+            _degrees = new double[size];
+            double twiceWeight = 0;
+            for(int u = 0; u < size; u++){
+                for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                    _degrees[u] += weights[arc];
+                }
+                twiceWeight += _degrees[u];
+            }
+            _twiceWeight = twiceWeight;
+        }
+
+        private static Level of(CsrGraph<?> csr) {
+            int size = csr.size();
+            boolean directed = csr.isDirected();
+            int[] offsets = new int[size + 1];
+            for(int u = 0; u < size; u++){
+                offsets[u + 1] = offsets[u] + csr.outDegree(u) + (directed ? csr.inDegree(u) : 0);
+            }
+            int[] targets = new int[offsets[size]];
+            double[] weights = new double[offsets[size]];
+            for(int u = 0; u < size; u++){
+                int i = offsets[u];
+                for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                    targets[i] = csr.outTargets()[arc];
+                    // an undirected self-loop has only the one arc
+                    weights[i++] = csr.outWeights()[arc] * ((!directed && targets[i - 1] == u) ? 2 : 1);
+                }
+                if(directed){
+                    for(int arc = csr.inOffsets()[u]; arc < csr.inOffsets()[u + 1]; arc++){
+                        targets[i] = csr.inSources()[arc];
+                        weights[i++] = csr.inWeights()[arc];
+                    }
+                }
+            }
+            return new Level(size, offsets, targets, weights);
+        }
+
+        /**
+         * Returns the modularity of the given communities of this level's
+         * vertices.
+         */
+        private double modularity(int[] communities) {
+            if(_twiceWeight == 0){
+                return 0;
+            }
+            double[] totals = new double[_size];
+            double inside = 0;
+            for(int u = 0; u < _size; u++){
+                totals[communities[u]] += _degrees[u];
+                for(int arc = _offsets[u]; arc < _offsets[u + 1]; arc++){
+                    if(communities[_targets[arc]] == communities[u]){
+                        inside += _weights[arc];
+                    }
+                }
+            }
+            double expected = 0;
+            for(double total : totals){
+                expected += total * total;
+            }
+            return inside / _twiceWeight - expected / (_twiceWeight * _twiceWeight);
+        }
+
+        private double[] totals(int[] communities) {
+            double[] totals = new double[_size];
+            for(int u = 0; u < _size; u++){
+                totals[communities[u]] += _degrees[u];
+            }
+            return totals;
+        }
+
+        /**
+         * Moves vertices one at a time until a sweep gains too little, and
+         * returns the communities.
+         */
+        private int[] moveSequentially() {
+            int[] communities = identity(_size);
+            double[] totals = this.totals(communities);
+            Scratch scratch = new Scratch(_size);
+            double modularity = this.modularity(communities);
+            for(int sweep = 0; sweep < MAX_SWEEPS; sweep++){
+                int moved = 0;
+                for(int u = 0; u < _size; u++){
+                    int from = communities[u];
+                    int to = this.bestCommunity(u, communities, totals, null, scratch);
+                    if(to != from){
+                        totals[from] -= _degrees[u];
+                        totals[to] += _degrees[u];
+                        communities[u] = to;
+                        moved++;
+                    }
+                }
+                double next = this.modularity(communities);
+                if(moved == 0 || next - modularity <= MIN_GAIN){
+                    break;
+                }
+                modularity = next;
+            }
+            return communities;
+        }
+
+        /**
+         * Chooses the moves of each sweep in parallel against the
+         * communities as they were when it began, and makes them together,
+         * until a sweep gains too little; a sweep that loses is undone.
+         */
+        private int[] moveInParallel(ExecutorService pool, int threads)
+                throws InterruptedException, ExecutionException {
+            int[] communities = identity(_size);
+            int[] next = new int[_size];
+            double modularity = this.modularity(communities);
+            int[] bounds = Parallel.arcBalancedBounds(_offsets, _size, Parallel.numRanges(threads));
+            Scratch[] scratches = new Scratch[bounds.length - 1];
+            for(int sweep = 0; sweep < MAX_SWEEPS; sweep++){
+                double[] totals = this.totals(communities);
+                int[] counts = new int[_size];
+                for(int c : communities){
+                    counts[c]++;
+                }
+                int[] current = communities;
+                List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+                for(int i = 0; i + 1 < bounds.length; i++){
+                    int chunk = i;
+                    tasks.add(() -> {
+                        if(scratches[chunk] == null){
+                            scratches[chunk] = new Scratch(_size);
+                        }
+                        int moved = 0;
+                        for(int u = bounds[chunk]; u < bounds[chunk + 1]; u++){
+                            next[u] = this.bestCommunity(u, current, totals, counts, scratches[chunk]);
+                            if(next[u] != current[u]){
+                                moved++;
+                            }
+                        }
+                        return moved;
+                    });
+                }
+                int moved = 0;
+                for(int chunkMoved : Parallel.invokeAll(pool, tasks)){
+                    moved += chunkMoved;
+                }
+                if(moved == 0){
+                    break;
+                }
+                double gained = this.modularity(next);
+                if(gained < modularity){
+                    break;
+                }
+                System.arraycopy(next, 0, communities, 0, _size);
+                if(gained - modularity <= MIN_GAIN){
+                    break;
+                }
+                modularity = gained;
+            }
+            return communities;
+        }
+
+        /**
+         * Returns the community that u gains the most modularity by moving
+         * to, which is its own if no move gains anything. counts holds the
+         * number of vertices in every community when moves are made
+         * together, and is null when they are made one at a time.
+         */
+        private int bestCommunity(int u, int[] communities, double[] totals, int[] counts, Scratch scratch) {
+            int own = communities[u];
+            double degree = _degrees[u];
+            if(degree == 0){
+                return own;
+            }
+            scratch.add(own, 0);
+            for(int arc = _offsets[u]; arc < _offsets[u + 1]; arc++){
+                int v = _targets[arc];
+                if(v != u){
+                    scratch.add(communities[v], _weights[arc]);
+                }
+            }
+            // the gain of joining c, up to a constant factor, is the weight
+            // to c less the weight expected by chance to c without u
+            int best = own;
+            double bestGain = scratch._weightTo[own] - degree * (totals[own] - degree) / _twiceWeight;
+            boolean alone = counts != null && counts[own] == 1;
+            for(int i = 0; i < scratch._touched.size(); i++){
+                int c = scratch._touched.get(i);
+                if(c == own){
+                    continue;
+                }
+                double gain = scratch._weightTo[c] - degree * totals[c] / _twiceWeight;
+                // two vertices alone that move together would only swap
+                if(alone && c > own && counts[c] == 1){
+                    continue;
+                }
+                if(gain > bestGain || (gain == bestGain && c < best && best != own)){
+                    best = c;
+                    bestGain = gain;
+                }
+            }
+            scratch.clear();
+            return best;
+        }
+
+        /**
+         * Builds the graph of the next level, whose vertices are this
+         * level's communities.
+         */
+        private Level aggregate(int[] communities, int numCommunities) {
+            // the vertices of every community, with a counting sort
+            int[] memberOffsets = new int[numCommunities + 1];
+            for(int c : communities){
+                memberOffsets[c + 1]++;
+            }
+            for(int c = 0; c < numCommunities; c++){
+                memberOffsets[c + 1] += memberOffsets[c];
+            }
+            int[] members = new int[_size];
+            int[] fill = Arrays.copyOf(memberOffsets, numCommunities);
+            for(int u = 0; u < _size; u++){
+                members[fill[communities[u]]++] = u;
+            }
+
+            int[] offsets = new int[numCommunities + 1];
+            IntList targets = new IntList(_targets.length / 2 + 1);
+            double[] weights = new double[_targets.length + 1];
+            Scratch scratch = new Scratch(numCommunities);
+            for(int c = 0; c < numCommunities; c++){
+                for(int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++){
+                    int u = members[i];
+                    for(int arc = _offsets[u]; arc < _offsets[u + 1]; arc++){
+                        scratch.add(communities[_targets[arc]], _weights[arc]);
+                    }
+                }
+                for(int i = 0; i < scratch._touched.size(); i++){
+                    int d = scratch._touched.get(i);
+                    weights[targets.size()] = scratch._weightTo[d];
+                    targets.add(d);
+                }
+                scratch.clear();
+                offsets[c + 1] = targets.size();
+            }
+            return new Level(numCommunities, offsets, targets.toArray(), Arrays.copyOf(weights, targets.size()));
+        }
+    }
+
+    /**
+     * A thread's array of weights to each community, indexed by community,
+     * and the communities it holds weights for, so it can be cleared in
+     * time proportional to them.
+     */
+    private static class Scratch {
+        private final double[] _weightTo;
+        private final IntList _touched;
+        private final boolean[] _isTouched;
+
+        private Scratch(int size) {
+            _weightTo = new double[size];
+            _touched = new IntList();
+            _isTouched = new boolean[size];
+        }
+
+        private void add(int community, double weight) {
+            if(!_isTouched[community]){
+                _isTouched[community] = true;
+                _touched.add(community);
+            }
+            _weightTo[community] += weight;
+        }
+
+        private void clear() {
+            for(int i = 0; i < _touched.size(); i++){
+                int community = _touched.get(i);
+                _weightTo[community] = 0;
+                _isTouched[community] = false;
+            }
+            _touched.clear();
+        }
+    }
+
+    /**
+     * The communities found: the community id of every vertex number (-1
+     * for numbers that are not vertices), numbered in order of their
+     * smallest vertex, at the last level and at every level before it.
+     */
+    public static class Communities<V> {
+        private final CsrGraph<V> _csr;
+        private final int[] _ids;
+        private final int[] _sizes;
+        private final double _modularity;
+        private final List<int[]> _levels;
+
+        private Communities(CsrGraph<V> csr, int[] ids, double modularity, List<int[]> levels) {
+            _csr = csr;
+            _ids = ids;
+            _modularity = modularity;
+            _levels = levels;
+            int numCommunities = 0;
+            for(int id : ids){
+                numCommunities = Math.max(numCommunities, id + 1);
+            }
+            _sizes = new int[numCommunities];
+            for(int id : ids){
+                if(id >= 0){
+                    _sizes[id]++;
+                }
+            }
+        }
+
+        /**
+         * Returns the community ids indexed by vertex number. The array is
+         * not copied; do not change it.
+         */
+        public int[] ids() {
+            return _ids;
+        }
+
+        /**
+         * Returns the sizes of the communities indexed by id. The array is
+         * not copied; do not change it.
+         */
+        public int[] sizes() {
+            return _sizes;
+        }
+
+        public int getNumCommunities() {
+            return _sizes.length;
+        }
+
+        public int communityOf(CS16Vertex<V> vertex) {
+            return _ids[_csr.numberOf(vertex)];
+        }
+
+        /**
+         * Returns the vertices of a community, in order of vertex number.
+         */
+        public List<CS16Vertex<V>> members(int id) {
+            if(id < 0 || id >= _sizes.length){
+                throw new IllegalArgumentException("no community " + id);
+            }
+            List<CS16Vertex<V>> members = new ArrayList<CS16Vertex<V>>(_sizes[id]);
+            for(int v = 0; v < _ids.length; v++){
+                if(_ids[v] == id){
+                    members.add(_csr.vertex(v));
+                }
+            }
+            return members;
+        }
+
+        /**
+         * Returns the modularity of the communities, between -1/2 and 1.
+         */
+        public double getModularity() {
+            return _modularity;
+        }
+
+        /**
+         * Returns the number of levels of aggregation, each of which merged
+         * communities of the one before.
+         */
+        public int getNumLevels() {
+            return _levels.size();
+        }
+
+        /**
+         * Returns the community ids, indexed by vertex number, found by the
+         * given level, from 0 for the finest. The array is not copied; do
+         * not change it.
+         */
+        public int[] levelIds(int level) {
+            if(level < 0 || level >= _levels.size()){
+                throw new IllegalArgumentException("no level " + level);
+            }
+            return _levels.get(level);
+        }
+    }
+}
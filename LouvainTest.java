@@ -0,0 +1,150 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests Louvain community detection, on one thread and several.
+ */
+public class LouvainTest {
+
+    /**
+     * Tests that four cliques joined in a ring by single edges come out as
+     * four communities
+     */
+    @Test
+    public void ringOfCliques() {
+        for(boolean directed : new boolean[] {false, true}){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(directed);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 40; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int clique = 0; clique < 4; clique++){
+                for(int i = 0; i < 10; i++){
+                    for(int j = i + 1; j < 10; j++){
+                        graph.insertEdge(vertices.get(clique * 10 + i), vertices.get(clique * 10 + j), 1);
+                    }
+                }
+                graph.insertEdge(vertices.get(clique * 10), vertices.get((clique * 10 + 15) % 40), 1);
+            }
+            Louvain<Integer> louvain = new Louvain<Integer>(graph);
+            for(int threads = 1; threads <= 3; threads++){
+                Louvain.Communities<Integer> communities = louvain.detect(threads);
+                assertThat(communities.getNumCommunities(), is(4));
+                for(int v = 0; v < 40; v++){
+                    assertThat(communities.communityOf(vertices.get(v)), is(v / 10));
+                }
+                assertEquals(modularity(louvain.getCsrGraph(), communities.ids()), communities.getModularity(),
+                        1e-9);
+                assertThat(communities.members(2).size(), is(10));
+            }
+        }
+    }
+
+    /**
+     * Tests that heavy edges pull their ends into one community even where
+     * light ones would not
+     */
+    @Test
+    public void weights() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        graph.insertEdge(A, B, 10);
+        graph.insertEdge(C, D, 10);
+        graph.insertEdge(B, C, 1);
+        graph.insertEdge(D, A, 1);
+
+        Louvain.Communities<String> communities = new Louvain<String>(graph).detect();
+        assertThat(communities.getNumCommunities(), is(2));
+        assertThat(communities.communityOf(A), is(communities.communityOf(B)));
+        assertThat(communities.communityOf(C), is(communities.communityOf(D)));
+        assertTrue(communities.communityOf(A) != communities.communityOf(C));
+    }
+
+    /**
+     * Tests that on random graphs the reported modularity is that of the
+     * communities found, and better than leaving every vertex alone
+     */
+    @Test
+    public void randomGraphs() {
+        Random random = new Random(42);
+        for(int trial = 0; trial < 6; trial++){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(trial % 2 == 0);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 90; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int i = 0; i < 200; i++){
+                CS16Vertex<Integer> a = vertices.get(random.nextInt(90));
+                CS16Vertex<Integer> b = vertices.get(random.nextInt(90));
+                if(a != b && !graph.areAdjacent(a, b)){
+                    graph.insertEdge(a, b, 1 + random.nextInt(5));
+                }
+            }
+            Louvain<Integer> louvain = new Louvain<Integer>(graph);
+            int[] alone = new int[louvain.getCsrGraph().size()];
+            for(int v = 0; v < alone.length; v++){
+                alone[v] = v;
+            }
+            double baseline = modularity(louvain.getCsrGraph(), alone);
+            for(int threads = 1; threads <= 2; threads++){
+                Louvain.Communities<Integer> communities = louvain.detect(threads);
+                double modularity = modularity(louvain.getCsrGraph(), communities.ids());
+                assertEquals(modularity, communities.getModularity(), 1e-9);
+                assertTrue(modularity > baseline + 0.2);
+                int[] levelIds = communities.levelIds(communities.getNumLevels() - 1);
+                assertThat(levelIds, is(communities.ids()));
+            }
+        }
+    }
+
+    /**
+     * Computes modularity straight from its definition over pairs of
+     * vertices.
+     */
+    private static double modularity(CsrGraph<Integer> csr, int[] ids) {
+        int n = csr.size();
+        double[][] weights = new double[n][n];
+        for(int u = 0; u < n; u++){
+            for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                int v = csr.outTargets()[arc];
+                weights[u][v] += csr.outWeights()[arc];
+                if(csr.isDirected()){
+                    weights[v][u] += csr.outWeights()[arc];
+                }
+            }
+        }
+        double[] degrees = new double[n];
+        double total = 0;
+        for(int u = 0; u < n; u++){
+            for(int v = 0; v < n; v++){
+                degrees[u] += weights[u][v];
+            }
+            total += degrees[u];
+        }
+        double q = 0;
+        for(int u = 0; u < n; u++){
+            for(int v = 0; v < n; v++){
+                if(ids[u] == ids[v]){
+                    q += weights[u][v] - degrees[u] * degrees[v] / total;
+                }
+            }
+        }
+        return q / total;
+    }
+}
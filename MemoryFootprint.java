@@ -0,0 +1,321 @@
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * An estimate of the memory a graph (or a decorator, or anything else that
+ * reports one) retains, in bytes, broken down by component, so that heaps
+ * can be sized and backends picked from numbers rather than guesses.
+ *
+ * <p>
+ * The estimates follow the HotSpot object layout: an object is a header plus
+ * its fields, rounded up to the object alignment, and an array is a header,
+ * its length and its elements, rounded up likewise. Whether references and
+ * class pointers are compressed, and the alignment, are read from the
+ * running JVM. Field sizes come from reflection over each object's class, so
+ * the estimates follow the real vertex and edge classes whatever they hold.
+ * The size of a hash table or list's backing array is worked out from how it
+ * grows, since it cannot be read, so a set that has shrunk is
+ * underestimated. FootprintBench checks the estimates against the heap.
+ * </p>
+ *
+ * <p>
+ * Memory outside the heap, such as the mapped file behind a SnapshotGraph,
+ * is listed separately and left out of getTotalBytes().
+ * </p>
+ */
+public final class MemoryFootprint {
+
+    static final int REFERENCE_BYTES;
+    static final int OBJECT_HEADER_BYTES;
+    static final int ALIGNMENT;
+
+    static {
+        // 64-bit HotSpot defaults for heaps under 32GB, in case the flags cannot be read
+        boolean compressedOops = Runtime.getRuntime().maxMemory() < (32L << 30);
+        boolean compressedClassPointers = compressedOops;
+        int alignment = 8;
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            compressedOops = Boolean.parseBoolean(hotSpot.getVMOption("UseCompressedOops").getValue());
+            compressedClassPointers = Boolean.parseBoolean(
+                    hotSpot.getVMOption("UseCompressedClassPointers").getValue());
+            alignment = Integer.parseInt(hotSpot.getVMOption("ObjectAlignmentInBytes").getValue());
+        } catch (RuntimeException | LinkageError e) {
+            // not HotSpot; keep the defaults
+        }
+        REFERENCE_BYTES = compressedOops ? 4 : 8;
+        OBJECT_HEADER_BYTES = compressedClassPointers ? 12 : 16;
+        ALIGNMENT = alignment;
+    }
+
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            long fields = 0;
+            for(Class<?> c = type; c != null; c = c.getSuperclass()){
+                for(Field field : c.getDeclaredFields()){
+                    if(!Modifier.isStatic(field.getModifiers())){
+                        fields += bytesOf(field.getType());
+                    }
+                }
+            }
+            return align(OBJECT_HEADER_BYTES + fields);
+        }
+    };
+
+    private final Map<String, Long> _components;
+    private final Map<String, Long> _offHeap;
+
+    MemoryFootprint() {
+        _components = new LinkedHashMap<String, Long>();
+        _offHeap = new LinkedHashMap<String, Long>();
+    }
+
+    /**
+     * Adds bytes on the heap to a component.
+     */
+    void add(String component, long bytes) {
+        _components.merge(component, bytes, Long::sum);
+    }
+
+    /**
+     * Adds bytes outside the heap to a component.
+     */
+    void addOffHeap(String component, long bytes) {
+        _offHeap.merge(component, bytes, Long::sum);
+    }
+
+    /**
+     * Returns the estimated heap bytes of every component.
+     */
+    public long getTotalBytes() {
+        long total = 0;
+        for(long bytes : _components.values()){
+            total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the bytes held outside the heap.
+     */
+    public long getOffHeapBytes() {
+        long total = 0;
+        for(long bytes : _offHeap.values()){
+            total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the estimated heap bytes of one component, or 0 if there is no
+     * such component.
+     */
+    public long getBytes(String component) {
+        return _components.getOrDefault(component, 0L);
+    }
+
+    /**
+     * Returns the heap bytes of each component, in the order they were
+     * added.
+     */
+    public Map<String, Long> components() {
+        return Collections.unmodifiableMap(_components);
+    }
+
+    /**
+     * Returns the bytes of each component held outside the heap.
+     */
+    public Map<String, Long> offHeapComponents() {
+        return Collections.unmodifiableMap(_offHeap);
+    }
+
+    /**
+     * Returns a footprint holding this one's components and other's, whose
+     * names are prefixed with name, for example to count a graph together
+     * with its decorators.
+     */
+    public MemoryFootprint plus(String name, MemoryFootprint other) {
+        MemoryFootprint sum = new MemoryFootprint();
+        _components.forEach(sum::add);
+        _offHeap.forEach(sum::addOffHeap);
+        other._components.forEach((component, bytes) -> sum.add(name + ": " + component, bytes));
+        other._offHeap.forEach((component, bytes) -> sum.addOffHeap(name + ": " + component, bytes));
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        _components.forEach((component, bytes) -> text.append(String.format("%-28s %,14d%n", component, bytes)));
+        text.append(String.format("%-28s %,14d%n", "total", this.getTotalBytes()));
+        _offHeap.forEach((component, bytes) -> text.append(String.format("%-28s %,14d%n",
+                component + " (off heap)", bytes)));
+        return text.toString();
+    }
+
+    static long align(long bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static int bytesOf(Class<?> type) {
+        if(!type.isPrimitive()){
+            return REFERENCE_BYTES;
+        }
+        if(type == long.class || type == double.class){
+            return 8;
+        }
+        if(type == int.class || type == float.class){
+            return 4;
+        }
+        if(type == short.class || type == char.class){
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the bytes of an object of the given class, not counting what
+     * its fields refer to.
+     */
+    static long shallowSize(Class<?> type) {
+        return SHALLOW_SIZES.get(type);
+    }
+
+    /**
+     * Returns the bytes of an array of length elements of the given type.
+     */
+    static long arrayBytes(long length, Class<?> elementType) {
+        int elementBytes = bytesOf(elementType);
+        // the length follows the header, and 8-byte elements start 8-byte aligned
+        long base = OBJECT_HEADER_BYTES + 4;
+        if(elementBytes == 8){
+            base = (base + 7) & ~7L;
+        }
+        return align(base + length * elementBytes);
+    }
+
+    /**
+     * Returns the bytes an object retains on its own account: an array and
+     * its elements (not what they refer to), a String and its characters, or
+     * the shallow size of anything else. Boxed values the JVM caches, such
+     * as Integer.valueOf(5), are shared and count as 0.
+     */
+    static long valueBytes(Object value) {
+        if(value == null){
+            return 0;
+        }
+        Class<?> type = value.getClass();
+        if(type.isArray()){
+            return arrayBytes(Array.getLength(value), type.getComponentType());
+        }
+        if(value instanceof String){
+            String string = (String) value;
+            boolean latin1 = true;
+            for(int i = 0; i < string.length() && latin1; i++){
+                latin1 = string.charAt(i) < 256;
+            }
+            return shallowSize(type) + arrayBytes(latin1 ? string.length() : 2L * string.length(), byte.class);
+        }
+        if(value instanceof Integer && value == Integer.valueOf((Integer) value)){
+            return 0;
+        }
+        return shallowSize(type);
+    }
+
+    /**
+     * Returns the length of the table of a HashMap or HashSet that grew to
+     * hold size entries: 16 at first, doubled whenever it is three quarters
+     * full.
+     */
+    static int hashTableLength(int size) {
+        int length = 16;
+        while(size > length * 3L / 4 && length < (1 << 30)){
+            length *= 2;
+        }
+        return length;
+    }
+
+    /**
+     * Returns the bytes of a HashMap of size entries, its table and its
+     * nodes, not counting the keys and values. An empty map is taken to have
+     * no table yet, as it has until its first entry.
+     */
+    static long hashMapBytes(int size) {
+        long table = (size == 0) ? 0 : arrayBytes(hashTableLength(size), Object.class);
+        return shallowSize(java.util.HashMap.class) + table + size * HashNode.BYTES;
+    }
+
+    /**
+     * Returns the bytes of a HashSet of size elements, not counting the
+     * elements.
+     */
+    static long hashSetBytes(int size) {
+        return shallowSize(java.util.HashSet.class) + hashMapBytes(size);
+    }
+
+    /**
+     * Returns the bytes of a HashSet of size elements whose table was
+     * presized to presizedLength, as presizedTableLength gives, or 0 if it
+     * was not: the table then only doubles once size outgrows it.
+     */
+    static long hashSetBytes(int size, int presizedLength) {
+        if(size == 0 || presizedLength <= hashTableLength(size)){
+            return hashSetBytes(size);
+        }
+        return shallowSize(java.util.HashSet.class) + shallowSize(java.util.HashMap.class)
+                + arrayBytes(presizedLength, Object.class) + size * HashNode.BYTES;
+    }
+
+    /**
+     * Returns the length of the table of a HashMap or HashSet made with the
+     * given initial capacity: the power of two at least that large.
+     */
+    static int presizedTableLength(int initialCapacity) {
+        int length = 1;
+        while(length < initialCapacity && length < (1 << 30)){
+            length *= 2;
+        }
+        return length;
+    }
+
+    /**
+     * Returns the bytes of an ArrayList that grew to hold maxSize elements,
+     * not counting the elements: 10 slots at first, half as many again
+     * whenever it is full.
+     */
+    static long arrayListBytes(int maxSize) {
+        int capacity = (maxSize == 0) ? 0 : 10;
+        while(capacity < maxSize){
+            capacity += Math.max(capacity >> 1, 1);
+        }
+        return shallowSize(java.util.ArrayList.class) + arrayBytes(capacity, Object.class);
+    }
+
+    /**
+     * The size of one entry of a HashMap.
+     */
+    private static class HashNode {
+        static final long BYTES;
+
+        static {
+            long bytes;
+            try {
+                bytes = shallowSize(Class.forName("java.util.HashMap$Node"));
+            } catch (ClassNotFoundException e) {
+                // hash, key, value and next
+                bytes = align(OBJECT_HEADER_BYTES + 4 + 3L * REFERENCE_BYTES);
+            }
+            BYTES = bytes;
+        }
+    }
+}
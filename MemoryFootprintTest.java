@@ -0,0 +1,235 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static support.graph.Constants.MAX_VERTICES;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that footprints list the components of each graph, grow
+ * with what the graph holds, and add up.
+ */
+public class MemoryFootprintTest {
+
+    private Path _file;
+
+    @Before
+    public void setup() throws IOException {
+        _file = Files.createTempFile("graph", ".snapshot");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(_file);
+    }
+
+    /**
+     * Tests that the adjacency matrix costs MAX_VERTICES^2 references however
+     * empty the graph, and that vertices and edges add to their own
+     * components only
+     */
+    @Test
+    public void matrixGraph() {
+        AdjacencyMatrixGraph<Integer> graph = new AdjacencyMatrixGraph<Integer>(false);
+        MemoryFootprint empty = graph.footprint();
+        long matrix = (MAX_VERTICES + 1) * MemoryFootprint.arrayBytes(MAX_VERTICES, Object.class);
+        assertThat(empty.getBytes("adjacency matrix"), is(matrix));
+        assertThat(empty.getBytes("vertices"), is(0L));
+        assertThat(empty.getBytes("edges"), is(0L));
+        assertThat(empty.getOffHeapBytes(), is(0L));
+
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < 10; i++){
+            vertices.add(graph.insertVertex(1000 + i));
+        }
+        MemoryFootprint withVertices = graph.footprint();
+        assertThat(withVertices.getBytes("adjacency matrix"), is(matrix));
+        long vertexBytes = MemoryFootprint.shallowSize(vertices.get(0).getClass());
+        assertThat(withVertices.getBytes("vertices"), is(10 * vertexBytes));
+        assertThat(withVertices.getBytes("vertex elements"), is(10 * MemoryFootprint.shallowSize(Integer.class)));
+        assertTrue(withVertices.getBytes("vertex set") > empty.getBytes("vertex set"));
+
+        for(int i = 1; i < 10; i++){
+            graph.insertEdge(vertices.get(i - 1), vertices.get(i), 500 + i);
+        }
+        MemoryFootprint withEdges = graph.footprint();
+        assertTrue(withEdges.getBytes("edges") > 9 * MemoryFootprint.shallowSize(Integer.class));
+        assertThat(withEdges.getBytes("vertices"), is(10 * vertexBytes));
+        assertTrue(withEdges.getTotalBytes() > withVertices.getTotalBytes());
+
+        long sum = 0;
+        for(long bytes : withEdges.components().values()){
+            assertTrue(bytes >= 0);
+            sum += bytes;
+        }
+        assertThat(withEdges.getTotalBytes(), is(sum));
+    }
+
+    /**
+     * Tests that an edge set presized by insertEdges is counted at its
+     * presized table, larger than the one adding the edges one at a time
+     * grows
+     */
+    @Test
+    public void bulkLoadedMatrix() {
+        AdjacencyMatrixGraph<Integer> oneByOne = new AdjacencyMatrixGraph<Integer>(true);
+        AdjacencyMatrixGraph<Integer> bulk = new AdjacencyMatrixGraph<Integer>(true);
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        List<CS16Vertex<Integer>> bulkVertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < 13; i++){
+            vertices.add(oneByOne.insertVertex(i));
+            bulkVertices.add(bulk.insertVertex(i));
+        }
+        int[] sources = new int[12];
+        int[] targets = new int[12];
+        int[] weights = new int[12];
+        for(int i = 0; i < 12; i++){
+            oneByOne.insertEdge(vertices.get(i), vertices.get(i + 1), 1);
+            sources[i] = i;
+            targets[i] = i + 1;
+            weights[i] = 1;
+        }
+        bulk.insertEdges(bulkVertices, sources, targets, weights, 12);
+
+        // 12 edges fit a table of 16, but insertEdges asks for room for 17
+        assertThat(oneByOne.footprint().getBytes("edge set"), is(MemoryFootprint.hashSetBytes(12)));
+        assertThat(bulk.footprint().getBytes("edge set"), is(MemoryFootprint.hashSetBytes(12, 32)));
+        assertTrue(MemoryFootprint.hashSetBytes(12, 32) > MemoryFootprint.hashSetBytes(12));
+        assertThat(MemoryFootprint.hashSetBytes(100, 32), is(MemoryFootprint.hashSetBytes(100)));
+    }
+
+    /**
+     * Tests that a compressed graph lists predecessors only when directed,
+     * and takes far less than the matrix it was built from
+     */
+    @Test
+    public void compressedGraph() {
+        for(boolean directed : new boolean[] { false, true }){
+            AdjacencyMatrixGraph<String> graph = new AdjacencyMatrixGraph<String>(directed);
+            List<CS16Vertex<String>> vertices = new ArrayList<CS16Vertex<String>>();
+            for(int i = 0; i < 60; i++){
+                vertices.add(graph.insertVertex("v" + i));
+            }
+            for(int i = 0; i < 60; i++){
+                graph.insertEdge(vertices.get(i), vertices.get((i + 1) % 60), 1);
+                graph.insertEdge(vertices.get(i), vertices.get((i + 7) % 60), 2);
+            }
+            MemoryFootprint footprint = CompressedGraph.of(graph).footprint();
+            assertTrue(footprint.getBytes("successor lists") > 0);
+            assertTrue(footprint.getBytes("successor index") > 0);
+            assertThat(footprint.components().containsKey("predecessor lists"), is(directed));
+            assertThat(footprint.getBytes("vertex elements"), is(60 * MemoryFootprint.valueBytes("v10")));
+            assertTrue(footprint.getTotalBytes() < graph.footprint().getTotalBytes() / 4);
+        }
+    }
+
+    /**
+     * Tests that a snapshot's mapped file is off the heap, and that its
+     * caches start empty and grow as vertices and edges are asked for
+     */
+    @Test
+    public void snapshotGraph() throws IOException {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        List<CS16Vertex<String>> vertices = new ArrayList<CS16Vertex<String>>();
+        for(int i = 0; i < 20; i++){
+            vertices.add(graph.insertVertex("v" + i));
+        }
+        for(int i = 1; i < 20; i++){
+            graph.insertEdge(vertices.get(i - 1), vertices.get(i), i);
+        }
+        GraphSnapshot.write(graph, _file);
+        SnapshotGraph snapshot = GraphSnapshot.open(_file);
+
+        MemoryFootprint cold = snapshot.footprint();
+        assertTrue(cold.getOffHeapBytes() > 0);
+        assertTrue(cold.getOffHeapBytes() <= Files.size(_file));
+        assertThat(cold.offHeapComponents().size(), is(1));
+        long emptyCaches = cold.getBytes("cached vertices") + cold.getBytes("cached edges");
+        assertThat(emptyCaches, is(2 * MemoryFootprint.hashMapBytes(0)));
+
+        int count = 0;
+        for(Iterator<CS16Edge<String>> edges = snapshot.edges(); edges.hasNext(); edges.next()){
+            count++;
+        }
+        assertThat(count, is(19));
+        MemoryFootprint warm = snapshot.footprint();
+        assertTrue(warm.getBytes("cached vertices") + warm.getBytes("cached edges") > emptyCaches);
+        assertThat(warm.getOffHeapBytes(), is(cold.getOffHeapBytes()));
+    }
+
+    /**
+     * Tests that a decorator counts a value shared by several keys once, and
+     * does not count its keys
+     */
+    @Test
+    public void decorator() {
+        MyDecorator<String, double[]> own = new MyDecorator<String, double[]>();
+        MyDecorator<String, double[]> shared = new MyDecorator<String, double[]>();
+        double[] point = { 1, 2 };
+        for(int i = 0; i < 10; i++){
+            own.setDecoration("k" + i, new double[] { i, i });
+            shared.setDecoration("k" + i, point);
+        }
+        long pointBytes = MemoryFootprint.arrayBytes(2, double.class);
+        assertThat(own.footprint().getBytes("decorations"), is(10 * pointBytes));
+        assertThat(shared.footprint().getBytes("decorations"), is(pointBytes));
+        assertThat(own.footprint().getBytes("decorator"), is(shared.footprint().getBytes("decorator")));
+    }
+
+    /**
+     * Tests that plus() keeps both footprints' components, the other's
+     * under its name
+     */
+    @Test
+    public void plus() {
+        AdjacencyMatrixGraph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> a = graph.insertVertex("a");
+        MyDecorator<CS16Vertex<String>, double[]> coordinates = new MyDecorator<CS16Vertex<String>, double[]>();
+        coordinates.setDecoration(a, new double[] { 0, 0 });
+
+        MemoryFootprint graphFootprint = graph.footprint();
+        MemoryFootprint decoratorFootprint = coordinates.footprint();
+        MemoryFootprint sum = graphFootprint.plus("coordinates", decoratorFootprint);
+        assertThat(sum.getTotalBytes(), is(graphFootprint.getTotalBytes() + decoratorFootprint.getTotalBytes()));
+        assertThat(sum.getBytes("vertices"), is(graphFootprint.getBytes("vertices")));
+        assertThat(sum.getBytes("coordinates: decorations"), is(decoratorFootprint.getBytes("decorations")));
+        assertThat(sum.components().size(),
+                is(graphFootprint.components().size() + decoratorFootprint.components().size()));
+        assertTrue(sum.toString().contains("coordinates: decorations"));
+    }
+
+    /**
+     * Tests the sizes worked out for arrays and growing collections
+     */
+    @Test
+    public void layout() {
+        assertEquals(0, MemoryFootprint.arrayBytes(5, long.class) % MemoryFootprint.ALIGNMENT);
+        assertTrue(MemoryFootprint.arrayBytes(10, int.class) >= MemoryFootprint.OBJECT_HEADER_BYTES + 4 + 40);
+        assertThat(MemoryFootprint.hashTableLength(0), is(16));
+        assertThat(MemoryFootprint.hashTableLength(12), is(16));
+        assertThat(MemoryFootprint.hashTableLength(13), is(32));
+        assertThat(MemoryFootprint.hashMapBytes(0), is(MemoryFootprint.shallowSize(java.util.HashMap.class)));
+        assertThat(MemoryFootprint.presizedTableLength(17), is(32));
+        assertThat(MemoryFootprint.presizedTableLength(16), is(16));
+        assertThat(MemoryFootprint.arrayListBytes(10), is(MemoryFootprint.arrayListBytes(1)));
+        assertTrue(MemoryFootprint.arrayListBytes(11) > MemoryFootprint.arrayListBytes(10));
+        assertThat(MemoryFootprint.valueBytes(Integer.valueOf(5)), is(0L));
+        assertTrue(MemoryFootprint.valueBytes(Integer.valueOf(5000)) > 0);
+    }
+}
@@ -146,7 +146,7 @@ public class MsfTest {
 
         assertThat(MSF.size(), is(2));
         assertThat((MSF.contains(ab) && MSF.contains(ac)) || (MSF.contains(ab) && MSF.contains(bc)) ||
-                (MSF.contains(ac) && MSF.contains(ab)), is(true));
+                (MSF.contains(ac) && MSF.contains(bc)), is(true));
     }
     
 
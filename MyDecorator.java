@@ -1,6 +1,8 @@
 package graph;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Set;
 
 import support.graph.CS16Decorator;
@@ -96,4 +98,28 @@ public class MyDecorator<K, V> implements CS16Decorator<K, V> {
   public Set<K> getKeys() {
       return _myHashMap.keySet();
   }
+
+  /**
+   * Estimates the memory this decorator retains: the decorator and its hash
+   * map, and the decorations, each counted once however many keys share
+   * it. The keys belong to whatever is decorated and are not counted.
+   *
+   * <p>
+   * This runs in O(n) time for n decorations.
+   * </p>
+   */
+  public MemoryFootprint footprint() {
+      MemoryFootprint footprint = new MemoryFootprint();
+      footprint.add("decorator", MemoryFootprint.shallowSize(this.getClass())
+              + MemoryFootprint.hashMapBytes(_myHashMap.size()));
+      Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+      long decorations = 0;
+      for(V value : _myHashMap.values()){
+          if(value != null && counted.add(value)){
+              decorations += MemoryFootprint.valueBytes(value);
+          }
+      }
+      footprint.add("decorations", decorations);
+      return footprint;
+  }
 }
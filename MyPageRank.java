@@ -29,6 +29,7 @@ public class MyPageRank<V> implements PageRank<V> {
  	private static final double _dampingFactor = 0.85;
 	private static final int _maxIterations = 100;
 	private static final double _error = 0.01;
+	private AlgorithmEventSink<V> _eventSink = AlgorithmEventSink.none();
 
 	/**
 	 * TODO: Feel free to add in anything else necessary to store the information
@@ -36,6 +37,15 @@ public class MyPageRank<V> implements PageRank<V> {
 	 * your ranks, and your outgoing edges?
 	 */
 
+	/**
+	 * Sets the sink that is told the residual after every round, and that
+	 * may stop the ranking early. By default nobody is told, and the
+	 * residual is not computed.
+	 */
+	public void setEventSink(AlgorithmEventSink<V> eventSink) {
+		_eventSink = (eventSink == null) ? AlgorithmEventSink.<V>none() : eventSink;
+	}
+
 	/**
 	 * The main method that does the calculations! You'll want to call the methods
 	 * that initialize your variables here. You'll also want to decide on a
@@ -70,12 +80,40 @@ public class MyPageRank<V> implements PageRank<V> {
 		}
 
 		int numVertices = _vertices.size();
+		boolean listening = _eventSink.isListening();
+
+		boolean counting = GraphCounters.isEnabled();
 
 		do{
+			GraphEvents.PageRankIteration event = new GraphEvents.PageRankIteration();
+			event.begin();
 			this.currIntoPrev(numVertices);
 			this.handleSinks(numVertices);
-			this.rankUpdater(numVertices);
+			long edgesScanned = this.rankUpdater(numVertices);
 			_numRounds ++;
+			event.end();
+			if(counting){
+				GraphCounters.add(GraphCounters.Counter.EDGES_SCANNED, edgesScanned);
+			}
+			// the residual costs a pass over every vertex, so only work it out for someone
+			boolean recording = event.shouldCommit();
+			if(listening || recording){
+				double residual = this.maxResidual(numVertices);
+				if(listening){
+					_eventSink.iterationCompleted((int) _numRounds, residual);
+				}
+				if(recording){
+					event.iteration = (int) _numRounds;
+					event.residual = residual;
+					event.vertices = numVertices;
+					event.edgesScanned = edgesScanned;
+					event.commit();
+				}
+			}
+			// stopped early, the ranks after this round are the best there are
+			if(listening && _eventSink.shouldStop()){
+				break;
+			}
 		} while(!checkForStoppage(numVertices));
 
 		for(int i = 0; i < numVertices; i++){
@@ -114,6 +152,17 @@ public class MyPageRank<V> implements PageRank<V> {
 		}
 	}
 
+	/**
+	 * Returns the largest change in any vertex's rank during the last round
+	 */
+	private double maxResidual(int numVertices){
+		double residual = 0;
+		for (int i = 0; i < numVertices; i++){
+			residual = Math.max(residual, Math.abs(_currentPageRank.get(i) - _previousPageRank.get(i)));
+		}
+		return residual;
+	}
+
 	/**
 	 * Checks whether either of the stopping conditions have been met for the algorithm to stop running
 	 */
@@ -128,9 +177,11 @@ public class MyPageRank<V> implements PageRank<V> {
 	}
 
 	/**
-	 * Updates the current rank of each vertex based on its opposite vertices
+	 * Updates the current rank of each vertex based on its opposite vertices,
+	 * and returns the number of incoming edges followed
 	 */
-	private void rankUpdater(int numVertices){
+	private long rankUpdater(int numVertices){
+		long edgesScanned = 0;
 		for(int i = 0; i < numVertices; i++) {
 			CS16Vertex<V> vertex = _vertices.get(i);
 			Iterator<CS16Edge<V>> incomingEdges = _g.incomingEdges(vertex);
@@ -139,6 +190,7 @@ public class MyPageRank<V> implements PageRank<V> {
 				CS16Edge<V> edge = incomingEdges.next();
 				CS16Vertex<V> oppositeVertex = _g.opposite(vertex, edge);
 				this.rankUpdaterHelper(vertex, oppositeVertex);
+				edgesScanned++;
 			}
 
 			double dampingDiluted = (1-_dampingFactor) / (numVertices);
@@ -147,6 +199,7 @@ public class MyPageRank<V> implements PageRank<V> {
 			double updatedRank = dampingDiluted + dampingAccounted;
 			_currentPageRank.set(i, updatedRank);
 		}
+		return edgesScanned;
 	}
 
 	/**
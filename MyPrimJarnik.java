@@ -43,7 +43,16 @@ public class MyPrimJarnik<V> implements MinSpanForest<V> {
     private MyDecorator<CS16Vertex<V>, CS16Vertex<V>> _previousVertex;
     private MyDecorator<CS16Vertex<V>, Entry<Integer, CS16Vertex<V>>> _vertexEntry;
     private MyDecorator<CS16Vertex<V>, Boolean> _inPriorityQueue;
+    private AlgorithmEventSink<V> _eventSink = AlgorithmEventSink.none();
 
+    /**
+     * Sets the sink that is told about every vertex taken off the priority
+     * queue and every edge added to the forest, and that may stop the run
+     * early. By default nobody is told.
+     */
+    public void setEventSink(AlgorithmEventSink<V> eventSink) {
+        _eventSink = (eventSink == null) ? AlgorithmEventSink.<V>none() : eventSink;
+    }
 
     @Override
     public Collection<CS16Edge<V>> genMinSpanForest(Graph<V> g, CS16GraphVisualizer<V> visualizer) {
@@ -73,22 +82,41 @@ public class MyPrimJarnik<V> implements MinSpanForest<V> {
 
         CS16AdaptableHeapPriorityQueue<Integer, CS16Vertex<V>> PQ = new CS16AdaptableHeapPriorityQueue<Integer, CS16Vertex<V>>();
 
+        GraphEvents.MinSpanForest event = new GraphEvents.MinSpanForest();
+        event.begin();
+        // tallied locally and reported once at the end, for GraphCounters and the event
+        long heapInserts = 0;
+        long heapRemovals = 0;
+        long heapKeyUpdates = 0;
+        long edgesScanned = 0;
+
         Iterator<CS16Vertex<V>> verticesCopy2 = g.vertices();
         while(verticesCopy2.hasNext()){
             CS16Vertex<V> nextVertex = verticesCopy2.next();
             _vertexEntry.setDecoration(nextVertex, PQ.insert(_vertexCost.getDecoration(nextVertex), nextVertex));
+            heapInserts++;
         }
 
+        boolean listening = _eventSink.isListening();
         while(!PQ.isEmpty()){
             CS16Vertex<V> vertex = PQ.removeMin().getValue();
+            heapRemovals++;
             _inPriorityQueue.setDecoration(vertex, false);
+            if(listening){
+                _eventSink.vertexExtracted(vertex);
+            }
             if(_previousVertex.getDecoration(vertex) != null){
-                MST.add(g.connectingEdge(_previousVertex.getDecoration(vertex), vertex));
+                CS16Edge<V> treeEdge = g.connectingEdge(_previousVertex.getDecoration(vertex), vertex);
+                MST.add(treeEdge);
+                if(listening){
+                    _eventSink.edgeAdded(treeEdge);
+                }
             }
             Iterator<CS16Edge<V>> vertexEdges = g.outgoingEdges(vertex);
             while(vertexEdges.hasNext()){
                 CS16Edge<V> nextEdge = vertexEdges.next();
                 CS16Vertex<V> vertexTwo = g.opposite(vertex, nextEdge);
+                edgesScanned++;
                 if(_vertexCost.getDecoration(vertexTwo) > nextEdge.element() && _inPriorityQueue.getDecoration(vertexTwo) == true){
                     _vertexCost.setDecoration(vertexTwo, nextEdge.element());
                     _previousVertex.setDecoration(vertexTwo, vertex);
@@ -96,8 +124,29 @@ public class MyPrimJarnik<V> implements MinSpanForest<V> {
                     Entry<Integer, CS16Vertex<V>> vertexEntry = _vertexEntry.getDecoration(vertexTwo);
 
                     PQ.replaceKey(vertexEntry, _vertexCost.getDecoration(vertexTwo));
+                    heapKeyUpdates++;
                 }
             }
+            // stopped early, the forest grown so far is returned as it is
+            if(listening && _eventSink.shouldStop()){
+                break;
+            }
+        }
+
+        if(GraphCounters.isEnabled()){
+            GraphCounters.add(GraphCounters.Counter.HEAP_OPERATIONS, heapInserts + heapRemovals + heapKeyUpdates);
+            GraphCounters.add(GraphCounters.Counter.EDGES_SCANNED, edgesScanned);
+            GraphCounters.add(GraphCounters.Counter.EDGES_RELAXED, heapKeyUpdates);
+        }
+        event.end();
+        if(event.shouldCommit()){
+            event.vertices = (int) heapInserts;
+            event.forestEdges = MST.size();
+            event.edgesScanned = edgesScanned;
+            event.heapInserts = heapInserts;
+            event.heapRemovals = heapRemovals;
+            event.heapKeyUpdates = heapKeyUpdates;
+            event.commit();
         }
         return MST;
       }
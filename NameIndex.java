@@ -0,0 +1,156 @@
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Gives every distinct vertex name a small integer id, looking names up
+ * straight from the bytes of a buffer so that no String is created until a
+ * name is actually asked for.
+ *
+ * <p>
+ * Names are copied into one shared byte pool, and the index is an open
+ * addressing hash table of ids into that pool. Lookups and insertions run in
+ * expected O(length of the name) time.
+ * </p>
+ *
+ * An index may be read by many threads at once as long as none of them adds
+ * to it.
+ */
+class NameIndex {
+
+    private byte[] _pool;
+    private int _poolSize;
+    // name i is _pool[_nameOffsets[i] .. _nameOffsets[i + 1])
+    private int[] _nameOffsets;
+    private int[] _nameHashes;
+    // id + 1 of the name in each slot, or 0 if the slot is empty
+    private int[] _table;
+    private int _size;
+
+    NameIndex() {
+        _pool = new byte[1024];
+        _nameOffsets = new int[65];
+        _nameHashes = new int[64];
+        _table = new int[128];
+    }
+
+    /**
+     * Returns the FNV-1a hash of buf[start, end).
+     */
+    static int hash(ByteBuffer buf, int start, int end) {
+        int hash = 0x811c9dc5;
+        for(int i = start; i < end; i++){
+            hash ^= buf.get(i);
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the id of the name in buf[start, end), or -1 if it has not been
+     * added.
+     */
+    int find(ByteBuffer buf, int start, int end, int hash) {
+        int mask = _table.length - 1;
+        for(int slot = hash & mask; ; slot = (slot + 1) & mask){
+            int entry = _table[slot];
+            if(entry == 0){
+                return -1;
+            }
+            int id = entry - 1;
+            if(_nameHashes[id] == hash && this.sameName(id, buf, start, end)){
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the name in buf[start, end), adding it if it is new.
+     */
+    int intern(ByteBuffer buf, int start, int end) {
+        int hash = hash(buf, start, end);
+        int id = this.find(buf, start, end, hash);
+        return (id >= 0) ? id : this.add(buf, start, end, hash);
+    }
+
+    /**
+     * Returns the id of name otherId of another index, adding it if it is
+     * new.
+     */
+    int intern(NameIndex other, int otherId) {
+        return this.intern(ByteBuffer.wrap(other._pool), other._nameOffsets[otherId], other._nameOffsets[otherId + 1]);
+    }
+
+    /**
+     * Adds a name that is known not to be in the index yet and returns its id.
+     */
+    int add(ByteBuffer buf, int start, int end, int hash) {
+        int length = end - start;
+        if(_poolSize + length > _pool.length){
+            _pool = Arrays.copyOf(_pool, Math.max(_poolSize + length, _pool.length * 2));
+        }
+        for(int i = 0; i < length; i++){
+            _pool[_poolSize + i] = buf.get(start + i);
+        }
+        if(_size == _nameHashes.length){
+            _nameHashes = Arrays.copyOf(_nameHashes, _size * 2);
+            _nameOffsets = Arrays.copyOf(_nameOffsets, _size * 2 + 1);
+        }
+        int id = _size;
+        _nameOffsets[id] = _poolSize;
+        _poolSize += length;
+        _nameOffsets[id + 1] = _poolSize;
+        _nameHashes[id] = hash;
+        _size++;
+
+        if(_size * 2 > _table.length){
+            this.rehash();
+        }
+        else{
+            this.place(id);
+        }
+        return id;
+    }
+
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Creates the String for the name with the given id.
+     */
+    String name(int id) {
+        return new String(_pool, _nameOffsets[id], _nameOffsets[id + 1] - _nameOffsets[id], StandardCharsets.UTF_8);
+    }
+
+    private boolean sameName(int id, ByteBuffer buf, int start, int end) {
+        int offset = _nameOffsets[id];
+        if(_nameOffsets[id + 1] - offset != end - start){
+            return false;
+        }
+        for(int i = start; i < end; i++){
+            if(_pool[offset++] != buf.get(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void place(int id) {
+        int mask = _table.length - 1;
+        int slot = _nameHashes[id] & mask;
+        while(_table[slot] != 0){
+            slot = (slot + 1) & mask;
+        }
+        _table[slot] = id + 1;
+    }
+
+    private void rehash() {
+        _table = new int[_table.length * 2];
+        for(int id = 0; id < _size; id++){
+            this.place(id);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package graph;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+
+/**
+ * The event sink that is used when nobody is listening. It ignores every
+ * event and reports that it is not listening, so algorithms do not produce
+ * events in the first place. Use AlgorithmEventSink.none() to get it.
+ */
+final class NoOpEventSink implements AlgorithmEventSink<Object> {
+
+    static final NoOpEventSink INSTANCE = new NoOpEventSink();
+
+    private NoOpEventSink() {
+    }
+
+    @Override
+    public void vertexExtracted(CS16Vertex<Object> vertex) {
+    }
+
+    @Override
+    public void edgeAdded(CS16Edge<Object> edge) {
+    }
+
+    @Override
+    public void iterationCompleted(int iteration, double residual) {
+    }
+
+    @Override
+    public boolean isListening() {
+        return false;
+    }
+}
@@ -0,0 +1,192 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The thread pools and ranges of vertex numbers that the parallel algorithms
+ * share.
+ *
+ * <p>
+ * An algorithm runs its work through withPool, which makes a pool of daemon
+ * threads for it (or none, given one thread), shuts the pool down when the
+ * work is done, and turns what the work throws into unchecked exceptions the
+ * same way for every algorithm. Within the work, eachRange and invokeAll run
+ * tasks on the pool and hand back their results in order.
+ * </p>
+ *
+ * <p>
+ * Work is split into CHUNKS_PER_THREAD ranges per thread, so that a thread
+ * that finishes its range early takes another rather than waiting. Ranges of
+ * vertex numbers are cut so that each has about the same number of arcs,
+ * since a few vertices of high degree would otherwise leave one thread with
+ * most of the work.
+ * </p>
+ */
+final class Parallel {
+
+    static final int CHUNKS_PER_THREAD = 4;
+
+    private Parallel() {
+    }
+
+    /**
+     * Work that runs with a pool, which is null when there is one thread,
+     * and may throw a checked exception X of its own.
+     */
+    interface PoolWork<R, X extends Exception> {
+        R run(ExecutorService pool) throws X, InterruptedException, ExecutionException;
+    }
+
+    /**
+     * A task over the range [from, to).
+     */
+    interface RangeTask<T> {
+        T run(int from, int to);
+    }
+
+    /**
+     * Runs work with a fixed pool of the given number of daemon threads, all
+     * called name, or with a null pool if threads is 1, and shuts the pool
+     * down afterwards.
+     *
+     * @param activity
+     *            what the work does, for the message of an interruption, such
+     *            as "counting triangles"
+     * @throws X
+     *             Thrown as it was by the work itself.
+     * @throws IllegalStateException
+     *             Thrown when the calling thread was interrupted, which it
+     *             stays, or a task failed with a checked exception.
+     * @throws RuntimeException
+     *             Thrown as it was by a task that failed with it.
+     */
+    static <R, X extends Exception> R withPool(String name, int threads, String activity, PoolWork<R, X> work)
+            throws X {
+        if(threads < 1){
+            throw new IllegalArgumentException("need at least one thread");
+        }
+        ExecutorService pool = (threads == 1) ? null : newPool(name, threads);
+        try {
+            return work.run(pool);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while " + activity, e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if(pool != null){
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Returns a fixed pool of the given number of daemon threads, all called
+     * name, which the caller has to shut down.
+     */
+    static ExecutorService newPool(String name, int threads) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs every task on the pool, waits for them all, and returns their
+     * results in the order of the tasks.
+     */
+    static <T> List<T> invokeAll(ExecutorService pool, List<? extends Callable<T>> tasks)
+            throws InterruptedException, ExecutionException {
+        List<T> results = new ArrayList<T>(tasks.size());
+        for(Future<T> future : pool.invokeAll(tasks)){
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    /**
+     * Runs task over every range between consecutive bounds, on the pool,
+     * or in turn on the calling thread if pool is null, and returns the
+     * results in the order of the ranges.
+     */
+    static <T> List<T> eachRange(ExecutorService pool, int[] bounds, RangeTask<T> task)
+            throws InterruptedException, ExecutionException {
+        if(pool == null){
+            List<T> results = new ArrayList<T>(bounds.length - 1);
+            for(int i = 0; i + 1 < bounds.length; i++){
+                results.add(task.run(bounds[i], bounds[i + 1]));
+            }
+            return results;
+        }
+        List<Callable<T>> tasks = new ArrayList<Callable<T>>(bounds.length - 1);
+        for(int i = 0; i + 1 < bounds.length; i++){
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            tasks.add(() -> task.run(from, to));
+        }
+        return invokeAll(pool, tasks);
+    }
+
+    /**
+     * Returns the number of ranges to split work among the given number of
+     * threads into: 1 for one thread, and CHUNKS_PER_THREAD per thread
+     * otherwise.
+     */
+    static int numRanges(int threads) {
+        return (threads == 1) ? 1 : threads * CHUNKS_PER_THREAD;
+    }
+
+    /**
+     * Splits [from, to) into at most parts ranges of about the same length,
+     * none of them empty, and returns their bounds.
+     */
+    static int[] evenBounds(int from, int to, int parts) {
+        int length = to - from;
+        int chunk = Math.max(1, (length + parts - 1) / parts);
+        IntList bounds = new IntList(parts + 1);
+        bounds.add(from);
+        for(int bound = from + chunk; bound < to; bound += chunk){
+            bounds.add(bound);
+        }
+        if(to > from){
+            bounds.add(to);
+        }
+        return bounds.toArray();
+    }
+
+    /**
+     * Splits the vertex numbers [0, size) into at most parts ranges with
+     * about the same work each, counting a vertex as 1 plus its arcs, and
+     * returns their bounds. The arcs of vertex v are offsets[v] up to
+     * offsets[v + 1].
+     *
+     * <p>
+     * This runs in O(size) time.
+     * </p>
+     */
+    static int[] arcBalancedBounds(int[] offsets, int size, int parts) {
+        long work = (long) offsets[size] + size;
+        IntList bounds = new IntList(parts + 1);
+        bounds.add(0);
+        for(int v = 0, part = 1; v < size && part < parts; v++){
+            if((long) offsets[v + 1] + v + 1 >= work * part / parts){
+                bounds.add(v + 1);
+                part++;
+            }
+        }
+        if(bounds.peek() != size){
+            bounds.add(size);
+        }
+        return bounds.toArray();
+    }
+}
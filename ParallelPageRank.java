@@ -0,0 +1,232 @@
+package graph;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * PageRank over a CsrGraph, with the vertices of every round split among
+ * threads. The ranks are the ones MyPageRank and IncrementalPageRank
+ * compute: a damping factor of 0.85, the rank of sink pages spread evenly
+ * over every page, and rounds until no rank changes by more than the
+ * tolerance.
+ *
+ * <p>
+ * A round has two steps, each split among the threads by ranges of vertex
+ * numbers: every vertex works out the share of its rank that each of its
+ * links passes on, then every vertex adds up the shares coming in along its
+ * in-arcs. Each vertex only writes its own entries, so the threads need no
+ * synchronization within a step. Built on a GraphPartitioner.Partition, the
+ * ranges are the parts, so most of the shares a thread reads are ones it
+ * wrote itself; otherwise they are ranges with about the same number of
+ * arcs. A round takes O(|V| + |E|) time.
+ * </p>
+ */
+public class ParallelPageRank<V> {
+
+    private static final double DAMPING_FACTOR = 0.85;
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+    private static final int MAX_ROUNDS = 1000;
+
+    private final CsrGraph<V> _csr;
+    private final int[] _partBounds;
+
+    /**
+     * Prepares to rank a snapshot of g. Later changes to g are not seen.
+     */
+    public ParallelPageRank(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public ParallelPageRank(CsrGraph<V> csr) {
+        _csr = csr;
+        _partBounds = null;
+    }
+
+    /**
+     * Prepares to rank the snapshot of a partition, splitting rounds by its
+     * parts. The ranks are indexed as in the snapshot, and
+     * partition.relabeling() maps them back.
+     */
+    public ParallelPageRank(GraphPartitioner.Partition<V> partition) {
+        _csr = partition.snapshot();
+        _partBounds = partition.bounds();
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Ranks the vertices on the calling thread.
+     */
+    public Ranks<V> rank() {
+        return this.rank(1, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Ranks the vertices with the given number of threads.
+     */
+    public Ranks<V> rank(int threads) {
+        return this.rank(threads, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Ranks the vertices with the given number of threads, stopping once no
+     * rank changes by more than tolerance in a round, or after MAX_ROUNDS.
+     */
+    public Ranks<V> rank(int threads, double tolerance) {
+        if(!(tolerance > 0)){
+            throw new IllegalArgumentException("tolerance must be positive");
+        }
+        return Parallel.withPool("parallel-pagerank", threads, "ranking",
+                pool -> new Run(this.chunks(threads), pool).run(tolerance));
+    }
+
+    /**
+     * The arrays of one ranking.
+     */
+    private class Run {
+        private final int[] _bounds;
+        private final ExecutorService _pool;
+        private final int _n;
+        private double[] _current;
+        private double[] _next;
+        private final double[] _shares;
+
+        private Run(int[] bounds, ExecutorService pool) {
+            int size = _csr.size();
+            _bounds = bounds;
+            _pool = pool;
+            _n = _csr.getNumVertices();
+            _current = new double[size];
+            _next = new double[size];
+            _shares = new double[size];
+            for(int v = 0; v < size; v++){
+                if(_csr.hasVertex(v)){
+                    _current[v] = 1.0 / _n;
+                }
+            }
+        }
+
+        private Ranks<V> run(double tolerance) throws InterruptedException, ExecutionException {
+            int rounds = 0;
+            boolean converged = (_n == 0);
+            while(!converged && rounds < MAX_ROUNDS){
+                double sinkSum = 0;
+                for(double sum : Parallel.eachRange(_pool, _bounds, this::share)){
+                    sinkSum += sum;
+                }
+                double base = (1 - DAMPING_FACTOR) / _n + DAMPING_FACTOR * sinkSum / _n;
+                double residual = 0;
+                List<Double> residuals = Parallel.eachRange(_pool, _bounds, (from, to) -> this.gather(base, from, to));
+                for(double chunkResidual : residuals){
+                    residual = Math.max(residual, chunkResidual);
+                }
+                double[] swap = _current;
+                _current = _next;
+                _next = swap;
+                rounds++;
+                converged = residual <= tolerance;
+            }
+            return new Ranks<V>(_csr, _current, rounds, converged);
+        }
+
+        /**
+         * Works out the shares the vertices from up to to pass on, and
+         * returns the rank of the sinks among them.
+         */
+        private double share(int from, int to) {
+            double sinks = 0;
+            for(int v = from; v < to; v++){
+                int outDegree = _csr.outDegree(v);
+                if(outDegree == 0){
+                    sinks += _current[v];
+                    _shares[v] = 0;
+                }
+                else{
+                    _shares[v] = _current[v] / outDegree;
+                }
+            }
+            return sinks;
+        }
+
+        /**
+         * Adds up the new ranks of the vertices from up to to, and returns
+         * the largest change among them.
+         */
+        private double gather(double base, int from, int to) {
+            int[] inOffsets = _csr.inOffsets();
+            int[] inSources = _csr.inSources();
+            double residual = 0;
+            for(int v = from; v < to; v++){
+                if(!_csr.hasVertex(v)){
+                    continue;
+                }
+                double incoming = 0;
+                for(int arc = inOffsets[v]; arc < inOffsets[v + 1]; arc++){
+                    incoming += _shares[inSources[arc]];
+                }
+                _next[v] = base + DAMPING_FACTOR * incoming;
+                residual = Math.max(residual, Math.abs(_next[v] - _current[v]));
+            }
+            return residual;
+        }
+    }
+
+    /**
+     * Splits the vertex numbers into ranges with about the same number of
+     * in-arcs each, or into the parts of the partition if there is one and
+     * threads is more than 1, and returns the bounds of the ranges.
+     */
+    private int[] chunks(int threads) {
+        if(threads > 1 && _partBounds != null){
+            return _partBounds;
+        }
+        return Parallel.arcBalancedBounds(_csr.inOffsets(), _csr.size(), Parallel.numRanges(threads));
+    }
+
+    /**
+     * The ranks of the vertices of a graph.
+     */
+    public static class Ranks<V> {
+        private final CsrGraph<V> _csr;
+        private final double[] _ranks;
+        private final int _numRounds;
+        private final boolean _converged;
+
+        private Ranks(CsrGraph<V> csr, double[] ranks, int numRounds, boolean converged) {
+            _csr = csr;
+            _ranks = ranks;
+            _numRounds = numRounds;
+            _converged = converged;
+        }
+
+        /**
+         * Returns the rank of every vertex, indexed by vertex number, 0 for
+         * numbers not in use. The array is not copied; do not change it.
+         */
+        public double[] values() {
+            return _ranks;
+        }
+
+        public double rank(CS16Vertex<V> vertex) {
+            return _ranks[_csr.numberOf(vertex)];
+        }
+
+        public int getNumRounds() {
+            return _numRounds;
+        }
+
+        /**
+         * Returns whether the ranks settled, rather than the rounds running
+         * out.
+         */
+        public boolean isConverged() {
+            return _converged;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests ParallelPageRank.
+ */
+public class ParallelPageRankTest {
+
+    /**
+     * Tests a small graph with a sink against IncrementalPageRank
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        graph.insertEdge(A, B, null);
+        graph.insertEdge(B, C, null);
+        graph.insertEdge(C, A, null);
+        graph.insertEdge(A, D, null);
+
+        ParallelPageRank.Ranks<String> ranks = new ParallelPageRank<String>(graph).rank(1, 1e-10);
+        IncrementalPageRank<String> expected = new IncrementalPageRank<String>(graph, 1e-10);
+        expected.refresh();
+        assertThat(ranks.isConverged(), is(true));
+        double sum = 0;
+        for(CS16Vertex<String> vertex : Arrays.asList(A, B, C, D)){
+            assertEquals(expected.getRank(vertex), ranks.rank(vertex), 1e-9);
+            sum += ranks.rank(vertex);
+        }
+        assertEquals(1.0, sum, 1e-9);
+    }
+
+    /**
+     * Tests that threads do not change the ranks of a random graph
+     */
+    @Test
+    public void threadsAgree() {
+        Random random = new Random(45);
+        Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(true);
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < 90; i++){
+            vertices.add(graph.insertVertex(i));
+        }
+        for(int i = 0; i < 300; i++){
+            CS16Vertex<Integer> a = vertices.get(random.nextInt(90));
+            CS16Vertex<Integer> b = vertices.get(random.nextInt(90));
+            if(a != b && !graph.areAdjacent(a, b)){
+                graph.insertEdge(a, b, null);
+            }
+        }
+        ParallelPageRank<Integer> engine = new ParallelPageRank<Integer>(graph);
+        ParallelPageRank.Ranks<Integer> one = engine.rank();
+        ParallelPageRank.Ranks<Integer> four = engine.rank(4);
+        assertArrayEquals(one.values(), four.values(), 1e-12);
+        assertThat(four.getNumRounds(), is(one.getNumRounds()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noThreads() {
+        new ParallelPageRank<String>(new AdjacencyMatrixGraph<String>(true)).rank(0);
+    }
+}
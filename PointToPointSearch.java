@@ -0,0 +1,308 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Shortest paths between one source and one target, for queries that have to
+ * answer quickly, such as finding a route between two pages in the
+ * visualizer. Weights are edge elements (null weighs 1), and must not be
+ * negative.
+ *
+ * <p>
+ * aStar is Dijkstra's algorithm steered towards the target by a
+ * DistanceHeuristic: vertices come out of the heap in order of their distance
+ * plus the estimated distance left, so vertices that lead away from the
+ * target are put off and often never settled. bidirectional searches from
+ * both ends at once, forward from the source along outgoing edges and
+ * backward from the target along incoming ones, always advancing the side
+ * whose next vertex is closer, and stops once no path through an unsettled
+ * vertex could beat the best one where the two searches met. Two searches of
+ * half the radius settle far fewer vertices than one of the full radius.
+ * Given a heuristic, each side of a bidirectional search is steered towards
+ * the other end.
+ * </p>
+ *
+ * <p>
+ * A search keeps its arrays between queries and only resets what the last
+ * query touched, so a query that settles k vertices costs about O(k log(k))
+ * no matter how large the graph is. For the same reason one
+ * PointToPointSearch must not run queries on several threads at once; give
+ * each thread its own.
+ * </p>
+ */
+public class PointToPointSearch<V> {
+
+    public static final int UNREACHED = -1;
+
+    private final CsrGraph<V> _csr;
+    private final Side _forward;
+    private final Side _backward;
+    // which query the entries of the sides' arrays belong to
+    private int _query;
+
+    /**
+     * Prepares point-to-point searches on a snapshot of g. Later changes to g
+     * are not seen.
+     *
+     * @throws IllegalArgumentException
+     *             Thrown when an edge has a negative weight.
+     */
+    public PointToPointSearch(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public PointToPointSearch(CsrGraph<V> csr) {
+        for(int weight : csr.outWeights()){
+            if(weight < 0){
+                throw new IllegalArgumentException("negative edge weight " + weight);
+            }
+        }
+        _csr = csr;
+        _forward = new Side(csr.size(), csr.outOffsets(), csr.outTargets(), csr.outWeights());
+        _backward = new Side(csr.size(), csr.inOffsets(), csr.inSources(), csr.inWeights());
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Finds a shortest path with Dijkstra's algorithm, stopping when the
+     * target is settled. This is what the other searches are measured
+     * against.
+     */
+    public Route<V> dijkstra(CS16Vertex<V> source, CS16Vertex<V> target) {
+        return this.aStar(source, target, DistanceHeuristic.zero());
+    }
+
+    /**
+     * Finds a shortest path with A*, steered by the given admissible
+     * heuristic.
+     *
+     * <p>
+     * This runs in O((|V| + |E|)log(|V|)) time if the heuristic is
+     * consistent; a heuristic that is only admissible can make a vertex be
+     * settled more than once.
+     * </p>
+     *
+     * @throws ArithmeticException
+     *             Thrown when a path is longer than Integer.MAX_VALUE.
+     */
+    public Route<V> aStar(CS16Vertex<V> source, CS16Vertex<V> target, DistanceHeuristic heuristic) {
+        int s = _csr.numberOf(source);
+        int t = _csr.numberOf(target);
+        int query = this.nextQuery();
+        Side forward = _forward;
+        forward.reach(s, 0, s, query);
+        forward._heap.offer(s, heuristic.estimate(s, t));
+        int numSettled = 0;
+        while(!forward._heap.isEmpty()){
+            int u = forward._heap.poll();
+            numSettled++;
+            if(u == t){
+                break;
+            }
+            int du = forward._distances[u];
+            for(int arc = forward._offsets[u]; arc < forward._offsets[u + 1]; arc++){
+                int v = forward._neighbors[arc];
+                int dv = Math.addExact(du, forward._weights[arc]);
+                if(forward.improves(v, dv, query)){
+                    forward.reach(v, dv, u, query);
+                    forward._heap.offer(v, Math.addExact(dv, heuristic.estimate(v, t)));
+                }
+            }
+        }
+        forward._heap.clear();
+        if(!forward.isReached(t, query)){
+            return new Route<V>(UNREACHED, Collections.<CS16Vertex<V>>emptyList(), numSettled);
+        }
+        List<CS16Vertex<V>> path = new ArrayList<CS16Vertex<V>>();
+        for(int v = t; v != s; v = forward._parents[v]){
+            path.add(_csr.vertex(v));
+        }
+        path.add(_csr.vertex(s));
+        Collections.reverse(path);
+        return new Route<V>(forward._distances[t], path, numSettled);
+    }
+
+    /**
+     * Finds a shortest path with bidirectional Dijkstra.
+     *
+     * @throws ArithmeticException
+     *             Thrown when a path is longer than Integer.MAX_VALUE.
+     */
+    public Route<V> bidirectional(CS16Vertex<V> source, CS16Vertex<V> target) {
+        return this.bidirectional(source, target, null);
+    }
+
+    /**
+     * Finds a shortest path with bidirectional A*, the forward side steered
+     * by heuristic.estimate(v, target) and the backward side by
+     * heuristic.estimate(source, v). A null heuristic gives bidirectional
+     * Dijkstra.
+     *
+     * <p>
+     * Without a heuristic the search stops once the smallest distances left
+     * on the two sides add up to at least the best path found. With one, the
+     * keys of the two sides are not comparable that way, and it stops once
+     * the smallest key on either side is at least the best path found, which
+     * the heuristic being admissible makes safe.
+     * </p>
+     */
+    public Route<V> bidirectional(CS16Vertex<V> source, CS16Vertex<V> target, DistanceHeuristic heuristic) {
+        int s = _csr.numberOf(source);
+        int t = _csr.numberOf(target);
+        int query = this.nextQuery();
+        Side forward = _forward;
+        Side backward = _backward;
+        int startKey = (heuristic == null) ? 0 : heuristic.estimate(s, t);
+        forward.reach(s, 0, s, query);
+        forward._heap.offer(s, startKey);
+        backward.reach(t, 0, t, query);
+        backward._heap.offer(t, startKey);
+
+        long best = (s == t) ? 0 : Long.MAX_VALUE;
+        int meeting = (s == t) ? s : -1;
+        int numSettled = 0;
+        while(!forward._heap.isEmpty() && !backward._heap.isEmpty()){
+            long forwardMin = forward._heap.minKey();
+            long backwardMin = backward._heap.minKey();
+            if(heuristic == null ? forwardMin + backwardMin >= best : Math.min(forwardMin, backwardMin) >= best){
+                break;
+            }
+            boolean forwards = forwardMin <= backwardMin;
+            Side side = forwards ? forward : backward;
+            Side other = forwards ? backward : forward;
+            int u = side._heap.poll();
+            numSettled++;
+            int du = side._distances[u];
+            for(int arc = side._offsets[u]; arc < side._offsets[u + 1]; arc++){
+                int v = side._neighbors[arc];
+                int dv = Math.addExact(du, side._weights[arc]);
+                if(!side.improves(v, dv, query)){
+                    continue;
+                }
+                side.reach(v, dv, u, query);
+                int estimate = (heuristic == null) ? 0
+                        : forwards ? heuristic.estimate(v, t) : heuristic.estimate(s, v);
+                side._heap.offer(v, Math.addExact(dv, estimate));
+                if(other.isReached(v, query) && (long) dv + other._distances[v] < best){
+                    best = (long) dv + other._distances[v];
+                    meeting = v;
+                }
+            }
+        }
+        forward._heap.clear();
+        backward._heap.clear();
+        if(meeting < 0){
+            return new Route<V>(UNREACHED, Collections.<CS16Vertex<V>>emptyList(), numSettled);
+        }
+        if(best > Integer.MAX_VALUE){
+            throw new ArithmeticException("integer overflow");
+        }
+
+        List<CS16Vertex<V>> path = new ArrayList<CS16Vertex<V>>();
+        for(int v = meeting; v != s; v = forward._parents[v]){
+            path.add(_csr.vertex(v));
+        }
+        path.add(_csr.vertex(s));
+        Collections.reverse(path);
+        for(int v = meeting; v != t; ){
+            v = backward._parents[v];
+            path.add(_csr.vertex(v));
+        }
+        return new Route<V>((int) best, path, numSettled);
+    }
+
+    private int nextQuery() {
+        if(_query == Integer.MAX_VALUE){
+            // start the stamps over rather than let old ones come back
+            Arrays.fill(_forward._reachedIn, 0);
+            Arrays.fill(_backward._reachedIn, 0);
+            _query = 0;
+        }
+        return ++_query;
+    }
+
+    /**
+     * The arrays of one direction of search. An entry of _distances and
+     * _parents only counts if the same entry of _reachedIn is the current
+     * query, which saves clearing them between queries.
+     */
+    private static class Side {
+        private final int[] _offsets;
+        private final int[] _neighbors;
+        private final int[] _weights;
+        private final int[] _distances;
+        private final int[] _parents;
+        private final int[] _reachedIn;
+        private final IntMinHeap _heap;
+
+        private Side(int size, int[] offsets, int[] neighbors, int[] weights) {
+            _offsets = offsets;
+            _neighbors = neighbors;
+            _weights = weights;
+            _distances = new int[size];
+            _parents = new int[size];
+            _reachedIn = new int[size];
+            _heap = new IntMinHeap(size);
+        }
+
+        private boolean isReached(int v, int query) {
+            return _reachedIn[v] == query;
+        }
+
+        private boolean improves(int v, int distance, int query) {
+            return _reachedIn[v] != query || distance < _distances[v];
+        }
+
+        private void reach(int v, int distance, int parent, int query) {
+            _reachedIn[v] = query;
+            _distances[v] = distance;
+            _parents[v] = parent;
+        }
+    }
+
+    /**
+     * The answer to one query: the length of a shortest path and its
+     * vertices, from source to target, or UNREACHED and no vertices if there
+     * is no path.
+     */
+    public static class Route<V> {
+        private final int _distance;
+        private final List<CS16Vertex<V>> _path;
+        private final int _numSettled;
+
+        private Route(int distance, List<CS16Vertex<V>> path, int numSettled) {
+            _distance = distance;
+            _path = path;
+            _numSettled = numSettled;
+        }
+
+        public boolean isFound() {
+            return _distance != UNREACHED;
+        }
+
+        public int getDistance() {
+            return _distance;
+        }
+
+        public List<CS16Vertex<V>> getPath() {
+            return _path;
+        }
+
+        /**
+         * Returns the number of vertices taken out of the heaps, which
+         * measures how much of the graph the search had to look at.
+         */
+        public int getNumSettled() {
+            return _numSettled;
+        }
+    }
+}
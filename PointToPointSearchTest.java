@@ -0,0 +1,154 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests A* and bidirectional search in PointToPointSearch against
+ * the distances of ShortestPaths.
+ */
+public class PointToPointSearchTest {
+
+    /**
+     * Tests a route through a small graph and an unreachable target
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        graph.insertEdge(A, B, 2);
+        graph.insertEdge(B, C, 2);
+        graph.insertEdge(A, C, 5);
+
+        PointToPointSearch<String> search = new PointToPointSearch<String>(graph);
+        for(PointToPointSearch.Route<String> route : Arrays.asList(search.dijkstra(A, C),
+                search.bidirectional(A, C), search.aStar(A, C, DistanceHeuristic.zero()))){
+            assertThat(route.getDistance(), is(4));
+            assertThat(route.getPath(), is(Arrays.asList(A, B, C)));
+        }
+        assertThat(search.bidirectional(C, A).isFound(), is(false));
+        assertThat(search.aStar(A, D, DistanceHeuristic.zero()).getPath().isEmpty(), is(true));
+        assertThat(search.bidirectional(B, B).getPath(), is(Arrays.asList(B)));
+    }
+
+    /**
+     * Tests every search on a geometric graph, whose weights are the rounded
+     * up lengths of the edges, against Dijkstra's distances, and checks that
+     * the coordinate heuristic saves work
+     */
+    @Test
+    public void geometricGraph() {
+        Random random = new Random(35);
+        Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(false);
+        int size = 90;
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < size; i++){
+            vertices.add(graph.insertVertex(i));
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = random.nextDouble() * 100;
+        }
+        for(int i = 0; i < size; i++){
+            for(int j = i + 1; j < size; j++){
+                double length = Math.hypot(xs[i] - xs[j], ys[i] - ys[j]);
+                if(length < 18){
+                    graph.insertEdge(vertices.get(i), vertices.get(j), (int) Math.ceil(length));
+                }
+            }
+        }
+        PointToPointSearch<Integer> search = new PointToPointSearch<Integer>(graph);
+        ShortestPaths<Integer> paths = new ShortestPaths<Integer>(search.getCsrGraph());
+        double[] byNumber = new double[search.getCsrGraph().size()];
+        double[] yByNumber = new double[byNumber.length];
+        for(int i = 0; i < size; i++){
+            byNumber[vertices.get(i).getVertexNumber()] = xs[i];
+            yByNumber[vertices.get(i).getVertexNumber()] = ys[i];
+        }
+        CoordinateHeuristic heuristic = CoordinateHeuristic.of(search.getCsrGraph(), byNumber, yByNumber);
+        assertThat(heuristic.getScale() >= 1, is(true));
+
+        long dijkstraSettled = 0;
+        long aStarSettled = 0;
+        for(int query = 0; query < 40; query++){
+            CS16Vertex<Integer> source = vertices.get(random.nextInt(size));
+            CS16Vertex<Integer> target = vertices.get(random.nextInt(size));
+            int expected = paths.dijkstra(source).distance(target);
+
+            PointToPointSearch.Route<Integer> dijkstra = search.dijkstra(source, target);
+            PointToPointSearch.Route<Integer> aStar = search.aStar(source, target, heuristic);
+            List<PointToPointSearch.Route<Integer>> routes = Arrays.asList(dijkstra, aStar,
+                    search.bidirectional(source, target), search.bidirectional(source, target, heuristic));
+            for(PointToPointSearch.Route<Integer> route : routes){
+                assertThat(route.getDistance(), is(expected));
+                checkPath(graph, route, source, target);
+            }
+            dijkstraSettled += dijkstra.getNumSettled();
+            aStarSettled += aStar.getNumSettled();
+        }
+        assertTrue(aStarSettled < dijkstraSettled);
+    }
+
+    /**
+     * Tests that the coordinate heuristic stays admissible when the only
+     * short path goes through a vertex without coordinates
+     */
+    @Test
+    public void detourWithoutCoordinates() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> S = graph.insertVertex("S");
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> X = graph.insertVertex("X");
+        CS16Vertex<String> T = graph.insertVertex("T");
+        // the direct edge sets a scale of 1, but S-A-X-T is far shorter
+        graph.insertEdge(S, T, 100);
+        graph.insertEdge(S, A, 1);
+        graph.insertEdge(A, X, 1);
+        graph.insertEdge(X, T, 1);
+
+        PointToPointSearch<String> search = new PointToPointSearch<String>(graph);
+        int size = search.getCsrGraph().size();
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        xs[T.getVertexNumber()] = 100;
+        xs[X.getVertexNumber()] = Double.NaN;
+        ys[X.getVertexNumber()] = Double.NaN;
+        CoordinateHeuristic heuristic = CoordinateHeuristic.of(search.getCsrGraph(), xs, ys);
+        assertThat(heuristic.getScale(), is(0.0));
+
+        for(PointToPointSearch.Route<String> route : Arrays.asList(search.aStar(S, T, heuristic),
+                search.bidirectional(S, T, heuristic))){
+            assertThat(route.getDistance(), is(3));
+            assertThat(route.getPath(), is(Arrays.asList(S, A, X, T)));
+        }
+    }
+
+    private static void checkPath(Graph<Integer> graph, PointToPointSearch.Route<Integer> route,
+            CS16Vertex<Integer> source, CS16Vertex<Integer> target) {
+        if(!route.isFound()){
+            return;
+        }
+        List<CS16Vertex<Integer>> path = route.getPath();
+        assertThat(path.get(0), is(source));
+        assertThat(path.get(path.size() - 1), is(target));
+        int length = 0;
+        for(int i = 1; i < path.size(); i++){
+            length += graph.connectingEdge(path.get(i - 1), path.get(i)).element();
+        }
+        assertThat(length, is(route.getDistance()));
+    }
+}
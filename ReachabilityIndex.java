@@ -0,0 +1,341 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Answers "is there a path from a to b" without searching the graph. The
+ * index is built once on the condensation of the graph into strongly
+ * connected components: vertices in the same component reach each other,
+ * and since component ids are a topological order, a component never
+ * reaches one with a smaller id. What is left is reachability in a DAG.
+ *
+ * <p>
+ * When there are at most CLOSURE_LIMIT components, the index is the
+ * transitive closure of the DAG as a bit matrix, one row of longs per
+ * component, and a query tests one bit. The rows are filled in the spirit of
+ * Warshall's algorithm, by or-ing rows a word at a time, but in the order of
+ * the DAG: a component reaches its successors and whatever they reach, so
+ * its row is the or of their rows, and all components of the same height
+ * (longest path to a sink) can be filled at once, their rows split among
+ * threads. This takes O(|V| + |E| + |D||C|/64) time for a condensation with
+ * |C| components and |D| arcs, and |C|^2/8 bytes.
+ * </p>
+ *
+ * <p>
+ * Larger graphs get pruned 2-hop labels instead. Components are taken in
+ * order of the product of their in- and out-degrees, and each is made a hub:
+ * a search forwards from it adds it to the in-label of every component it
+ * reaches, and a search backwards adds it to the out-label of every
+ * component that reaches it, except that a search goes no further than a
+ * component whose labels already show the path. Then a reaches b exactly
+ * when the out-label of a and the in-label of b share a hub. Labels are
+ * sorted, so a query is a merge of two short arrays; on link graphs, where a
+ * few well-connected pages lie on most paths, labels stay small.
+ * </p>
+ */
+public class ReachabilityIndex<V> {
+
+    // the most components for which the closure is kept as a bit matrix,
+    // which then takes at most 8 MB
+    private static final int CLOSURE_LIMIT = 1 << 13;
+
+    private final CsrGraph<V> _csr;
+    private final StronglyConnectedComponents.Condensation<V> _condensation;
+    private final int[] _ids;
+    // the transitive closure, or null if the index has labels instead
+    private final long[][] _closure;
+    // the hubs on the paths out of and into every component, in CSR form
+    private final int[] _outLabelOffsets;
+    private final int[] _outLabels;
+    private final int[] _inLabelOffsets;
+    private final int[] _inLabels;
+
+    /**
+     * Indexes a snapshot of g. Later changes to g are not seen.
+     */
+    public ReachabilityIndex(Graph<V> g) {
+        this(CsrGraph.of(g), 1);
+    }
+
+    public ReachabilityIndex(CsrGraph<V> csr) {
+        this(csr, 1);
+    }
+
+    /**
+     * Indexes csr, filling the rows of a bit-matrix closure with the given
+     * number of threads.
+     */
+    public ReachabilityIndex(CsrGraph<V> csr, int threads) {
+        this(csr, threads, CLOSURE_LIMIT);
+    }
+
+    ReachabilityIndex(CsrGraph<V> csr, int threads, int closureLimit) {
+        if(threads < 1){
+            throw new IllegalArgumentException("need at least one thread");
+        }
+        _csr = csr;
+        _condensation = new StronglyConnectedComponents<V>(csr).condense();
+        _ids = _condensation.ids();
+        if(_condensation.getNumComponents() <= closureLimit){
+            _closure = this.closure(threads);
+            _outLabelOffsets = null;
+            _outLabels = null;
+            _inLabelOffsets = null;
+            _inLabels = null;
+        }
+        else{
+            _closure = null;
+            Labels labels = new Labels(_condensation);
+            _outLabelOffsets = labels._outOffsets;
+            _outLabels = labels._out;
+            _inLabelOffsets = labels._inOffsets;
+            _inLabels = labels._in;
+        }
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    public StronglyConnectedComponents.Condensation<V> getCondensation() {
+        return _condensation;
+    }
+
+    /**
+     * Returns whether the index is a bit-matrix closure rather than 2-hop
+     * labels.
+     */
+    public boolean isClosure() {
+        return _closure != null;
+    }
+
+    /**
+     * Returns whether there is a path from one vertex to another. Every
+     * vertex reaches itself.
+     *
+     * <p>
+     * This runs in O(1) time with a closure, and in time linear in the
+     * sizes of two labels otherwise.
+     * </p>
+     */
+    public boolean canReach(CS16Vertex<V> from, CS16Vertex<V> to) {
+        int a = _ids[_csr.numberOf(from)];
+        int b = _ids[_csr.numberOf(to)];
+        if(a == b){
+            return true;
+        }
+        if(a > b){
+            return false;
+        }
+        if(_closure != null){
+            return (_closure[a][b >>> 6] & (1L << b)) != 0;
+        }
+        return shareHub(_outLabels, _outLabelOffsets[a], _outLabelOffsets[a + 1], _inLabels,
+                _inLabelOffsets[b], _inLabelOffsets[b + 1]);
+    }
+
+    private long[][] closure(int threads) {
+        int numComponents = _condensation.getNumComponents();
+        int[] dagOffsets = _condensation.dagOffsets();
+        int[] dagTargets = _condensation.dagTargets();
+        // heights, and the components grouped by height, with a counting sort
+        int[] heights = new int[numComponents];
+        int maxHeight = 0;
+        for(int c = numComponents - 1; c >= 0; c--){
+            for(int arc = dagOffsets[c]; arc < dagOffsets[c + 1]; arc++){
+                heights[c] = Math.max(heights[c], heights[dagTargets[arc]] + 1);
+            }
+            maxHeight = Math.max(maxHeight, heights[c]);
+        }
+        int[] levelOffsets = new int[maxHeight + 2];
+        for(int height : heights){
+            levelOffsets[height + 1]++;
+        }
+        for(int h = 0; h <= maxHeight; h++){
+            levelOffsets[h + 1] += levelOffsets[h];
+        }
+        int[] byHeight = new int[numComponents];
+        int[] fill = Arrays.copyOf(levelOffsets, maxHeight + 1);
+        for(int c = 0; c < numComponents; c++){
+            byHeight[fill[heights[c]]++] = c;
+        }
+
+        int words = (numComponents + 63) >>> 6;
+        long[][] rows = new long[numComponents][words];
+        Parallel.withPool("reachability-index", threads, "building the reachability index", pool -> {
+            for(int h = 0; h + 1 < levelOffsets.length; h++){
+                int start = levelOffsets[h];
+                int end = levelOffsets[h + 1];
+                if(pool == null || end - start < threads * 2){
+                    fillRows(rows, byHeight, start, end, dagOffsets, dagTargets);
+                    continue;
+                }
+                Parallel.eachRange(pool, Parallel.evenBounds(start, end, threads), (from, to) -> {
+                    fillRows(rows, byHeight, from, to, dagOffsets, dagTargets);
+                    return null;
+                });
+            }
+            return null;
+        });
+        return rows;
+    }
+
+    /**
+     * Fills the rows of the components byHeight[from] up to byHeight[to],
+     * whose successors' rows are all filled already.
+     */
+    private static void fillRows(long[][] rows, int[] byHeight, int from, int to, int[] dagOffsets,
+            int[] dagTargets) {
+        for(int i = from; i < to; i++){
+            int c = byHeight[i];
+            long[] row = rows[c];
+            for(int arc = dagOffsets[c]; arc < dagOffsets[c + 1]; arc++){
+                int d = dagTargets[arc];
+                long[] reached = rows[d];
+                // nothing before d's own word can be set in a row of d
+                for(int word = d >>> 6; word < row.length; word++){
+                    row[word] |= reached[word];
+                }
+                row[d >>> 6] |= 1L << d;
+            }
+        }
+    }
+
+    private static boolean shareHub(int[] one, int i, int iEnd, int[] two, int j, int jEnd) {
+        while(i < iEnd && j < jEnd){
+            if(one[i] < two[j]){
+                i++;
+            }
+            else if(one[i] > two[j]){
+                j++;
+            }
+            else{
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds pruned 2-hop labels for the condensation. Hubs are recorded by
+     * rank, the order in which they were taken, so every label is sorted.
+     */
+    private static class Labels {
+        private final int[] _outOffsets;
+        private final int[] _out;
+        private final int[] _inOffsets;
+        private final int[] _in;
+
+        private Labels(StronglyConnectedComponents.Condensation<?> condensation) {
+            int n = condensation.getNumComponents();
+            int[] offsets = condensation.dagOffsets();
+            int[] targets = condensation.dagTargets();
+            // the arcs of the condensation backwards
+            int[] reverseOffsets = new int[n + 1];
+            for(int d : targets){
+                reverseOffsets[d + 1]++;
+            }
+            for(int c = 0; c < n; c++){
+                reverseOffsets[c + 1] += reverseOffsets[c];
+            }
+            int[] sources = new int[targets.length];
+            int[] fill = Arrays.copyOf(reverseOffsets, n);
+            for(int c = 0; c < n; c++){
+                for(int arc = offsets[c]; arc < offsets[c + 1]; arc++){
+                    sources[fill[targets[arc]]++] = c;
+                }
+            }
+
+            Integer[] order = new Integer[n];
+            for(int c = 0; c < n; c++){
+                order[c] = c;
+            }
+            Arrays.sort(order, Comparator.comparingLong((Integer c) -> -(long) (offsets[c + 1] - offsets[c] + 1)
+                    * (reverseOffsets[c + 1] - reverseOffsets[c] + 1)));
+
+            IntList[] out = new IntList[n];
+            IntList[] in = new IntList[n];
+            for(int c = 0; c < n; c++){
+                out[c] = new IntList(2);
+                in[c] = new IntList(2);
+            }
+            int[] visitedBy = new int[n];
+            Arrays.fill(visitedBy, -1);
+            IntList queue = new IntList();
+            for(int rank = 0; rank < n; rank++){
+                int hub = order[rank];
+                // forwards: the hub reaches these, so it goes in their in-labels
+                search(hub, rank, offsets, targets, out, in, false, visitedBy, queue);
+                // backwards: these reach the hub, so it goes in their out-labels
+                search(hub, rank, reverseOffsets, sources, in, out, true, visitedBy, queue);
+            }
+
+            _outOffsets = new int[n + 1];
+            _inOffsets = new int[n + 1];
+            _out = flatten(out, _outOffsets);
+            _in = flatten(in, _inOffsets);
+        }
+
+        /**
+         * Searches from the hub along the given arcs, adding its rank to the
+         * labels of every component reached that the labels do not already
+         * show a path to. from holds the labels on the hub's end of a path
+         * and to those on the other end.
+         */
+        private static void search(int hub, int rank, int[] offsets, int[] targets, IntList[] from,
+                IntList[] to, boolean backwards, int[] visitedBy, IntList queue) {
+            int stamp = backwards ? -2 - 2 * rank : 2 * rank;
+            queue.clear();
+            queue.add(hub);
+            visitedBy[hub] = stamp;
+            for(int head = 0; head < queue.size(); head++){
+                int c = queue.get(head);
+                if(c != hub && shareHub(from[hub], to[c])){
+                    continue;
+                }
+                to[c].add(rank);
+                for(int arc = offsets[c]; arc < offsets[c + 1]; arc++){
+                    int d = targets[arc];
+                    if(visitedBy[d] != stamp){
+                        visitedBy[d] = stamp;
+                        queue.add(d);
+                    }
+                }
+            }
+        }
+
+        private static boolean shareHub(IntList one, IntList two) {
+            int i = 0;
+            int j = 0;
+            while(i < one.size() && j < two.size()){
+                if(one.get(i) < two.get(j)){
+                    i++;
+                }
+                else if(one.get(i) > two.get(j)){
+                    j++;
+                }
+                else{
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int[] flatten(IntList[] labels, int[] offsets) {
+            for(int c = 0; c < labels.length; c++){
+                offsets[c + 1] = offsets[c] + labels[c].size();
+            }
+            int[] flat = new int[offsets[labels.length]];
+            for(int c = 0; c < labels.length; c++){
+                for(int i = 0; i < labels[c].size(); i++){
+                    flat[offsets[c] + i] = labels[c].get(i);
+                }
+            }
+            return flat;
+        }
+    }
+}
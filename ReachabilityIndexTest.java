@@ -0,0 +1,86 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests both forms of ReachabilityIndex.
+ */
+public class ReachabilityIndexTest {
+
+    /**
+     * Tests queries on a small directed graph with a cycle
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(B, C, 1);
+        graph.insertEdge(C, B, 1);
+        graph.insertEdge(D, C, 1);
+
+        CsrGraph<String> csr = CsrGraph.of(graph);
+        ReachabilityIndex<String> closure = new ReachabilityIndex<String>(csr);
+        ReachabilityIndex<String> labels = new ReachabilityIndex<String>(csr, 1, 0);
+        assertThat(closure.isClosure(), is(true));
+        assertThat(labels.isClosure(), is(false));
+        for(ReachabilityIndex<String> index : Arrays.asList(closure, labels)){
+            assertThat(index.canReach(A, C), is(true));
+            assertThat(index.canReach(C, B), is(true));
+            assertThat(index.canReach(C, A), is(false));
+            assertThat(index.canReach(A, D), is(false));
+            assertThat(index.canReach(D, D), is(true));
+        }
+    }
+
+    /**
+     * Tests the closure, built on one thread and several, and the labels
+     * against breadth-first search on random directed graphs
+     */
+    @Test
+    public void matchesSearch() {
+        Random random = new Random(39);
+        for(int trial = 0; trial < 6; trial++){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(true);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 80; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int i = 0; i < 40 + trial * 25; i++){
+                CS16Vertex<Integer> a = vertices.get(random.nextInt(80));
+                CS16Vertex<Integer> b = vertices.get(random.nextInt(80));
+                if(a != b && !graph.areAdjacent(a, b)){
+                    graph.insertEdge(a, b, 1);
+                }
+            }
+            CsrGraph<Integer> csr = CsrGraph.of(graph);
+            GraphTraversal<Integer> traversal = new GraphTraversal<Integer>(csr);
+            List<ReachabilityIndex<Integer>> indexes = new ArrayList<ReachabilityIndex<Integer>>();
+            indexes.add(new ReachabilityIndex<Integer>(csr));
+            indexes.add(new ReachabilityIndex<Integer>(csr, 3, 1 << 13));
+            indexes.add(new ReachabilityIndex<Integer>(csr, 1, 0));
+            for(CS16Vertex<Integer> a : vertices){
+                int[] levels = traversal.bfs(a).levels();
+                for(CS16Vertex<Integer> b : vertices){
+                    for(ReachabilityIndex<Integer> index : indexes){
+                        assertThat(index.canReach(a, b), is(levels[b.getVertexNumber()] >= 0));
+                    }
+                }
+            }
+        }
+    }
+}
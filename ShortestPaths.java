@@ -0,0 +1,399 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Single-source shortest paths over a CsrGraph, using edge elements as
+ * weights (an edge with a null element weighs 1). Weights must not be
+ * negative. Distances and parents come back as int arrays indexed by vertex
+ * number, with UNREACHED for vertices that were not reached.
+ *
+ * <p>
+ * dijkstra is Dijkstra's algorithm with an IntMinHeap, so a search allocates
+ * its arrays once and nothing per edge. deltaStepping is Meyer and Sanders'
+ * delta-stepping: vertices are kept in buckets of tentative distances delta
+ * wide, and the lowest bucket is emptied by relaxing the light edges (weight
+ * at most delta) of all of its vertices at once, over and over until no
+ * vertex falls back into it, and then their heavy edges once. Each round of
+ * relaxations can be split among several threads. Distance and parent are
+ * packed into one long per vertex and lowered together by compare-and-set,
+ * so a parent always matches its distance. The distances do not depend on
+ * how the threads were scheduled; where two shortest paths tie, which parent
+ * is kept may.
+ * </p>
+ *
+ * Both searches can be given a target, and stop as soon as its distance is
+ * final; the distances of vertices that were not settled by then are only
+ * upper bounds.
+ */
+public class ShortestPaths<V> {
+
+    public static final int UNREACHED = -1;
+
+    // rounds that relax fewer arcs than this run on one thread
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+    private static final long NOT_REACHED = Long.MAX_VALUE;
+
+    private final CsrGraph<V> _csr;
+    private final int _maxWeight;
+
+    /**
+     * Prepares shortest-path searches on a snapshot of g. Later changes to g
+     * are not seen.
+     *
+     * @throws IllegalArgumentException
+     *             Thrown when an edge has a negative weight.
+     */
+    public ShortestPaths(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public ShortestPaths(CsrGraph<V> csr) {
+        int maxWeight = 0;
+        for(int weight : csr.outWeights()){
+            if(weight < 0){
+                throw new IllegalArgumentException("negative edge weight " + weight);
+            }
+            maxWeight = Math.max(maxWeight, weight);
+        }
+        _csr = csr;
+        _maxWeight = maxWeight;
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Finds the shortest paths from source to every vertex.
+     *
+     * <p>
+     * This runs in O((|V| + |E|)log(|V|)) time.
+     * </p>
+     *
+     * @throws ArithmeticException
+     *             Thrown when a path is longer than Integer.MAX_VALUE.
+     */
+    public ShortestPathTree<V> dijkstra(CS16Vertex<V> source) {
+        return this.dijkstra(source, null);
+    }
+
+    /**
+     * Finds the shortest path from source to target, stopping as soon as it
+     * is known. A null target searches the whole graph.
+     */
+    public ShortestPathTree<V> dijkstra(CS16Vertex<V> source, CS16Vertex<V> target) {
+        int s = _csr.numberOf(source);
+        int t = (target == null) ? -1 : _csr.numberOf(target);
+        int[] offsets = _csr.outOffsets();
+        int[] targets = _csr.outTargets();
+        int[] weights = _csr.outWeights();
+        int[] distances = new int[_csr.size()];
+        int[] parents = new int[_csr.size()];
+        Arrays.fill(distances, UNREACHED);
+        Arrays.fill(parents, UNREACHED);
+        IntMinHeap heap = new IntMinHeap(_csr.size());
+
+        distances[s] = 0;
+        parents[s] = s;
+        heap.offer(s, 0);
+        int numSettled = 0;
+        while(!heap.isEmpty()){
+            int u = heap.poll();
+            numSettled++;
+            if(u == t){
+                break;
+            }
+            int du = distances[u];
+            for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                int v = targets[arc];
+                int dv = Math.addExact(du, weights[arc]);
+                if(distances[v] == UNREACHED || dv < distances[v]){
+                    distances[v] = dv;
+                    parents[v] = u;
+                    heap.offer(v, dv);
+                }
+            }
+        }
+        return new ShortestPathTree<V>(_csr, s, distances, parents, numSettled);
+    }
+
+    /**
+     * Finds the shortest paths from source to every vertex by delta-stepping,
+     * with a delta of the largest weight over the average out-degree.
+     */
+    public ShortestPathTree<V> deltaStepping(CS16Vertex<V> source, int threads) {
+        return this.deltaStepping(source, null, this.defaultDelta(), threads);
+    }
+
+    /**
+     * Finds the shortest path from source to target by delta-stepping,
+     * stopping once the bucket holding target has been emptied. A null
+     * target searches the whole graph.
+     *
+     * <p>
+     * A small delta does little wasted work but needs many rounds; a large
+     * one needs few rounds, each with more to share among threads, but may
+     * relax an edge several times. With a delta of 1 this is Dijkstra's
+     * algorithm with buckets, and with a delta of at least the largest
+     * distance it is Bellman-Ford.
+     * </p>
+     *
+     * @throws ArithmeticException
+     *             Thrown when a path is longer than Integer.MAX_VALUE.
+     */
+    public ShortestPathTree<V> deltaStepping(CS16Vertex<V> source, CS16Vertex<V> target, int delta, int threads) {
+        return this.deltaStepping(source, target, delta, threads, PARALLEL_THRESHOLD);
+    }
+
+    ShortestPathTree<V> deltaStepping(CS16Vertex<V> source, CS16Vertex<V> target, int delta, int threads,
+            int parallelThreshold) {
+        if(delta < 1){
+            throw new IllegalArgumentException("delta must be positive");
+        }
+        return Parallel.withPool("delta-stepping", threads, "delta-stepping", pool -> {
+            int s = _csr.numberOf(source);
+            int t = (target == null) ? -1 : _csr.numberOf(target);
+            return new DeltaStepping(delta, pool, threads, parallelThreshold).run(s, t);
+        });
+    }
+
+    private int defaultDelta() {
+        int n = Math.max(1, _csr.getNumVertices());
+        double averageDegree = Math.max(1.0, (double) _csr.getNumArcs() / n);
+        return Math.max(1, (int) (_maxWeight / averageDegree));
+    }
+
+    /**
+     * The state of one delta-stepping search.
+     */
+    private class DeltaStepping {
+        private final int _delta;
+        private final ExecutorService _pool;
+        private final int _threads;
+        private final int _parallelThreshold;
+        // distance << 32 | parent of every vertex, or NOT_REACHED
+        private final AtomicLongArray _best;
+        // the distance each vertex last had its light edges relaxed at, or -1
+        private final int[] _expandedAt;
+        private final TreeMap<Integer, IntList> _buckets;
+
+        private DeltaStepping(int delta, ExecutorService pool, int threads, int parallelThreshold) {
+            _delta = delta;
+            _pool = pool;
+            _threads = threads;
+            _parallelThreshold = parallelThreshold;
+            _best = new AtomicLongArray(_csr.size());
+            _expandedAt = new int[_csr.size()];
+            _buckets = new TreeMap<Integer, IntList>();
+            for(int v = 0; v < _csr.size(); v++){
+                _best.set(v, NOT_REACHED);
+            }
+            Arrays.fill(_expandedAt, -1);
+        }
+
+        private ShortestPathTree<V> run(int s, int t) throws InterruptedException, ExecutionException {
+            _best.set(s, pack(0, s));
+            this.addToBucket(s);
+            int numSettled = 0;
+            while(!_buckets.isEmpty()){
+                Map.Entry<Integer, IntList> lowest = _buckets.pollFirstEntry();
+                int bucket = lowest.getKey();
+                IntList pending = lowest.getValue();
+                IntList settled = new IntList();
+                while(pending != null){
+                    IntList frontier = new IntList();
+                    for(int i = 0; i < pending.size(); i++){
+                        int v = pending.get(i);
+                        int distance = distance(_best.get(v));
+                        // skip stale entries and vertices already expanded at
+                        // this distance
+                        if(distance / _delta != bucket || _expandedAt[v] == distance){
+                            continue;
+                        }
+                        if(_expandedAt[v] < 0){
+                            settled.add(v);
+                        }
+                        _expandedAt[v] = distance;
+                        frontier.add(v);
+                    }
+                    this.relax(frontier, true);
+                    pending = _buckets.remove(bucket);
+                }
+                this.relax(settled, false);
+                numSettled += settled.size();
+                if(t >= 0 && _best.get(t) != NOT_REACHED && distance(_best.get(t)) / _delta <= bucket){
+                    break;
+                }
+            }
+
+            int[] distances = new int[_csr.size()];
+            int[] parents = new int[_csr.size()];
+            for(int v = 0; v < distances.length; v++){
+                long best = _best.get(v);
+                distances[v] = (best == NOT_REACHED) ? UNREACHED : distance(best);
+                parents[v] = (best == NOT_REACHED) ? UNREACHED : (int) best;
+            }
+            return new ShortestPathTree<V>(_csr, s, distances, parents, numSettled);
+        }
+
+        /**
+         * Relaxes the light or the heavy edges leaving the given vertices,
+         * and puts every vertex whose distance went down into its bucket.
+         */
+        private void relax(IntList vertices, boolean light) throws InterruptedException, ExecutionException {
+            long arcs = 0;
+            for(int i = 0; i < vertices.size(); i++){
+                arcs += _csr.outDegree(vertices.get(i));
+            }
+            if(_pool == null || arcs < _parallelThreshold){
+                this.addToBuckets(this.relax(vertices, 0, vertices.size(), light));
+                return;
+            }
+            int[] bounds = Parallel.evenBounds(0, vertices.size(), Parallel.numRanges(_threads));
+            List<IntList> lowered = Parallel.eachRange(_pool, bounds, (from, to) -> this.relax(vertices, from, to, light));
+            for(IntList chunk : lowered){
+                this.addToBuckets(chunk);
+            }
+        }
+
+        /**
+         * Relaxes the light or heavy edges leaving vertices[from, to), and
+         * returns the vertices whose distance went down. Safe to run on
+         * several threads at once.
+         */
+        private IntList relax(IntList vertices, int from, int to, boolean light) {
+            int[] offsets = _csr.outOffsets();
+            int[] targets = _csr.outTargets();
+            int[] weights = _csr.outWeights();
+            IntList lowered = new IntList();
+            for(int i = from; i < to; i++){
+                int u = vertices.get(i);
+                int du = distance(_best.get(u));
+                for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                    if((weights[arc] <= _delta) != light){
+                        continue;
+                    }
+                    int v = targets[arc];
+                    long offer = pack(Math.addExact(du, weights[arc]), u);
+                    long current = _best.get(v);
+                    while(current == NOT_REACHED || distance(offer) < distance(current)){
+                        if(_best.compareAndSet(v, current, offer)){
+                            lowered.add(v);
+                            break;
+                        }
+                        current = _best.get(v);
+                    }
+                }
+            }
+            return lowered;
+        }
+
+        private void addToBuckets(IntList vertices) {
+            for(int i = 0; i < vertices.size(); i++){
+                this.addToBucket(vertices.get(i));
+            }
+        }
+
+        private void addToBucket(int v) {
+            int bucket = distance(_best.get(v)) / _delta;
+            IntList members = _buckets.get(bucket);
+            if(members == null){
+                members = new IntList();
+                _buckets.put(bucket, members);
+            }
+            members.add(v);
+        }
+    }
+
+    private static long pack(int distance, int parent) {
+        return ((long) distance << 32) | parent;
+    }
+
+    private static int distance(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    /**
+     * The result of a shortest-path search: the distance from the source and
+     * the parent on a shortest path of every vertex, indexed by vertex
+     * number.
+     */
+    public static class ShortestPathTree<V> {
+        private final CsrGraph<V> _csr;
+        private final int _source;
+        private final int[] _distances;
+        private final int[] _parents;
+        private final int _numSettled;
+
+        ShortestPathTree(CsrGraph<V> csr, int source, int[] distances, int[] parents, int numSettled) {
+            _csr = csr;
+            _source = source;
+            _distances = distances;
+            _parents = parents;
+            _numSettled = numSettled;
+        }
+
+        /**
+         * Returns the distance of every vertex from the source, or UNREACHED.
+         * The array is not copied.
+         */
+        public int[] distances() {
+            return _distances;
+        }
+
+        /**
+         * Returns the parent of every vertex on a shortest path from the
+         * source, or UNREACHED. The source is its own parent. The array is
+         * not copied.
+         */
+        public int[] parents() {
+            return _parents;
+        }
+
+        public CS16Vertex<V> getSource() {
+            return _csr.vertex(_source);
+        }
+
+        public int distance(CS16Vertex<V> vertex) {
+            return _distances[vertex.getVertexNumber()];
+        }
+
+        /**
+         * Returns the vertices of a shortest path from the source to vertex,
+         * or an empty list if it was not reached.
+         */
+        public List<CS16Vertex<V>> pathTo(CS16Vertex<V> vertex) {
+            int v = vertex.getVertexNumber();
+            if(_distances[v] == UNREACHED){
+                return Collections.emptyList();
+            }
+            List<CS16Vertex<V>> path = new ArrayList<CS16Vertex<V>>();
+            for(; v != _source; v = _parents[v]){
+                path.add(_csr.vertex(v));
+            }
+            path.add(_csr.vertex(_source));
+            Collections.reverse(path);
+            return path;
+        }
+
+        /**
+         * Returns the number of vertices whose distance was made final, which
+         * measures how much work the search did.
+         */
+        public int getNumSettled() {
+            return _numSettled;
+        }
+    }
+}
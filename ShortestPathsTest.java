@@ -0,0 +1,189 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests Dijkstra's algorithm and delta-stepping in ShortestPaths.
+ */
+public class ShortestPathsTest {
+
+    /**
+     * Tests distances and a path on a small directed graph
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(B, C, 2);
+        graph.insertEdge(A, C, 5);
+        graph.insertEdge(C, D, 1);
+        graph.insertEdge(D, A, 1);
+
+        ShortestPaths<String> paths = new ShortestPaths<String>(graph);
+        ShortestPaths.ShortestPathTree<String> tree = paths.dijkstra(A);
+        assertThat(tree.distance(C), is(3));
+        assertThat(tree.distance(D), is(4));
+        assertThat(tree.pathTo(D), is(Arrays.asList(A, B, C, D)));
+        assertThat(tree.getNumSettled(), is(4));
+
+        ShortestPaths.ShortestPathTree<String> fromC = paths.deltaStepping(C, null, 2, 1);
+        assertThat(fromC.distance(B), is(3));
+        assertThat(fromC.pathTo(B), is(Arrays.asList(C, D, A, B)));
+    }
+
+    /**
+     * Tests both searches, on one thread and several and with several deltas,
+     * against Bellman-Ford on random graphs
+     */
+    @Test
+    public void matchesBellmanFord() {
+        Random random = new Random(34);
+        for(int trial = 0; trial < 6; trial++){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(trial % 2 == 0);
+            List<CS16Vertex<Integer>> vertices = randomGraph(graph, 80, 600, trial < 4 ? 20 : 1000, random);
+            ShortestPaths<Integer> paths = new ShortestPaths<Integer>(graph);
+            CsrGraph<Integer> csr = paths.getCsrGraph();
+            CS16Vertex<Integer> source = vertices.get(random.nextInt(80));
+            int[] expected = bellmanFord(csr, source.getVertexNumber());
+
+            List<ShortestPaths.ShortestPathTree<Integer>> trees = new ArrayList<ShortestPaths.ShortestPathTree<Integer>>();
+            trees.add(paths.dijkstra(source));
+            trees.add(paths.deltaStepping(source, 1));
+            trees.add(paths.deltaStepping(source, 4));
+            trees.add(paths.deltaStepping(source, null, 1, 3, 0));
+            trees.add(paths.deltaStepping(source, null, 7, 3, 0));
+            trees.add(paths.deltaStepping(source, null, 100000, 2, 0));
+            for(ShortestPaths.ShortestPathTree<Integer> tree : trees){
+                assertArrayEquals(expected, tree.distances());
+                checkParents(csr, tree);
+            }
+        }
+    }
+
+    /**
+     * Tests that a search with a target stops early with the right distance
+     */
+    @Test
+    public void earlyTermination() {
+        Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(false);
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < 60; i++){
+            vertices.add(graph.insertVertex(i));
+            if(i > 0){
+                graph.insertEdge(vertices.get(i - 1), vertices.get(i), 2);
+            }
+        }
+        ShortestPaths<Integer> paths = new ShortestPaths<Integer>(graph);
+        ShortestPaths.ShortestPathTree<Integer> dijkstra = paths.dijkstra(vertices.get(0), vertices.get(10));
+        ShortestPaths.ShortestPathTree<Integer> delta = paths.deltaStepping(vertices.get(0), vertices.get(10), 3, 2);
+
+        assertThat(dijkstra.distance(vertices.get(10)), is(20));
+        assertThat(delta.distance(vertices.get(10)), is(20));
+        assertThat(dijkstra.getNumSettled(), is(11));
+        assertTrue(delta.getNumSettled() < 20);
+        assertThat(dijkstra.pathTo(vertices.get(10)).size(), is(11));
+    }
+
+    /**
+     * Tests that zero-weight cycles through the source leave its paths intact
+     */
+    @Test
+    public void zeroWeightCycle() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        graph.insertEdge(B, A, 0);
+        graph.insertEdge(C, B, 0);
+        graph.insertEdge(B, C, 0);
+        graph.insertEdge(A, C, 0);
+
+        ShortestPaths<String> paths = new ShortestPaths<String>(graph);
+        for(ShortestPaths.ShortestPathTree<String> tree : Arrays.asList(paths.dijkstra(C),
+                paths.deltaStepping(C, null, 1, 2, 0))){
+            assertThat(tree.pathTo(C), is(Arrays.asList(C)));
+            assertThat(tree.pathTo(A), is(Arrays.asList(C, B, A)));
+            assertThat(tree.distance(A), is(0));
+        }
+    }
+
+    /**
+     * Tests that negative weights are refused
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeWeight() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        graph.insertEdge(graph.insertVertex("A"), graph.insertVertex("B"), -1);
+        new ShortestPaths<String>(graph);
+    }
+
+    private static List<CS16Vertex<Integer>> randomGraph(Graph<Integer> graph, int size, int edges, int maxWeight,
+            Random random) {
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < size; i++){
+            vertices.add(graph.insertVertex(i));
+        }
+        for(int i = 0; i < edges; i++){
+            CS16Vertex<Integer> from = vertices.get(random.nextInt(size));
+            CS16Vertex<Integer> to = vertices.get(random.nextInt(size));
+            if(from != to && !graph.areAdjacent(from, to)){
+                graph.insertEdge(from, to, random.nextInt(maxWeight + 1));
+            }
+        }
+        return vertices;
+    }
+
+    private static int[] bellmanFord(CsrGraph<Integer> csr, int source) {
+        long[] distances = new long[csr.size()];
+        Arrays.fill(distances, Long.MAX_VALUE);
+        distances[source] = 0;
+        for(int round = 0; round < csr.size(); round++){
+            for(int u = 0; u < csr.size(); u++){
+                if(distances[u] == Long.MAX_VALUE){
+                    continue;
+                }
+                for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                    int v = csr.outTargets()[arc];
+                    distances[v] = Math.min(distances[v], distances[u] + csr.outWeights()[arc]);
+                }
+            }
+        }
+        int[] result = new int[csr.size()];
+        for(int v = 0; v < result.length; v++){
+            result[v] = (distances[v] == Long.MAX_VALUE) ? ShortestPaths.UNREACHED : (int) distances[v];
+        }
+        return result;
+    }
+
+    private static void checkParents(CsrGraph<Integer> csr, ShortestPaths.ShortestPathTree<Integer> tree) {
+        int[] distances = tree.distances();
+        int[] parents = tree.parents();
+        for(int v = 0; v < distances.length; v++){
+            if(distances[v] > 0 || (distances[v] == 0 && parents[v] != v)){
+                int parent = parents[v];
+                boolean tight = false;
+                for(int arc = csr.outOffsets()[parent]; arc < csr.outOffsets()[parent + 1]; arc++){
+                    tight |= csr.outTargets()[arc] == v && distances[parent] + csr.outWeights()[arc] == distances[v];
+                }
+                assertTrue(tight);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package graph;
+
+/**
+ * The neighbors of every vertex of a CsrGraph with the edges taken as
+ * undirected: each vertex's neighbors either way, without repeats or the
+ * vertex itself, sorted, in CSR form. Algorithms defined on simple
+ * undirected graphs, such as triangle counting and core decomposition, run
+ * on this rather than on the arcs.
+ */
+class SimpleNeighbors {
+
+    final int[] _offsets;
+    final int[] _neighbors;
+    final int[] _degrees;
+
+    /**
+     * Collects the neighbors by merging each vertex's outgoing and incoming
+     * rows, which CsrGraph keeps sorted, in O(|V| + |E|) time.
+     */
+    SimpleNeighbors(CsrGraph<?> csr) {
+        int n = csr.size();
+        int[] outOffsets = csr.outOffsets();
+        int[] outTargets = csr.outTargets();
+        // an undirected graph's incoming rows are its outgoing ones, so
+        // there is nothing to merge
+        int[] inOffsets = csr.isDirected() ? csr.inOffsets() : new int[n + 1];
+        int[] inSources = csr.inSources();
+        _offsets = new int[n + 1];
+        _degrees = new int[n];
+        IntList neighbors = new IntList(csr.getNumArcs() + 1);
+        for(int u = 0; u < n; u++){
+            int i = outOffsets[u];
+            int iEnd = outOffsets[u + 1];
+            int j = inOffsets[u];
+            int jEnd = inOffsets[u + 1];
+            int last = u;
+            while(i < iEnd || j < jEnd){
+                int next;
+                if(j == jEnd || (i < iEnd && outTargets[i] <= inSources[j])){
+                    next = outTargets[i++];
+                }
+                else{
+                    next = inSources[j++];
+                }
+                // the rows are sorted, so a repeat comes right after what it
+                // repeats; last starts as u, which is never kept
+                if(next != u && next != last){
+                    neighbors.add(next);
+                    last = next;
+                }
+            }
+            _offsets[u + 1] = neighbors.size();
+            _degrees[u] = _offsets[u + 1] - _offsets[u];
+        }
+        _neighbors = neighbors.toArray();
+    }
+}
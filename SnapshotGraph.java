@@ -0,0 +1,435 @@
+package graph;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.DirectionException;
+import support.graph.Graph;
+import support.graph.GraphEdge;
+import support.graph.GraphVertex;
+import support.graph.InvalidEdgeException;
+import support.graph.InvalidVertexException;
+import support.graph.NoSuchEdgeException;
+import support.graph.NoSuchVertexException;
+
+/**
+ * A read-only Graph served straight from the memory-mapped sections of a
+ * graph snapshot. Use GraphSnapshot.open to get one.
+ *
+ * <p>
+ * Vertices are numbered 0 to n - 1. Vertex and edge objects are only created
+ * the first time they are asked for, and are then kept, so the same vertex or
+ * edge is always returned as the same object; both directions of an
+ * undirected edge share one edge object. They are kept in hash maps rather
+ * than arrays, so that opening a snapshot allocates nothing per vertex or
+ * arc, and a graph of which only a few vertices are used stays small. Adjacency queries read the mapped
+ * buffers directly, and every query runs within the bounds the Graph
+ * interface asks of an AdjacencyMatrixGraph, with connectingEdge and
+ * areAdjacent taking O(log(d)) time by binary search.
+ * </p>
+ *
+ * Every method that would change the graph throws an
+ * UnsupportedOperationException.
+ */
+public class SnapshotGraph implements Graph<String> {
+
+    private final boolean _directed;
+    private final int _numVertices;
+    private final int _numArcs;
+    private final IntBuffer _nameOffsets;
+    private final ByteBuffer _names;
+    private final DoubleBuffer _coordinates;
+    private final IntBuffer _outOffsets;
+    private final IntBuffer _outTargets;
+    private final IntBuffer _outWeights;
+    private final IntBuffer _inOffsets;
+    private final IntBuffer _inArcs;
+    // vertex and edge objects created so far, by vertex and arc number
+    private final Map<Integer, CS16Vertex<String>> _vertexCache;
+    private final Map<Integer, CS16Edge<String>> _edgeCache;
+
+    SnapshotGraph(boolean directed, int numVertices, int numArcs, IntBuffer nameOffsets, ByteBuffer names,
+            DoubleBuffer coordinates, IntBuffer outOffsets, IntBuffer outTargets, IntBuffer outWeights,
+            IntBuffer inOffsets, IntBuffer inArcs) {
+        _directed = directed;
+        _numVertices = numVertices;
+        _numArcs = numArcs;
+        _nameOffsets = nameOffsets;
+        _names = names;
+        _coordinates = coordinates;
+        _outOffsets = outOffsets;
+        _outTargets = outTargets;
+        _outWeights = outWeights;
+        _inOffsets = inOffsets;
+        _inArcs = inArcs;
+        _vertexCache = new HashMap<Integer, CS16Vertex<String>>();
+        _edgeCache = new HashMap<Integer, CS16Edge<String>>();
+    }
+
+    /**
+     * Returns whether the snapshot was taken of a directed graph.
+     */
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    /**
+     * Returns the number of arcs, counting an undirected edge once in each
+     * direction unless it is a self-loop.
+     */
+    public int getNumArcs() {
+        return _numArcs;
+    }
+
+    /**
+     * Returns the vertex numbered id.
+     */
+    public CS16Vertex<String> vertex(int id) {
+        CS16Vertex<String> vertex = _vertexCache.get(id);
+        if(vertex == null){
+            int start = _nameOffsets.get(id);
+            byte[] name = new byte[_nameOffsets.get(id + 1) - start];
+            for(int i = 0; i < name.length; i++){
+                name[i] = _names.get(start + i);
+            }
+            vertex = new GraphVertex<String>(new String(name, StandardCharsets.UTF_8));
+            vertex.setVertexNumber(id);
+            _vertexCache.put(id, vertex);
+        }
+        return vertex;
+    }
+
+    public double getX(int id) {
+        return _coordinates.get(2 * id);
+    }
+
+    public double getY(int id) {
+        return _coordinates.get(2 * id + 1);
+    }
+
+    /**
+     * The arcs leaving vertex v are numbered outOffset(v) up to (but not
+     * including) outOffset(v + 1).
+     */
+    public int outOffset(int v) {
+        return _outOffsets.get(v);
+    }
+
+    public int outDegree(int v) {
+        return _outOffsets.get(v + 1) - _outOffsets.get(v);
+    }
+
+    public int arcTarget(int arc) {
+        return _outTargets.get(arc);
+    }
+
+    public int arcWeight(int arc) {
+        return _outWeights.get(arc);
+    }
+
+    @Override
+    public Iterator<CS16Vertex<String>> vertices() {
+        return new Iterator<CS16Vertex<String>>() {
+            private int _next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return _next < _numVertices;
+            }
+
+            @Override
+            public CS16Vertex<String> next() {
+                if(!this.hasNext()){
+                    throw new NoSuchElementException();
+                }
+                return vertex(_next++);
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator over every edge. For an undirected graph each edge
+     * is returned once, from the arc leaving its lower-numbered end.
+     */
+    @Override
+    public Iterator<CS16Edge<String>> edges() {
+        return new Iterator<CS16Edge<String>>() {
+            private int _source = 0;
+            private int _arc = this.advance(0);
+
+            @Override
+            public boolean hasNext() {
+                return _arc < _numArcs;
+            }
+
+            @Override
+            public CS16Edge<String> next() {
+                if(!this.hasNext()){
+                    throw new NoSuchElementException();
+                }
+                CS16Edge<String> edge = edge(_source, _arc);
+                _arc = this.advance(_arc + 1);
+                return edge;
+            }
+
+            private int advance(int arc) {
+                for(; arc < _numArcs; arc++){
+                    while(_outOffsets.get(_source + 1) <= arc){
+                        _source++;
+                    }
+                    if(_directed || _source <= _outTargets.get(arc)){
+                        return arc;
+                    }
+                }
+                return arc;
+            }
+        };
+    }
+
+    @Override
+    public CS16Vertex<String> insertVertex(String vertElement) {
+        throw new UnsupportedOperationException("snapshot graphs are read-only");
+    }
+
+    @Override
+    public CS16Edge<String> insertEdge(CS16Vertex<String> v1, CS16Vertex<String> v2, Integer edgeElement) {
+        throw new UnsupportedOperationException("snapshot graphs are read-only");
+    }
+
+    @Override
+    public String removeVertex(CS16Vertex<String> vert) {
+        throw new UnsupportedOperationException("snapshot graphs are read-only");
+    }
+
+    @Override
+    public Integer removeEdge(CS16Edge<String> edge) {
+        throw new UnsupportedOperationException("snapshot graphs are read-only");
+    }
+
+    @Override
+    public CS16Edge<String> connectingEdge(CS16Vertex<String> v1, CS16Vertex<String> v2)
+            throws InvalidVertexException, NoSuchEdgeException {
+        if(v1 == null || v2 == null){
+            throw new InvalidVertexException("vertex is null");
+        }
+        int source = v1.getVertexNumber();
+        int arc = this.findArc(source, v2.getVertexNumber());
+        if(arc < 0){
+            throw new NoSuchEdgeException("edge does not exist");
+        }
+        return this.edge(source, arc);
+    }
+
+    @Override
+    public Iterator<CS16Edge<String>> incomingEdges(CS16Vertex<String> vert) throws InvalidVertexException {
+        if(vert == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        if(!_directed){
+            return this.outgoingEdges(vert);
+        }
+        int target = vert.getVertexNumber();
+        ArrayList<CS16Edge<String>> incomingEdges = new ArrayList<CS16Edge<String>>(_inOffsets.get(target + 1)
+                - _inOffsets.get(target));
+        for(int i = _inOffsets.get(target); i < _inOffsets.get(target + 1); i++){
+            int arc = _inArcs.get(i);
+            incomingEdges.add(this.edge(this.sourceOf(arc), arc));
+        }
+        return incomingEdges.iterator();
+    }
+
+    @Override
+    public Iterator<CS16Edge<String>> outgoingEdges(CS16Vertex<String> vert) throws InvalidVertexException {
+        if(vert == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        int source = vert.getVertexNumber();
+        ArrayList<CS16Edge<String>> outgoingEdges = new ArrayList<CS16Edge<String>>(this.outDegree(source));
+        for(int arc = _outOffsets.get(source); arc < _outOffsets.get(source + 1); arc++){
+            outgoingEdges.add(this.edge(source, arc));
+        }
+        return outgoingEdges.iterator();
+    }
+
+    @Override
+    public int numOutgoingEdges(CS16Vertex<String> vert) throws InvalidVertexException, DirectionException {
+        if(vert == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        if(!_directed){
+            throw new DirectionException("graph is undirected");
+        }
+        return this.outDegree(vert.getVertexNumber());
+    }
+
+    @Override
+    public CS16Vertex<String> opposite(CS16Vertex<String> vert, CS16Edge<String> edge)
+            throws InvalidVertexException, InvalidEdgeException, NoSuchVertexException {
+        if(vert == null){
+            throw new InvalidVertexException("null vertex");
+        }
+        if(edge == null){
+            throw new InvalidEdgeException("null edge");
+        }
+        if(vert == edge.getVertexTwo()){
+            return edge.getVertexOne();
+        }
+        else if(vert == edge.getVertexOne()){
+            return edge.getVertexTwo();
+        }
+        else{
+            throw new NoSuchVertexException("No such vertex exists");
+        }
+    }
+
+    @Override
+    public List<CS16Vertex<String>> endVertices(CS16Edge<String> e) throws InvalidEdgeException {
+        if(e == null){
+            throw new InvalidEdgeException("edge is null");
+        }
+        ArrayList<CS16Vertex<String>> vertices = new ArrayList<CS16Vertex<String>>();
+        vertices.add(e.getVertexOne());
+        vertices.add(e.getVertexTwo());
+        return vertices;
+    }
+
+    @Override
+    public boolean areAdjacent(CS16Vertex<String> v1, CS16Vertex<String> v2) throws InvalidVertexException {
+        if(v1 == null || v2 == null){
+            throw new InvalidVertexException("vertex is null");
+        }
+        return this.findArc(v1.getVertexNumber(), v2.getVertexNumber()) >= 0;
+    }
+
+    @Override
+    public void toggleDirected() {
+        throw new UnsupportedOperationException("snapshot graphs are read-only");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("snapshot graphs are read-only");
+    }
+
+    @Override
+    public int getNumVertices() {
+        return _numVertices;
+    }
+
+    /**
+     * Estimates the memory this graph retains, by component: the graph
+     * object and its buffer views, the caches and the vertex and edge
+     * objects created so far, on the heap, and the mapped snapshot, off it.
+     * The mapped pages belong to the page cache, which the operating system
+     * may drop and read back as it needs.
+     *
+     * <p>
+     * This runs in time proportional to the vertices and edges created so
+     * far.
+     * </p>
+     */
+    public MemoryFootprint footprint() {
+        MemoryFootprint footprint = new MemoryFootprint();
+        Buffer[] buffers = { _nameOffsets, _names, _coordinates, _outOffsets, _outTargets, _outWeights,
+            _inOffsets, _inArcs };
+        long views = MemoryFootprint.shallowSize(this.getClass());
+        long mapped = 0;
+        for(Buffer buffer : buffers){
+            if(buffer != null){
+                views += MemoryFootprint.shallowSize(buffer.getClass());
+                int elementBytes = (buffer instanceof ByteBuffer) ? 1 : (buffer instanceof DoubleBuffer) ? 8 : 4;
+                mapped += (long) buffer.capacity() * elementBytes;
+            }
+        }
+        footprint.add("graph", views);
+
+        long vertices = MemoryFootprint.hashMapBytes(_vertexCache.size());
+        for(Map.Entry<Integer, CS16Vertex<String>> entry : _vertexCache.entrySet()){
+            CS16Vertex<String> vertex = entry.getValue();
+            vertices += MemoryFootprint.valueBytes(entry.getKey()) + MemoryFootprint.valueBytes(vertex)
+                    + MemoryFootprint.valueBytes(vertex.element());
+        }
+        footprint.add("cached vertices", vertices);
+        long edges = MemoryFootprint.hashMapBytes(_edgeCache.size());
+        // an undirected edge is cached at one of its arcs only
+        for(Map.Entry<Integer, CS16Edge<String>> entry : _edgeCache.entrySet()){
+            CS16Edge<String> edge = entry.getValue();
+            edges += MemoryFootprint.valueBytes(entry.getKey()) + MemoryFootprint.valueBytes(edge)
+                    + MemoryFootprint.valueBytes(edge.element());
+        }
+        footprint.add("cached edges", edges);
+        footprint.addOffHeap("mapped snapshot", mapped);
+        return footprint;
+    }
+
+    /**
+     * Returns the index of the first arc from source to target, or -1 if
+     * there is none.
+     */
+    private int findArc(int source, int target) {
+        int low = _outOffsets.get(source);
+        int high = _outOffsets.get(source + 1);
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(_outTargets.get(mid) < target){
+                low = mid + 1;
+            }
+            else{
+                high = mid;
+            }
+        }
+        return (low < _outOffsets.get(source + 1) && _outTargets.get(low) == target) ? low : -1;
+    }
+
+    /**
+     * Returns the vertex whose row contains the given arc.
+     */
+    private int sourceOf(int arc) {
+        int low = 0;
+        int high = _numVertices - 1;
+        while(low < high){
+            int mid = (low + high + 1) >>> 1;
+            if(_outOffsets.get(mid) <= arc){
+                low = mid;
+            }
+            else{
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the edge object of an arc, creating it the first time. Both
+     * arcs of an undirected edge share the object cached at the arc leaving
+     * the lower-numbered end.
+     */
+    private CS16Edge<String> edge(int source, int arc) {
+        int target = _outTargets.get(arc);
+        if(!_directed && target < source){
+            int twin = this.findArc(target, source);
+            // skip to the twin with the same position among parallel edges
+            twin += arc - this.findArc(source, target);
+            return this.edge(target, twin);
+        }
+        CS16Edge<String> edge = _edgeCache.get(arc);
+        if(edge == null){
+            edge = new GraphEdge<String>(_outWeights.get(arc));
+            edge.setVertexOne(this.vertex(source));
+            edge.setVertexTwo(this.vertex(target));
+            _edgeCache.put(arc, edge);
+        }
+        return edge;
+    }
+}
@@ -0,0 +1,323 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Strongly connected components of a CsrGraph, found with Tarjan's
+ * algorithm, and the condensation: the DAG with one vertex per component and
+ * an arc between two components wherever an edge joins their vertices.
+ *
+ * <p>
+ * The search is iterative. Instead of recursing, it keeps the vertices whose
+ * arcs are being explored on an IntList, with the next arc of each in an int
+ * array, so a path of any length costs heap, not call stack, and a links
+ * graph with a long chain of pages cannot overflow it. Tarjan's own stack of
+ * open vertices is an IntList as well.
+ * </p>
+ *
+ * <p>
+ * Tarjan's algorithm completes components in reverse topological order,
+ * sinks first; they are numbered the other way round, so that component ids
+ * are a topological order of the condensation: every arc goes from a lower id
+ * to a higher one, and the sink components, where PageRank collects, come
+ * last. On an undirected graph the components are the connected ones.
+ * </p>
+ */
+public class StronglyConnectedComponents<V> {
+
+    private final CsrGraph<V> _csr;
+
+    /**
+     * Prepares to find the components of a snapshot of g. Later changes to g
+     * are not seen.
+     */
+    public StronglyConnectedComponents(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public StronglyConnectedComponents(CsrGraph<V> csr) {
+        _csr = csr;
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Finds the strongly connected components and builds the condensation.
+     *
+     * <p>
+     * This runs in O(|V| + |E|) time.
+     * </p>
+     */
+    public Condensation<V> condense() {
+        int size = _csr.size();
+        int[] offsets = _csr.outOffsets();
+        int[] targets = _csr.outTargets();
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        int[] nextArc = new int[size];
+        boolean[] open = new boolean[size];
+        // the component each vertex is completed in, in completion order
+        int[] completedIn = new int[size];
+        Arrays.fill(index, -1);
+        Arrays.fill(completedIn, -1);
+        IntList openStack = new IntList();
+        IntList callStack = new IntList();
+        int numVisited = 0;
+        int numComponents = 0;
+
+        for(int root = 0; root < size; root++){
+            if(index[root] >= 0 || !_csr.hasVertex(root)){
+                continue;
+            }
+            index[root] = lowLink[root] = numVisited++;
+            nextArc[root] = offsets[root];
+            open[root] = true;
+            openStack.add(root);
+            callStack.add(root);
+            while(!callStack.isEmpty()){
+                int u = callStack.peek();
+                if(nextArc[u] < offsets[u + 1]){
+                    int v = targets[nextArc[u]++];
+                    if(index[v] < 0){
+                        index[v] = lowLink[v] = numVisited++;
+                        nextArc[v] = offsets[v];
+                        open[v] = true;
+                        openStack.add(v);
+                        callStack.add(v);
+                    }
+                    else if(open[v]){
+                        lowLink[u] = Math.min(lowLink[u], index[v]);
+                    }
+                    continue;
+                }
+                // all of u's arcs are explored: return from u
+                callStack.pop();
+                if(lowLink[u] == index[u]){
+                    int w;
+                    do {
+                        w = openStack.pop();
+                        open[w] = false;
+                        completedIn[w] = numComponents;
+                    } while(w != u);
+                    numComponents++;
+                }
+                if(!callStack.isEmpty()){
+                    int parent = callStack.peek();
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[u]);
+                }
+            }
+        }
+
+        int[] ids = new int[size];
+        int[] sizes = new int[numComponents];
+        for(int v = 0; v < size; v++){
+            ids[v] = (completedIn[v] < 0) ? -1 : numComponents - 1 - completedIn[v];
+            if(ids[v] >= 0){
+                sizes[ids[v]]++;
+            }
+        }
+        return this.buildDag(ids, sizes);
+    }
+
+    /**
+     * Builds the arcs of the condensation in CSR form, each arc once, in
+     * increasing order of target within each component.
+     */
+    private Condensation<V> buildDag(int[] ids, int[] sizes) {
+        int numComponents = sizes.length;
+        // group the vertices by component, with a counting sort
+        int[] memberOffsets = new int[numComponents + 1];
+        for(int id : ids){
+            if(id >= 0){
+                memberOffsets[id + 1]++;
+            }
+        }
+        for(int c = 0; c < numComponents; c++){
+            memberOffsets[c + 1] += memberOffsets[c];
+        }
+        int[] members = new int[memberOffsets[numComponents]];
+        int[] fill = Arrays.copyOf(memberOffsets, numComponents);
+        for(int v = 0; v < ids.length; v++){
+            if(ids[v] >= 0){
+                members[fill[ids[v]]++] = v;
+            }
+        }
+
+        int[] offsets = _csr.outOffsets();
+        int[] targets = _csr.outTargets();
+        int[] dagOffsets = new int[numComponents + 1];
+        IntList dagTargets = new IntList();
+        // the last component that has an arc to each component so far
+        int[] lastSource = new int[numComponents];
+        Arrays.fill(lastSource, -1);
+        IntList row = new IntList();
+        for(int c = 0; c < numComponents; c++){
+            row.clear();
+            for(int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++){
+                int u = members[i];
+                for(int arc = offsets[u]; arc < offsets[u + 1]; arc++){
+                    int d = ids[targets[arc]];
+                    if(d != c && lastSource[d] != c){
+                        lastSource[d] = c;
+                        row.add(d);
+                    }
+                }
+            }
+            int[] sorted = row.toArray();
+            Arrays.sort(sorted);
+            for(int d : sorted){
+                dagTargets.add(d);
+            }
+            dagOffsets[c + 1] = dagTargets.size();
+        }
+        return new Condensation<V>(_csr, ids, sizes, memberOffsets, members, dagOffsets, dagTargets.toArray());
+    }
+
+    /**
+     * The strongly connected components of a graph and the DAG they
+     * condense it to. Component ids are a topological order of the DAG.
+     */
+    public static class Condensation<V> {
+        private final CsrGraph<V> _csr;
+        private final int[] _ids;
+        private final int[] _sizes;
+        private final int[] _memberOffsets;
+        private final int[] _members;
+        private final int[] _dagOffsets;
+        private final int[] _dagTargets;
+        private final int[] _dagInDegrees;
+
+        private Condensation(CsrGraph<V> csr, int[] ids, int[] sizes, int[] memberOffsets, int[] members,
+                int[] dagOffsets, int[] dagTargets) {
+            _csr = csr;
+            _ids = ids;
+            _sizes = sizes;
+            _memberOffsets = memberOffsets;
+            _members = members;
+            _dagOffsets = dagOffsets;
+            _dagTargets = dagTargets;
+            _dagInDegrees = new int[sizes.length];
+            for(int d : dagTargets){
+                _dagInDegrees[d]++;
+            }
+        }
+
+        /**
+         * Returns the component ids indexed by vertex number, with -1 for
+         * numbers that are not vertices. The array is not copied; do not
+         * change it.
+         */
+        public int[] ids() {
+            return _ids;
+        }
+
+        /**
+         * Returns the sizes of the components indexed by component id. The
+         * array is not copied; do not change it.
+         */
+        public int[] sizes() {
+            return _sizes;
+        }
+
+        public int getNumComponents() {
+            return _sizes.length;
+        }
+
+        /**
+         * Returns the number of arcs of the condensation.
+         */
+        public int getNumDagArcs() {
+            return _dagTargets.length;
+        }
+
+        public int componentOf(CS16Vertex<V> vertex) {
+            return _ids[_csr.numberOf(vertex)];
+        }
+
+        public boolean isStronglyConnected(CS16Vertex<V> a, CS16Vertex<V> b) {
+            return _ids[_csr.numberOf(a)] == _ids[_csr.numberOf(b)];
+        }
+
+        /**
+         * Returns the vertices of a component, in order of vertex number.
+         */
+        public List<CS16Vertex<V>> members(int id) {
+            this.checkId(id);
+            List<CS16Vertex<V>> members = new ArrayList<CS16Vertex<V>>(_sizes[id]);
+            for(int i = _memberOffsets[id]; i < _memberOffsets[id + 1]; i++){
+                members.add(_csr.vertex(_members[i]));
+            }
+            return members;
+        }
+
+        /**
+         * Returns the components that a component has arcs to in the
+         * condensation, in increasing order. Every one of them has a larger
+         * id.
+         */
+        public int[] successors(int id) {
+            this.checkId(id);
+            return Arrays.copyOfRange(_dagTargets, _dagOffsets[id], _dagOffsets[id + 1]);
+        }
+
+        public int outDegree(int id) {
+            this.checkId(id);
+            return _dagOffsets[id + 1] - _dagOffsets[id];
+        }
+
+        public int inDegree(int id) {
+            this.checkId(id);
+            return _dagInDegrees[id];
+        }
+
+        /**
+         * Returns whether nothing leaves a component: a random surfer who
+         * enters it never gets out except by teleporting.
+         */
+        public boolean isSink(int id) {
+            return this.outDegree(id) == 0;
+        }
+
+        /**
+         * Returns the ids of the components that nothing leaves, in
+         * increasing order.
+         */
+        public int[] sinkComponents() {
+            IntList sinks = new IntList();
+            for(int c = 0; c < _sizes.length; c++){
+                if(_dagOffsets[c + 1] == _dagOffsets[c]){
+                    sinks.add(c);
+                }
+            }
+            return sinks.toArray();
+        }
+
+        /**
+         * Returns the offsets of the condensation's arcs in CSR form: the
+         * arcs leaving component c are dagTargets()[dagOffsets()[c]] up to
+         * dagTargets()[dagOffsets()[c + 1]]. The array is not copied; do not
+         * change it.
+         */
+        public int[] dagOffsets() {
+            return _dagOffsets;
+        }
+
+        public int[] dagTargets() {
+            return _dagTargets;
+        }
+
+        private void checkId(int id) {
+            if(id < 0 || id >= _sizes.length){
+                throw new IllegalArgumentException("no component " + id);
+            }
+        }
+
+    }
+}
@@ -0,0 +1,131 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests StronglyConnectedComponents and its condensation.
+ */
+public class StronglyConnectedComponentsTest {
+
+    /**
+     * Tests the components and condensed DAG of a small directed graph
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        CS16Vertex<String> E = graph.insertVertex("E");
+        graph.insertEdge(A, B, 1);
+        graph.insertEdge(B, A, 1);
+        graph.insertEdge(B, C, 1);
+        graph.insertEdge(A, C, 1);
+        graph.insertEdge(C, D, 1);
+        graph.insertEdge(D, C, 1);
+        graph.insertEdge(A, E, 1);
+
+        StronglyConnectedComponents.Condensation<String> condensation =
+                new StronglyConnectedComponents<String>(graph).condense();
+        assertThat(condensation.getNumComponents(), is(3));
+        assertThat(condensation.componentOf(A), is(0));
+        assertThat(condensation.isStronglyConnected(C, D), is(true));
+        assertThat(condensation.isStronglyConnected(A, C), is(false));
+        assertThat(condensation.members(0), is(Arrays.asList(A, B)));
+        assertThat(condensation.successors(0).length, is(2));
+        assertThat(condensation.getNumDagArcs(), is(2));
+        assertThat(condensation.inDegree(0), is(0));
+        assertThat(condensation.sinkComponents().length, is(2));
+        assertThat(condensation.isSink(condensation.componentOf(E)), is(true));
+    }
+
+    /**
+     * Tests the components against mutual reachability, and the ids against
+     * the direction of every edge, on random directed graphs
+     */
+    @Test
+    public void matchesReachability() {
+        Random random = new Random(37);
+        for(int trial = 0; trial < 6; trial++){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(true);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 60; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int i = 0; i < 50 + trial * 20; i++){
+                CS16Vertex<Integer> a = vertices.get(random.nextInt(60));
+                CS16Vertex<Integer> b = vertices.get(random.nextInt(60));
+                if(a != b && !graph.areAdjacent(a, b)){
+                    graph.insertEdge(a, b, 1);
+                }
+            }
+            StronglyConnectedComponents<Integer> scc = new StronglyConnectedComponents<Integer>(graph);
+            StronglyConnectedComponents.Condensation<Integer> condensation = scc.condense();
+            GraphTraversal<Integer> traversal = new GraphTraversal<Integer>(scc.getCsrGraph());
+            for(CS16Vertex<Integer> a : vertices){
+                int[] fromA = traversal.bfs(a).levels();
+                for(CS16Vertex<Integer> b : vertices){
+                    boolean mutual = fromA[b.getVertexNumber()] >= 0
+                            && traversal.bfs(b).levels()[a.getVertexNumber()] >= 0;
+                    assertThat(condensation.isStronglyConnected(a, b), is(mutual));
+                }
+            }
+            CsrGraph<Integer> csr = scc.getCsrGraph();
+            int[] ids = condensation.ids();
+            for(int u = 0; u < csr.size(); u++){
+                for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                    assertTrue(ids[u] <= ids[csr.outTargets()[arc]]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a very long cycle, which would overflow the call stack of a
+     * recursive search, comes out as one component, and a long path as one
+     * component per vertex
+     */
+    @Test
+    public void deepGraph() {
+        int size = 300000;
+        String[] names = new String[size];
+        double[] coordinates = new double[size];
+        EdgeBuffer path = new EdgeBuffer(size);
+        for(int i = 0; i < size; i++){
+            names[i] = "v" + i;
+            if(i + 1 < size){
+                path.add(i, i + 1, 1);
+            }
+        }
+        EdgeBuffer cycle = new EdgeBuffer(size);
+        cycle.addAll(path);
+        cycle.add(size - 1, 0, 1);
+
+        LinksData cycleLinks = new LinksData(names, coordinates, coordinates, cycle);
+        StronglyConnectedComponents.Condensation<String> one =
+                new StronglyConnectedComponents<String>(CsrGraph.of(cycleLinks)).condense();
+        assertArrayEquals(new int[] {size}, one.sizes());
+
+        LinksData pathLinks = new LinksData(names, coordinates, coordinates, path);
+        StronglyConnectedComponents.Condensation<String> chain =
+                new StronglyConnectedComponents<String>(CsrGraph.of(pathLinks)).condense();
+        assertThat(chain.getNumComponents(), is(size));
+        assertThat(chain.ids()[0], is(0));
+        assertThat(chain.ids()[size - 1], is(size - 1));
+        assertThat(chain.sinkComponents().length, is(1));
+    }
+}
@@ -6,7 +6,16 @@ import org.junit.runner.notification.Failure;
 
 public class TestRunner {
    public static void main(String[] args) {
-        Result result = JUnitCore.runClasses(GraphTest.class, MsfTest.class, MyPageRankTest.class);
+        Result result = JUnitCore.runClasses(GraphTest.class, MsfTest.class, MyPageRankTest.class,
+                HeuristicDynamicMsfTest.class, LinksFileLoaderTest.class, GraphSnapshotTest.class,
+                CompressedGraphTest.class, IncrementalPageRankTest.class, LinksStreamIngesterTest.class,
+                GraphTraversalTest.class, ShortestPathsTest.class,
+                PointToPointSearchTest.class, ConnectedComponentsTest.class,
+                StronglyConnectedComponentsTest.class, TriangleCounterTest.class,
+                ReachabilityIndexTest.class, BetweennessCentralityTest.class,
+                CoreDecompositionTest.class, LouvainTest.class,
+                HyperAnfTest.class, VertexOrderingTest.class,
+                GraphPartitionerTest.class, ParallelPageRankTest.class, GraphGeneratorTest.class, GraphCountersTest.class, GraphEventsTest.class, AnalyticsTaskTest.class, MemoryFootprintTest.class, ThrottledEventSinkTest.class);
       for (Failure failure : result.getFailures()) {
          System.out.println("TEST FAILED: " + failure.toString());
       }
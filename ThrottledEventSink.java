@@ -0,0 +1,220 @@
+package graph;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+
+/**
+ * An event sink that takes events off the algorithm's thread and passes them
+ * on to another sink (for example one that drives a visualizer) in batches,
+ * at most once every interval.
+ *
+ * <p>
+ * The algorithm's thread only appends each event to a lock-free queue. A
+ * single background thread drains the queue once per interval, coalesces the
+ * batch, and hands it to the delegate in the order the events came. Each
+ * vertex and edge is delivered at most once per batch, where it first came,
+ * and only the latest iteration is delivered, where it came. If the
+ * algorithm produces events faster than they are drained, events beyond the
+ * queue capacity are dropped rather than slowing the algorithm down; see
+ * droppedEvents().
+ * </p>
+ *
+ * <p>
+ * If the delegate throws, the rest of that batch is lost, but later batches
+ * are still delivered. The first exception is kept for getFailure(), and
+ * close() throws it.
+ * </p>
+ *
+ * isListening() and shouldStop() are not queued but passed straight to the
+ * delegate. Call close() when the algorithm is done to deliver what is left
+ * and stop the background thread.
+ */
+public class ThrottledEventSink<V> implements AlgorithmEventSink<V>, AutoCloseable {
+
+    // the key of the latest iteration in a batch
+    private static final Object ITERATION = new Object();
+
+    private final AlgorithmEventSink<V> _delegate;
+    private final int _capacity;
+    private final ConcurrentLinkedQueue<Event> _pending;
+    private final AtomicInteger _numPending;
+    private final AtomicLong _numDropped;
+    private final ScheduledExecutorService _deliverer;
+    private volatile RuntimeException _failure;
+
+    /**
+     * Creates a sink that delivers to the given sink at most once every
+     * intervalMillis milliseconds, holding at most capacity events between
+     * deliveries.
+     */
+    public ThrottledEventSink(AlgorithmEventSink<V> delegate, long intervalMillis, int capacity) {
+        if(delegate == null){
+            throw new IllegalArgumentException("null delegate");
+        }
+        if(intervalMillis <= 0 || capacity <= 0){
+            throw new IllegalArgumentException("interval and capacity must be positive");
+        }
+        _delegate = delegate;
+        _capacity = capacity;
+        _pending = new ConcurrentLinkedQueue<Event>();
+        _numPending = new AtomicInteger();
+        _numDropped = new AtomicLong();
+        _deliverer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "graph-event-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        _deliverer.scheduleWithFixedDelay(this::deliver, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a sink that delivers at most 30 times a second, which is
+     * plenty for animation.
+     */
+    public ThrottledEventSink(AlgorithmEventSink<V> delegate) {
+        this(delegate, 33, 1 << 16);
+    }
+
+    @Override
+    public void vertexExtracted(CS16Vertex<V> vertex) {
+        this.enqueue(new Event(vertex, null, -1, 0));
+    }
+
+    @Override
+    public void edgeAdded(CS16Edge<V> edge) {
+        this.enqueue(new Event(null, edge, -1, 0));
+    }
+
+    @Override
+    public void iterationCompleted(int iteration, double residual) {
+        this.enqueue(new Event(null, null, iteration, residual));
+    }
+
+    @Override
+    public boolean isListening() {
+        return _delegate.isListening();
+    }
+
+    /**
+     * Asks the delegate right away, on the algorithm's thread, since an
+     * answer held back until the next batch would come too late.
+     */
+    @Override
+    public boolean shouldStop() {
+        return _delegate.shouldStop();
+    }
+
+    /**
+     * Returns the number of events that were dropped because the queue was
+     * full.
+     */
+    public long droppedEvents() {
+        return _numDropped.get();
+    }
+
+    /**
+     * Returns the first exception the delegate threw, or null if it has not
+     * thrown.
+     */
+    public RuntimeException getFailure() {
+        return _failure;
+    }
+
+    /**
+     * Delivers any remaining events and stops the background thread.
+     *
+     * @throws IllegalStateException
+     *             Thrown when the delegate threw while events were delivered,
+     *             with the first exception it threw as the cause.
+     */
+    @Override
+    public void close() {
+        _deliverer.shutdown();
+        try {
+            _deliverer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.deliver();
+        RuntimeException failure = _failure;
+        if(failure != null){
+            throw new IllegalStateException("event delivery failed", failure);
+        }
+    }
+
+    private void enqueue(Event event) {
+        if(_numPending.incrementAndGet() > _capacity){
+            _numPending.decrementAndGet();
+            _numDropped.incrementAndGet();
+            return;
+        }
+        _pending.add(event);
+    }
+
+    /**
+     * Drains the queue and hands one coalesced batch to the delegate. Only
+     * ever runs on one thread at a time. Exceptions from the delegate are
+     * recorded rather than thrown, since one thrown on the background thread
+     * would cancel every later delivery.
+     */
+    private synchronized void deliver() {
+        // keyed by vertex, by edge, or by ITERATION for the latest iteration,
+        // which is moved to the end each time another comes
+        Map<Object, Event> batch = new LinkedHashMap<Object, Event>();
+        Event event;
+        while((event = _pending.poll()) != null){
+            _numPending.decrementAndGet();
+            if(event._vertex != null){
+                batch.putIfAbsent(event._vertex, event);
+            }
+            else if(event._edge != null){
+                batch.putIfAbsent(event._edge, event);
+            }
+            else{
+                batch.remove(ITERATION);
+                batch.put(ITERATION, event);
+            }
+        }
+
+        try {
+            for(Event next : batch.values()){
+                if(next._vertex != null){
+                    _delegate.vertexExtracted(next._vertex);
+                }
+                else if(next._edge != null){
+                    _delegate.edgeAdded(next._edge);
+                }
+                else{
+                    _delegate.iterationCompleted(next._iteration, next._residual);
+                }
+            }
+        } catch (RuntimeException e) {
+            if(_failure == null){
+                _failure = e;
+            }
+        }
+    }
+
+    private class Event {
+        private final CS16Vertex<V> _vertex;
+        private final CS16Edge<V> _edge;
+        private final int _iteration;
+        private final double _residual;
+
+        private Event(CS16Vertex<V> vertex, CS16Edge<V> edge, int iteration, double residual) {
+            _vertex = vertex;
+            _edge = edge;
+            _iteration = iteration;
+            _residual = residual;
+        }
+    }
+}
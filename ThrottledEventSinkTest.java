@@ -0,0 +1,294 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests that ThrottledEventSink passes events on in batches off
+ * the algorithm's thread, and that the algorithms tell their sinks what
+ * they do.
+ */
+public class ThrottledEventSinkTest {
+
+    /** Long enough that nothing is delivered before close() */
+    private static final long NEVER = 60000;
+
+    private Graph<String> _graph;
+    private List<CS16Vertex<String>> _vertices;
+    private List<CS16Edge<String>> _edges;
+
+    /**
+     * Builds an undirected path of 5 with distinct weights.
+     */
+    @Before
+    public void setup() {
+        _graph = new AdjacencyMatrixGraph<String>(false);
+        _vertices = new ArrayList<CS16Vertex<String>>();
+        _edges = new ArrayList<CS16Edge<String>>();
+        for(int i = 0; i < 5; i++){
+            _vertices.add(_graph.insertVertex("v" + i));
+        }
+        for(int i = 1; i < 5; i++){
+            _edges.add(_graph.insertEdge(_vertices.get(i - 1), _vertices.get(i), i));
+        }
+    }
+
+    /**
+     * Tests that close() delivers a batch in the order the events came,
+     * each vertex and edge once where it first came, and only the latest
+     * iteration where it came
+     */
+    @Test
+    public void closeDeliversCoalescedBatch() {
+        RecordingSink delegate = new RecordingSink(true);
+        ThrottledEventSink<String> sink = new ThrottledEventSink<String>(delegate, NEVER, 100);
+        sink.vertexExtracted(_vertices.get(0));
+        sink.edgeAdded(_edges.get(2));
+        sink.iterationCompleted(1, 0.5);
+        sink.vertexExtracted(_vertices.get(1));
+        sink.vertexExtracted(_vertices.get(0));
+        sink.edgeAdded(_edges.get(0));
+        sink.iterationCompleted(2, 0.25);
+        sink.edgeAdded(_edges.get(2));
+        sink.vertexExtracted(_vertices.get(2));
+        assertTrue(delegate._events.isEmpty());
+
+        sink.close();
+        assertThat(delegate._events, is(Arrays.<Object>asList(_vertices.get(0), _edges.get(2), _vertices.get(1),
+                _edges.get(0), 2, _vertices.get(2))));
+        assertEquals(0.25, delegate._residuals.get(0), 0);
+        assertThat(sink.droppedEvents(), is(0L));
+        assertThat(delegate._threads.size(), is(1));
+    }
+
+    /**
+     * Tests that events beyond the capacity are dropped and counted, and
+     * the first ones kept
+     */
+    @Test
+    public void dropsOverCapacity() {
+        RecordingSink delegate = new RecordingSink(true);
+        ThrottledEventSink<String> sink = new ThrottledEventSink<String>(delegate, NEVER, 3);
+        for(CS16Vertex<String> vertex : _vertices){
+            sink.vertexExtracted(vertex);
+        }
+        sink.edgeAdded(_edges.get(0));
+        assertThat(sink.droppedEvents(), is(3L));
+        sink.close();
+        assertThat(delegate._vertices, is(_vertices.subList(0, 3)));
+        assertTrue(delegate._edges.isEmpty());
+    }
+
+    /**
+     * Tests that events are delivered on the background thread without
+     * waiting for close()
+     */
+    @Test
+    public void deliversOffThread() throws InterruptedException {
+        RecordingSink delegate = new RecordingSink(true);
+        try(ThrottledEventSink<String> sink = new ThrottledEventSink<String>(delegate, 5, 100)){
+            sink.vertexExtracted(_vertices.get(3));
+            assertTrue(delegate._delivered.await(5, TimeUnit.SECONDS));
+            assertThat(delegate._vertices, is(Arrays.asList(_vertices.get(3))));
+            assertTrue(!delegate._threads.contains(Thread.currentThread()));
+        }
+    }
+
+    /**
+     * Tests that an exception from the delegate does not stop later
+     * deliveries, and that close() reports it
+     */
+    @Test
+    public void keepsDeliveringAfterDelegateFails() throws InterruptedException {
+        RecordingSink delegate = new RecordingSink(true);
+        delegate._poison = _vertices.get(0);
+        ThrottledEventSink<String> sink = new ThrottledEventSink<String>(delegate, 5, 100);
+        sink.vertexExtracted(_vertices.get(0));
+        assertTrue(delegate._thrown.await(5, TimeUnit.SECONDS));
+        sink.vertexExtracted(_vertices.get(1));
+        assertTrue(delegate._delivered.await(5, TimeUnit.SECONDS));
+        assertThat(delegate._vertices, is(Arrays.asList(_vertices.get(1))));
+        try {
+            sink.close();
+            fail("close() did not report the failure");
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause(), is((Throwable) sink.getFailure()));
+            assertTrue(sink.getFailure() instanceof IllegalArgumentException);
+        }
+    }
+
+    /**
+     * Tests that the sink listens only if its delegate does
+     */
+    @Test
+    public void listensIfDelegateDoes() {
+        try(ThrottledEventSink<String> listening = new ThrottledEventSink<String>(new RecordingSink(true));
+                ThrottledEventSink<String> deaf = new ThrottledEventSink<String>(new RecordingSink(false))){
+            assertThat(listening.isListening(), is(true));
+            assertThat(deaf.isListening(), is(false));
+        }
+    }
+
+    /**
+     * Tests that the sink asks its delegate whether to stop at once, so an
+     * algorithm behind it stops after the round the delegate says so
+     */
+    @Test
+    public void forwardsShouldStop() {
+        Graph<String> links = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> a = links.insertVertex("A");
+        CS16Vertex<String> b = links.insertVertex("B");
+        links.insertEdge(a, b, null);
+        links.insertEdge(b, a, null);
+        links.insertEdge(a, a, null);
+
+        RecordingSink delegate = new RecordingSink(true);
+        delegate._stop = true;
+        ThrottledEventSink<String> sink = new ThrottledEventSink<String>(delegate, NEVER, 100);
+        assertThat(sink.shouldStop(), is(true));
+        MyPageRank<String> pageRank = new MyPageRank<String>();
+        pageRank.setEventSink(sink);
+        pageRank.calcPageRank(links);
+        sink.close();
+        assertThat(delegate._iterations, is(Arrays.asList(1)));
+        assertThat(delegate._stopChecks, is(2));
+    }
+
+    /**
+     * Tests that MyPrimJarnik tells its sink of every vertex it settles and
+     * every edge of the forest
+     */
+    @Test
+    public void primJarnikEvents() {
+        RecordingSink sink = new RecordingSink(true);
+        MyPrimJarnik<String> primJarnik = new MyPrimJarnik<String>();
+        primJarnik.setEventSink(sink);
+        Collection<CS16Edge<String>> forest = primJarnik.genMinSpanForest(_graph, null);
+
+        assertThat(new HashSet<CS16Vertex<String>>(sink._vertices), is(new HashSet<CS16Vertex<String>>(_vertices)));
+        assertThat(sink._vertices.size(), is(5));
+        assertThat(new HashSet<CS16Edge<String>>(sink._edges), is(new HashSet<CS16Edge<String>>(forest)));
+        assertTrue(sink._iterations.isEmpty());
+    }
+
+    /**
+     * Tests that MyPageRank tells a listening sink of every round with a
+     * shrinking residual, and tells a sink that is not listening nothing
+     */
+    @Test
+    public void pageRankEvents() {
+        Graph<String> links = new AdjacencyMatrixGraph<String>(true);
+        CS16Vertex<String> a = links.insertVertex("A");
+        CS16Vertex<String> b = links.insertVertex("B");
+        CS16Vertex<String> c = links.insertVertex("C");
+        links.insertEdge(a, b, null);
+        links.insertEdge(b, c, null);
+        links.insertEdge(c, a, null);
+        links.insertEdge(a, c, null);
+
+        RecordingSink sink = new RecordingSink(true);
+        MyPageRank<String> pageRank = new MyPageRank<String>();
+        pageRank.setEventSink(sink);
+        pageRank.calcPageRank(links);
+        assertTrue(sink._iterations.size() > 1);
+        for(int i = 0; i < sink._iterations.size(); i++){
+            assertThat(sink._iterations.get(i), is(i + 1));
+        }
+        assertTrue(sink._residuals.get(sink._residuals.size() - 1) < sink._residuals.get(0));
+        assertTrue(sink._vertices.isEmpty());
+
+        RecordingSink deaf = new RecordingSink(false);
+        MyPageRank<String> unwatched = new MyPageRank<String>();
+        unwatched.setEventSink(deaf);
+        unwatched.calcPageRank(links);
+        assertTrue(deaf._iterations.isEmpty());
+        assertThat(deaf._stopChecks, is(0));
+    }
+
+    /**
+     * A sink that records the events it is given, and the threads they came
+     * on.
+     */
+    private static class RecordingSink implements AlgorithmEventSink<String> {
+        private final boolean _listening;
+        private final List<CS16Vertex<String>> _vertices = new ArrayList<CS16Vertex<String>>();
+        private final List<CS16Edge<String>> _edges = new ArrayList<CS16Edge<String>>();
+        private final List<Integer> _iterations = new ArrayList<Integer>();
+        private final List<Double> _residuals = new ArrayList<Double>();
+        private final List<Thread> _threads = new ArrayList<Thread>();
+        // every event in the order it came, an iteration as its number
+        private final List<Object> _events = new ArrayList<Object>();
+        private final CountDownLatch _delivered = new CountDownLatch(1);
+        private final CountDownLatch _thrown = new CountDownLatch(1);
+        // a vertex the sink throws on
+        private CS16Vertex<String> _poison;
+        private int _stopChecks;
+        private volatile boolean _stop;
+
+        private RecordingSink(boolean listening) {
+            _listening = listening;
+        }
+
+        @Override
+        public synchronized void vertexExtracted(CS16Vertex<String> vertex) {
+            if(vertex == _poison){
+                _thrown.countDown();
+                throw new IllegalArgumentException("poison");
+            }
+            _vertices.add(vertex);
+            _events.add(vertex);
+            this.received();
+        }
+
+        @Override
+        public synchronized void edgeAdded(CS16Edge<String> edge) {
+            _edges.add(edge);
+            _events.add(edge);
+            this.received();
+        }
+
+        @Override
+        public synchronized void iterationCompleted(int iteration, double residual) {
+            _iterations.add(iteration);
+            _residuals.add(residual);
+            _events.add(iteration);
+            this.received();
+        }
+
+        @Override
+        public boolean isListening() {
+            return _listening;
+        }
+
+        @Override
+        public synchronized boolean shouldStop() {
+            _stopChecks++;
+            return _stop;
+        }
+
+        private void received() {
+            if(!_threads.contains(Thread.currentThread())){
+                _threads.add(Thread.currentThread());
+            }
+            _delivered.countDown();
+        }
+    }
+}
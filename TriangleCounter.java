@@ -0,0 +1,314 @@
+package graph;
+
+import java.util.List;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Counts the triangles of a CsrGraph, in total and at every vertex, and
+ * from those the clustering coefficients. Edges are taken as undirected:
+ * direction, self-loops and repeated edges are ignored, so three vertices
+ * form a triangle if each pair is joined by an edge either way.
+ *
+ * <p>
+ * Every edge is directed from the lower-ranked end to the higher, ranking
+ * vertices by degree and then by number, so a vertex keeps at most about
+ * sqrt(2|E|) of its neighbors no matter how high its degree. Every triangle
+ * is then found exactly once, at its lowest-ranked vertex u, as a vertex w
+ * that two of u's kept neighbor lists share: for each neighbor v that u
+ * keeps, the lists of u and v are intersected. This takes O(|E|^1.5) time
+ * in all, instead of the O(|V|^3) of testing every triple with areAdjacent.
+ * </p>
+ *
+ * <p>
+ * The sorted lists are intersected by merging. When the graph is small and
+ * dense enough that a 64-bit word of a bit row holds more than one kept
+ * neighbor on average, the lists are instead turned into bit rows and
+ * intersected a word at a time with a bitwise and. Given more than one
+ * thread, the vertices u are split into ranges among them. Each range
+ * counts into an array of its own, so finding a triangle costs no atomic
+ * operations, and the arrays are added up once at the end, in O(|V|) time
+ * per range.
+ * </p>
+ */
+public class TriangleCounter<V> {
+
+    // graphs with more vertices than this never use bit rows, which take
+    // |V|^2 / 8 bytes
+    private static final int BIT_ROW_LIMIT = 1 << 13;
+
+    private final CsrGraph<V> _csr;
+
+    /**
+     * Prepares to count the triangles of a snapshot of g. Later changes to g
+     * are not seen.
+     */
+    public TriangleCounter(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public TriangleCounter(CsrGraph<V> csr) {
+        _csr = csr;
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Counts the triangles on the calling thread.
+     */
+    public Triangles<V> count() {
+        return this.count(1);
+    }
+
+    /**
+     * Counts the triangles with the given number of threads.
+     */
+    public Triangles<V> count(int threads) {
+        Oriented oriented = new Oriented(_csr);
+        int n = _csr.size();
+        boolean bitRows = n <= BIT_ROW_LIMIT && (long) oriented._numForward * 64 > (long) n * n;
+        return this.count(oriented, threads, bitRows);
+    }
+
+    /**
+     * Counts the triangles, intersecting with bit rows or by merging as told.
+     */
+    Triangles<V> count(int threads, boolean bitRows) {
+        return this.count(new Oriented(_csr), threads, bitRows);
+    }
+
+    private Triangles<V> count(Oriented oriented, int threads, boolean bitRows) {
+        int n = _csr.size();
+        long[][] rows = bitRows ? oriented.bitRows() : null;
+        List<RangeCounts> ranges = Parallel.withPool("triangle-counter", threads, "counting triangles", pool -> {
+            int[] bounds = Parallel.arcBalancedBounds(oriented._offsets, n, Parallel.numRanges(threads));
+            return Parallel.eachRange(pool, bounds, (from, to) -> countRange(oriented, rows, from, to));
+        });
+        long total = 0;
+        long[] counts = ranges.get(0)._perVertex;
+        for(int r = 0; r < ranges.size(); r++){
+            RangeCounts range = ranges.get(r);
+            total += range._total;
+            if(r > 0){
+                for(int v = 0; v < n; v++){
+                    counts[v] += range._perVertex[v];
+                }
+            }
+        }
+        return new Triangles<V>(_csr, total, counts, oriented._degrees);
+    }
+
+    /**
+     * Counts the triangles whose lowest-ranked vertex is numbered from from
+     * up to to, and how many of them each vertex is in.
+     */
+    private static RangeCounts countRange(Oriented oriented, long[][] rows, int from, int to) {
+        int[] offsets = oriented._offsets;
+        int[] forward = oriented._forward;
+        long[] perVertex = new long[offsets.length - 1];
+        long total = 0;
+        for(int u = from; u < to; u++){
+            long atU = 0;
+            for(int i = offsets[u]; i < offsets[u + 1]; i++){
+                int v = forward[i];
+                long atV = (rows == null) ? merge(forward, offsets[u], offsets[u + 1], offsets[v],
+                        offsets[v + 1], perVertex) : and(rows[u], rows[v], perVertex);
+                perVertex[v] += atV;
+                atU += atV;
+            }
+            perVertex[u] += atU;
+            total += atU;
+        }
+        return new RangeCounts(total, perVertex);
+    }
+
+    /**
+     * Intersects two sorted ranges of forward, adding one to the count of
+     * every vertex in both, and returns how many there are.
+     */
+    private static long merge(int[] forward, int i, int iEnd, int j, int jEnd, long[] perVertex) {
+        long common = 0;
+        while(i < iEnd && j < jEnd){
+            int a = forward[i];
+            int b = forward[j];
+            if(a < b){
+                i++;
+            }
+            else if(a > b){
+                j++;
+            }
+            else{
+                perVertex[a]++;
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Intersects two bit rows a word at a time, adding one to the count of
+     * every vertex in both, and returns how many there are.
+     */
+    private static long and(long[] one, long[] two, long[] perVertex) {
+        long common = 0;
+        for(int word = 0; word < one.length; word++){
+            long both = one[word] & two[word];
+            while(both != 0){
+                perVertex[(word << 6) + Long.numberOfTrailingZeros(both)]++;
+                both &= both - 1;
+                common++;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * The triangles found in one range of vertices: how many, and how many
+     * of them every vertex is in.
+     */
+    private static class RangeCounts {
+        private final long _total;
+        private final long[] _perVertex;
+
+        private RangeCounts(long total, long[] perVertex) {
+            _total = total;
+            _perVertex = perVertex;
+        }
+    }
+
+    /**
+     * Every vertex's neighbors of higher rank, in CSR form sorted by number,
+     * and every vertex's undirected degree.
+     */
+    private static class Oriented {
+        private final int[] _degrees;
+        private final int[] _offsets;
+        private final int[] _forward;
+        private final int _numForward;
+
+        private Oriented(CsrGraph<?> csr) {
+            int n = csr.size();
+            SimpleNeighbors simple = new SimpleNeighbors(csr);
+            _degrees = simple._degrees;
+            _offsets = new int[n + 1];
+            IntList forward = new IntList(simple._neighbors.length / 2 + 1);
+            for(int u = 0; u < n; u++){
+                for(int i = simple._offsets[u]; i < simple._offsets[u + 1]; i++){
+                    int v = simple._neighbors[i];
+                    if(_degrees[v] > _degrees[u] || (_degrees[v] == _degrees[u] && v > u)){
+                        forward.add(v);
+                    }
+                }
+                _offsets[u + 1] = forward.size();
+            }
+            _forward = forward.toArray();
+            _numForward = _forward.length;
+        }
+
+        private long[][] bitRows() {
+            int n = _offsets.length - 1;
+            int words = (n + 63) >>> 6;
+            long[][] rows = new long[n][words];
+            for(int u = 0; u < n; u++){
+                for(int i = _offsets[u]; i < _offsets[u + 1]; i++){
+                    rows[u][_forward[i] >>> 6] |= 1L << _forward[i];
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * The triangles of a graph: how many there are, how many every vertex is
+     * in, and the clustering coefficients that follow.
+     */
+    public static class Triangles<V> {
+        private final CsrGraph<V> _csr;
+        private final long _numTriangles;
+        private final long[] _perVertex;
+        private final int[] _degrees;
+
+        private Triangles(CsrGraph<V> csr, long numTriangles, long[] perVertex, int[] degrees) {
+            _csr = csr;
+            _numTriangles = numTriangles;
+            _perVertex = perVertex;
+            _degrees = degrees;
+        }
+
+        public long getNumTriangles() {
+            return _numTriangles;
+        }
+
+        /**
+         * Returns the number of triangles every vertex is in, indexed by
+         * vertex number. The array is not copied; do not change it.
+         */
+        public long[] perVertex() {
+            return _perVertex;
+        }
+
+        public long triangles(CS16Vertex<V> vertex) {
+            return _perVertex[_csr.numberOf(vertex)];
+        }
+
+        /**
+         * Returns the local clustering coefficient of every vertex, indexed
+         * by vertex number: the fraction of pairs of its neighbors that are
+         * joined by an edge, or 0 if it has fewer than two neighbors.
+         */
+        public double[] clustering() {
+            double[] clustering = new double[_perVertex.length];
+            for(int v = 0; v < clustering.length; v++){
+                clustering[v] = this.clustering(v);
+            }
+            return clustering;
+        }
+
+        public double clustering(CS16Vertex<V> vertex) {
+            return this.clustering(_csr.numberOf(vertex));
+        }
+
+        /**
+         * Returns the mean of the local clustering coefficients of all the
+         * vertices, or 0 for an empty graph.
+         */
+        public double averageClustering() {
+            double sum = 0;
+            int count = 0;
+            for(int v = 0; v < _perVertex.length; v++){
+                if(_csr.hasVertex(v)){
+                    sum += this.clustering(v);
+                    count++;
+                }
+            }
+            return (count == 0) ? 0 : sum / count;
+        }
+
+        /**
+         * Returns the global clustering coefficient: three times the number
+         * of triangles over the number of paths of two edges, or 0 if there
+         * are none.
+         */
+        public double transitivity() {
+            double paths = 0;
+            for(int degree : _degrees){
+                paths += (double) degree * (degree - 1) / 2;
+            }
+            return (paths == 0) ? 0 : 3 * _numTriangles / paths;
+        }
+
+        private double clustering(int v) {
+            long degree = _degrees[v];
+            if(degree < 2){
+                return 0;
+            }
+            return 2.0 * _perVertex[v] / (degree * (degree - 1));
+        }
+
+    }
+}
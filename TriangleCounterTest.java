@@ -0,0 +1,107 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests TriangleCounter.
+ */
+public class TriangleCounterTest {
+
+    /**
+     * Tests a complete graph on four vertices with a pendant vertex
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        List<CS16Vertex<String>> clique = new ArrayList<CS16Vertex<String>>();
+        for(String name : new String[] {"A", "B", "C", "D"}){
+            clique.add(graph.insertVertex(name));
+        }
+        for(int i = 0; i < 4; i++){
+            for(int j = i + 1; j < 4; j++){
+                graph.insertEdge(clique.get(i), clique.get(j), 1);
+            }
+        }
+        CS16Vertex<String> E = graph.insertVertex("E");
+        graph.insertEdge(clique.get(0), E, 1);
+
+        TriangleCounter.Triangles<String> triangles = new TriangleCounter<String>(graph).count();
+        assertThat(triangles.getNumTriangles(), is(4L));
+        assertThat(triangles.triangles(clique.get(0)), is(3L));
+        assertThat(triangles.triangles(E), is(0L));
+        assertEquals(1.0, triangles.clustering(clique.get(1)), 1e-12);
+        assertEquals(0.5, triangles.clustering(clique.get(0)), 1e-12);
+        assertEquals(0.0, triangles.clustering(E), 1e-12);
+        assertEquals((0.5 + 3 + 0) / 5, triangles.averageClustering(), 1e-12);
+        // A is the middle of 6 paths of two edges, B, C and D of 3 each
+        assertEquals(3 * 4 / 15.0, triangles.transitivity(), 1e-12);
+    }
+
+    /**
+     * Tests both ways of intersecting, on one thread and several, against
+     * testing every triple on random graphs
+     */
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(38);
+        for(int trial = 0; trial < 6; trial++){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(trial % 2 == 1);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 70; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int i = 0; i < 150 + trial * 150; i++){
+                CS16Vertex<Integer> a = vertices.get(random.nextInt(70));
+                CS16Vertex<Integer> b = vertices.get(random.nextInt(70));
+                if(a != b && !graph.areAdjacent(a, b)){
+                    graph.insertEdge(a, b, 1);
+                }
+            }
+            long[] expected = new long[70];
+            long total = 0;
+            for(int a = 0; a < 70; a++){
+                for(int b = a + 1; b < 70; b++){
+                    for(int c = b + 1; c < 70; c++){
+                        if(joined(graph, vertices, a, b) && joined(graph, vertices, b, c)
+                                && joined(graph, vertices, a, c)){
+                            expected[a]++;
+                            expected[b]++;
+                            expected[c]++;
+                            total++;
+                        }
+                    }
+                }
+            }
+
+            TriangleCounter<Integer> counter = new TriangleCounter<Integer>(graph);
+            for(int threads = 1; threads <= 3; threads++){
+                for(boolean bitRows : new boolean[] {false, true}){
+                    TriangleCounter.Triangles<Integer> triangles = counter.count(threads, bitRows);
+                    assertThat(triangles.getNumTriangles(), is(total));
+                    long[] counts = new long[70];
+                    for(int i = 0; i < 70; i++){
+                        counts[i] = triangles.triangles(vertices.get(i));
+                    }
+                    assertArrayEquals(expected, counts);
+                }
+            }
+        }
+    }
+
+    private static boolean joined(Graph<Integer> graph, List<CS16Vertex<Integer>> vertices, int a, int b) {
+        return graph.areAdjacent(vertices.get(a), vertices.get(b))
+                || graph.areAdjacent(vertices.get(b), vertices.get(a));
+    }
+}
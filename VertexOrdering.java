@@ -0,0 +1,403 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+import support.graph.GraphEdge;
+import support.graph.GraphVertex;
+import support.graph.InvalidVertexException;
+import support.graph.NoSuchVertexException;
+
+/**
+ * Computes orders of the vertices of a CsrGraph that put vertices next to
+ * the vertices they are linked to, so that a sweep over the graph in vertex
+ * order touches nearby memory. An AdjacencyMatrixGraph numbers vertices by
+ * whichever slot _unique_indices hands out, and a links file by whatever ids
+ * it came with, so the neighbors of a vertex, and their entries in rank or
+ * distance arrays, are usually scattered; renumbering in one of these orders
+ * makes the same work miss the cache less.
+ *
+ * <p>
+ * The orders take the edges as undirected. reverseCuthillMcKee is the
+ * breadth-first order of Cuthill and McKee, started from a vertex far from
+ * the rest of its component and visiting the neighbors of each vertex from
+ * the lowest degree up, then reversed; it keeps the numbers of linked
+ * vertices close (a small bandwidth). breadthFirst is a plain breadth-first
+ * order from the vertex of highest degree in every component.
+ * degreeDescending puts the vertices of highest degree, which are read the
+ * most, first and together. Each takes O(|V| + |E|log(d)) time.
+ * </p>
+ *
+ * <p>
+ * An order comes as a Relabeling, which maps numbers both ways and can
+ * rebuild the graph in the new order, either as a CsrGraph snapshot or into
+ * an empty Graph. Vertices not in use are dropped, so the new numbers are 0
+ * to |V| - 1.
+ * </p>
+ */
+public class VertexOrdering<V> {
+
+    // how many times a start for reverseCuthillMcKee is moved to the far
+    // end of its component
+    private static final int PERIPHERY_PASSES = 4;
+
+    private final CsrGraph<V> _csr;
+
+    /**
+     * Prepares to order a snapshot of g. Later changes to g are not seen.
+     */
+    public VertexOrdering(Graph<V> g) {
+        this(CsrGraph.of(g));
+    }
+
+    public VertexOrdering(CsrGraph<V> csr) {
+        _csr = csr;
+    }
+
+    public CsrGraph<V> getCsrGraph() {
+        return _csr;
+    }
+
+    /**
+     * Returns the reverse Cuthill-McKee order.
+     */
+    public Relabeling<V> reverseCuthillMcKee() {
+        SimpleNeighbors simple = new SimpleNeighbors(_csr);
+        int n = _csr.size();
+        int[] order = new int[_csr.getNumVertices()];
+        int[] stamps = new int[n];
+        int[] queue = new int[n];
+        int stamp = 0;
+        int placed = 0;
+        boolean[] visited = new boolean[n];
+        // each component is started from its vertex of least degree,
+        // moved to the far end of the component a few times
+        for(int start : this.byDegree(simple._degrees, true)){
+            if(visited[start]){
+                continue;
+            }
+            int depth = -1;
+            for(int pass = 0; pass < PERIPHERY_PASSES; pass++){
+                stamp++;
+                int[] far = farthest(simple, start, stamps, stamp, queue);
+                if(far[1] <= depth){
+                    break;
+                }
+                depth = far[1];
+                start = far[0];
+            }
+            placed = visit(simple, start, visited, order, placed, true);
+        }
+        for(int i = 0, j = order.length - 1; i < j; i++, j--){
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return new Relabeling<V>(_csr, order);
+    }
+
+    /**
+     * Returns a breadth-first order, started in every component from its
+     * vertex of highest degree, with every vertex's neighbors in number
+     * order.
+     */
+    public Relabeling<V> breadthFirst() {
+        SimpleNeighbors simple = new SimpleNeighbors(_csr);
+        int[] order = new int[_csr.getNumVertices()];
+        boolean[] visited = new boolean[_csr.size()];
+        int placed = 0;
+        for(int start : this.byDegree(simple._degrees, false)){
+            if(!visited[start]){
+                placed = visit(simple, start, visited, order, placed, false);
+            }
+        }
+        return new Relabeling<V>(_csr, order);
+    }
+
+    /**
+     * Returns the vertices from highest degree to lowest, ties broken by
+     * number.
+     */
+    public Relabeling<V> degreeDescending() {
+        return new Relabeling<V>(_csr, this.byDegree(new SimpleNeighbors(_csr)._degrees, false));
+    }
+
+    /**
+     * Returns the order that lists the vertex numbers of the graph in the
+     * given order, which must hold every vertex number in use exactly once.
+     */
+    public Relabeling<V> of(int[] order) {
+        if(order.length != _csr.getNumVertices()){
+            throw new IllegalArgumentException("order must hold every vertex once");
+        }
+        boolean[] seen = new boolean[_csr.size()];
+        for(int number : order){
+            if(number < 0 || number >= seen.length || !_csr.hasVertex(number) || seen[number]){
+                throw new IllegalArgumentException("order must hold every vertex once");
+            }
+            seen[number] = true;
+        }
+        return new Relabeling<V>(_csr, order.clone());
+    }
+
+    /**
+     * Returns the vertex numbers in use sorted by degree, in increasing order
+     * or decreasing, ties broken by increasing number, by counting sort.
+     */
+    private int[] byDegree(int[] degrees, boolean ascending) {
+        int maxDegree = 0;
+        for(int degree : degrees){
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        int[] starts = new int[maxDegree + 2];
+        for(int v = 0; v < degrees.length; v++){
+            if(_csr.hasVertex(v)){
+                starts[(ascending ? degrees[v] : maxDegree - degrees[v]) + 1]++;
+            }
+        }
+        for(int d = 0; d <= maxDegree; d++){
+            starts[d + 1] += starts[d];
+        }
+        int[] sorted = new int[_csr.getNumVertices()];
+        for(int v = 0; v < degrees.length; v++){
+            if(_csr.hasVertex(v)){
+                sorted[starts[ascending ? degrees[v] : maxDegree - degrees[v]]++] = v;
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Searches breadth-first from start, placing every vertex it reaches in
+     * order after the first placed, and returns the new number placed. The
+     * new neighbors of a vertex are placed from lowest degree up if byDegree
+     * is set, else in number order.
+     */
+    private static int visit(SimpleNeighbors simple, int start, boolean[] visited, int[] order, int placed,
+            boolean byDegree) {
+        int head = placed;
+        visited[start] = true;
+        order[placed++] = start;
+        long[] keys = new long[0];
+        while(head < placed){
+            int u = order[head++];
+            int first = placed;
+            for(int i = simple._offsets[u]; i < simple._offsets[u + 1]; i++){
+                int v = simple._neighbors[i];
+                if(!visited[v]){
+                    visited[v] = true;
+                    order[placed++] = v;
+                }
+            }
+            if(byDegree && placed - first > 1){
+                if(keys.length < placed - first){
+                    keys = new long[Math.max(placed - first, keys.length * 2)];
+                }
+                for(int i = first; i < placed; i++){
+                    keys[i - first] = ((long) simple._degrees[order[i]] << 32) | order[i];
+                }
+                Arrays.sort(keys, 0, placed - first);
+                for(int i = first; i < placed; i++){
+                    order[i] = (int) keys[i - first];
+                }
+            }
+        }
+        return placed;
+    }
+
+    /**
+     * Searches breadth-first from start, marking vertices with the stamp,
+     * and returns a vertex of least degree on the last level and the number
+     * of that level.
+     */
+    private static int[] farthest(SimpleNeighbors simple, int start, int[] stamps, int stamp, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        stamps[start] = stamp;
+        int depth = 0;
+        int best = start;
+        while(head < tail){
+            int levelEnd = tail;
+            best = queue[head];
+            for(; head < levelEnd; head++){
+                int u = queue[head];
+                if(simple._degrees[u] < simple._degrees[best]){
+                    best = u;
+                }
+                for(int i = simple._offsets[u]; i < simple._offsets[u + 1]; i++){
+                    int v = simple._neighbors[i];
+                    if(stamps[v] != stamp){
+                        stamps[v] = stamp;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            if(tail > levelEnd){
+                depth++;
+            }
+        }
+        return new int[] {best, depth};
+    }
+
+    /**
+     * Returns the bandwidth of the graph's numbering: the largest difference
+     * between the numbers of two linked vertices.
+     */
+    public static int bandwidth(CsrGraph<?> csr) {
+        int bandwidth = 0;
+        for(int u = 0; u < csr.size(); u++){
+            for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                bandwidth = Math.max(bandwidth, Math.abs(csr.outTargets()[arc] - u));
+            }
+        }
+        return bandwidth;
+    }
+
+    /**
+     * Returns the average over all arcs of log2(1 + the difference between
+     * the numbers of their ends), about the number of bits a gap code of the
+     * arc takes, and a measure of how far apart in memory a sweep's reads
+     * land. 0 for a graph without arcs.
+     */
+    public static double averageLogGap(CsrGraph<?> csr) {
+        double sum = 0;
+        for(int u = 0; u < csr.size(); u++){
+            for(int arc = csr.outOffsets()[u]; arc < csr.outOffsets()[u + 1]; arc++){
+                sum += Math.log(1 + Math.abs(csr.outTargets()[arc] - u));
+            }
+        }
+        return (csr.getNumArcs() == 0) ? 0 : sum / Math.log(2) / csr.getNumArcs();
+    }
+
+    /**
+     * A new numbering of the vertices of a graph, 0 to |V| - 1.
+     */
+    public static class Relabeling<V> {
+        private final CsrGraph<V> _csr;
+        private final int[] _order;
+        private final int[] _ranks;
+        private CsrGraph<V> _relabeled;
+
+        private Relabeling(CsrGraph<V> csr, int[] order) {
+            _csr = csr;
+            _order = order;
+            _ranks = new int[csr.size()];
+            Arrays.fill(_ranks, -1);
+            for(int i = 0; i < order.length; i++){
+                _ranks[order[i]] = i;
+            }
+        }
+
+        /**
+         * Returns the original vertex number of every new number. The array
+         * is not copied; do not change it.
+         */
+        public int[] order() {
+            return _order;
+        }
+
+        /**
+         * Returns the new number of every original vertex number, -1 for
+         * numbers not in use. The array is not copied; do not change it.
+         */
+        public int[] ranks() {
+            return _ranks;
+        }
+
+        /**
+         * Returns the new number of a vertex of the original graph.
+         */
+        public int newNumber(CS16Vertex<V> vertex) {
+            return _ranks[_csr.numberOf(vertex)];
+        }
+
+        /**
+         * Returns the vertex of the original graph given the new number.
+         */
+        public CS16Vertex<V> original(int newNumber) {
+            if(newNumber < 0 || newNumber >= _order.length){
+                throw new NoSuchVertexException("vertex is not in the graph");
+            }
+            return _csr.vertex(_order[newNumber]);
+        }
+
+        /**
+         * Returns the vertex of the original graph that a vertex of the
+         * relabeled snapshot, or of a graph rebuilt from empty, stands for.
+         */
+        public CS16Vertex<V> original(CS16Vertex<V> relabeled) {
+            if(relabeled == null){
+                throw new InvalidVertexException("null vertex");
+            }
+            return this.original(relabeled.getVertexNumber());
+        }
+
+        /**
+         * Returns a snapshot of the graph in the new order: copies of the
+         * vertices, numbered by their new numbers, joined by copies of the
+         * edges with the same elements. It is built on the first call, in
+         * O(|V| + |E|log(d)) time.
+         */
+        public synchronized CsrGraph<V> snapshot() {
+            if(_relabeled != null){
+                return _relabeled;
+            }
+            CS16Vertex<V>[] byNumber = CsrGraph.newVertexArray(_order.length);
+            for(int i = 0; i < _order.length; i++){
+                byNumber[i] = new GraphVertex<V>(_csr.vertex(_order[i]).element());
+                byNumber[i].setVertexNumber(i);
+            }
+            List<CS16Edge<V>> edges = new ArrayList<CS16Edge<V>>(_csr.getNumArcs());
+            for(CS16Edge<V> edge : this.edges()){
+                CS16Edge<V> copy = new GraphEdge<V>(edge.element());
+                copy.setVertexOne(byNumber[_ranks[edge.getVertexOne().getVertexNumber()]]);
+                copy.setVertexTwo(byNumber[_ranks[edge.getVertexTwo().getVertexNumber()]]);
+                edges.add(copy);
+            }
+            _relabeled = CsrGraph.build(byNumber, _order.length, _csr.isDirected(), edges);
+            return _relabeled;
+        }
+
+        /**
+         * Inserts a copy of the graph into g, vertices in the new order and
+         * edges with the same elements, and returns the new vertices in the
+         * new order. If g is an empty AdjacencyMatrixGraph, which hands out
+         * vertex numbers from 0 up, each new vertex is numbered by its new
+         * number.
+         */
+        public List<CS16Vertex<V>> rebuild(Graph<V> g) {
+            List<CS16Vertex<V>> vertices = new ArrayList<CS16Vertex<V>>(_order.length);
+            for(int number : _order){
+                vertices.add(g.insertVertex(_csr.vertex(number).element()));
+            }
+            for(CS16Edge<V> edge : this.edges()){
+                g.insertEdge(vertices.get(_ranks[edge.getVertexOne().getVertexNumber()]),
+                        vertices.get(_ranks[edge.getVertexTwo().getVertexNumber()]), edge.element());
+            }
+            return vertices;
+        }
+
+        /**
+         * Returns every edge of the original graph once, by the new number
+         * of its first vertex.
+         */
+        private List<CS16Edge<V>> edges() {
+            List<CS16Edge<V>> edges = new ArrayList<CS16Edge<V>>(_csr.getNumArcs());
+            for(int u : _order){
+                for(int arc = _csr.outOffsets()[u]; arc < _csr.outOffsets()[u + 1]; arc++){
+                    CS16Edge<V> edge = _csr.outEdges()[arc];
+                    // an undirected edge is in the rows of both its ends
+                    if(_csr.isDirected() || edge.getVertexOne().getVertexNumber() == u){
+                        edges.add(edge);
+                    }
+                }
+            }
+            return edges;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package graph;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * This class tests VertexOrdering and its Relabelings.
+ */
+public class VertexOrderingTest {
+
+    /**
+     * Tests a path whose vertices were inserted out of order: reverse
+     * Cuthill-McKee numbers it along the path
+     */
+    @Test
+    public void smallGraph() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(false);
+        CS16Vertex<String> A = graph.insertVertex("A");
+        CS16Vertex<String> B = graph.insertVertex("B");
+        CS16Vertex<String> C = graph.insertVertex("C");
+        CS16Vertex<String> D = graph.insertVertex("D");
+        CS16Vertex<String> E = graph.insertVertex("E");
+        graph.insertEdge(C, A, 1);
+        graph.insertEdge(A, E, 2);
+        graph.insertEdge(E, B, 3);
+        graph.insertEdge(B, D, 4);
+
+        VertexOrdering<String> ordering = new VertexOrdering<String>(graph);
+        assertThat(VertexOrdering.bandwidth(ordering.getCsrGraph()), is(4));
+        VertexOrdering.Relabeling<String> rcm = ordering.reverseCuthillMcKee();
+        CsrGraph<String> snapshot = rcm.snapshot();
+        assertThat(VertexOrdering.bandwidth(snapshot), is(1));
+        assertThat(snapshot.getNumArcs(), is(8));
+        assertThat(Math.abs(rcm.newNumber(A) - rcm.newNumber(E)), is(1));
+        assertThat(rcm.original(snapshot.vertex(rcm.newNumber(B))), is(B));
+        assertThat(snapshot.vertex(rcm.newNumber(D)).element(), is("D"));
+
+        Graph<String> rebuilt = new AdjacencyMatrixGraph<String>(false);
+        List<CS16Vertex<String>> vertices = rcm.rebuild(rebuilt);
+        for(int i = 0; i < vertices.size(); i++){
+            assertThat(vertices.get(i).getVertexNumber(), is(i));
+        }
+        CS16Vertex<String> newB = vertices.get(rcm.newNumber(B));
+        CS16Vertex<String> newE = vertices.get(rcm.newNumber(E));
+        assertThat(rebuilt.connectingEdge(newB, newE).element(), is(3));
+        assertThat(rebuilt.areAdjacent(newB, vertices.get(rcm.newNumber(A))), is(false));
+
+        VertexOrdering.Relabeling<String> degrees = ordering.degreeDescending();
+        assertThat(degrees.original(4), is(D));
+    }
+
+    /**
+     * Tests every order on random graphs with unused vertex numbers: each is
+     * a numbering of the vertices in use, and its snapshot has the same
+     * edges
+     */
+    @Test
+    public void preservesGraph() {
+        Random random = new Random(44);
+        for(int trial = 0; trial < 6; trial++){
+            Graph<Integer> graph = new AdjacencyMatrixGraph<Integer>(trial % 2 == 0);
+            List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+            for(int i = 0; i < 60; i++){
+                vertices.add(graph.insertVertex(i));
+            }
+            for(int i = 0; i < 90; i++){
+                CS16Vertex<Integer> a = vertices.get(random.nextInt(60));
+                CS16Vertex<Integer> b = vertices.get(random.nextInt(60));
+                if(!graph.areAdjacent(a, b)){
+                    graph.insertEdge(a, b, random.nextInt(10));
+                }
+            }
+            for(int i = 0; i < 5; i++){
+                CS16Vertex<Integer> removed = vertices.remove(random.nextInt(vertices.size()));
+                List<CS16Edge<Integer>> incident = new ArrayList<CS16Edge<Integer>>();
+                graph.incomingEdges(removed).forEachRemaining(incident::add);
+                graph.outgoingEdges(removed).forEachRemaining(incident::add);
+                for(CS16Edge<Integer> edge : new HashSet<CS16Edge<Integer>>(incident)){
+                    graph.removeEdge(edge);
+                }
+                graph.removeVertex(removed);
+            }
+
+            VertexOrdering<Integer> ordering = new VertexOrdering<Integer>(graph);
+            List<VertexOrdering.Relabeling<Integer>> relabelings = new ArrayList<VertexOrdering.Relabeling<Integer>>();
+            relabelings.add(ordering.reverseCuthillMcKee());
+            relabelings.add(ordering.breadthFirst());
+            relabelings.add(ordering.degreeDescending());
+            for(VertexOrdering.Relabeling<Integer> relabeling : relabelings){
+                int[] order = relabeling.order();
+                assertThat(order.length, is(vertices.size()));
+                for(int i = 0; i < order.length; i++){
+                    assertThat(relabeling.ranks()[order[i]], is(i));
+                }
+                CsrGraph<Integer> snapshot = relabeling.snapshot();
+                assertThat(snapshot.getNumArcs(), is(ordering.getCsrGraph().getNumArcs()));
+                for(int u = 0; u < snapshot.size(); u++){
+                    for(int arc = snapshot.outOffsets()[u]; arc < snapshot.outOffsets()[u + 1]; arc++){
+                        CS16Vertex<Integer> one = relabeling.original(u);
+                        CS16Vertex<Integer> two = relabeling.original(snapshot.outTargets()[arc]);
+                        assertThat(graph.connectingEdge(one, two).element(), is(snapshot.outWeights()[arc]));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that reverse Cuthill-McKee and breadth-first order bring the
+     * bandwidth of a grid with shuffled numbers down to about its width
+     */
+    @Test
+    public void shuffledGrid() {
+        int side = 40;
+        List<Integer> ids = new ArrayList<Integer>();
+        for(int i = 0; i < side * side; i++){
+            ids.add(i);
+        }
+        Collections.shuffle(ids, new Random(44));
+        String[] names = new String[side * side];
+        double[] coordinates = new double[side * side];
+        EdgeBuffer edges = new EdgeBuffer(side * side * 2);
+        for(int x = 0; x < side; x++){
+            for(int y = 0; y < side; y++){
+                int id = ids.get(x * side + y);
+                names[id] = x + "," + y;
+                if(x + 1 < side){
+                    edges.add(id, ids.get((x + 1) * side + y), 1);
+                }
+                if(y + 1 < side){
+                    edges.add(id, ids.get(x * side + y + 1), 1);
+                }
+            }
+        }
+        CsrGraph<String> csr = CsrGraph.of(new LinksData(names, coordinates, coordinates, edges));
+        VertexOrdering<String> ordering = new VertexOrdering<String>(csr);
+        assertTrue(VertexOrdering.bandwidth(csr) > side * side / 2);
+        assertTrue(VertexOrdering.bandwidth(ordering.reverseCuthillMcKee().snapshot()) <= side + 1);
+        assertTrue(VertexOrdering.bandwidth(ordering.breadthFirst().snapshot()) <= 2 * side);
+        assertTrue(VertexOrdering.averageLogGap(ordering.reverseCuthillMcKee().snapshot())
+                < VertexOrdering.averageLogGap(csr) * 0.6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void repeatedVertex() {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        graph.insertVertex("A");
+        graph.insertVertex("B");
+        new VertexOrdering<String>(graph).of(new int[] {1, 1});
+    }
+}
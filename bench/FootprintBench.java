@@ -0,0 +1,150 @@
+package graph.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import graph.AdjacencyMatrixGraph;
+import graph.CompressedGraph;
+import graph.MemoryFootprint;
+import graph.MyDecorator;
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+
+/**
+ * Checks MemoryFootprint against the heap: builds many copies of each kind
+ * of graph, measures how much the used heap grows per copy, and prints that
+ * beside the footprint's total and the difference between them. The copies
+ * share nothing but cached boxes and interned strings, which footprints do
+ * not count either.
+ *
+ * Usage: java graph.bench.FootprintBench [copies] [seed]
+ */
+public class FootprintBench {
+
+    private static final int DEFAULT_COPIES = 1000;
+
+    public static void main(String[] args) {
+        int copies = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_COPIES;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 41;
+
+        System.out.printf("%-24s %14s %14s %8s%n", "graph", "measured", "estimated", "error");
+        measure("empty matrix", copies, () -> new AdjacencyMatrixGraph<String>(false).footprint(),
+                () -> new AdjacencyMatrixGraph<String>(false));
+        measure("matrix, vertices", copies, () -> matrix(seed, 0).footprint(), () -> matrix(seed, 0));
+        measure("matrix, 800 edges", copies, () -> matrix(seed, 800).footprint(), () -> matrix(seed, 800));
+        // 768 edges just fill a table of 1024, which insertEdges sizes at 2048
+        measure("matrix, 768 edges", copies, () -> matrix(seed, 768).footprint(), () -> matrix(seed, 768));
+        measure("matrix, bulk 768 edges", copies, () -> bulkMatrix(seed, 768).footprint(),
+                () -> bulkMatrix(seed, 768));
+        measure("compressed, 800 edges", copies, () -> CompressedGraph.of(matrix(seed, 800)).footprint(),
+                () -> CompressedGraph.of(matrix(seed, 800)));
+        measure("matrix + coordinates", copies, () -> {
+            AdjacencyMatrixGraph<Integer> graph = matrix(seed, 800);
+            return graph.footprint().plus("coordinates", coordinates(graph).footprint());
+        }, () -> {
+            AdjacencyMatrixGraph<Integer> graph = matrix(seed, 800);
+            return new Object[] { graph, coordinates(graph) };
+        });
+    }
+
+    /**
+     * Prints the heap each of copies objects takes beside the estimate.
+     */
+    private static void measure(String name, int copies, Supplier<MemoryFootprint> estimate,
+            Supplier<Object> build) {
+        long estimated = estimate.get().getTotalBytes();
+        // build a few first, so classes and caches are loaded outside the measurement
+        for(int i = 0; i < 3; i++){
+            build.get();
+        }
+        List<Object> kept = new ArrayList<Object>(copies);
+        long before = usedHeap();
+        for(int i = 0; i < copies; i++){
+            kept.add(build.get());
+        }
+        long after = usedHeap();
+        long measured = (after - before) / copies;
+        System.out.printf("%-24s %,14d %,14d %7.1f%%   (%d kept)%n", name, measured, estimated,
+                100.0 * (estimated - measured) / measured, kept.size());
+    }
+
+    /**
+     * Returns a full graph of Integer vertices with numEdges random edges,
+     * weighing more than the JVM caches as boxes. Every copy for a seed is
+     * the same graph.
+     */
+    private static AdjacencyMatrixGraph<Integer> matrix(long seed, int numEdges) {
+        Random random = new Random(seed);
+        AdjacencyMatrixGraph<Integer> graph = new AdjacencyMatrixGraph<Integer>(true);
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        for(int i = 0; i < 100; i++){
+            vertices.add(graph.insertVertex(1000 + i));
+        }
+        for(int added = 0; added < numEdges;){
+            CS16Vertex<Integer> source = vertices.get(random.nextInt(vertices.size()));
+            CS16Vertex<Integer> target = vertices.get(random.nextInt(vertices.size()));
+            if(source != target && !graph.areAdjacent(source, target)){
+                graph.insertEdge(source, target, 200 + random.nextInt(1000));
+                added++;
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the graph matrix(seed, numEdges) returns, its edges loaded in
+     * one go with insertEdges, which presizes the edge set.
+     */
+    private static AdjacencyMatrixGraph<Integer> bulkMatrix(long seed, int numEdges) {
+        AdjacencyMatrixGraph<Integer> source = matrix(seed, numEdges);
+        AdjacencyMatrixGraph<Integer> graph = new AdjacencyMatrixGraph<Integer>(true);
+        List<CS16Vertex<Integer>> vertices = new ArrayList<CS16Vertex<Integer>>();
+        Map<CS16Vertex<Integer>, Integer> ids = new HashMap<CS16Vertex<Integer>, Integer>();
+        for(Iterator<CS16Vertex<Integer>> it = source.vertices(); it.hasNext();){
+            CS16Vertex<Integer> vertex = it.next();
+            ids.put(vertex, vertices.size());
+            vertices.add(graph.insertVertex(vertex.element()));
+        }
+        int[] sources = new int[numEdges];
+        int[] targets = new int[numEdges];
+        int[] weights = new int[numEdges];
+        int count = 0;
+        for(Iterator<CS16Edge<Integer>> it = source.edges(); it.hasNext(); count++){
+            CS16Edge<Integer> edge = it.next();
+            sources[count] = ids.get(edge.getVertexOne());
+            targets[count] = ids.get(edge.getVertexTwo());
+            weights[count] = edge.element();
+        }
+        graph.insertEdges(vertices, sources, targets, weights, count);
+        return graph;
+    }
+
+    private static MyDecorator<CS16Vertex<Integer>, double[]> coordinates(AdjacencyMatrixGraph<Integer> graph) {
+        MyDecorator<CS16Vertex<Integer>, double[]> coordinates = new MyDecorator<CS16Vertex<Integer>, double[]>();
+        for(Iterator<CS16Vertex<Integer>> vertices = graph.vertices(); vertices.hasNext();){
+            CS16Vertex<Integer> vertex = vertices.next();
+            coordinates.setDecoration(vertex, new double[] { vertex.element(), -vertex.element() });
+        }
+        return coordinates;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // collect until the heap stops shrinking
+        for(int i = 0; i < 10; i++){
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if(now >= used){
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
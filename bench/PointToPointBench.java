@@ -0,0 +1,135 @@
+package graph.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import graph.CoordinateHeuristic;
+import graph.CsrGraph;
+import graph.DistanceHeuristic;
+import graph.EdgeBuffer;
+import graph.LinksData;
+import graph.PointToPointSearch;
+import support.graph.CS16Vertex;
+
+/**
+ * Compares the point-to-point searches on a random geometric graph laid out
+ * like a links file: vertices scattered over a square, each linked both ways
+ * to the vertices near it, with weights a little over the length of the
+ * link. Prints, for each search, the average number of vertices settled and
+ * the average time per query.
+ *
+ * Usage: java graph.bench.PointToPointBench [vertices] [queries] [seed]
+ */
+public class PointToPointBench {
+
+    private static final int DEFAULT_VERTICES = 200000;
+    private static final int DEFAULT_QUERIES = 500;
+    private static final double AVERAGE_DEGREE = 8;
+
+    public static void main(String[] args) {
+        int numVertices = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_VERTICES;
+        int numQueries = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_QUERIES;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 35;
+        Random random = new Random(seed);
+
+        LinksData data = geometricLinks(numVertices, random);
+        CsrGraph<String> csr = CsrGraph.of(data);
+        double[] xs = new double[csr.size()];
+        double[] ys = new double[csr.size()];
+        for(int id = 0; id < data.getNumVertices(); id++){
+            xs[id] = data.getX(id);
+            ys[id] = data.getY(id);
+        }
+        CoordinateHeuristic heuristic = CoordinateHeuristic.of(csr, xs, ys);
+        System.out.printf("%d vertices, %d arcs, heuristic scale %.3f%n",
+                csr.getNumVertices(), csr.getNumArcs(), heuristic.getScale());
+
+        int[] sources = new int[numQueries];
+        int[] targets = new int[numQueries];
+        for(int i = 0; i < numQueries; i++){
+            sources[i] = random.nextInt(numVertices);
+            targets[i] = random.nextInt(numVertices);
+        }
+        PointToPointSearch<String> search = new PointToPointSearch<String>(csr);
+        // once untimed to warm up the JIT, then timed
+        for(int round = 0; round < 2; round++){
+            boolean report = (round == 1);
+            run("dijkstra", search, csr, sources, targets, null, false, report);
+            run("A*", search, csr, sources, targets, heuristic, false, report);
+            run("bidirectional", search, csr, sources, targets, null, true, report);
+            run("bidirectional A*", search, csr, sources, targets, heuristic, true, report);
+        }
+    }
+
+    private static void run(String name, PointToPointSearch<String> search, CsrGraph<String> csr,
+            int[] sources, int[] targets, DistanceHeuristic heuristic, boolean bidirectional, boolean report) {
+        long settled = 0;
+        long checksum = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < sources.length; i++){
+            CS16Vertex<String> source = csr.vertex(sources[i]);
+            CS16Vertex<String> target = csr.vertex(targets[i]);
+            PointToPointSearch.Route<String> route;
+            if(bidirectional){
+                route = search.bidirectional(source, target, heuristic);
+            }
+            else{
+                route = search.aStar(source, target, (heuristic == null) ? DistanceHeuristic.zero() : heuristic);
+            }
+            settled += route.getNumSettled();
+            checksum += route.getDistance();
+        }
+        long elapsed = System.nanoTime() - start;
+        if(report){
+            System.out.printf("%-18s %10.1f settled/query %10.1f us/query   (distance sum %d)%n", name,
+                    (double) settled / sources.length, elapsed / 1000.0 / sources.length, checksum);
+        }
+    }
+
+    /**
+     * Scatters vertices over a square whose side is chosen so that a vertex
+     * has about AVERAGE_DEGREE neighbours within distance 1, and links each
+     * to those neighbours, found through a grid of unit cells.
+     */
+    static LinksData geometricLinks(int numVertices, Random random) {
+        double side = Math.sqrt(numVertices * Math.PI / AVERAGE_DEGREE);
+        int cells = Math.max((int) side, 1);
+        String[] names = new String[numVertices];
+        double[] xs = new double[numVertices];
+        double[] ys = new double[numVertices];
+        int[] cellHeads = new int[cells * cells];
+        int[] nextInCell = new int[numVertices];
+        Arrays.fill(cellHeads, -1);
+        for(int id = 0; id < numVertices; id++){
+            names[id] = "v" + id;
+            xs[id] = random.nextDouble() * side;
+            ys[id] = random.nextDouble() * side;
+            int cell = cell(xs[id], cells) * cells + cell(ys[id], cells);
+            nextInCell[id] = cellHeads[cell];
+            cellHeads[cell] = id;
+        }
+
+        EdgeBuffer edges = new EdgeBuffer(numVertices * (int) AVERAGE_DEGREE);
+        for(int id = 0; id < numVertices; id++){
+            int cx = cell(xs[id], cells);
+            int cy = cell(ys[id], cells);
+            for(int x = Math.max(cx - 1, 0); x <= Math.min(cx + 1, cells - 1); x++){
+                for(int y = Math.max(cy - 1, 0); y <= Math.min(cy + 1, cells - 1); y++){
+                    for(int other = cellHeads[x * cells + y]; other >= 0; other = nextInCell[other]){
+                        double length = Math.hypot(xs[id] - xs[other], ys[id] - ys[other]);
+                        if(other != id && length <= 1){
+                            // weights in hundredths, with up to 30% detour over the straight line
+                            int weight = (int) Math.ceil(100 * length * (1 + 0.3 * random.nextDouble()));
+                            edges.add(id, other, weight);
+                        }
+                    }
+                }
+            }
+        }
+        return new LinksData(names, xs, ys, edges);
+    }
+
+    private static int cell(double coordinate, int cells) {
+        return Math.min((int) coordinate, cells - 1);
+    }
+}
@@ -0,0 +1,148 @@
+package graph.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import graph.CsrGraph;
+import graph.VertexOrdering;
+
+/**
+ * Measures how much renumbering a graph with VertexOrdering speeds up sweeps
+ * over it. The graph is the random geometric graph of PointToPointBench,
+ * whose vertex numbers are in no relation to where the vertices lie, like
+ * the ids of a links file. For the original numbering and every order, it
+ * prints the bandwidth and average log gap of the numbering and the time
+ * per sweep of pull-style PageRank (reading the ranks of every vertex's
+ * in-neighbors) and of a breadth-first search from every component.
+ *
+ * Java cannot read the hardware cache counters itself; to count the misses,
+ * run this under a profiler, for example
+ * perf stat -e cache-misses,cache-references java graph.bench.ReorderingBench
+ * with one order at a time.
+ *
+ * Usage: java graph.bench.ReorderingBench [vertices] [sweeps] [order]
+ * where order is one of original, rcm, bfs, degree or all.
+ */
+public class ReorderingBench {
+
+    private static final int DEFAULT_VERTICES = 500000;
+    private static final int DEFAULT_SWEEPS = 20;
+    private static final double DAMPING = 0.85;
+
+    public static void main(String[] args) {
+        int numVertices = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_VERTICES;
+        int sweeps = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_SWEEPS;
+        String which = (args.length > 2) ? args[2] : "all";
+
+        CsrGraph<String> original = CsrGraph.of(PointToPointBench.geometricLinks(numVertices, new Random(44)));
+        VertexOrdering<String> ordering = new VertexOrdering<String>(original);
+        System.out.printf("%d vertices, %d arcs%n", original.getNumVertices(), original.getNumArcs());
+        System.out.printf("%-10s %10s %8s %12s %12s %10s%n", "order", "bandwidth", "log gap", "order ms",
+                "pagerank ms", "bfs ms");
+        if(which.equals("all") || which.equals("original")){
+            run("original", original, 0, sweeps);
+        }
+        if(which.equals("all") || which.equals("rcm")){
+            long start = System.nanoTime();
+            CsrGraph<String> relabeled = ordering.reverseCuthillMcKee().snapshot();
+            run("rcm", relabeled, System.nanoTime() - start, sweeps);
+        }
+        if(which.equals("all") || which.equals("bfs")){
+            long start = System.nanoTime();
+            CsrGraph<String> relabeled = ordering.breadthFirst().snapshot();
+            run("bfs", relabeled, System.nanoTime() - start, sweeps);
+        }
+        if(which.equals("all") || which.equals("degree")){
+            long start = System.nanoTime();
+            CsrGraph<String> relabeled = ordering.degreeDescending().snapshot();
+            run("degree", relabeled, System.nanoTime() - start, sweeps);
+        }
+    }
+
+    private static void run(String name, CsrGraph<String> csr, long orderNanos, int sweeps) {
+        // one untimed round each to warm up the JIT
+        pageRank(csr, 2);
+        breadthFirst(csr);
+        long start = System.nanoTime();
+        double checksum = pageRank(csr, sweeps);
+        long pageRankNanos = (System.nanoTime() - start) / sweeps;
+        start = System.nanoTime();
+        for(int i = 0; i < sweeps; i++){
+            checksum += breadthFirst(csr);
+        }
+        long bfsNanos = (System.nanoTime() - start) / sweeps;
+        System.out.printf("%-10s %10d %8.2f %12.1f %12.2f %10.2f   (checksum %.3f)%n", name,
+                VertexOrdering.bandwidth(csr), VertexOrdering.averageLogGap(csr), orderNanos / 1e6,
+                pageRankNanos / 1e6, bfsNanos / 1e6, checksum);
+    }
+
+    /**
+     * Runs sweeps of pull-style PageRank and returns the sum of the squared
+     * ranks, so the work cannot be skipped.
+     */
+    private static double pageRank(CsrGraph<String> csr, int sweeps) {
+        int n = csr.size();
+        int[] inOffsets = csr.inOffsets();
+        int[] inSources = csr.inSources();
+        double[] ranks = new double[n];
+        double[] next = new double[n];
+        double[] shares = new double[n];
+        Arrays.fill(ranks, 1.0 / n);
+        for(int sweep = 0; sweep < sweeps; sweep++){
+            for(int v = 0; v < n; v++){
+                int degree = csr.outDegree(v);
+                shares[v] = (degree == 0) ? 0 : ranks[v] / degree;
+            }
+            for(int v = 0; v < n; v++){
+                double sum = 0;
+                for(int arc = inOffsets[v]; arc < inOffsets[v + 1]; arc++){
+                    sum += shares[inSources[arc]];
+                }
+                next[v] = (1 - DAMPING) / n + DAMPING * sum;
+            }
+            double[] swap = ranks;
+            ranks = next;
+            next = swap;
+        }
+        double checksum = 0;
+        for(double rank : ranks){
+            checksum += rank * rank;
+        }
+        return checksum;
+    }
+
+    /**
+     * Searches breadth-first from every unreached vertex in turn and returns
+     * the sum of the distances found.
+     */
+    private static long breadthFirst(CsrGraph<String> csr) {
+        int n = csr.size();
+        int[] outOffsets = csr.outOffsets();
+        int[] outTargets = csr.outTargets();
+        int[] distances = new int[n];
+        int[] queue = new int[n];
+        Arrays.fill(distances, -1);
+        long sum = 0;
+        for(int s = 0; s < n; s++){
+            if(distances[s] >= 0){
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            distances[s] = 0;
+            queue[tail++] = s;
+            while(head < tail){
+                int u = queue[head++];
+                sum += distances[u];
+                for(int arc = outOffsets[u]; arc < outOffsets[u + 1]; arc++){
+                    int v = outTargets[arc];
+                    if(distances[v] < 0){
+                        distances[v] = distances[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+}
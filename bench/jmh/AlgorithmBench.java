@@ -0,0 +1,68 @@
+package graph.bench.jmh;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graph.MyPageRank;
+import graph.MyPrimJarnik;
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+
+/**
+ * MyPageRank and MyPrimJarnik on random graphs made as in GraphState, as
+ * throughput and as sampled latency. PageRank is only defined on directed
+ * graphs and the minimum spanning forest on undirected ones, so each runs
+ * on its own kind.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgorithmBench {
+
+    /**
+     * A directed and an undirected random graph of the same size and
+     * density.
+     */
+    @State(Scope.Benchmark)
+    public static class Graphs {
+        @Param({"25", "50", "100"})
+        public int vertices;
+
+        @Param({"0.05", "0.2", "0.5"})
+        public double density;
+
+        GraphState _directed;
+        GraphState _undirected;
+
+        @Setup
+        public void setUp() {
+            _directed = GraphState.of(vertices, density, true);
+            _undirected = GraphState.of(vertices, density, false);
+        }
+    }
+
+    @Benchmark
+    public Map<CS16Vertex<Integer>, Double> calcPageRank(Graphs graphs) {
+        return new MyPageRank<Integer>().calcPageRank(graphs._directed._graph);
+    }
+
+    @Benchmark
+    public Collection<CS16Edge<Integer>> genMinSpanForest(Graphs graphs) {
+        return new MyPrimJarnik<Integer>().genMinSpanForest(graphs._undirected._graph, null);
+    }
+}
@@ -0,0 +1,138 @@
+package graph.bench.jmh;
+
+import static support.graph.Constants.MAX_VERTICES;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import graph.AdjacencyMatrixGraph;
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * The basic operations of AdjacencyMatrixGraph on the random graphs of
+ * GraphState, as throughput and as sampled latency (whose report includes
+ * the percentiles).
+ *
+ * <p>
+ * The queries run on the shared graph. Each mutation runs on a fresh copy
+ * of it, made outside the timed region before every call: insertVertex
+ * adds one vertex, insertEdge adds one edge between two distinct vertices
+ * that are not adjacent, and removeVertex removes a vertex with all its
+ * edges. A copy with MAX_VERTICES vertices loses one first, so that there
+ * is room for insertVertex.
+ * </p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphOperationsBench {
+
+    /**
+     * The next vertex or pair a query benchmark uses, per thread.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int _next;
+
+        int advance() {
+            _next = (_next + 1) & (GraphState.NUM_PAIRS - 1);
+            return _next;
+        }
+    }
+
+    /**
+     * A copy of the graph of GraphState, remade before every call.
+     */
+    @State(Scope.Thread)
+    public static class Copy {
+        Graph<Integer> _graph;
+        List<CS16Vertex<Integer>> _vertices;
+        CS16Vertex<Integer> _one;
+        CS16Vertex<Integer> _two;
+        int _calls;
+
+        @Setup(Level.Invocation)
+        public void setUp(GraphState state) {
+            _graph = new AdjacencyMatrixGraph<Integer>(state.directed);
+            _vertices = GraphState.build(_graph, state);
+            // a pair that is not adjacent, for insertEdge; a random one if
+            // the graph is complete
+            int i = _calls++ & (GraphState.NUM_PAIRS - 1);
+            _one = _vertices.get(state._pairOnes[i]);
+            _two = _vertices.get(state._pairTwos[i]);
+            for(int tries = 0; tries < GraphState.NUM_PAIRS && _graph.areAdjacent(_one, _two); tries++){
+                i = (i + 1) & (GraphState.NUM_PAIRS - 1);
+                _one = _vertices.get(state._pairOnes[i]);
+                _two = _vertices.get(state._pairTwos[i]);
+            }
+            // a full graph has no room for insertVertex; free the slot of
+            // a vertex other than the pair
+            if(_graph.getNumVertices() == MAX_VERTICES){
+                for(CS16Vertex<Integer> vertex : _vertices){
+                    if(vertex != _one && vertex != _two){
+                        _graph.removeVertex(vertex);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean areAdjacent(GraphState state, Cursor cursor) {
+        int i = cursor.advance();
+        return state._graph.areAdjacent(state._vertexList.get(state._pairOnes[i]),
+                state._vertexList.get(state._pairTwos[i]));
+    }
+
+    @Benchmark
+    public void outgoingEdges(GraphState state, Cursor cursor, Blackhole blackhole) {
+        CS16Vertex<Integer> vertex = state._vertexList.get(state._pairOnes[cursor.advance()]);
+        Iterator<CS16Edge<Integer>> edges = state._graph.outgoingEdges(vertex);
+        while(edges.hasNext()){
+            blackhole.consume(edges.next());
+        }
+    }
+
+    @Benchmark
+    public void incomingEdges(GraphState state, Cursor cursor, Blackhole blackhole) {
+        CS16Vertex<Integer> vertex = state._vertexList.get(state._pairOnes[cursor.advance()]);
+        Iterator<CS16Edge<Integer>> edges = state._graph.incomingEdges(vertex);
+        while(edges.hasNext()){
+            blackhole.consume(edges.next());
+        }
+    }
+
+    @Benchmark
+    public CS16Vertex<Integer> insertVertex(Copy copy) {
+        return copy._graph.insertVertex(-1);
+    }
+
+    @Benchmark
+    public CS16Edge<Integer> insertEdge(Copy copy) {
+        return copy._graph.insertEdge(copy._one, copy._two, 1);
+    }
+
+    @Benchmark
+    public Integer removeVertex(Copy copy) {
+        return copy._graph.removeVertex(copy._one);
+    }
+}
@@ -0,0 +1,105 @@
+package graph.bench.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import graph.AdjacencyMatrixGraph;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * A random graph shared by all the threads of a benchmark: every possible
+ * edge is in it with probability density, with a weight from 1 to 100. The
+ * same parameters always give the same graph. An AdjacencyMatrixGraph holds
+ * at most MAX_VERTICES vertices, so vertex counts above it fail at setup.
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+
+    // the number of vertex pairs the query benchmarks cycle through
+    static final int NUM_PAIRS = 1 << 10;
+
+    @Param({"25", "50", "100"})
+    public int vertices;
+
+    @Param({"0.05", "0.2", "0.5"})
+    public double density;
+
+    @Param({"true", "false"})
+    public boolean directed;
+
+    Graph<Integer> _graph;
+    List<CS16Vertex<Integer>> _vertexList;
+    int[] _sources;
+    int[] _targets;
+    int[] _weights;
+    int _numEdges;
+    // random vertex pairs for areAdjacent, as indices into _vertexList
+    int[] _pairOnes;
+    int[] _pairTwos;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(46);
+        int possible = directed ? vertices * (vertices - 1) : vertices * (vertices - 1) / 2;
+        _sources = new int[possible];
+        _targets = new int[possible];
+        _weights = new int[possible];
+        _numEdges = 0;
+        for(int i = 0; i < vertices; i++){
+            for(int j = directed ? 0 : i + 1; j < vertices; j++){
+                if(i != j && random.nextDouble() < density){
+                    _sources[_numEdges] = i;
+                    _targets[_numEdges] = j;
+                    _weights[_numEdges] = 1 + random.nextInt(100);
+                    _numEdges++;
+                }
+            }
+        }
+        _graph = new AdjacencyMatrixGraph<Integer>(directed);
+        _vertexList = build(_graph, this);
+        _pairOnes = new int[NUM_PAIRS];
+        _pairTwos = new int[NUM_PAIRS];
+        for(int i = 0; i < NUM_PAIRS; i++){
+            // the second of a pair is drawn from the other vertices, so
+            // insertEdge never gets a self-loop
+            int one = random.nextInt(vertices);
+            int two = random.nextInt(vertices - 1);
+            _pairOnes[i] = one;
+            _pairTwos[i] = (two < one) ? two : two + 1;
+        }
+    }
+
+    /**
+     * Returns the graph for the given parameters, outside of a benchmark.
+     */
+    static GraphState of(int vertices, double density, boolean directed) {
+        GraphState state = new GraphState();
+        state.vertices = vertices;
+        state.density = density;
+        state.directed = directed;
+        state.setUp();
+        return state;
+    }
+
+    /**
+     * Inserts the vertices and edges of a state into an empty graph and
+     * returns the vertices in order.
+     */
+    static List<CS16Vertex<Integer>> build(Graph<Integer> g, GraphState state) {
+        List<CS16Vertex<Integer>> inserted = new ArrayList<CS16Vertex<Integer>>(state.vertices);
+        for(int i = 0; i < state.vertices; i++){
+            inserted.add(g.insertVertex(i));
+        }
+        for(int i = 0; i < state._numEdges; i++){
+            g.insertEdge(inserted.get(state._sources[i]), inserted.get(state._targets[i]), state._weights[i]);
+        }
+        return inserted;
+    }
+}
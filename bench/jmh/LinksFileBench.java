@@ -0,0 +1,76 @@
+package graph.bench.jmh;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graph.AdjacencyMatrixGraph;
+import graph.LinksFileLoader;
+import graph.MyPageRank;
+import graph.MyPrimJarnik;
+import support.graph.CS16Edge;
+import support.graph.CS16Vertex;
+import support.graph.Graph;
+
+/**
+ * Loading, MyPageRank and MyPrimJarnik on the bundled *_links.txt graphs,
+ * as throughput and as sampled latency. The files are read from the
+ * directory in the graph.bench.dir system property, or the working
+ * directory if it is not set; make jmh runs from the project directory.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinksFileBench {
+
+    @Param({"flatearth_links.txt", "global_warming_links.txt", "olympics_links.txt", "vaccines_links.txt"})
+    public String file;
+
+    private Path _path;
+    private Graph<String> _directed;
+    private Graph<String> _undirected;
+
+    @Setup
+    public void setUp() throws IOException {
+        _path = Paths.get(System.getProperty("graph.bench.dir", "."), file);
+        _directed = new AdjacencyMatrixGraph<String>(true);
+        LinksFileLoader.load(_path, _directed);
+        _undirected = new AdjacencyMatrixGraph<String>(false);
+        LinksFileLoader.load(_path, _undirected);
+    }
+
+    @Benchmark
+    public Graph<String> load() throws IOException {
+        Graph<String> graph = new AdjacencyMatrixGraph<String>(true);
+        LinksFileLoader.load(_path, graph);
+        return graph;
+    }
+
+    @Benchmark
+    public Map<CS16Vertex<String>, Double> calcPageRank() {
+        return new MyPageRank<String>().calcPageRank(_directed);
+    }
+
+    @Benchmark
+    public Collection<CS16Edge<String>> genMinSpanForest() {
+        return new MyPrimJarnik<String>().genMinSpanForest(_undirected, null);
+    }
+}